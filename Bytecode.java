@@ -0,0 +1,174 @@
+// Formato del código de la máquina virtual (ver CompiladorBytecode y MaquinaVirtual).
+//
+// El programa es un único arreglo int[]: cada instrucción es su código de
+// operación seguido de sus operandos enteros. Los literales viven en dos tablas
+// de constantes: 'primitivas' (entero, largo, booleano y los bits del decimal) y
+// 'objetos' (cadenas, nombres y mensajes de error).
+//
+// La pila tiene dos carriles con el mismo índice, igual que Marco: los valores
+// de tipo primitivo conocido viajan sin caja por el carril long[] y el resto
+// (cadenas, arreglos y valores dinámicos) por el carril Object[]. Cada instrucción sabe
+// en compilación qué carril usa. Las variables de una llamada son las primeras
+// posiciones de su tramo de pila; las del programa principal empiezan en 0.
+final class Bytecode {
+
+    private Bytecode() {
+    }
+
+    // ===== Constantes y variables =====
+    static final int CONST_P = 0;            // indice: apila primitivas[indice]
+    static final int CONST_O = 1;            // indice: apila objetos[indice]
+    static final int CARGAR_P = 2;           // ranura
+    static final int CARGAR_O = 3;           // ranura
+    static final int GUARDAR_P = 4;          // ranura (deja el valor en la pila)
+    static final int GUARDAR_O = 5;          // ranura (deja el valor en la pila)
+    static final int CARGAR_VERIF = 6;       // ranura, tipo, nombre, global
+    static final int GUARDAR_VERIF = 7;      // ranura, tipo, nombre, global
+    static final int SIN_INICIALIZAR = 8;    // ranura
+    static final int INICIALIZADA = 9;       // ranura
+    static final int DESCARTAR = 10;
+
+    // ===== Aritmética sin caja =====
+    static final int SUMA_E = 11;
+    static final int RESTA_E = 12;
+    static final int MUL_E = 13;
+    static final int DIV_E = 14;
+    static final int MOD_E = 15;
+    static final int POT_E = 16;
+    static final int NEG_E = 17;
+    static final int SUMA_L = 18;
+    static final int RESTA_L = 19;
+    static final int MUL_L = 20;
+    static final int DIV_L = 21;
+    static final int MOD_L = 22;
+    static final int POT_L = 23;
+    static final int NEG_L = 24;
+    static final int SUMA_D = 25;
+    static final int RESTA_D = 26;
+    static final int MUL_D = 27;
+    static final int DIV_D = 28;
+    static final int MOD_D = 29;
+    static final int POT_D = 30;
+    static final int NEG_D = 31;
+
+    // ===== Comparaciones y lógica sin caja =====
+    static final int MENOR_E = 32;
+    static final int MENOR_IGUAL_E = 33;
+    static final int MAYOR_E = 34;
+    static final int MAYOR_IGUAL_E = 35;
+    static final int MENOR_D = 36;
+    static final int MENOR_IGUAL_D = 37;
+    static final int MAYOR_D = 38;
+    static final int MAYOR_IGUAL_D = 39;
+    static final int IGUAL_E = 40;           // negada
+    static final int IGUAL_D = 41;           // negada
+    static final int IGUAL_B = 42;           // negada
+    static final int NO_B = 43;
+
+    // ===== Conversiones numéricas =====
+    static final int E_A_L = 44;
+    static final int E_A_D = 45;
+    static final int L_A_D = 46;
+    static final int L_A_E = 47;
+    static final int D_A_E = 48;
+    static final int D_A_L = 49;
+
+    // ===== Operaciones genéricas (carril de objetos) =====
+    static final int EMPAQUETAR = 50;        // tipo: pasa el tope del carril primitivo al de objetos
+    static final int ARITMETICA = 51;        // operador
+    static final int RELACIONAL = 52;        // operador
+    static final int IGUALDAD = 53;          // negada
+    static final int NO = 54;
+    static final int NEGATIVO = 55;
+    static final int POSITIVO = 56;
+    static final int O_PRUEBA = 57;          // destino: verdadero salta conservándolo; si no, lo descarta
+    static final int Y_PRUEBA = 58;          // destino: falso salta conservándolo; si no, lo descarta
+    static final int O_VERIFICAR = 59;
+    static final int Y_VERIFICAR = 60;
+    static final int CONDICION = 61;         // estricta: del carril de objetos a un booleano primitivo
+    static final int CONVERTIR = 62;         // tipo, mensaje
+    static final int CONCATENAR = 63;        // partes
+    static final int IMPRIMIR = 64;
+    static final int LEER = 65;
+
+    // ===== Control de flujo =====
+    static final int SALTAR = 66;                       // destino
+    static final int SALTAR_SI_FALSO = 67;              // destino
+    static final int SALTAR_SI_VERDADERO_O_DESCARTAR = 68; // destino (operador 'o' booleano)
+    static final int SALTAR_SI_FALSO_O_DESCARTAR = 69;  // destino (operador 'y' booleano)
+    static final int DECLARAR_FUNCION = 70;  // función
+    static final int BUSCAR_FUNCION = 71;    // nombre
+    static final int LLAMAR = 72;            // nombre, argumentos, tipo esperado
+    static final int RETORNAR_P = 73;
+    static final int RETORNAR_O = 74;
+    static final int RETORNAR_NULO = 75;
+    static final int TERMINAR = 76;
+
+    // ===== Instrucciones combinadas (secuencias frecuentes en los bucles) =====
+    static final int ASIGNAR_P = 77;         // ranura: guarda el tope primitivo y lo descarta
+    static final int ASIGNAR_O = 78;         // ranura: guarda el tope de objetos y lo descarta
+    static final int DESCARTAR_P = 79;       // descarta un valor del carril primitivo
+    static final int SALTAR_SI_NO_MENOR_E = 80;       // destino: compara dos enteros y salta si es falso
+    static final int SALTAR_SI_NO_MENOR_IGUAL_E = 81; // destino
+    static final int SALTAR_SI_NO_MAYOR_E = 82;       // destino
+    static final int SALTAR_SI_NO_MAYOR_IGUAL_E = 83; // destino
+    static final int INCREMENTAR_E = 84;     // ranura, constante: suma un entero a una variable local
+
+    // ===== Texto acumulado en una variable (ver Cuerda) =====
+    static final int CARGAR_CUERDA = 85;     // ranura: apila el valor sin convertir y su largo (dos posiciones)
+    static final int ACUMULAR = 86;          // ranura, partes: agrega las partes a lo apilado por CARGAR_CUERDA
+
+    // ===== Llamadas de cola =====
+    // Como LLAMAR, pero la función llamada ocupa el tramo de pila de la que llama y
+    // retorna directamente a quien llamó a ésta. Le sigue el RETORNAR que se usa si
+    // la llamada no puede reemplazar al marco (su resultado está memorizado).
+    static final int LLAMAR_COLA = 87;       // nombre, argumentos, tipo esperado
+
+    // ===== Arreglos (ver NodosArreglos) =====
+    // El arreglo viaja por el carril de objetos; índices, tamaños y elementos por el primitivo
+    static final int NUEVO_ARREGLO = 88;     // tipo del arreglo: tamaño -> arreglo
+    static final int CARGAR_ELEMENTO_E = 89; // arreglo, índice -> elemento
+    static final int CARGAR_ELEMENTO_L = 90;
+    static final int CARGAR_ELEMENTO_D = 91;
+    static final int GUARDAR_ELEMENTO_E = 92; // arreglo, índice, valor -> valor
+    static final int GUARDAR_ELEMENTO_L = 93;
+    static final int GUARDAR_ELEMENTO_D = 94;
+    static final int TAMANO = 95;            // arreglo -> tamaño
+    static final int LLENAR = 96;            // tipo del arreglo: arreglo, valor -> arreglo
+    static final int COPIAR = 97;            // origen, destino -> destino
+    static final int SUMAR = 98;             // tipo del arreglo: arreglo -> suma
+
+    // Función compilada: su código empieza en 'entrada' dentro del arreglo común
+    static final class Funcion {
+        final EvaluadorSemantico.Funcion funcion;
+        final int nombre; // índice en Programa.nombres
+        int entrada;
+        int maxPila;
+
+        Funcion(EvaluadorSemantico.Funcion funcion, int nombre) {
+            this.funcion = funcion;
+            this.nombre = nombre;
+        }
+    }
+
+    static final class Programa {
+        final int[] codigo;
+        final long[] primitivas;
+        final Object[] objetos;
+        final Funcion[] funciones;
+        final String[] nombres; // nombres de función distintos: una función declarada por nombre
+        final int ranuras;
+        final int maxPila;
+
+        Programa(int[] codigo, long[] primitivas, Object[] objetos, Funcion[] funciones,
+                 String[] nombres, int ranuras, int maxPila) {
+            this.codigo = codigo;
+            this.primitivas = primitivas;
+            this.objetos = objetos;
+            this.funciones = funciones;
+            this.nombres = nombres;
+            this.ranuras = ranuras;
+            this.maxPila = maxPila;
+        }
+    }
+}
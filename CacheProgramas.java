@@ -0,0 +1,198 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+// Caché de programas compilados, indexada por el hash del código fuente.
+//
+// Un programa que ya se compiló no vuelve a pasar por ANTLR ni por el
+// Compilador: se toma de la memoria (los últimos programas usados en este
+// proceso) o, si se indicó un directorio, del archivo serializado que dejó una
+// ejecución anterior. Los nodos no cambian al ejecutarse, así que el mismo
+// Nodo.Programa sirve para cualquier número de ejecuciones.
+//
+// Un archivo que no se puede leer (dañado, o escrito por otra versión de las
+// clases de nodos o del Compilador, ver Version) cuenta como ausente: se avisa
+// por la salida de errores y se reemplaza al volver a compilar. Al leerlo sólo se aceptan las clases de un programa
+// compilado (ver FILTRO): el directorio puede ser compartido, y un archivo
+// puesto ahí por otro no debe poder crear objetos de cualquier clase.
+final class CacheProgramas {
+
+    // Clases que deciden qué programa sale de un código: el parser, el
+    // Compilador, el Optimizador y las clases de nodos. Cada una cuenta con sus
+    // clases internas y anónimas.
+    private static final String[] CLASES_COMPILADOR = {
+        "MilenguajeParser", "Compilador", "Optimizador", "Nodo", "NodosTipados",
+        "NodosArreglos", "Tipo", "EvaluadorSemantico$Funcion"
+    };
+
+    private static final ObjectInputFilter FILTRO = ObjectInputFilter.Config.createFilter(
+        "maxdepth=10000;maxarray=1000000;maxrefs=10000000;"
+        + "Nodo;Nodo$*;NodosTipados$*;NodosArreglos$*;Tipo;EvaluadorSemantico$Funcion;"
+        + "java.lang.Object;java.lang.Enum;java.lang.Number;java.lang.Boolean;java.lang.Integer;"
+        + "java.lang.Long;java.lang.Double;java.lang.String;java.util.ArrayList;!*");
+
+    // Programas que se conservan en memoria
+    static final int CAPACIDAD = 64;
+
+    private static final String EXTENSION = ".esc";
+
+    private static final Map<String, Nodo.Programa> memoria =
+        new LinkedHashMap<String, Nodo.Programa>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Nodo.Programa> mayor) {
+                return size() > CAPACIDAD;
+            }
+        };
+
+    private CacheProgramas() {
+    }
+
+    // Versión escrita al principio de cada archivo: el hash de los .class de
+    // CLASES_COMPILADOR. Cualquier cambio en el compilador da otra versión,
+    // aunque las clases de nodos conserven su forma y un archivo viejo se
+    // pudiera leer sin error. Se calcula la primera vez que se usa el disco;
+    // null si no se pudieron leer las clases, y entonces no se usa el disco.
+    private static final class Version {
+        static final String VALOR = calcular();
+
+        private static String calcular() {
+            try {
+                MessageDigest hash = MessageDigest.getInstance("SHA-256");
+                ClassLoader cargador = CacheProgramas.class.getClassLoader();
+                for (String clase : CLASES_COMPILADOR) {
+                    if (!agregar(hash, cargador, clase)) {
+                        throw new IOException("no se encuentra " + clase + ".class");
+                    }
+                    agregarInternas(hash, cargador, Class.forName(clase, false, cargador));
+                }
+                return hexadecimal(hash.digest());
+            } catch (IOException | ClassNotFoundException | NoSuchAlgorithmException e) {
+                System.err.println("Caché: no se usa el disco, no se pudo calcular la versión del compilador: " + e.getMessage());
+                return null;
+            }
+        }
+
+        private static void agregarInternas(MessageDigest hash, ClassLoader cargador, Class<?> clase) throws IOException {
+            // Las anónimas (Clase$1, Clase$2...) no aparecen en getDeclaredClasses
+            for (int i = 1; agregar(hash, cargador, clase.getName() + "$" + i); i++) {
+                // siguiente anónima
+            }
+            Class<?>[] internas = clase.getDeclaredClasses();
+            Arrays.sort(internas, new Comparator<Class<?>>() {
+                @Override
+                public int compare(Class<?> a, Class<?> b) {
+                    return a.getName().compareTo(b.getName());
+                }
+            });
+            for (Class<?> interna : internas) {
+                agregar(hash, cargador, interna.getName());
+                agregarInternas(hash, cargador, interna);
+            }
+        }
+
+        // false si la clase no tiene .class (no existe)
+        private static boolean agregar(MessageDigest hash, ClassLoader cargador, String clase) throws IOException {
+            try (InputStream entrada = cargador.getResourceAsStream(clase.replace('.', '/') + ".class")) {
+                if (entrada == null) return false;
+                hash.update(clase.getBytes(StandardCharsets.UTF_8));
+                hash.update(entrada.readAllBytes());
+                return true;
+            }
+        }
+    }
+
+    // Directorio por defecto de la caché en disco (opción -cache sin directorio)
+    static Path directorioPorDefecto() {
+        return Paths.get(System.getProperty("user.home"), ".espanolscript", "cache");
+    }
+
+    // El mismo código compilado sin optimizar es otro programa
+    static String clave(String contenido, boolean optimizado) {
+        return optimizado ? clave(contenido) : clave(contenido) + "-sin-optimizar";
+    }
+
+    static String clave(String contenido) {
+        try {
+            return hexadecimal(MessageDigest.getInstance("SHA-256").digest(contenido.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hexadecimal(byte[] hash) {
+        StringBuilder texto = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            texto.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return texto.toString();
+    }
+
+    private static String motivo(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    // Programa compilado para la clave, o null. 'directorio' puede ser null (sólo memoria).
+    static Nodo.Programa buscar(String clave, Path directorio) {
+        synchronized (memoria) {
+            Nodo.Programa programa = memoria.get(clave);
+            if (programa != null) return programa;
+        }
+        if (directorio == null || Version.VALOR == null) return null;
+
+        Path archivo = directorio.resolve(clave + EXTENSION);
+        if (!Files.isRegularFile(archivo)) return null;
+
+        Nodo.Programa programa;
+        try (ObjectInputStream entrada = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(archivo)))) {
+            entrada.setObjectInputFilter(FILTRO);
+            if (!Version.VALOR.equals(entrada.readUTF())) {
+                System.err.println("Caché: se descarta " + archivo + ": compilado por otra versión del compilador");
+                return null;
+            }
+            programa = (Nodo.Programa) entrada.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException | StackOverflowError e) {
+            // InvalidClassException si el filtro rechazó algo
+            System.err.println("Caché: se descarta " + archivo + ": " + motivo(e));
+            return null;
+        }
+
+        synchronized (memoria) {
+            memoria.put(clave, programa);
+        }
+        return programa;
+    }
+
+    static void guardar(String clave, Nodo.Programa programa, Path directorio) {
+        synchronized (memoria) {
+            memoria.put(clave, programa);
+        }
+        if (directorio == null || Version.VALOR == null) return;
+
+        // Se escribe en un archivo temporal y se mueve: otro proceso nunca ve un archivo a medias
+        Path temporal = null;
+        try {
+            Files.createDirectories(directorio);
+            temporal = Files.createTempFile(directorio, clave, ".tmp");
+            try (ObjectOutputStream salida = new ObjectOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+                salida.writeUTF(Version.VALOR);
+                salida.writeObject(programa);
+            }
+            Files.move(temporal, directorio.resolve(clave + EXTENSION),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | StackOverflowError e) {
+            // Sin caché en disco para este programa; la ejecución sigue igual
+            System.err.println("Caché: no se pudo guardar " + clave + ": " + motivo(e));
+            if (temporal != null) {
+                try {
+                    Files.deleteIfExists(temporal);
+                } catch (IOException ignorada) {
+                    // nada más que hacer
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,1415 @@
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.*;
+
+// Pasada de compilación: recorre una única vez el árbol de ANTLR y lo convierte
+// en un árbol de nodos ejecutables (ver Nodo). Los operadores se eligen aquí,
+// los literales se parsean aquí y los hijos quedan ya enlazados, de modo que los
+// bucles no pagan navegación del árbol sintáctico en cada iteración.
+//
+// La misma pasada resuelve cada variable a una ranura de su marco: las variables
+// del programa principal y de sus bloques viven en el marco global, y las de una
+// función (parámetros incluidos) en el marco de la llamada. Un identificador se
+// resuelve primero en los ámbitos léxicos abiertos y, dentro de una función, en
+// los ámbitos del programa principal abiertos donde se declaró (las variables de
+// sus bloques, que viven en el marco global) y en las variables globales.
+//
+// Cada nodo lleva además su tipo estático, deducido de los tipos declarados.
+// Cuando los tipos de los operandos se conocen, se eligen las variantes de
+// NodosTipados que operan sin cajas; si no, se usan los nodos genéricos de Nodo.
+//
+// Salvo que se desactive, los nodos pasan además por el Optimizador al construirse.
+//
+// Con los tipos estáticos se revisa también el programa antes de ejecutarlo: un
+// valor de tipo conocido que nunca puede ir donde se usa (una cadena en una
+// variable entera, un booleano en una resta, un argumento de otro tipo que el
+// parámetro) es un error de tipo. Los errores se juntan con su línea y columna
+// y, si hay alguno, el programa no se ejecuta (ver ErroresDeTipo). Los valores
+// de tipo dinámico se siguen verificando al ejecutar.
+public class Compilador extends MilenguajeBaseVisitor<Nodo> {
+
+    // Errores de tipo de un programa, uno por línea en el mensaje
+    static final class ErroresDeTipo extends RuntimeException {
+        final List<String> errores;
+
+        ErroresDeTipo(List<String> errores) {
+            super(String.join(System.lineSeparator(), errores));
+            this.errores = errores;
+        }
+    }
+
+    // Error que impide terminar de compilar (un 'romper' fuera de un bucle, una
+    // variable sin declarar), con la línea y la columna de la construcción
+    static final class ErrorDeCompilacion extends RuntimeException {
+        ErrorDeCompilacion(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    // Variable resuelta en compilación
+    static final class Simbolo {
+        final String nombre;
+        final Tipo tipo;
+        final int ranura;
+        final boolean verificar; // declarada sin valor inicial: hay que comprobar su estado
+
+        Simbolo(String nombre, Tipo tipo, int ranura, boolean verificar) {
+            this.nombre = nombre;
+            this.tipo = tipo;
+            this.ranura = ranura;
+            this.verificar = verificar;
+        }
+    }
+
+    // Variables globales (declaradas en el nivel superior del programa)
+    private final Map<String, Simbolo> globales = new HashMap<>();
+
+    // Variables de bloques del programa principal que usa alguna función: como las
+    // globales, se acceden en el marco global y su ranura no se vuelve a usar
+    private final Set<Simbolo> capturadas = new HashSet<>();
+
+    // Ranuras del marco global que no se liberan: las globales y las capturadas
+    private int ranurasGlobales = 0;
+
+    // Ámbito del nivel superior. En una sesión (ver Sesion) cada entrada se
+    // compila como otro programa con el mismo Compilador: las globales y
+    // funciones de las entradas anteriores siguen declaradas.
+    private final Map<String, Simbolo> principal = new HashMap<>();
+
+    // Tipo de retorno de las funciones ya compiladas
+    private final Map<String, Tipo> tiposRetorno = new HashMap<>();
+
+    // Funciones declaradas más de una vez: su tipo de retorno no es fiable
+    private final Set<String> funcionesRepetidas = new HashSet<>();
+
+    // Funciones declaradas en el nivel superior, que siempre se declaran al
+    // ejecutarse: otra con el mismo nombre es un error de compilación
+    private final Set<String> funcionesPrincipales = new HashSet<>();
+
+    // Índice de cada nombre de función, declarada o sólo llamada (ver Nodo.Llamada)
+    private final Map<String, Integer> indicesFunciones = new HashMap<>();
+
+    // Tipos de los parámetros de las funciones declaradas una sola vez
+    private final Map<String, Tipo[]> parametrosFunciones = new HashMap<>();
+
+    // Una sola instancia de cada identificador: los nodos que guardan el mismo
+    // nombre (para sus mensajes de error) lo comparten, también al serializarse
+    private final Map<String, String> identificadores = new HashMap<>();
+
+    // Errores de tipo encontrados, y comienzo de la construcción que se está compilando
+    private final List<String> erroresTipo = new ArrayList<>();
+    private Token ubicacion = null;
+
+    // Ámbitos léxicos abiertos del marco que se está compilando
+    private Deque<Map<String, Simbolo>> ambitos = new ArrayDeque<>();
+    private boolean enFuncion = false;
+
+    // Dentro de una función, ámbitos del programa principal abiertos donde se declaró
+    private Deque<Map<String, Simbolo>> ambitosPrincipales = null;
+    private int siguienteRanura = 0;
+    private int maxRanuras = 0;
+
+    // Función cuyo cuerpo se está compilando, tipo de retorno que se supone para
+    // sus llamadas recursivas, y tipos de sus sentencias 'retornar'
+    private String funcionActual = null;
+    private Tipo retornoSupuesto = Tipo.DINAMICO;
+    private List<Tipo> retornos = null;
+
+    // Bucles abiertos en el marco actual: 'romper' y 'continuar' sólo tienen sentido dentro de uno
+    private int bucles = 0;
+
+    // Bucle más interno que se está compilando con el optimizador, y primera ranura
+    // libre por encima de las temporales de los bucles abiertos: cerrar un ámbito
+    // dentro del bucle no las libera (ver elevar)
+    private BucleAbierto bucleActual = null;
+    private int topeTemporales = 0;
+
+    // Plegado de constantes y poda de ramas (ver Optimizador)
+    private final boolean optimizar;
+
+    // Efectos del cuerpo de función que se está compilando, y los de cada función
+    // compilada: al terminar el programa se marcan las puras (ver MemoriaFunciones)
+    private Efectos efectos = null;
+    private final Map<EvaluadorSemantico.Funcion, Efectos> efectosFunciones = new LinkedHashMap<>();
+
+    public Compilador() {
+        this(true);
+    }
+
+    public Compilador(boolean optimizar) {
+        this.optimizar = optimizar;
+    }
+
+    public Nodo.Programa compilar(MilenguajeParser.ProgramaContext ctx) {
+        return (Nodo.Programa) visit(ctx);
+    }
+
+    // Ranuras de las globales ya declaradas: las de un programa que se compile
+    // después con este Compilador empiezan aquí
+    int cantidadGlobales() {
+        return ranurasGlobales;
+    }
+
+    // Tablas que deja la compilación de un programa, para volver a ellas si la
+    // entrada de una sesión que se compila después falla (ver Sesion)
+    static final class Estado {
+        private final Map<String, Simbolo> globales;
+        private final Set<Simbolo> capturadas;
+        private final int ranurasGlobales;
+        private final Map<String, Simbolo> principal;
+        private final Map<String, Tipo> tiposRetorno;
+        private final Set<String> funcionesRepetidas;
+        private final Set<String> funcionesPrincipales;
+        private final Map<String, Integer> indicesFunciones;
+        private final Map<String, Tipo[]> parametrosFunciones;
+        private final Map<EvaluadorSemantico.Funcion, Efectos> efectosFunciones;
+
+        private Estado(Compilador c) {
+            globales = new HashMap<>(c.globales);
+            capturadas = new HashSet<>(c.capturadas);
+            ranurasGlobales = c.ranurasGlobales;
+            principal = new HashMap<>(c.principal);
+            tiposRetorno = new HashMap<>(c.tiposRetorno);
+            funcionesRepetidas = new HashSet<>(c.funcionesRepetidas);
+            funcionesPrincipales = new HashSet<>(c.funcionesPrincipales);
+            indicesFunciones = new HashMap<>(c.indicesFunciones);
+            parametrosFunciones = new HashMap<>(c.parametrosFunciones);
+            efectosFunciones = new LinkedHashMap<>(c.efectosFunciones);
+        }
+    }
+
+    Estado estado() {
+        return new Estado(this);
+    }
+
+    // Vuelve a las tablas de 'estado', y deja como al empezar lo que una
+    // compilación interrumpida por un error dejó a medias
+    void restaurar(Estado estado) {
+        reemplazar(globales, estado.globales);
+        capturadas.clear();
+        capturadas.addAll(estado.capturadas);
+        ranurasGlobales = estado.ranurasGlobales;
+        reemplazar(principal, estado.principal);
+        reemplazar(tiposRetorno, estado.tiposRetorno);
+        funcionesRepetidas.clear();
+        funcionesRepetidas.addAll(estado.funcionesRepetidas);
+        funcionesPrincipales.clear();
+        funcionesPrincipales.addAll(estado.funcionesPrincipales);
+        reemplazar(indicesFunciones, estado.indicesFunciones);
+        reemplazar(parametrosFunciones, estado.parametrosFunciones);
+        reemplazar(efectosFunciones, estado.efectosFunciones);
+
+        erroresTipo.clear();
+        ubicacion = null;
+        ambitos = new ArrayDeque<>();
+        enFuncion = false;
+        ambitosPrincipales = null;
+        funcionActual = null;
+        retornoSupuesto = Tipo.DINAMICO;
+        retornos = null;
+        bucles = 0;
+        bucleActual = null;
+        topeTemporales = 0;
+        efectos = null;
+    }
+
+    private static <K, V> void reemplazar(Map<K, V> tabla, Map<K, V> copia) {
+        tabla.clear();
+        tabla.putAll(copia);
+    }
+
+    // Compilar informando los errores igual que los de ejecución
+    static Nodo.Programa compilarPrograma(MilenguajeParser.ProgramaContext ctx) {
+        return compilarPrograma(ctx, true);
+    }
+
+    static Nodo.Programa compilarPrograma(MilenguajeParser.ProgramaContext ctx, boolean optimizar) {
+        try {
+            return new Compilador(optimizar).compilar(ctx);
+        } catch (ErroresDeTipo | ErrorDeCompilacion e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Error en el programa: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Nodo visit(ParseTree arbol) {
+        Token anterior = ubicacion;
+        if (arbol instanceof ParserRuleContext) {
+            ubicacion = ((ParserRuleContext) arbol).getStart();
+        }
+        try {
+            return super.visit(arbol);
+        } finally {
+            ubicacion = anterior;
+        }
+    }
+
+    @Override
+    public Nodo visitPrograma(MilenguajeParser.ProgramaContext ctx) {
+        // Reservar de antemano una ranura por cada variable global, para que las
+        // funciones puedan referirse a globales declaradas más adelante
+        for (MilenguajeParser.DeclaracionContext decl : ctx.declaracion()) {
+            MilenguajeParser.DeclaracionVariableContext var = decl.declaracionVariable();
+            if (var != null && !globales.containsKey(identificador(var.IDENTIFICADOR()))) {
+                String nombre = identificador(var.IDENTIFICADOR());
+                Tipo tipo = Tipo.deNombre(var.tipo().getText());
+                globales.put(nombre, new Simbolo(nombre, tipo, ranurasGlobales++, var.expresion() == null));
+            }
+        }
+        siguienteRanura = ranurasGlobales;
+        maxRanuras = siguienteRanura;
+
+        buscarFunciones(ctx, new HashSet<>());
+
+        ambitos.push(principal);
+        Nodo[] declaraciones = compilarDeclaraciones(ctx.declaracion());
+        ambitos.pop();
+
+        if (!erroresTipo.isEmpty()) {
+            // Un cuerpo compilado dos veces (ver visitDeclaracionFuncion) o una operación
+            // elegida otra vez al elevarla informa el mismo error más de una vez
+            throw new ErroresDeTipo(new ArrayList<>(new LinkedHashSet<>(erroresTipo)));
+        }
+
+        marcarPuras();
+        return new Nodo.Programa(declaraciones, maxRanuras, indicesFunciones.size());
+    }
+
+    @Override
+    public Nodo visitDeclaracion(MilenguajeParser.DeclaracionContext ctx) {
+        if (ctx.declaracionVariable() != null) {
+            return visit(ctx.declaracionVariable());
+        } else if (ctx.declaracionFuncion() != null) {
+            return visit(ctx.declaracionFuncion());
+        }
+        return visit(ctx.sentencia());
+    }
+
+    @Override
+    public Nodo visitDeclaracionVariable(MilenguajeParser.DeclaracionVariableContext ctx) {
+        Tipo tipo = Tipo.deNombre(ctx.tipo().getText());
+        String nombre = identificador(ctx.IDENTIFICADOR());
+
+        // El valor inicial se compila antes de declarar: no puede referirse a la propia variable
+        Nodo inicial = null;
+        if (ctx.expresion() != null) {
+            inicial = convertir(visit(ctx.expresion()), tipo,
+                "Tipo incompatible para variable '" + nombre + "'. Esperado: " + tipo.nombre + ", recibido: %s");
+        }
+
+        Simbolo simbolo = declarar(nombre, tipo, inicial == null);
+        boolean global = globales.get(nombre) == simbolo;
+
+        if (inicial == null) {
+            return new Nodo.DeclaracionVariable(simbolo.ranura, null, tipo.esPrimitivo());
+        }
+
+        // En el marco global también las de los bloques marcan su ranura como
+        // declarada: una función declarada en el bloque puede leerlas
+        Nodo asignacion = NodosTipados.asignar(tipo, simbolo.ranura, inicial);
+        return global || !enFuncion
+            ? new Nodo.DeclaracionVariable(simbolo.ranura, asignacion, tipo.esPrimitivo())
+            : asignacion;
+    }
+
+    @Override
+    public Nodo visitDeclaracionFuncion(MilenguajeParser.DeclaracionFuncionContext ctx) {
+        String nombre = identificador(ctx.IDENTIFICADOR());
+        impuro(); // declarar una función dentro de otra cambia la tabla de funciones
+        if (!enFuncion && ambitos.size() == 1 && !funcionesPrincipales.add(nombre)) {
+            throw errorDeCompilacion("Función '" + nombre + "' ya está declarada");
+        }
+
+        List<Tipo> tiposParametros = new ArrayList<>();
+        List<String> nombresParametros = new ArrayList<>();
+
+        if (ctx.parametros() != null) {
+            for (int i = 0; i < ctx.parametros().tipo().size(); i++) {
+                tiposParametros.add(Tipo.deNombre(ctx.parametros().tipo(i).getText()));
+                nombresParametros.add(identificador(ctx.parametros().IDENTIFICADOR(i)));
+            }
+        }
+
+        // Primer intento: las llamadas recursivas tienen tipo dinámico
+        int errores = erroresTipo.size();
+        CuerpoCompilado cuerpo = compilarCuerpo(nombre, tiposParametros, nombresParametros, ctx.bloque(), Tipo.DINAMICO);
+        Tipo tipoRetorno = Tipo.DINAMICO;
+
+        // Si todos los 'retornar' con tipo conocido coinciden, se supone ese tipo para
+        // las llamadas recursivas y se confirma con una segunda compilación del cuerpo.
+        // Quedan los errores de tipo de la compilación que se usa.
+        Tipo candidato = cuerpo.candidatoRetorno();
+        if (candidato != Tipo.DINAMICO && !funcionesRepetidas.contains(nombre)) {
+            List<String> erroresCuerpo = new ArrayList<>(erroresTipo.subList(errores, erroresTipo.size()));
+            erroresTipo.subList(errores, erroresTipo.size()).clear();
+            CuerpoCompilado tipado = compilarCuerpo(nombre, tiposParametros, nombresParametros, ctx.bloque(), candidato);
+            if (tipado.retornaSiempre(candidato)) {
+                cuerpo = tipado;
+                tipoRetorno = candidato;
+            } else {
+                erroresTipo.subList(errores, erroresTipo.size()).clear();
+                erroresTipo.addAll(erroresCuerpo);
+            }
+        }
+
+        if (!funcionesRepetidas.contains(nombre)) {
+            tiposRetorno.put(nombre, tipoRetorno);
+        }
+
+        EvaluadorSemantico.Funcion funcion = new EvaluadorSemantico.Funcion(
+            nombre, tiposParametros.toArray(new Tipo[0]), nombresParametros, cuerpo.cuerpo, cuerpo.ranuras, tipoRetorno);
+        funcion.indice = indiceFuncion(nombre);
+        efectosFunciones.put(funcion, cuerpo.efectos);
+        return new Nodo.DeclaracionFuncion(funcion);
+    }
+
+    @Override
+    public Nodo visitBloque(MilenguajeParser.BloqueContext ctx) {
+        int inicio = abrirAmbito();
+        try {
+            return new Nodo.Bloque(compilarDeclaraciones(ctx.declaracion()));
+        } finally {
+            cerrarAmbito(inicio);
+        }
+    }
+
+    @Override
+    public Nodo visitSentencia(MilenguajeParser.SentenciaContext ctx) {
+        return visit(ctx.getChild(0));
+    }
+
+    @Override
+    public Nodo visitBloquesentencia(MilenguajeParser.BloquesentenciaContext ctx) {
+        return visit(ctx.bloque());
+    }
+
+    @Override
+    public Nodo visitSentenciaExpresion(MilenguajeParser.SentenciaExpresionContext ctx) {
+        return visit(ctx.expresion());
+    }
+
+    @Override
+    public Nodo visitSentenciaSi(MilenguajeParser.SentenciaSiContext ctx) {
+        Nodo condicion = condicion(visit(ctx.expresion()), true);
+        Nodo entonces = visit(ctx.sentencia(0));
+        Nodo sino = ctx.sentencia().size() > 1 ? visit(ctx.sentencia(1)) : null;
+        return optimizar ? Optimizador.si(condicion, entonces, sino) : new Nodo.Si(condicion, entonces, sino);
+    }
+
+    @Override
+    public Nodo visitSentenciaPara(MilenguajeParser.SentenciaParaContext ctx) {
+        // La variable de control vive en un ámbito propio que envuelve al cuerpo
+        int inicio = abrirAmbito();
+        BucleAbierto bucle = null;
+        try {
+            Nodo inicializacion = visit(ctx.declaracionVariable());
+            bucle = abrirBucle(ctx.expresion(0), ctx.expresion(1), ctx.sentencia());
+            Nodo condicion = condicion(visit(ctx.expresion(0)), false);
+            Nodo incremento = visit(ctx.expresion(1));
+            Nodo cuerpo = compilarCuerpoBucle(ctx.sentencia());
+            if (!optimizar) {
+                return new Nodo.Para(inicializacion, condicion, incremento, cuerpo);
+            }
+
+            // Lo elevado se calcula después de inicializar la variable de control
+            if (!bucle.elevadas.isEmpty()) {
+                bucle.elevadas.add(0, inicializacion);
+                inicializacion = new Nodo.Bloque(bucle.elevadas.toArray(new Nodo[0]));
+            }
+            Nodo para = Optimizador.para(inicializacion, condicion, incremento, cuerpo);
+            return para instanceof Nodo.Para ? Optimizador.contado((Nodo.Para) para, bucle.invariantes) : para;
+        } finally {
+            cerrarBucle(bucle);
+            cerrarAmbito(inicio);
+        }
+    }
+
+    @Override
+    public Nodo visitSentenciaMientras(MilenguajeParser.SentenciaMientrasContext ctx) {
+        BucleAbierto bucle = abrirBucle(ctx.expresion(), ctx.sentencia());
+        try {
+            Nodo condicion = condicion(visit(ctx.expresion()), false);
+            Nodo cuerpo = compilarCuerpoBucle(ctx.sentencia());
+            if (!optimizar) {
+                return new Nodo.Mientras(condicion, cuerpo);
+            }
+
+            Nodo mientras = Optimizador.mientras(condicion, cuerpo);
+            if (!(mientras instanceof Nodo.Mientras) || bucle.elevadas.isEmpty()) {
+                return mientras;
+            }
+            bucle.elevadas.add(mientras);
+            return new Nodo.Bloque(bucle.elevadas.toArray(new Nodo[0]));
+        } finally {
+            cerrarBucle(bucle);
+        }
+    }
+
+    private Nodo compilarCuerpoBucle(MilenguajeParser.SentenciaContext cuerpo) {
+        bucles++;
+        try {
+            return visit(cuerpo);
+        } finally {
+            bucles--;
+        }
+    }
+
+    @Override
+    public Nodo visitSentenciaRetornar(MilenguajeParser.SentenciaRetornarContext ctx) {
+        Nodo valor = ctx.expresion() != null ? visit(ctx.expresion()) : null;
+        if (retornos != null) {
+            retornos.add(valor != null ? valor.tipo() : null);
+        }
+        // Llamada en posición de cola: se hace después de soltar el marco de esta función
+        if (funcionActual != null && valor instanceof Nodo.Llamada) {
+            return new Nodo.RetornarLlamada((Nodo.Llamada) valor);
+        }
+        return new Nodo.Retornar(valor);
+    }
+
+    @Override
+    public Nodo visitSentenciaImprimir(MilenguajeParser.SentenciaImprimirContext ctx) {
+        impuro();
+        return new Nodo.Imprimir(visit(ctx.expresion()));
+    }
+
+    @Override
+    public Nodo visitSentenciaRomper(MilenguajeParser.SentenciaRomperContext ctx) {
+        if (bucles == 0) {
+            throw errorDeCompilacion("'romper' debe estar dentro de un bucle");
+        }
+        return new Nodo.Romper();
+    }
+
+    @Override
+    public Nodo visitSentenciaContinuar(MilenguajeParser.SentenciaContinuarContext ctx) {
+        if (bucles == 0) {
+            throw errorDeCompilacion("'continuar' debe estar dentro de un bucle");
+        }
+        return new Nodo.Continuar();
+    }
+
+    @Override
+    public Nodo visitExpresion(MilenguajeParser.ExpresionContext ctx) {
+        return elevar(visit(ctx.asignacion()));
+    }
+
+    @Override
+    public Nodo visitAsignacion(MilenguajeParser.AsignacionContext ctx) {
+        if (ctx.IDENTIFICADOR() != null) {
+            String nombre = identificador(ctx.IDENTIFICADOR());
+            Nodo valor = visit(ctx.asignacion());
+            Simbolo simbolo = resolver(nombre);
+
+            valor = elevar(convertir(valor, simbolo.tipo,
+                "Tipo incompatible para asignación a '" + nombre + "'. Esperado: " + simbolo.tipo.nombre + ", recibido: %s"));
+
+            boolean global = esGlobal(simbolo);
+            if (global) impuro();
+            Nodo asignacion = global || simbolo.verificar
+                ? new Nodo.AsignarVerificado(nombre, simbolo.tipo, simbolo.ranura, global, valor)
+                : NodosTipados.asignar(simbolo.tipo, simbolo.ranura, valor);
+
+            // 's = s + ...': se agrega al final del valor de la variable
+            if (simbolo.tipo == Tipo.CADENA && valor instanceof NodosTipados.Concatenar) {
+                Nodo[] partes = ((NodosTipados.Concatenar) valor).partes;
+                if (esLectura(partes[0], simbolo, global)) {
+                    return new NodosTipados.AcumularCadena(nombre, simbolo.ranura, global, global || simbolo.verificar,
+                        Arrays.copyOfRange(partes, 1, partes.length), asignacion);
+                }
+            }
+            return asignacion;
+        }
+        if (ctx.accesoArreglo() != null) {
+            MilenguajeParser.AccesoArregloContext acceso = ctx.accesoArreglo();
+            Nodo arreglo = arreglo(acceso);
+            Nodo indice = indice(acceso);
+            Nodo valor = visit(ctx.asignacion());
+            if (!arreglo.tipo().esArreglo()) return valor;
+
+            Tipo elemento = arreglo.tipo().elemento();
+            valor = convertir(valor, elemento, "Tipo incompatible para elemento de '" + acceso.IDENTIFICADOR().getText()
+                + "'. Esperado: " + elemento.nombre + ", recibido: %s");
+            return NodosArreglos.asignarElemento(arreglo, indice, valor);
+        }
+        return visit(ctx.expresionLogicaO());
+    }
+
+    private static boolean esLectura(Nodo nodo, Simbolo simbolo, boolean global) {
+        if (nodo instanceof NodosTipados.LeerCadena) {
+            return !global && ((NodosTipados.LeerCadena) nodo).ranura == simbolo.ranura;
+        }
+        if (nodo instanceof Nodo.LeerVerificado) {
+            Nodo.LeerVerificado leer = (Nodo.LeerVerificado) nodo;
+            return leer.global == global && leer.ranura == simbolo.ranura;
+        }
+        return false;
+    }
+
+    @Override
+    public Nodo visitExpresionLogicaO(MilenguajeParser.ExpresionLogicaOContext ctx) {
+        if (ctx.expresionLogicaY().size() == 1) {
+            return visit(ctx.expresionLogicaY(0));
+        }
+        Nodo[] operandos = compilarExpresiones(ctx.expresionLogicaY());
+        Nodo nodo = o(operandos);
+        return hayQueElevar(nodo, operandos) ? o(elevar(operandos)) : nodo;
+    }
+
+    private Nodo o(Nodo[] operandos) {
+        revisarBooleanos(operandos, "Operador 'o' requiere operandos booleanos");
+        return plegar(todosBooleanos(operandos) ? new NodosTipados.OBooleano(operandos) : new Nodo.O(operandos), operandos);
+    }
+
+    @Override
+    public Nodo visitExpresionLogicaY(MilenguajeParser.ExpresionLogicaYContext ctx) {
+        if (ctx.expresionIgualdad().size() == 1) {
+            return visit(ctx.expresionIgualdad(0));
+        }
+        Nodo[] operandos = compilarExpresiones(ctx.expresionIgualdad());
+        Nodo nodo = y(operandos);
+        return hayQueElevar(nodo, operandos) ? y(elevar(operandos)) : nodo;
+    }
+
+    private Nodo y(Nodo[] operandos) {
+        revisarBooleanos(operandos, "Operador 'y' requiere operandos booleanos");
+        return plegar(todosBooleanos(operandos) ? new NodosTipados.YBooleano(operandos) : new Nodo.Y(operandos), operandos);
+    }
+
+    @Override
+    public Nodo visitExpresionIgualdad(MilenguajeParser.ExpresionIgualdadContext ctx) {
+        Nodo izquierda = visit(ctx.expresionRelacional(0));
+
+        for (int i = 1; i < ctx.expresionRelacional().size(); i++) {
+            boolean negada = ctx.getChild(2 * i - 1).getText().equals("!=");
+            Nodo derecha = visit(ctx.expresionRelacional(i));
+            izquierda = igualdad(negada, izquierda, derecha);
+        }
+
+        return izquierda;
+    }
+
+    @Override
+    public Nodo visitExpresionRelacional(MilenguajeParser.ExpresionRelacionalContext ctx) {
+        Nodo izquierda = visit(ctx.expresionAritmetica(0));
+
+        for (int i = 1; i < ctx.expresionAritmetica().size(); i++) {
+            int operador = EvaluadorSemantico.codigoOperador(ctx.getChild(2 * i - 1).getText());
+            Nodo derecha = visit(ctx.expresionAritmetica(i));
+            izquierda = relacional(operador, izquierda, derecha);
+        }
+
+        return izquierda;
+    }
+
+    @Override
+    public Nodo visitExpresionAritmetica(MilenguajeParser.ExpresionAritmeticaContext ctx) {
+        Nodo izquierda = visit(ctx.expresionPotencia(0));
+
+        for (int i = 1; i < ctx.expresionPotencia().size(); i++) {
+            int operador = EvaluadorSemantico.codigoOperador(ctx.getChild(2 * i - 1).getText());
+            Nodo derecha = visit(ctx.expresionPotencia(i));
+            izquierda = aritmetica(operador, izquierda, derecha);
+        }
+
+        return izquierda;
+    }
+
+    @Override
+    public Nodo visitExpresionPotencia(MilenguajeParser.ExpresionPotenciaContext ctx) {
+        Nodo izquierda = visit(ctx.expresionMultiplicativa(0));
+
+        if (ctx.expresionMultiplicativa().size() > 1) {
+            Nodo derecha = visit(ctx.expresionMultiplicativa(1));
+            return aritmetica(EvaluadorSemantico.OP_POTENCIA, izquierda, derecha);
+        }
+
+        return izquierda;
+    }
+
+    @Override
+    public Nodo visitExpresionMultiplicativa(MilenguajeParser.ExpresionMultiplicativaContext ctx) {
+        Nodo izquierda = visit(ctx.expresionUnaria(0));
+
+        for (int i = 1; i < ctx.expresionUnaria().size(); i++) {
+            int operador = EvaluadorSemantico.codigoOperador(ctx.getChild(2 * i - 1).getText());
+            Nodo derecha = visit(ctx.expresionUnaria(i));
+            izquierda = aritmetica(operador, izquierda, derecha);
+        }
+
+        return izquierda;
+    }
+
+    @Override
+    public Nodo visitExpresionUnaria(MilenguajeParser.ExpresionUnariaContext ctx) {
+        if (ctx.getChildCount() == 2) {
+            String operador = ctx.getChild(0).getText();
+            Nodo operando = visit(ctx.expresionUnaria());
+            Nodo nodo = operacionUnaria(operador, operando);
+            return hayQueElevar(nodo, operando) ? operacionUnaria(operador, elevar(operando)) : nodo;
+        }
+        return visit(ctx.expresionPrimaria());
+    }
+
+    private Nodo operacionUnaria(String operador, Nodo operando) {
+        Tipo tipo = operando.tipo();
+        if (operador.equals("no") && tipo != Tipo.BOOLEANO && tipo != Tipo.DINAMICO) {
+            errorDeTipo("Operador 'no' requiere operando booleano");
+        } else if (!operador.equals("no") && (tipo == Tipo.BOOLEANO || tipo == Tipo.CADENA || tipo.esArreglo())) {
+            errorDeTipo("Operador '" + operador + "' requiere operando numérico");
+        }
+        return plegar(unaria(operador, operando), operando);
+    }
+
+    private Nodo unaria(String operador, Nodo operando) {
+        Tipo tipo = operando.tipo();
+        switch (operador) {
+            case "no":
+                return tipo == Tipo.BOOLEANO ? new NodosTipados.NoBooleano(operando) : new Nodo.No(operando);
+            case "-":
+                switch (tipo) {
+                    case ENTERO: return new NodosTipados.NegativoEntero(operando);
+                    case LARGO: return new NodosTipados.NegativoLargo(operando);
+                    case DECIMAL: return new NodosTipados.NegativoDecimal(operando);
+                    default: return new Nodo.Negativo(operando);
+                }
+            case "+":
+                return tipo.esNumerico() ? operando : new Nodo.Positivo(operando);
+            default:
+                throw errorDeCompilacion("Operador unario desconocido: " + operador);
+        }
+    }
+
+    @Override
+    public Nodo visitExpresionPrimaria(MilenguajeParser.ExpresionPrimariaContext ctx) {
+        if (ctx.NUMERO_ENTERO() != null) {
+            String numeroTexto = ctx.NUMERO_ENTERO().getText();
+            try {
+                // Intentar parsear como Integer primero
+                return new NodosTipados.LiteralEntero(Integer.parseInt(numeroTexto));
+            } catch (NumberFormatException e) {
+                // Si es muy grande para Integer, usar Long
+                return new NodosTipados.LiteralLargo(Long.parseLong(numeroTexto));
+            }
+        } else if (ctx.NUMERO_DECIMAL() != null) {
+            return new NodosTipados.LiteralDecimal(Double.parseDouble(ctx.NUMERO_DECIMAL().getText()));
+        } else if (ctx.CADENA() != null) {
+            String texto = ctx.CADENA().getText();
+            return new Nodo.Literal(texto.substring(1, texto.length() - 1)); // Remover comillas
+        } else if (ctx.getText().equals("verdadero")) {
+            return new NodosTipados.LiteralBooleano(true);
+        } else if (ctx.getText().equals("falso")) {
+            return new NodosTipados.LiteralBooleano(false);
+        } else if (ctx.accesoArreglo() != null) {
+            return visit(ctx.accesoArreglo());
+        } else if (ctx.nuevoArreglo() != null) {
+            return visit(ctx.nuevoArreglo());
+        } else if (ctx.IDENTIFICADOR() != null) {
+            return leerVariable(ctx.IDENTIFICADOR());
+        } else if (ctx.llamadaFuncion() != null) {
+            return visit(ctx.llamadaFuncion());
+        } else if (ctx.expresionLeer() != null) {
+            impuro();
+            return new Nodo.Leer();
+        } else if (ctx.expresion() != null) {
+            // Sin pasar por visitExpresion: lo que haya que elevar se decide con la expresión completa
+            return visit(ctx.expresion().asignacion());
+        }
+
+        throw errorDeCompilacion("Expresión primaria no reconocida");
+    }
+
+    private Nodo leerVariable(TerminalNode identificador) {
+        Simbolo simbolo = resolver(identificador(identificador));
+        boolean global = esGlobal(simbolo);
+        if (global) impuro();
+        if (global || simbolo.verificar) {
+            return new Nodo.LeerVerificado(simbolo.nombre, simbolo.tipo, simbolo.ranura, global);
+        }
+        Nodo lectura = NodosTipados.leer(simbolo.tipo, simbolo.ranura);
+        if (fijaEnBucle(simbolo)) {
+            bucleActual.invariantes.add(lectura);
+        }
+        return lectura;
+    }
+
+    // Arreglos
+
+    @Override
+    public Nodo visitAccesoArreglo(MilenguajeParser.AccesoArregloContext ctx) {
+        Nodo arreglo = arreglo(ctx);
+        Nodo indice = indice(ctx);
+        if (!arreglo.tipo().esArreglo()) return new Nodo.Literal(null);
+        return NodosArreglos.elemento(arreglo, indice);
+    }
+
+    @Override
+    public Nodo visitNuevoArreglo(MilenguajeParser.NuevoArregloContext ctx) {
+        impuro(); // el resultado es un arreglo nuevo en cada llamada
+        Tipo tipo = Tipo.deNombre(ctx.tipoElemento().getText() + "[]");
+        Nodo tamano = convertir(visit(ctx.expresion()), Tipo.ENTERO,
+            "Tamaño de arreglo de tipo incorrecto. Esperado: entero, recibido: %s");
+        return new NodosArreglos.Crear(tipo, tamano);
+    }
+
+    // Los elementos de un arreglo pueden cambiar sin asignar la variable: una función
+    // que usa arreglos no es pura
+    private Nodo arreglo(MilenguajeParser.AccesoArregloContext ctx) {
+        impuro();
+        Nodo arreglo = leerVariable(ctx.IDENTIFICADOR());
+        if (!arreglo.tipo().esArreglo()) {
+            errorDeTipo("La variable '" + ctx.IDENTIFICADOR().getText() + "' no es un arreglo");
+        }
+        return arreglo;
+    }
+
+    private Nodo indice(MilenguajeParser.AccesoArregloContext ctx) {
+        return convertir(visit(ctx.expresion()), Tipo.ENTERO,
+            "Índice de arreglo de tipo incorrecto. Esperado: entero, recibido: %s");
+    }
+
+    // tamano(a), llenar(a, x), copiar(origen, destino) y suma(a)
+    private Nodo funcionArreglo(String nombre, Nodo[] argumentos) {
+        impuro();
+        int esperados = nombre.equals("llenar") || nombre.equals("copiar") ? 2 : 1;
+        if (argumentos.length != esperados) {
+            errorDeTipo("Número incorrecto de argumentos para función '" + nombre + "'");
+            return new Nodo.Literal(null);
+        }
+        Nodo arreglo = argumentos[0];
+        Tipo tipo = arreglo.tipo();
+        if (!tipo.esArreglo()) {
+            errorDeTipo("Argumento 1 de función '" + nombre + "' debe ser un arreglo");
+            return new Nodo.Literal(null);
+        }
+
+        switch (nombre) {
+            case "tamano":
+                return new NodosArreglos.Tamano(arreglo);
+            case "suma":
+                return NodosArreglos.suma(arreglo);
+            case "llenar":
+                return new NodosArreglos.Llenar(arreglo, convertir(argumentos[1], tipo.elemento(),
+                    "Argumento 2 de función 'llenar' tiene tipo incorrecto. Esperado: " + tipo.elemento().nombre + ", recibido: %s"));
+            default:
+                if (argumentos[1].tipo() != tipo) {
+                    errorDeTipo("Argumento 2 de función 'copiar' debe ser un arreglo " + tipo.nombre);
+                }
+                return new NodosArreglos.Copiar(arreglo, argumentos[1]);
+        }
+    }
+
+    @Override
+    public Nodo visitLlamadaFuncion(MilenguajeParser.LlamadaFuncionContext ctx) {
+        String nombre = identificador(ctx.IDENTIFICADOR());
+        Nodo[] argumentos = ctx.argumentos() != null
+            ? compilarExpresiones(ctx.argumentos().expresion())
+            : new Nodo[0];
+
+        if (NodosArreglos.FUNCIONES.contains(nombre)
+                && !parametrosFunciones.containsKey(nombre) && !funcionesRepetidas.contains(nombre)) {
+            return funcionArreglo(nombre, argumentos);
+        }
+
+        if (efectos != null) {
+            efectos.llamadas.add(nombre);
+        }
+
+        Tipo[] parametros = parametrosFunciones.get(nombre);
+        if (parametros != null && parametros.length != argumentos.length) {
+            errorDeTipo("Número incorrecto de argumentos para función '" + nombre + "'");
+        } else if (parametros != null) {
+            for (int i = 0; i < argumentos.length; i++) {
+                if (incompatibles(argumentos[i].tipo(), parametros[i])) {
+                    errorDeTipo("Argumento " + (i + 1) + " de función '" + nombre + "' tiene tipo incorrecto");
+                }
+            }
+        }
+
+        Tipo tipo = nombre.equals(funcionActual)
+            ? retornoSupuesto
+            : tiposRetorno.getOrDefault(nombre, Tipo.DINAMICO);
+        return new Nodo.Llamada(nombre, indiceFuncion(nombre), argumentos, tipo);
+    }
+
+    private String identificador(TerminalNode nodo) {
+        String texto = nodo.getText();
+        String nombre = identificadores.get(texto);
+        if (nombre == null) {
+            identificadores.put(texto, texto);
+            nombre = texto;
+        }
+        return nombre;
+    }
+
+    private int indiceFuncion(String nombre) {
+        Integer indice = indicesFunciones.get(nombre);
+        if (indice == null) {
+            indice = indicesFunciones.size();
+            indicesFunciones.put(nombre, indice);
+        }
+        return indice;
+    }
+
+    // Selección de nodos según el tipo estático de los operandos
+
+    // Conversión al tipo de una variable o parámetro; si los tipos no se conocen
+    // (o no son compatibles) la conversión y la verificación quedan para la ejecución
+    private Nodo convertir(Nodo valor, Tipo destino, String error) {
+        if (valor.tipo() == destino) return valor;
+        if (incompatibles(valor.tipo(), destino)) {
+            errorDeTipo(String.format(error, valor.tipo().nombre));
+        }
+
+        Nodo nodo = seleccionarConversion(valor, destino, error);
+        return hayQueElevar(nodo, valor) ? seleccionarConversion(elevar(valor), destino, error) : nodo;
+    }
+
+    private Nodo seleccionarConversion(Nodo valor, Tipo destino, String error) {
+        if (valor.tipo().esNumerico() && destino.esNumerico()) {
+            return plegar(NodosTipados.convertirNumerico(valor, destino), valor);
+        }
+        return plegar(new Nodo.ConvertirDinamico(valor, destino, error), valor);
+    }
+
+    private Nodo condicion(Nodo valor, boolean estricta) {
+        if (valor.tipo() == Tipo.BOOLEANO) return valor;
+        // Los bucles terminan con una condición que no es booleana; el 'si' falla
+        if (estricta && valor.tipo() != Tipo.DINAMICO) {
+            errorDeTipo("La condición del 'si' debe ser booleana");
+        }
+
+        Nodo nodo = plegar(new Nodo.Condicion(valor, estricta), valor);
+        return hayQueElevar(nodo, valor) ? new Nodo.Condicion(elevar(valor), estricta) : nodo;
+    }
+
+    // Operación ya elegida; con el optimizador, su valor si los operandos son literales,
+    // y dentro de un bucle se anota si no cambia en él
+    private Nodo plegar(Nodo nodo, Nodo... operandos) {
+        return optimizar ? marcarInvariante(Optimizador.plegar(nodo, operandos), operandos) : nodo;
+    }
+
+    private Nodo aritmetica(int operador, Nodo izquierda, Nodo derecha) {
+        Nodo nodo = operacionAritmetica(operador, izquierda, derecha);
+        return hayQueElevar(nodo, izquierda, derecha)
+            ? operacionAritmetica(operador, elevar(izquierda), elevar(derecha))
+            : nodo;
+    }
+
+    private Nodo operacionAritmetica(int operador, Nodo izquierda, Nodo derecha) {
+        Nodo nodo = seleccionarAritmetica(operador, izquierda, derecha);
+        if (optimizar && nodo instanceof NodosTipados.Concatenar) {
+            Nodo[] partes = ((NodosTipados.Concatenar) nodo).partes;
+            return marcarInvariante(Optimizador.concatenacion((NodosTipados.Concatenar) nodo), partes);
+        }
+        return plegar(nodo, izquierda, derecha);
+    }
+
+    private Nodo seleccionarAritmetica(int operador, Nodo izquierda, Nodo derecha) {
+        Tipo a = izquierda.tipo();
+        Tipo b = derecha.tipo();
+
+        if (operador == EvaluadorSemantico.OP_SUMA && (a == Tipo.CADENA || b == Tipo.CADENA)) {
+            return NodosTipados.concatenar(izquierda, derecha);
+        }
+
+        // Sin cadenas de por medio, un booleano nunca es operando; un valor dinámico
+        // todavía puede ser una cadena en la suma
+        boolean suma = operador == EvaluadorSemantico.OP_SUMA;
+        if ((a == Tipo.CADENA || b == Tipo.CADENA) || a.esArreglo() || b.esArreglo()
+                || (a == Tipo.BOOLEANO && (!suma || b != Tipo.DINAMICO))
+                || (b == Tipo.BOOLEANO && (!suma || a != Tipo.DINAMICO))) {
+            errorDeTipo("Operador '" + EvaluadorSemantico.SIMBOLOS[operador] + "' no aplicable a estos tipos");
+        }
+
+        if (a.esNumerico() && b.esNumerico()) {
+            Tipo tipo = Tipo.numericoComun(a, b);
+            return NodosTipados.aritmetica(operador, tipo,
+                NodosTipados.convertirNumerico(izquierda, tipo),
+                NodosTipados.convertirNumerico(derecha, tipo));
+        }
+
+        return new Nodo.Aritmetica(operador, izquierda, derecha);
+    }
+
+    private Nodo relacional(int operador, Nodo izquierda, Nodo derecha) {
+        Nodo nodo = plegar(seleccionarRelacional(operador, izquierda, derecha), izquierda, derecha);
+        if (hayQueElevar(nodo, izquierda, derecha)) {
+            izquierda = elevar(izquierda);
+            derecha = elevar(derecha);
+            nodo = plegar(seleccionarRelacional(operador, izquierda, derecha), izquierda, derecha);
+        }
+        return nodo;
+    }
+
+    private Nodo seleccionarRelacional(int operador, Nodo izquierda, Nodo derecha) {
+        Tipo a = izquierda.tipo();
+        Tipo b = derecha.tipo();
+
+        if (a == Tipo.BOOLEANO || a == Tipo.CADENA || b == Tipo.BOOLEANO || b == Tipo.CADENA
+                || a.esArreglo() || b.esArreglo()) {
+            errorDeTipo("Operador '" + EvaluadorSemantico.SIMBOLOS[operador] + "' no aplicable a estos tipos");
+        }
+
+        if (a.esNumerico() && b.esNumerico()) {
+            // Fuera de entero contra entero, la comparación es entre decimales
+            Tipo tipo = a == Tipo.ENTERO && b == Tipo.ENTERO ? Tipo.ENTERO : Tipo.DECIMAL;
+            return NodosTipados.relacional(operador, tipo,
+                NodosTipados.convertirNumerico(izquierda, tipo),
+                NodosTipados.convertirNumerico(derecha, tipo));
+        }
+
+        return new Nodo.Relacional(operador, izquierda, derecha);
+    }
+
+    private Nodo igualdad(boolean negada, Nodo izquierda, Nodo derecha) {
+        Nodo nodo = plegar(seleccionarIgualdad(negada, izquierda, derecha), izquierda, derecha);
+        if (hayQueElevar(nodo, izquierda, derecha)) {
+            izquierda = elevar(izquierda);
+            derecha = elevar(derecha);
+            nodo = plegar(seleccionarIgualdad(negada, izquierda, derecha), izquierda, derecha);
+        }
+        return nodo;
+    }
+
+    private Nodo seleccionarIgualdad(boolean negada, Nodo izquierda, Nodo derecha) {
+        Tipo a = izquierda.tipo();
+        Tipo b = derecha.tipo();
+
+        if (a == Tipo.ENTERO && b == Tipo.ENTERO) {
+            return new NodosTipados.IgualEntero(negada, izquierda, derecha);
+        }
+        if (a.esNumerico() && b.esNumerico()) {
+            return new NodosTipados.IgualDecimal(negada,
+                NodosTipados.convertirNumerico(izquierda, Tipo.DECIMAL),
+                NodosTipados.convertirNumerico(derecha, Tipo.DECIMAL));
+        }
+        if (a == Tipo.BOOLEANO && b == Tipo.BOOLEANO) {
+            return new NodosTipados.IgualBooleano(negada, izquierda, derecha);
+        }
+
+        return new Nodo.Igualdad(negada, izquierda, derecha);
+    }
+
+    private void revisarBooleanos(Nodo[] operandos, String error) {
+        for (Nodo operando : operandos) {
+            if (operando.tipo() != Tipo.BOOLEANO && operando.tipo() != Tipo.DINAMICO) {
+                errorDeTipo(error);
+                return;
+            }
+        }
+    }
+
+    // Un valor de tipo 'origen' nunca puede guardarse en una variable de tipo 'destino'
+    private static boolean incompatibles(Tipo origen, Tipo destino) {
+        if (origen == destino || origen == Tipo.DINAMICO || destino == Tipo.DINAMICO) return false;
+        return !(origen.esNumerico() && destino.esNumerico());
+    }
+
+    private void errorDeTipo(String mensaje) {
+        erroresTipo.add("Error de tipo " + donde() + ": " + mensaje);
+    }
+
+    private ErrorDeCompilacion errorDeCompilacion(String mensaje) {
+        return new ErrorDeCompilacion("Error de compilación " + donde() + ": " + mensaje);
+    }
+
+    private String donde() {
+        return ubicacion != null
+            ? "en línea " + ubicacion.getLine() + ", columna " + ubicacion.getCharPositionInLine()
+            : "";
+    }
+
+    private static boolean todosBooleanos(Nodo[] operandos) {
+        for (Nodo operando : operandos) {
+            if (operando.tipo() != Tipo.BOOLEANO) return false;
+        }
+        return true;
+    }
+
+    // Compilación de funciones
+
+    // Resultado de compilar el cuerpo de una función con un tipo de retorno supuesto
+    private static final class CuerpoCompilado {
+        final Nodo cuerpo;
+        final int ranuras;
+        final List<Tipo> retornos;
+        final Efectos efectos;
+
+        CuerpoCompilado(Nodo cuerpo, int ranuras, List<Tipo> retornos, Efectos efectos) {
+            this.cuerpo = cuerpo;
+            this.ranuras = ranuras;
+            this.retornos = retornos;
+            this.efectos = efectos;
+        }
+
+        // Tipo común de los 'retornar' cuyo tipo se conoce, o DINAMICO si no hay uno solo
+        Tipo candidatoRetorno() {
+            Tipo candidato = null;
+            for (Tipo tipo : retornos) {
+                if (tipo == null) return Tipo.DINAMICO;
+                if (tipo == Tipo.DINAMICO) continue;
+                if (candidato != null && candidato != tipo) return Tipo.DINAMICO;
+                candidato = tipo;
+            }
+            return candidato != null && !puedeCompletar(cuerpo) ? candidato : Tipo.DINAMICO;
+        }
+
+        boolean retornaSiempre(Tipo tipo) {
+            for (Tipo retorno : retornos) {
+                if (retorno != tipo) return false;
+            }
+            return !puedeCompletar(cuerpo);
+        }
+    }
+
+    // El cuerpo se compila en un marco propio
+    private CuerpoCompilado compilarCuerpo(String nombre, List<Tipo> tipos, List<String> nombres,
+                                           MilenguajeParser.BloqueContext bloque, Tipo supuesto) {
+        Deque<Map<String, Simbolo>> ambitosExternos = ambitos;
+        boolean enFuncionExterno = enFuncion;
+        Deque<Map<String, Simbolo>> principalesExternos = ambitosPrincipales;
+        int siguienteExterno = siguienteRanura;
+        int maxExterno = maxRanuras;
+        String funcionExterna = funcionActual;
+        Tipo supuestoExterno = retornoSupuesto;
+        List<Tipo> retornosExternos = retornos;
+        int buclesExternos = bucles;
+        BucleAbierto bucleExterno = bucleActual;
+        int topeExterno = topeTemporales;
+        Efectos efectosExternos = efectos;
+
+        ambitosPrincipales = enFuncion ? ambitosPrincipales : ambitos;
+        ambitos = new ArrayDeque<>();
+        enFuncion = true;
+        siguienteRanura = 0;
+        maxRanuras = 0;
+        funcionActual = nombre;
+        retornoSupuesto = supuesto;
+        retornos = new ArrayList<>();
+        bucles = 0;
+        bucleActual = null;
+        topeTemporales = 0;
+        efectos = new Efectos();
+        for (Tipo tipo : tipos) {
+            if (tipo.esArreglo()) impuro(); // el resultado depende de los elementos, no sólo del argumento
+        }
+
+        try {
+            ambitos.push(new HashMap<>());
+            for (int i = 0; i < nombres.size(); i++) {
+                Simbolo parametro = new Simbolo(nombres.get(i), tipos.get(i), reservarRanura(), false);
+                ambitos.peek().put(parametro.nombre, parametro);
+            }
+            Nodo cuerpo = visit(bloque);
+            return new CuerpoCompilado(cuerpo, maxRanuras, retornos, efectos);
+        } finally {
+            ambitos = ambitosExternos;
+            enFuncion = enFuncionExterno;
+            ambitosPrincipales = principalesExternos;
+            siguienteRanura = siguienteExterno;
+            maxRanuras = maxExterno;
+            funcionActual = funcionExterna;
+            retornoSupuesto = supuestoExterno;
+            retornos = retornosExternos;
+            bucles = buclesExternos;
+            bucleActual = bucleExterno;
+            topeTemporales = topeExterno;
+            efectos = efectosExternos;
+        }
+    }
+
+    // Indica si la ejecución puede llegar al final de la sentencia sin retornar
+    private static boolean puedeCompletar(Nodo sentencia) {
+        if (sentencia instanceof Nodo.Retornar || sentencia instanceof Nodo.RetornarLlamada) {
+            return false;
+        }
+        if (sentencia instanceof Nodo.Bloque) {
+            for (Nodo decl : ((Nodo.Bloque) sentencia).declaraciones) {
+                if (!puedeCompletar(decl)) return false;
+            }
+            return true;
+        }
+        if (sentencia instanceof Nodo.Si) {
+            Nodo.Si si = (Nodo.Si) sentencia;
+            return si.sino == null || puedeCompletar(si.entonces) || puedeCompletar(si.sino);
+        }
+        return true;
+    }
+
+    // Funciones declaradas más de una vez, y parámetros de las demás
+    private void buscarFunciones(ParseTree arbol, Set<String> vistas) {
+        if (arbol instanceof MilenguajeParser.DeclaracionFuncionContext) {
+            MilenguajeParser.DeclaracionFuncionContext declaracion = (MilenguajeParser.DeclaracionFuncionContext) arbol;
+            String nombre = identificador(declaracion.IDENTIFICADOR());
+            if (!vistas.add(nombre)) {
+                funcionesRepetidas.add(nombre);
+                parametrosFunciones.remove(nombre);
+            } else {
+                int cantidad = declaracion.parametros() != null ? declaracion.parametros().tipo().size() : 0;
+                Tipo[] tipos = new Tipo[cantidad];
+                for (int i = 0; i < cantidad; i++) {
+                    tipos[i] = Tipo.deNombre(declaracion.parametros().tipo(i).getText());
+                }
+                parametrosFunciones.put(nombre, tipos);
+            }
+        }
+        for (int i = 0; i < arbol.getChildCount(); i++) {
+            buscarFunciones(arbol.getChild(i), vistas);
+        }
+    }
+
+    // Resolución de variables
+
+    private int abrirAmbito() {
+        ambitos.push(new HashMap<>());
+        return siguienteRanura;
+    }
+
+    // Al cerrar un ámbito sus ranuras quedan libres para el siguiente bloque
+    private void cerrarAmbito(int inicio) {
+        ambitos.pop();
+        siguienteRanura = primeraLibre(inicio);
+    }
+
+    private int primeraLibre(int inicio) {
+        int libre = Math.max(inicio, topeTemporales);
+        return enFuncion ? libre : Math.max(libre, ranurasGlobales);
+    }
+
+    private int reservarRanura() {
+        int ranura = siguienteRanura++;
+        maxRanuras = Math.max(maxRanuras, siguienteRanura);
+        return ranura;
+    }
+
+    private Simbolo declarar(String nombre, Tipo tipo, boolean sinValor) {
+        Map<String, Simbolo> actual = ambitos.peek();
+        if (actual.containsKey(nombre)) {
+            throw errorDeCompilacion("Variable '" + nombre + "' ya está declarada");
+        }
+
+        // Las globales ya tienen su ranura reservada
+        Simbolo simbolo = !enFuncion && ambitos.size() == 1
+            ? globales.get(nombre)
+            : new Simbolo(nombre, tipo, reservarRanura(), sinValor);
+        actual.put(nombre, simbolo);
+        return simbolo;
+    }
+
+    private Simbolo resolver(String nombre) {
+        for (Map<String, Simbolo> ambito : ambitos) {
+            Simbolo simbolo = ambito.get(nombre);
+            if (simbolo != null) return simbolo;
+        }
+        if (enFuncion) {
+            for (Map<String, Simbolo> ambito : ambitosPrincipales) {
+                Simbolo simbolo = ambito.get(nombre);
+                if (simbolo != null) {
+                    if (globales.get(nombre) != simbolo && capturadas.add(simbolo)) {
+                        ranurasGlobales = Math.max(ranurasGlobales, simbolo.ranura + 1);
+                    }
+                    return simbolo;
+                }
+            }
+            if (globales.containsKey(nombre)) {
+                return globales.get(nombre);
+            }
+        }
+        throw errorDeCompilacion("Variable '" + nombre + "' no está declarada");
+    }
+
+    // Vive en el marco global: una global, o una variable capturada de un bloque
+    // del programa principal
+    private boolean delMarcoGlobal(Simbolo simbolo) {
+        return globales.get(simbolo.nombre) == simbolo || capturadas.contains(simbolo);
+    }
+
+    // Una variable del marco global accedida desde una función vive en otro marco
+    private boolean esGlobal(Simbolo simbolo) {
+        return enFuncion && delMarcoGlobal(simbolo);
+    }
+
+    // Funciones puras
+
+    // Lo que hace el cuerpo de una función además de calcular su resultado
+    private static final class Efectos {
+        boolean impura = false; // lee o asigna globales, imprime, lee la entrada o declara funciones
+        final Set<String> llamadas = new HashSet<>();
+    }
+
+    private void impuro() {
+        if (efectos != null) {
+            efectos.impura = true;
+        }
+    }
+
+    // Una función sin efectos propios es pura si las funciones a las que llama lo
+    // son. Se parte de suponer puras a todas las candidatas (una llamada recursiva
+    // no impide serlo) y se descartan las que llaman a una impura, a una que no
+    // existe o a una declarada más de una vez, hasta que nada cambia.
+    private void marcarPuras() {
+        Map<String, EvaluadorSemantico.Funcion> porNombre = new HashMap<>();
+        Set<EvaluadorSemantico.Funcion> puras = new LinkedHashSet<>();
+        for (Map.Entry<EvaluadorSemantico.Funcion, Efectos> entrada : efectosFunciones.entrySet()) {
+            EvaluadorSemantico.Funcion funcion = entrada.getKey();
+            porNombre.put(funcion.nombre, funcion);
+            if (!entrada.getValue().impura && !funcionesRepetidas.contains(funcion.nombre)) {
+                puras.add(funcion);
+            }
+        }
+
+        boolean cambio = true;
+        while (cambio) {
+            cambio = false;
+            for (Iterator<EvaluadorSemantico.Funcion> it = puras.iterator(); it.hasNext(); ) {
+                for (String llamada : efectosFunciones.get(it.next()).llamadas) {
+                    if (!puras.contains(porNombre.get(llamada))) {
+                        it.remove();
+                        cambio = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        for (EvaluadorSemantico.Funcion funcion : puras) {
+            funcion.pura = true;
+        }
+    }
+
+    // Código invariante en bucles (ver Optimizador)
+
+    // Bucle abierto: variables que se asignan o declaran en su condición, incremento
+    // o cuerpo; si llama a funciones (pueden cambiar las globales); las expresiones
+    // ya compiladas que no cambian en él; y las asignaciones a temporales que se
+    // ejecutan antes de entrar
+    private static final class BucleAbierto {
+        final BucleAbierto externo;
+        final int inicio;
+        final int topeExterno;
+        final Set<String> asignadas = new HashSet<>();
+        boolean llamadas = false;
+        final Set<Nodo> invariantes = Collections.newSetFromMap(new IdentityHashMap<Nodo, Boolean>());
+        final List<Nodo> elevadas = new ArrayList<>();
+
+        BucleAbierto(BucleAbierto externo, int inicio, int topeExterno) {
+            this.externo = externo;
+            this.inicio = inicio;
+            this.topeExterno = topeExterno;
+        }
+    }
+
+    private BucleAbierto abrirBucle(ParseTree... partes) {
+        if (!optimizar) return null;
+
+        BucleAbierto bucle = new BucleAbierto(bucleActual, siguienteRanura, topeTemporales);
+        for (ParseTree parte : partes) {
+            buscarCambios(parte, bucle);
+        }
+        bucleActual = bucle;
+        return bucle;
+    }
+
+    // Las temporales sólo se usan dentro del bucle
+    private void cerrarBucle(BucleAbierto bucle) {
+        if (bucle == null) return;
+
+        bucleActual = bucle.externo;
+        topeTemporales = bucle.topeExterno;
+        siguienteRanura = primeraLibre(bucle.inicio);
+    }
+
+    private void buscarCambios(ParseTree arbol, BucleAbierto bucle) {
+        if (arbol instanceof MilenguajeParser.AsignacionContext) {
+            MilenguajeParser.AsignacionContext asignacion = (MilenguajeParser.AsignacionContext) arbol;
+            if (asignacion.IDENTIFICADOR() != null) {
+                bucle.asignadas.add(identificador(asignacion.IDENTIFICADOR()));
+            }
+        } else if (arbol instanceof MilenguajeParser.DeclaracionVariableContext) {
+            bucle.asignadas.add(((MilenguajeParser.DeclaracionVariableContext) arbol).IDENTIFICADOR().getText());
+        } else if (arbol instanceof MilenguajeParser.LlamadaFuncionContext) {
+            bucle.llamadas = true;
+        }
+        for (int i = 0; i < arbol.getChildCount(); i++) {
+            buscarCambios(arbol.getChild(i), bucle);
+        }
+    }
+
+    // La variable no cambia dentro del bucle actual
+    private boolean fijaEnBucle(Simbolo simbolo) {
+        return bucleActual != null
+            && !bucleActual.asignadas.contains(simbolo.nombre)
+            && !(bucleActual.llamadas && delMarcoGlobal(simbolo));
+    }
+
+    private Nodo marcarInvariante(Nodo nodo, Nodo... operandos) {
+        if (bucleActual == null || !Optimizador.sinEfectos(nodo)) return nodo;
+        for (Nodo operando : operandos) {
+            if (!Optimizador.esConstante(operando) && !bucleActual.invariantes.contains(operando)) return nodo;
+        }
+        bucleActual.invariantes.add(nodo);
+        return nodo;
+    }
+
+    private boolean esElevable(Nodo nodo) {
+        return bucleActual != null
+            && bucleActual.invariantes.contains(nodo)
+            && !Optimizador.esSimple(nodo)
+            && nodo.tipo() != Tipo.DINAMICO;
+    }
+
+    // La operación cambia en cada vuelta, pero alguno de sus operandos no
+    private boolean hayQueElevar(Nodo nodo, Nodo... operandos) {
+        if (bucleActual == null || bucleActual.invariantes.contains(nodo)) return false;
+        for (Nodo operando : operandos) {
+            if (esElevable(operando)) return true;
+        }
+        return false;
+    }
+
+    // Una expresión que no cambia en el bucle se calcula una vez antes de entrar, en
+    // una ranura temporal; en su lugar queda la lectura de esa ranura
+    private Nodo elevar(Nodo nodo) {
+        if (!esElevable(nodo)) return nodo;
+
+        int ranura = reservarRanura();
+        topeTemporales = siguienteRanura;
+        bucleActual.elevadas.add(NodosTipados.asignar(nodo.tipo(), ranura, nodo));
+
+        Nodo lectura = NodosTipados.leer(nodo.tipo(), ranura);
+        bucleActual.invariantes.add(lectura);
+        return lectura;
+    }
+
+    private Nodo[] elevar(Nodo[] operandos) {
+        Nodo[] elevados = new Nodo[operandos.length];
+        for (int i = 0; i < operandos.length; i++) {
+            elevados[i] = elevar(operandos[i]);
+        }
+        return elevados;
+    }
+
+    // Métodos auxiliares
+
+    private Nodo[] compilarDeclaraciones(List<MilenguajeParser.DeclaracionContext> declaraciones) {
+        Nodo[] nodos = new Nodo[declaraciones.size()];
+        for (int i = 0; i < nodos.length; i++) {
+            nodos[i] = visit(declaraciones.get(i));
+        }
+        return optimizar ? Optimizador.alcanzables(nodos) : nodos;
+    }
+
+    private Nodo[] compilarExpresiones(List<? extends ParserRuleContext> expresiones) {
+        Nodo[] nodos = new Nodo[expresiones.size()];
+        for (int i = 0; i < nodos.length; i++) {
+            nodos[i] = visit(expresiones.get(i));
+        }
+        return nodos;
+    }
+}
@@ -0,0 +1,685 @@
+import java.util.*;
+
+// Traduce el árbol de nodos que produce el Compilador (ya resuelto a ranuras y
+// tipado) al código plano de la máquina virtual. No vuelve a analizar nada: cada
+// nodo se corresponde con una o pocas instrucciones, y 'romper', 'continuar' y
+// 'retornar' se convierten en saltos en lugar de banderas.
+//
+// Cada expresión deja su valor en el carril de su tipo estático: primitivo si
+// tipo().esPrimitivo(), de objetos en otro caso. Los nodos genéricos reciben sus
+// operandos en el carril de objetos (ver objeto()).
+final class CompiladorBytecode {
+
+    // Destinos pendientes de 'romper' y 'continuar' del bucle que se está compilando
+    private static final class Bucle {
+        final List<Integer> rupturas = new ArrayList<>();
+        final List<Integer> continuaciones = new ArrayList<>();
+    }
+
+    private int[] codigo = new int[256];
+    private int tamano = 0;
+
+    private final List<Long> primitivas = new ArrayList<>();
+    private final Map<Long, Integer> indicePrimitivas = new HashMap<>();
+    private final List<Object> objetos = new ArrayList<>();
+    private final Map<Object, Integer> indiceObjetos = new HashMap<>();
+
+    private final List<Bytecode.Funcion> funciones = new ArrayList<>();
+    private final Map<EvaluadorSemantico.Funcion, Bytecode.Funcion> indiceFunciones = new IdentityHashMap<>();
+    private final List<String> nombres = new ArrayList<>();
+
+    private final Deque<Bucle> bucles = new ArrayDeque<>();
+    private Bytecode.Funcion funcionActual = null;
+    private boolean llamadaEnCola = false; // la próxima llamada es el valor de un 'retornar'
+    private int pila = 0;
+    private int maxPila = 0;
+
+    Bytecode.Programa compilar(Nodo.Programa programa) {
+        for (Nodo decl : programa.declaraciones) {
+            sentencia(decl);
+        }
+        emitir(Bytecode.TERMINAR, 0);
+        int maxPilaPrincipal = maxPila;
+
+        // Los cuerpos se compilan después del programa principal; compilar uno puede
+        // descubrir funciones declaradas dentro de él
+        for (int i = 0; i < funciones.size(); i++) {
+            compilarFuncion(funciones.get(i));
+        }
+
+        long[] tablaPrimitivas = new long[primitivas.size()];
+        for (int i = 0; i < tablaPrimitivas.length; i++) {
+            tablaPrimitivas[i] = primitivas.get(i);
+        }
+
+        return new Bytecode.Programa(
+            Arrays.copyOf(codigo, tamano),
+            tablaPrimitivas,
+            objetos.toArray(),
+            funciones.toArray(new Bytecode.Funcion[0]),
+            nombres.toArray(new String[0]),
+            programa.ranuras,
+            maxPilaPrincipal);
+    }
+
+    private void compilarFuncion(Bytecode.Funcion funcion) {
+        funcionActual = funcion;
+        pila = 0;
+        maxPila = 0;
+        funcion.entrada = tamano;
+
+        sentencia(funcion.funcion.cuerpo);
+        // Llegar al final del cuerpo retorna nulo (sólo posible si el retorno es dinámico)
+        emitir(Bytecode.RETORNAR_NULO, 0);
+
+        funcion.maxPila = maxPila;
+        funcionActual = null;
+    }
+
+    // ===== Sentencias =====
+
+    private void sentencia(Nodo nodo) {
+        // 's = s + ...' como sentencia sobre una variable sin verificar agrega en el lugar;
+        // con comprobaciones o como expresión se ejecuta la asignación equivalente
+        if (nodo instanceof NodosTipados.AcumularCadena) {
+            NodosTipados.AcumularCadena acumular = (NodosTipados.AcumularCadena) nodo;
+            if (!acumular.verificar) {
+                emitir(Bytecode.CARGAR_CUERDA, 2, acumular.ranura);
+                for (Nodo parte : acumular.agregados) {
+                    objeto(parte);
+                }
+                emitir(Bytecode.ACUMULAR, -2 - acumular.agregados.length, acumular.ranura, acumular.agregados.length);
+                return;
+            }
+            nodo = acumular.equivalente;
+        }
+        // El bucle contado se traduce como el 'para' original: SALTAR_SI_NO_MENOR_E e INCREMENTAR_E ya lo cubren
+        if (nodo instanceof NodosTipados.ParaContado) {
+            nodo = ((NodosTipados.ParaContado) nodo).equivalente;
+        }
+
+        if (nodo instanceof Nodo.Bloque) {
+            for (Nodo decl : ((Nodo.Bloque) nodo).declaraciones) {
+                sentencia(decl);
+            }
+        } else if (nodo instanceof Nodo.DeclaracionVariable) {
+            Nodo.DeclaracionVariable decl = (Nodo.DeclaracionVariable) nodo;
+            if (decl.asignacion == null) {
+                emitir(Bytecode.SIN_INICIALIZAR, 0, decl.ranura);
+            } else {
+                sentencia(decl.asignacion);
+                if (decl.primitiva) emitir(Bytecode.INICIALIZADA, 0, decl.ranura);
+            }
+        } else if (nodo instanceof Nodo.DeclaracionFuncion) {
+            emitir(Bytecode.DECLARAR_FUNCION, 0, funcion(((Nodo.DeclaracionFuncion) nodo).funcion));
+        } else if (nodo instanceof Nodo.Si) {
+            Nodo.Si si = (Nodo.Si) nodo;
+            int saltoSino = saltarSiFalso(si.condicion);
+            sentencia(si.entonces);
+            if (si.sino == null) {
+                enlazar(saltoSino);
+            } else {
+                int saltoFin = emitirSalto(Bytecode.SALTAR, 0);
+                enlazar(saltoSino);
+                sentencia(si.sino);
+                enlazar(saltoFin);
+            }
+        } else if (nodo instanceof Nodo.Para) {
+            Nodo.Para para = (Nodo.Para) nodo;
+            sentencia(para.inicializacion);
+            int inicio = tamano;
+            int saltoFin = saltarSiFalso(para.condicion);
+            Bucle bucle = cuerpoBucle(para.cuerpo);
+            for (int salto : bucle.continuaciones) enlazar(salto);
+            sentencia(para.incremento);
+            emitir(Bytecode.SALTAR, 0, inicio);
+            enlazar(saltoFin);
+            for (int salto : bucle.rupturas) enlazar(salto);
+        } else if (nodo instanceof Nodo.Mientras) {
+            Nodo.Mientras mientras = (Nodo.Mientras) nodo;
+            int inicio = tamano;
+            int saltoFin = saltarSiFalso(mientras.condicion);
+            Bucle bucle = cuerpoBucle(mientras.cuerpo);
+            for (int salto : bucle.continuaciones) enlazarCon(salto, inicio);
+            emitir(Bytecode.SALTAR, 0, inicio);
+            enlazar(saltoFin);
+            for (int salto : bucle.rupturas) enlazar(salto);
+        } else if (nodo instanceof Nodo.Retornar) {
+            retornar(((Nodo.Retornar) nodo).valor);
+        } else if (nodo instanceof Nodo.RetornarLlamada) {
+            llamadaEnCola = true;
+            retornar(((Nodo.RetornarLlamada) nodo).llamada);
+        } else if (nodo instanceof Nodo.Imprimir) {
+            objeto(((Nodo.Imprimir) nodo).valor);
+            emitir(Bytecode.IMPRIMIR, -1);
+        } else if (nodo instanceof Nodo.Romper) {
+            // El Compilador ya rechazó 'romper' y 'continuar' fuera de un bucle
+            bucles.peek().rupturas.add(emitirSalto(Bytecode.SALTAR, 0));
+        } else if (nodo instanceof Nodo.Continuar) {
+            bucles.peek().continuaciones.add(emitirSalto(Bytecode.SALTAR, 0));
+        } else if (!asignacionLocal(nodo)) {
+            expresion(nodo);
+            emitir(nodo.tipo().esPrimitivo() ? Bytecode.DESCARTAR_P : Bytecode.DESCARTAR, -1);
+        }
+    }
+
+    // Asignación sin verificar usada como sentencia: se guarda sin dejar el valor en la pila
+    private boolean asignacionLocal(Nodo nodo) {
+        if (nodo instanceof NodosTipados.AsignarEntero) {
+            NodosTipados.AsignarEntero asignar = (NodosTipados.AsignarEntero) nodo;
+            // i = i + k
+            if (asignar.valor instanceof NodosTipados.SumaEntero) {
+                NodosTipados.SumaEntero suma = (NodosTipados.SumaEntero) asignar.valor;
+                if (suma.izquierda instanceof NodosTipados.LeerEntero
+                        && ((NodosTipados.LeerEntero) suma.izquierda).ranura == asignar.ranura
+                        && suma.derecha instanceof NodosTipados.LiteralEntero) {
+                    emitir(Bytecode.INCREMENTAR_E, 0, asignar.ranura, ((NodosTipados.LiteralEntero) suma.derecha).valor);
+                    return true;
+                }
+            }
+            expresion(asignar.valor);
+            emitir(Bytecode.ASIGNAR_P, -1, asignar.ranura);
+        } else if (nodo instanceof NodosTipados.AsignarLargo) {
+            NodosTipados.AsignarLargo asignar = (NodosTipados.AsignarLargo) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.ASIGNAR_P, -1, asignar.ranura);
+        } else if (nodo instanceof NodosTipados.AsignarDecimal) {
+            NodosTipados.AsignarDecimal asignar = (NodosTipados.AsignarDecimal) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.ASIGNAR_P, -1, asignar.ranura);
+        } else if (nodo instanceof NodosTipados.AsignarBooleano) {
+            NodosTipados.AsignarBooleano asignar = (NodosTipados.AsignarBooleano) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.ASIGNAR_P, -1, asignar.ranura);
+        } else if (nodo instanceof NodosTipados.AsignarCadena) {
+            NodosTipados.AsignarCadena asignar = (NodosTipados.AsignarCadena) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.ASIGNAR_O, -1, asignar.ranura);
+        } else if (nodo instanceof NodosArreglos.AsignarArreglo) {
+            NodosArreglos.AsignarArreglo asignar = (NodosArreglos.AsignarArreglo) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.ASIGNAR_O, -1, asignar.ranura);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // Condición de 'si' o de un bucle; las comparaciones enteras se combinan con el salto
+    private int saltarSiFalso(Nodo condicion) {
+        if (condicion instanceof NodosTipados.MenorEntero) {
+            NodosTipados.MenorEntero op = (NodosTipados.MenorEntero) condicion;
+            return saltoComparacion(op.izquierda, op.derecha, Bytecode.SALTAR_SI_NO_MENOR_E);
+        }
+        if (condicion instanceof NodosTipados.MenorIgualEntero) {
+            NodosTipados.MenorIgualEntero op = (NodosTipados.MenorIgualEntero) condicion;
+            return saltoComparacion(op.izquierda, op.derecha, Bytecode.SALTAR_SI_NO_MENOR_IGUAL_E);
+        }
+        if (condicion instanceof NodosTipados.MayorEntero) {
+            NodosTipados.MayorEntero op = (NodosTipados.MayorEntero) condicion;
+            return saltoComparacion(op.izquierda, op.derecha, Bytecode.SALTAR_SI_NO_MAYOR_E);
+        }
+        if (condicion instanceof NodosTipados.MayorIgualEntero) {
+            NodosTipados.MayorIgualEntero op = (NodosTipados.MayorIgualEntero) condicion;
+            return saltoComparacion(op.izquierda, op.derecha, Bytecode.SALTAR_SI_NO_MAYOR_IGUAL_E);
+        }
+        expresion(condicion);
+        return emitirSalto(Bytecode.SALTAR_SI_FALSO, -1);
+    }
+
+    private int saltoComparacion(Nodo izquierda, Nodo derecha, int salto) {
+        expresion(izquierda);
+        expresion(derecha);
+        return emitirSalto(salto, -2);
+    }
+
+    private Bucle cuerpoBucle(Nodo cuerpo) {
+        Bucle bucle = new Bucle();
+        bucles.push(bucle);
+        try {
+            sentencia(cuerpo);
+        } finally {
+            bucles.pop();
+        }
+        return bucle;
+    }
+
+    private void retornar(Nodo valor) {
+        if (funcionActual == null) {
+            // 'retornar' en el programa principal lo termina
+            if (valor != null) {
+                expresion(valor);
+                emitir(Bytecode.DESCARTAR, -1);
+            }
+            emitir(Bytecode.TERMINAR, 0);
+        } else if (valor == null) {
+            emitir(Bytecode.RETORNAR_NULO, 0);
+        } else if (funcionActual.funcion.tipoRetorno.esPrimitivo()) {
+            expresion(valor);
+            emitir(Bytecode.RETORNAR_P, -1);
+        } else {
+            objeto(valor);
+            emitir(Bytecode.RETORNAR_O, -1);
+        }
+    }
+
+    // ===== Expresiones =====
+
+    // Expresión cuyo valor se necesita en el carril de objetos
+    private void objeto(Nodo nodo) {
+        expresion(nodo);
+        if (nodo.tipo().esPrimitivo()) {
+            emitir(Bytecode.EMPAQUETAR, 0, nodo.tipo().ordinal());
+        }
+    }
+
+    private void expresion(Nodo nodo) {
+        if (nodo instanceof NodosTipados.AcumularCadena) {
+            nodo = ((NodosTipados.AcumularCadena) nodo).equivalente;
+        }
+
+        // Literales y variables
+        if (nodo instanceof NodosTipados.LiteralEntero) {
+            emitir(Bytecode.CONST_P, 1, primitiva(((NodosTipados.LiteralEntero) nodo).valor));
+        } else if (nodo instanceof NodosTipados.LiteralLargo) {
+            emitir(Bytecode.CONST_P, 1, primitiva(((NodosTipados.LiteralLargo) nodo).valor));
+        } else if (nodo instanceof NodosTipados.LiteralDecimal) {
+            emitir(Bytecode.CONST_P, 1, primitiva(Double.doubleToRawLongBits(((NodosTipados.LiteralDecimal) nodo).valor)));
+        } else if (nodo instanceof NodosTipados.LiteralBooleano) {
+            emitir(Bytecode.CONST_P, 1, primitiva(((NodosTipados.LiteralBooleano) nodo).valor ? 1 : 0));
+        } else if (nodo instanceof Nodo.Literal) {
+            emitir(Bytecode.CONST_O, 1, constante(((Nodo.Literal) nodo).valor));
+        } else if (nodo instanceof NodosTipados.LeerEntero) {
+            emitir(Bytecode.CARGAR_P, 1, ((NodosTipados.LeerEntero) nodo).ranura);
+        } else if (nodo instanceof NodosTipados.LeerLargo) {
+            emitir(Bytecode.CARGAR_P, 1, ((NodosTipados.LeerLargo) nodo).ranura);
+        } else if (nodo instanceof NodosTipados.LeerDecimal) {
+            emitir(Bytecode.CARGAR_P, 1, ((NodosTipados.LeerDecimal) nodo).ranura);
+        } else if (nodo instanceof NodosTipados.LeerBooleano) {
+            emitir(Bytecode.CARGAR_P, 1, ((NodosTipados.LeerBooleano) nodo).ranura);
+        } else if (nodo instanceof NodosTipados.LeerCadena) {
+            emitir(Bytecode.CARGAR_O, 1, ((NodosTipados.LeerCadena) nodo).ranura);
+        } else if (nodo instanceof NodosTipados.AsignarEntero) {
+            NodosTipados.AsignarEntero asignar = (NodosTipados.AsignarEntero) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.GUARDAR_P, 0, asignar.ranura);
+        } else if (nodo instanceof NodosTipados.AsignarLargo) {
+            NodosTipados.AsignarLargo asignar = (NodosTipados.AsignarLargo) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.GUARDAR_P, 0, asignar.ranura);
+        } else if (nodo instanceof NodosTipados.AsignarDecimal) {
+            NodosTipados.AsignarDecimal asignar = (NodosTipados.AsignarDecimal) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.GUARDAR_P, 0, asignar.ranura);
+        } else if (nodo instanceof NodosTipados.AsignarBooleano) {
+            NodosTipados.AsignarBooleano asignar = (NodosTipados.AsignarBooleano) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.GUARDAR_P, 0, asignar.ranura);
+        } else if (nodo instanceof NodosTipados.AsignarCadena) {
+            NodosTipados.AsignarCadena asignar = (NodosTipados.AsignarCadena) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.GUARDAR_O, 0, asignar.ranura);
+        } else if (nodo instanceof Nodo.LeerVerificado) {
+            Nodo.LeerVerificado leer = (Nodo.LeerVerificado) nodo;
+            emitir(Bytecode.CARGAR_VERIF, 1, leer.ranura, leer.tipoVariable.ordinal(),
+                constante(leer.nombre), leer.global ? 1 : 0);
+        } else if (nodo instanceof Nodo.AsignarVerificado) {
+            Nodo.AsignarVerificado asignar = (Nodo.AsignarVerificado) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.GUARDAR_VERIF, 0, asignar.ranura, asignar.tipoVariable.ordinal(),
+                constante(asignar.nombre), asignar.global ? 1 : 0);
+
+        // Conversiones
+        } else if (nodo instanceof NodosTipados.EnteroALargo) {
+            unario(((NodosTipados.EnteroALargo) nodo).valor, Bytecode.E_A_L);
+        } else if (nodo instanceof NodosTipados.EnteroADecimal) {
+            unario(((NodosTipados.EnteroADecimal) nodo).valor, Bytecode.E_A_D);
+        } else if (nodo instanceof NodosTipados.LargoADecimal) {
+            unario(((NodosTipados.LargoADecimal) nodo).valor, Bytecode.L_A_D);
+        } else if (nodo instanceof NodosTipados.LargoAEntero) {
+            unario(((NodosTipados.LargoAEntero) nodo).valor, Bytecode.L_A_E);
+        } else if (nodo instanceof NodosTipados.DecimalAEntero) {
+            unario(((NodosTipados.DecimalAEntero) nodo).valor, Bytecode.D_A_E);
+        } else if (nodo instanceof NodosTipados.DecimalALargo) {
+            unario(((NodosTipados.DecimalALargo) nodo).valor, Bytecode.D_A_L);
+        } else if (nodo instanceof Nodo.ConvertirDinamico) {
+            Nodo.ConvertirDinamico convertir = (Nodo.ConvertirDinamico) nodo;
+            objeto(convertir.valor);
+            emitir(Bytecode.CONVERTIR, 0, convertir.destino.ordinal(), constante(convertir.error));
+        } else if (nodo instanceof Nodo.Condicion) {
+            Nodo.Condicion condicion = (Nodo.Condicion) nodo;
+            objeto(condicion.valor);
+            emitir(Bytecode.CONDICION, 0, condicion.estricta ? 1 : 0);
+
+        // Aritmética entera
+        } else if (nodo instanceof NodosTipados.SumaEntero) {
+            NodosTipados.SumaEntero op = (NodosTipados.SumaEntero) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.SUMA_E);
+        } else if (nodo instanceof NodosTipados.RestaEntero) {
+            NodosTipados.RestaEntero op = (NodosTipados.RestaEntero) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.RESTA_E);
+        } else if (nodo instanceof NodosTipados.MultiplicacionEntero) {
+            NodosTipados.MultiplicacionEntero op = (NodosTipados.MultiplicacionEntero) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MUL_E);
+        } else if (nodo instanceof NodosTipados.DivisionEntero) {
+            NodosTipados.DivisionEntero op = (NodosTipados.DivisionEntero) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.DIV_E);
+        } else if (nodo instanceof NodosTipados.ModuloEntero) {
+            NodosTipados.ModuloEntero op = (NodosTipados.ModuloEntero) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MOD_E);
+        } else if (nodo instanceof NodosTipados.PotenciaEntero) {
+            NodosTipados.PotenciaEntero op = (NodosTipados.PotenciaEntero) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.POT_E);
+        } else if (nodo instanceof NodosTipados.NegativoEntero) {
+            unario(((NodosTipados.NegativoEntero) nodo).operando, Bytecode.NEG_E);
+
+        // Aritmética larga
+        } else if (nodo instanceof NodosTipados.SumaLargo) {
+            NodosTipados.SumaLargo op = (NodosTipados.SumaLargo) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.SUMA_L);
+        } else if (nodo instanceof NodosTipados.RestaLargo) {
+            NodosTipados.RestaLargo op = (NodosTipados.RestaLargo) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.RESTA_L);
+        } else if (nodo instanceof NodosTipados.MultiplicacionLargo) {
+            NodosTipados.MultiplicacionLargo op = (NodosTipados.MultiplicacionLargo) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MUL_L);
+        } else if (nodo instanceof NodosTipados.DivisionLargo) {
+            NodosTipados.DivisionLargo op = (NodosTipados.DivisionLargo) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.DIV_L);
+        } else if (nodo instanceof NodosTipados.ModuloLargo) {
+            NodosTipados.ModuloLargo op = (NodosTipados.ModuloLargo) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MOD_L);
+        } else if (nodo instanceof NodosTipados.PotenciaLargo) {
+            NodosTipados.PotenciaLargo op = (NodosTipados.PotenciaLargo) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.POT_L);
+        } else if (nodo instanceof NodosTipados.NegativoLargo) {
+            unario(((NodosTipados.NegativoLargo) nodo).operando, Bytecode.NEG_L);
+
+        // Aritmética decimal
+        } else if (nodo instanceof NodosTipados.SumaDecimal) {
+            NodosTipados.SumaDecimal op = (NodosTipados.SumaDecimal) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.SUMA_D);
+        } else if (nodo instanceof NodosTipados.RestaDecimal) {
+            NodosTipados.RestaDecimal op = (NodosTipados.RestaDecimal) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.RESTA_D);
+        } else if (nodo instanceof NodosTipados.MultiplicacionDecimal) {
+            NodosTipados.MultiplicacionDecimal op = (NodosTipados.MultiplicacionDecimal) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MUL_D);
+        } else if (nodo instanceof NodosTipados.DivisionDecimal) {
+            NodosTipados.DivisionDecimal op = (NodosTipados.DivisionDecimal) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.DIV_D);
+        } else if (nodo instanceof NodosTipados.ModuloDecimal) {
+            NodosTipados.ModuloDecimal op = (NodosTipados.ModuloDecimal) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MOD_D);
+        } else if (nodo instanceof NodosTipados.PotenciaDecimal) {
+            NodosTipados.PotenciaDecimal op = (NodosTipados.PotenciaDecimal) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.POT_D);
+        } else if (nodo instanceof NodosTipados.NegativoDecimal) {
+            unario(((NodosTipados.NegativoDecimal) nodo).operando, Bytecode.NEG_D);
+
+        // Comparaciones
+        } else if (nodo instanceof NodosTipados.MenorEntero) {
+            NodosTipados.MenorEntero op = (NodosTipados.MenorEntero) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MENOR_E);
+        } else if (nodo instanceof NodosTipados.MenorIgualEntero) {
+            NodosTipados.MenorIgualEntero op = (NodosTipados.MenorIgualEntero) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MENOR_IGUAL_E);
+        } else if (nodo instanceof NodosTipados.MayorEntero) {
+            NodosTipados.MayorEntero op = (NodosTipados.MayorEntero) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MAYOR_E);
+        } else if (nodo instanceof NodosTipados.MayorIgualEntero) {
+            NodosTipados.MayorIgualEntero op = (NodosTipados.MayorIgualEntero) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MAYOR_IGUAL_E);
+        } else if (nodo instanceof NodosTipados.MenorDecimal) {
+            NodosTipados.MenorDecimal op = (NodosTipados.MenorDecimal) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MENOR_D);
+        } else if (nodo instanceof NodosTipados.MenorIgualDecimal) {
+            NodosTipados.MenorIgualDecimal op = (NodosTipados.MenorIgualDecimal) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MENOR_IGUAL_D);
+        } else if (nodo instanceof NodosTipados.MayorDecimal) {
+            NodosTipados.MayorDecimal op = (NodosTipados.MayorDecimal) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MAYOR_D);
+        } else if (nodo instanceof NodosTipados.MayorIgualDecimal) {
+            NodosTipados.MayorIgualDecimal op = (NodosTipados.MayorIgualDecimal) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.MAYOR_IGUAL_D);
+        } else if (nodo instanceof NodosTipados.IgualEntero) {
+            NodosTipados.IgualEntero op = (NodosTipados.IgualEntero) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.IGUAL_E);
+            operando(op.negada ? 1 : 0);
+        } else if (nodo instanceof NodosTipados.IgualDecimal) {
+            NodosTipados.IgualDecimal op = (NodosTipados.IgualDecimal) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.IGUAL_D);
+            operando(op.negada ? 1 : 0);
+        } else if (nodo instanceof NodosTipados.IgualBooleano) {
+            NodosTipados.IgualBooleano op = (NodosTipados.IgualBooleano) nodo;
+            binario(op.izquierda, op.derecha, Bytecode.IGUAL_B);
+            operando(op.negada ? 1 : 0);
+
+        // Lógica booleana
+        } else if (nodo instanceof NodosTipados.OBooleano) {
+            cortocircuito(((NodosTipados.OBooleano) nodo).operandos, Bytecode.SALTAR_SI_VERDADERO_O_DESCARTAR);
+        } else if (nodo instanceof NodosTipados.YBooleano) {
+            cortocircuito(((NodosTipados.YBooleano) nodo).operandos, Bytecode.SALTAR_SI_FALSO_O_DESCARTAR);
+        } else if (nodo instanceof NodosTipados.NoBooleano) {
+            unario(((NodosTipados.NoBooleano) nodo).operando, Bytecode.NO_B);
+
+        // Nodos genéricos
+        } else if (nodo instanceof Nodo.O) {
+            logicoGenerico(((Nodo.O) nodo).operandos, Bytecode.O_PRUEBA, Bytecode.O_VERIFICAR);
+        } else if (nodo instanceof Nodo.Y) {
+            logicoGenerico(((Nodo.Y) nodo).operandos, Bytecode.Y_PRUEBA, Bytecode.Y_VERIFICAR);
+        } else if (nodo instanceof Nodo.Igualdad) {
+            Nodo.Igualdad op = (Nodo.Igualdad) nodo;
+            objeto(op.izquierda);
+            objeto(op.derecha);
+            emitir(Bytecode.IGUALDAD, -1, op.negada ? 1 : 0);
+        } else if (nodo instanceof Nodo.Relacional) {
+            Nodo.Relacional op = (Nodo.Relacional) nodo;
+            objeto(op.izquierda);
+            objeto(op.derecha);
+            emitir(Bytecode.RELACIONAL, -1, op.operador);
+        } else if (nodo instanceof Nodo.Aritmetica) {
+            Nodo.Aritmetica op = (Nodo.Aritmetica) nodo;
+            objeto(op.izquierda);
+            objeto(op.derecha);
+            emitir(Bytecode.ARITMETICA, -1, op.operador);
+        } else if (nodo instanceof Nodo.No) {
+            objeto(((Nodo.No) nodo).operando);
+            emitir(Bytecode.NO, 0);
+        } else if (nodo instanceof Nodo.Negativo) {
+            objeto(((Nodo.Negativo) nodo).operando);
+            emitir(Bytecode.NEGATIVO, 0);
+        } else if (nodo instanceof Nodo.Positivo) {
+            objeto(((Nodo.Positivo) nodo).operando);
+            emitir(Bytecode.POSITIVO, 0);
+        } else if (nodo instanceof NodosTipados.Concatenar) {
+            Nodo[] partes = ((NodosTipados.Concatenar) nodo).partes;
+            for (Nodo parte : partes) {
+                objeto(parte);
+            }
+            emitir(Bytecode.CONCATENAR, 1 - partes.length, partes.length);
+        } else if (nodo instanceof Nodo.Llamada) {
+            Nodo.Llamada llamada = (Nodo.Llamada) nodo;
+            int codigoLlamada = llamadaEnCola ? Bytecode.LLAMAR_COLA : Bytecode.LLAMAR;
+            llamadaEnCola = false; // los argumentos no están en posición de cola
+            int nombre = nombre(llamada.nombre);
+            // La función se busca antes de evaluar los argumentos, como en el evaluador
+            emitir(Bytecode.BUSCAR_FUNCION, 0, nombre);
+            for (Nodo argumento : llamada.argumentos) {
+                objeto(argumento);
+            }
+            emitir(codigoLlamada, 1 - llamada.argumentos.length,
+                nombre, llamada.argumentos.length, llamada.tipoRetorno.ordinal());
+        } else if (nodo instanceof Nodo.Leer) {
+            emitir(Bytecode.LEER, 1);
+
+        // Arreglos
+        } else if (nodo instanceof NodosArreglos.LeerArreglo) {
+            emitir(Bytecode.CARGAR_O, 1, ((NodosArreglos.LeerArreglo) nodo).ranura);
+        } else if (nodo instanceof NodosArreglos.AsignarArreglo) {
+            NodosArreglos.AsignarArreglo asignar = (NodosArreglos.AsignarArreglo) nodo;
+            expresion(asignar.valor);
+            emitir(Bytecode.GUARDAR_O, 0, asignar.ranura);
+        } else if (nodo instanceof NodosArreglos.Crear) {
+            NodosArreglos.Crear crear = (NodosArreglos.Crear) nodo;
+            expresion(crear.tamano);
+            emitir(Bytecode.NUEVO_ARREGLO, 0, crear.tipoArreglo.ordinal());
+        } else if (nodo instanceof NodosArreglos.ElementoEntero) {
+            NodosArreglos.ElementoEntero op = (NodosArreglos.ElementoEntero) nodo;
+            binario(op.arreglo, op.indice, Bytecode.CARGAR_ELEMENTO_E);
+        } else if (nodo instanceof NodosArreglos.ElementoLargo) {
+            NodosArreglos.ElementoLargo op = (NodosArreglos.ElementoLargo) nodo;
+            binario(op.arreglo, op.indice, Bytecode.CARGAR_ELEMENTO_L);
+        } else if (nodo instanceof NodosArreglos.ElementoDecimal) {
+            NodosArreglos.ElementoDecimal op = (NodosArreglos.ElementoDecimal) nodo;
+            binario(op.arreglo, op.indice, Bytecode.CARGAR_ELEMENTO_D);
+        } else if (nodo instanceof NodosArreglos.AsignarElementoEntero) {
+            NodosArreglos.AsignarElementoEntero op = (NodosArreglos.AsignarElementoEntero) nodo;
+            asignarElemento(op.arreglo, op.indice, op.valor, Bytecode.GUARDAR_ELEMENTO_E);
+        } else if (nodo instanceof NodosArreglos.AsignarElementoLargo) {
+            NodosArreglos.AsignarElementoLargo op = (NodosArreglos.AsignarElementoLargo) nodo;
+            asignarElemento(op.arreglo, op.indice, op.valor, Bytecode.GUARDAR_ELEMENTO_L);
+        } else if (nodo instanceof NodosArreglos.AsignarElementoDecimal) {
+            NodosArreglos.AsignarElementoDecimal op = (NodosArreglos.AsignarElementoDecimal) nodo;
+            asignarElemento(op.arreglo, op.indice, op.valor, Bytecode.GUARDAR_ELEMENTO_D);
+        } else if (nodo instanceof NodosArreglos.Tamano) {
+            unario(((NodosArreglos.Tamano) nodo).arreglo, Bytecode.TAMANO);
+        } else if (nodo instanceof NodosArreglos.Llenar) {
+            NodosArreglos.Llenar llenar = (NodosArreglos.Llenar) nodo;
+            binario(llenar.arreglo, llenar.valor, Bytecode.LLENAR);
+            operando(llenar.tipo().ordinal());
+        } else if (nodo instanceof NodosArreglos.Copiar) {
+            NodosArreglos.Copiar copiar = (NodosArreglos.Copiar) nodo;
+            binario(copiar.origen, copiar.destino, Bytecode.COPIAR);
+        } else if (nodo instanceof NodosArreglos.SumaEntero) {
+            suma(((NodosArreglos.SumaEntero) nodo).arreglo);
+        } else if (nodo instanceof NodosArreglos.SumaLargo) {
+            suma(((NodosArreglos.SumaLargo) nodo).arreglo);
+        } else if (nodo instanceof NodosArreglos.SumaDecimal) {
+            suma(((NodosArreglos.SumaDecimal) nodo).arreglo);
+        } else {
+            throw new IllegalStateException("Nodo no soportado por la máquina virtual: " + nodo.getClass().getName());
+        }
+    }
+
+    private void unario(Nodo operando, int codigoOperacion) {
+        expresion(operando);
+        emitir(codigoOperacion, 0);
+    }
+
+    private void binario(Nodo izquierda, Nodo derecha, int codigoOperacion) {
+        expresion(izquierda);
+        expresion(derecha);
+        emitir(codigoOperacion, -1);
+    }
+
+    private void asignarElemento(Nodo arreglo, Nodo indice, Nodo valor, int codigoOperacion) {
+        expresion(arreglo);
+        expresion(indice);
+        expresion(valor);
+        emitir(codigoOperacion, -2);
+    }
+
+    private void suma(Nodo arreglo) {
+        expresion(arreglo);
+        emitir(Bytecode.SUMAR, 0, arreglo.tipo().ordinal());
+    }
+
+    // 'o' / 'y' entre booleanos: cada operando salvo el último decide si se sigue
+    private void cortocircuito(Nodo[] operandos, int salto) {
+        List<Integer> saltos = new ArrayList<>();
+        for (int i = 0; i < operandos.length; i++) {
+            expresion(operandos[i]);
+            if (i < operandos.length - 1) {
+                saltos.add(emitirSalto(salto, -1));
+            }
+        }
+        for (int s : saltos) enlazar(s);
+    }
+
+    // 'o' / 'y' genéricos: además se verifica que cada operando sea booleano
+    private void logicoGenerico(Nodo[] operandos, int prueba, int verificar) {
+        List<Integer> saltos = new ArrayList<>();
+        objeto(operandos[0]);
+        for (int i = 1; i < operandos.length; i++) {
+            saltos.add(emitirSalto(prueba, -1));
+            objeto(operandos[i]);
+            emitir(verificar, 0);
+        }
+        for (int s : saltos) enlazar(s);
+    }
+
+    // ===== Tablas =====
+
+    private int primitiva(long valor) {
+        Integer indice = indicePrimitivas.get(valor);
+        if (indice == null) {
+            indice = primitivas.size();
+            primitivas.add(valor);
+            indicePrimitivas.put(valor, indice);
+        }
+        return indice;
+    }
+
+    private int constante(Object valor) {
+        Integer indice = indiceObjetos.get(valor);
+        if (indice == null) {
+            indice = objetos.size();
+            objetos.add(valor);
+            indiceObjetos.put(valor, indice);
+        }
+        return indice;
+    }
+
+    private int nombre(String nombre) {
+        int indice = nombres.indexOf(nombre);
+        if (indice < 0) {
+            indice = nombres.size();
+            nombres.add(nombre);
+        }
+        return indice;
+    }
+
+    private int funcion(EvaluadorSemantico.Funcion funcion) {
+        Bytecode.Funcion compilada = indiceFunciones.get(funcion);
+        if (compilada == null) {
+            compilada = new Bytecode.Funcion(funcion, nombre(funcion.nombre));
+            indiceFunciones.put(funcion, compilada);
+            funciones.add(compilada);
+        }
+        return funciones.indexOf(compilada);
+    }
+
+    // ===== Emisión =====
+
+    // 'efecto' es la variación de la altura de la pila, para calcular el máximo de cada marco
+    private void emitir(int codigoOperacion, int efecto, int... operandos) {
+        operando(codigoOperacion);
+        for (int valor : operandos) {
+            operando(valor);
+        }
+        pila += efecto;
+        if (pila > maxPila) maxPila = pila;
+    }
+
+    private void operando(int valor) {
+        if (tamano == codigo.length) {
+            codigo = Arrays.copyOf(codigo, tamano * 2);
+        }
+        codigo[tamano++] = valor;
+    }
+
+    // Emite un salto con destino pendiente y devuelve la posición a completar
+    private int emitirSalto(int codigoOperacion, int efecto) {
+        emitir(codigoOperacion, efecto, -1);
+        return tamano - 1;
+    }
+
+    private void enlazar(int posicion) {
+        codigo[posicion] = tamano;
+    }
+
+    private void enlazarCon(int posicion, int destino) {
+        codigo[posicion] = destino;
+    }
+}
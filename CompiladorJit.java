@@ -0,0 +1,977 @@
+import java.lang.invoke.*;
+import java.util.*;
+
+// Compilación a bytecode de la JVM de las funciones más llamadas (opción -jit).
+//
+// El evaluador cuenta las invocaciones de cada Funcion; al llegar a UMBRAL se
+// intenta generar una clase con un método estático tipado ('ejecutar') que
+// recibe y retorna primitivos, de modo que HotSpot puede compilar e integrar
+// la recursión (factorial, fibonacci) como si fuera código Java. Un segundo
+// método, 'invocar', recibe los argumentos con caja y es el punto de entrada
+// desde el evaluador.
+//
+// Sólo se compilan funciones cuyo cuerpo usa nodos tipados: variables locales,
+// aritmética, comparaciones, bucles, 'imprimir' y llamadas a otras funciones
+// compilables, con parámetros y retorno de tipo conocido. Si el cuerpo lee
+// globales o usa valores dinámicos o arreglos, la función se sigue interpretando.
+//
+// El primer parámetro de cada 'ejecutar' son los Limites de la ejecución (null
+// sin -limite-*), que se pasan de llamada en llamada. El código compilado los
+// revisa donde el evaluador: en cada vuelta de bucle, en cada llamada y en cada
+// cadena que arma. Sin límites la revisión es una comparación con null.
+public final class CompiladorJit {
+
+    // Invocaciones interpretadas antes de compilar una función
+    static final int UMBRAL = 1000;
+
+    private static final String EJECUTAR = "ejecutar";
+    private static final String INVOCAR = "invocar";
+    private static final String DESCRIPTOR_INVOCAR = "([Ljava/lang/Object;)Ljava/lang/Object;";
+    private static final String AYUDANTE = "CompiladorJit";
+
+    // Tipo con que el código generado pasa los Limites: la clase no es pública y
+    // las clases generadas viven en otro cargador
+    private static final String LIMITES = "Ljava/lang/Object;";
+
+    private static int siguienteClase = 0;
+
+    // Evaluador de la llamada compilada en curso: 'imprimir' y 'leer' usan su Salida
+    private static final ThreadLocal<EvaluadorSemantico> evaluador = new ThreadLocal<>();
+
+    private CompiladorJit() {
+    }
+
+    // Invocar la versión compilada con los argumentos ya convertidos a los tipos de los parámetros
+    static Object invocar(EvaluadorSemantico ev, EvaluadorSemantico.Funcion funcion, Object[] argumentos) {
+        EvaluadorSemantico anterior = evaluador.get();
+        evaluador.set(ev);
+        if (ev.limites != null) ev.limites.entrarJit(ev.tope);
+        try {
+            return (Object) funcion.puenteJit.invokeExact(argumentos);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            evaluador.set(anterior);
+        }
+    }
+
+    // Compila la función junto con las funciones compilables a las que llama.
+    // Si no se puede, la función queda marcada y se sigue interpretando.
+    static synchronized void compilar(EvaluadorSemantico.Funcion funcion, EvaluadorSemantico ev) {
+        if (funcion.puenteJit != null || funcion.jitDescartado) return;
+
+        Unidad unidad = new Unidad(ev);
+        EvaluadorSemantico.Funcion actual = funcion;
+        try {
+            unidad.agregar(funcion);
+            while (!unidad.pendientes.isEmpty()) {
+                actual = unidad.pendientes.poll();
+                unidad.clases.put(unidad.nombres.get(actual), new Generador(actual, unidad).generar());
+            }
+
+            CargadorJit cargador = new CargadorJit(unidad.clases, unidad.existentes);
+            MethodType tipoPuente = MethodType.methodType(Object.class, Object[].class);
+            for (Map.Entry<EvaluadorSemantico.Funcion, String> entrada : unidad.nombres.entrySet()) {
+                Class<?> clase = cargador.loadClass(entrada.getValue());
+                EvaluadorSemantico.Funcion compilada = entrada.getKey();
+                compilada.claseJit = clase;
+                unidad.cerrarEnlaces(compilada);
+                compilada.puenteJit = MethodHandles.lookup().findStatic(clase, INVOCAR, tipoPuente);
+            }
+        } catch (EscritorClase.NoCompilable e) {
+            actual.jitDescartado = true;
+            funcion.jitDescartado = true;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            funcion.jitDescartado = true;
+        }
+    }
+
+    // El código compilado de la función sirve para la ejecución de 'ev': las
+    // funciones a las que llama directamente están declaradas en los mismos
+    // índices, y ninguna pasa por la memoria de -memo
+    static boolean vigente(EvaluadorSemantico.Funcion funcion, EvaluadorSemantico ev) {
+        for (int i = 0; i < funcion.indicesJit.length; i++) {
+            int indice = funcion.indicesJit[i];
+            EvaluadorSemantico.Funcion destino = funcion.destinosJit[i];
+            if (indice >= ev.declaradas.length || ev.declaradas[indice] != destino) return false;
+            if (ev.memoria != null && destino.pura) return false;
+        }
+        return true;
+    }
+
+    // Funciones que se compilan juntas porque se llaman entre sí
+    private static final class Unidad {
+        final EvaluadorSemantico ev;
+        final Map<EvaluadorSemantico.Funcion, String> nombres = new LinkedHashMap<>();
+        // Llamadas que resolvió cada función de la unidad: índice en 'declaradas' y función
+        final Map<EvaluadorSemantico.Funcion, Map<Integer, EvaluadorSemantico.Funcion>> enlaces = new HashMap<>();
+        final Deque<EvaluadorSemantico.Funcion> pendientes = new ArrayDeque<>();
+        final Map<String, byte[]> clases = new HashMap<>();
+        final Map<String, Class<?>> existentes = new HashMap<>(); // compiladas antes, en otro cargador
+
+        Unidad(EvaluadorSemantico ev) {
+            this.ev = ev;
+        }
+
+        // Nombre de la clase que contendrá la función
+        String agregar(EvaluadorSemantico.Funcion funcion) {
+            if (funcion.claseJit != null) {
+                existentes.put(funcion.claseJit.getName(), funcion.claseJit);
+                return funcion.claseJit.getName();
+            }
+            String nombre = nombres.get(funcion);
+            if (nombre == null) {
+                if (funcion.jitDescartado) {
+                    throw new EscritorClase.NoCompilable("llama a una función no compilable");
+                }
+                nombre = "FuncionJit" + (siguienteClase++);
+                nombres.put(funcion, nombre);
+                pendientes.add(funcion);
+            }
+            return nombre;
+        }
+
+        void enlazar(EvaluadorSemantico.Funcion funcion, int indice, EvaluadorSemantico.Funcion destino) {
+            Map<Integer, EvaluadorSemantico.Funcion> directos = enlaces.get(funcion);
+            if (directos == null) {
+                directos = new LinkedHashMap<>();
+                enlaces.put(funcion, directos);
+            }
+            directos.put(indice, destino);
+        }
+
+        // Todas las llamadas de las que depende el código de la función: las
+        // suyas, las de las funciones de la unidad a las que llama y las que ya
+        // tenían las compiladas antes
+        void cerrarEnlaces(EvaluadorSemantico.Funcion funcion) {
+            Map<Integer, EvaluadorSemantico.Funcion> cierre = new LinkedHashMap<>();
+            Set<EvaluadorSemantico.Funcion> vistas = Collections.newSetFromMap(new IdentityHashMap<>());
+            Deque<EvaluadorSemantico.Funcion> porVisitar = new ArrayDeque<>();
+            porVisitar.push(funcion);
+            while (!porVisitar.isEmpty()) {
+                EvaluadorSemantico.Funcion actual = porVisitar.pop();
+                if (!vistas.add(actual)) continue;
+                Map<Integer, EvaluadorSemantico.Funcion> directos = enlaces.get(actual);
+                if (nombres.containsKey(actual)) {
+                    if (directos == null) continue;
+                    cierre.putAll(directos);
+                    porVisitar.addAll(directos.values());
+                } else {
+                    for (int i = 0; i < actual.indicesJit.length; i++) {
+                        cierre.put(actual.indicesJit[i], actual.destinosJit[i]);
+                    }
+                }
+            }
+            funcion.indicesJit = new int[cierre.size()];
+            funcion.destinosJit = new EvaluadorSemantico.Funcion[cierre.size()];
+            int i = 0;
+            for (Map.Entry<Integer, EvaluadorSemantico.Funcion> enlace : cierre.entrySet()) {
+                funcion.indicesJit[i] = enlace.getKey();
+                funcion.destinosJit[i] = enlace.getValue();
+                i++;
+            }
+        }
+    }
+
+    private static final class CargadorJit extends ClassLoader {
+        private final Map<String, byte[]> clases;
+        private final Map<String, Class<?>> existentes;
+
+        CargadorJit(Map<String, byte[]> clases, Map<String, Class<?>> existentes) {
+            super(CompiladorJit.class.getClassLoader());
+            this.clases = clases;
+            this.existentes = existentes;
+        }
+
+        @Override
+        protected Class<?> findClass(String nombre) throws ClassNotFoundException {
+            Class<?> existente = existentes.get(nombre);
+            if (existente != null) return existente;
+            byte[] bytes = clases.get(nombre);
+            if (bytes == null) throw new ClassNotFoundException(nombre);
+            return defineClass(nombre, bytes, 0, bytes.length);
+        }
+    }
+
+    // ===== Generación de una clase por función =====
+
+    private static final class Generador {
+        final EvaluadorSemantico.Funcion funcion;
+        final Unidad unidad;
+        final EscritorClase clase;
+        final int[] localesParametros;
+        final int baseLocales;
+        EscritorClase.Metodo m;
+
+        // Comienzo del cuerpo, destino de las llamadas de cola a la misma función
+        final EscritorClase.Etiqueta inicio = new EscritorClase.Etiqueta();
+
+        // Destinos de 'romper' y 'continuar' de los bucles abiertos
+        final Deque<EscritorClase.Etiqueta[]> bucles = new ArrayDeque<>();
+
+        Generador(EvaluadorSemantico.Funcion funcion, Unidad unidad) {
+            this.funcion = funcion;
+            this.unidad = unidad;
+            this.clase = new EscritorClase(unidad.nombres.get(funcion));
+
+            // Los límites y los parámetros ocupan las primeras variables locales de la
+            // JVM según el descriptor; el resto de ranuras usa dos palabras cada una
+            localesParametros = new int[funcion.tipos.length];
+            int local = 1;
+            for (int i = 0; i < funcion.tipos.length; i++) {
+                localesParametros[i] = local;
+                local += palabras(funcion.tipos[i]);
+            }
+            baseLocales = local;
+        }
+
+        byte[] generar() {
+            if (funcion.tipoRetorno == Tipo.DINAMICO) {
+                throw new EscritorClase.NoCompilable("retorno dinámico");
+            }
+            if (funcion.tipoRetorno.esArreglo()) {
+                throw new EscritorClase.NoCompilable("retorna un arreglo");
+            }
+            for (Tipo tipo : funcion.tipos) {
+                if (tipo.esArreglo()) throw new EscritorClase.NoCompilable("recibe un arreglo");
+            }
+
+            String descriptor = descriptor(funcion);
+            int locales = baseLocales + 2 * (funcion.ranuras - funcion.tipos.length);
+            m = clase.metodo(EJECUTAR, descriptor, locales);
+            m.fijar(inicio);
+            sentencia(funcion.cuerpo);
+            // El Compilador sólo da tipo de retorno a cuerpos que siempre retornan
+            m.op(0x01, 1); // aconst_null
+            m.op(0xBF, -1); // athrow
+
+            generarPuente(descriptor);
+            return clase.generar();
+        }
+
+        // invocar(Object[]): desempaqueta los argumentos, llama a ejecutar con los
+        // límites de la ejecución en curso y empaqueta el resultado
+        private void generarPuente(String descriptor) {
+            m = clase.metodo(INVOCAR, DESCRIPTOR_INVOCAR, 1);
+            m.invocarEstatico(AYUDANTE, "limites", "()" + LIMITES, 1);
+            int palabras = 1;
+            for (int i = 0; i < funcion.tipos.length; i++) {
+                m.op(0x2A, 1); // aload_0
+                m.constanteEntera(i);
+                m.op(0x32, -1); // aaload
+                desempaquetar(funcion.tipos[i]);
+                palabras += palabras(funcion.tipos[i]);
+            }
+            m.invocarEstatico(clase.nombre(), EJECUTAR, descriptor, palabras(funcion.tipoRetorno) - palabras);
+            empaquetar(funcion.tipoRetorno);
+            m.op(0xB0, -1); // areturn
+        }
+
+        // ===== Sentencias =====
+
+        private void sentencia(Nodo nodo) {
+            // Las variables del método compilado son locales de la JVM: 's = s + ...' es una
+            // asignación más, salvo que para los límites cuentan sólo los caracteres agregados
+            if (nodo instanceof NodosTipados.AcumularCadena) {
+                NodosTipados.AcumularCadena acumular = (NodosTipados.AcumularCadena) nodo;
+                if (acumular.equivalente instanceof NodosTipados.AsignarCadena
+                        && ((NodosTipados.AsignarCadena) acumular.equivalente).valor instanceof NodosTipados.Concatenar) {
+                    acumular(acumular.ranura,
+                        ((NodosTipados.Concatenar) ((NodosTipados.AsignarCadena) acumular.equivalente).valor).partes);
+                    return;
+                }
+                nodo = acumular.equivalente;
+            }
+            // Y el bucle contado, un 'para' más: la JVM ya optimiza el bucle sobre locales
+            if (nodo instanceof NodosTipados.ParaContado) {
+                nodo = ((NodosTipados.ParaContado) nodo).equivalente;
+            }
+
+            if (nodo instanceof Nodo.Bloque) {
+                for (Nodo decl : ((Nodo.Bloque) nodo).declaraciones) {
+                    sentencia(decl);
+                }
+            } else if (nodo instanceof Nodo.Si) {
+                Nodo.Si si = (Nodo.Si) nodo;
+                EscritorClase.Etiqueta sino = new EscritorClase.Etiqueta();
+                condicion(si.condicion, sino, false);
+                sentencia(si.entonces);
+                if (si.sino == null) {
+                    m.fijar(sino);
+                } else {
+                    EscritorClase.Etiqueta fin = new EscritorClase.Etiqueta();
+                    m.salto(0xA7, fin, 0); // goto
+                    m.fijar(sino);
+                    sentencia(si.sino);
+                    m.fijar(fin);
+                }
+            } else if (nodo instanceof Nodo.Para) {
+                Nodo.Para para = (Nodo.Para) nodo;
+                EscritorClase.Etiqueta inicio = new EscritorClase.Etiqueta();
+                EscritorClase.Etiqueta siguiente = new EscritorClase.Etiqueta();
+                EscritorClase.Etiqueta fin = new EscritorClase.Etiqueta();
+                sentencia(para.inicializacion);
+                m.fijar(inicio);
+                condicion(para.condicion, fin, false);
+                limite("paso");
+                cuerpoBucle(para.cuerpo, fin, siguiente);
+                m.fijar(siguiente);
+                sentencia(para.incremento);
+                m.salto(0xA7, inicio, 0);
+                m.fijar(fin);
+            } else if (nodo instanceof Nodo.Mientras) {
+                Nodo.Mientras mientras = (Nodo.Mientras) nodo;
+                EscritorClase.Etiqueta inicio = new EscritorClase.Etiqueta();
+                EscritorClase.Etiqueta fin = new EscritorClase.Etiqueta();
+                m.fijar(inicio);
+                condicion(mientras.condicion, fin, false);
+                limite("paso");
+                cuerpoBucle(mientras.cuerpo, fin, inicio);
+                m.salto(0xA7, inicio, 0);
+                m.fijar(fin);
+            } else if (nodo instanceof Nodo.RetornarLlamada) {
+                llamadaDeCola(((Nodo.RetornarLlamada) nodo).llamada);
+            } else if (nodo instanceof Nodo.Retornar) {
+                Nodo valor = ((Nodo.Retornar) nodo).valor;
+                if (valor == null || valor.tipo() != funcion.tipoRetorno) {
+                    throw new EscritorClase.NoCompilable("retorno sin el tipo de la función");
+                }
+                expresion(valor);
+                m.op(retorno(funcion.tipoRetorno), -palabras(funcion.tipoRetorno));
+            } else if (nodo instanceof Nodo.DeclaracionVariable) {
+                // Declaración local sin valor: la variable se asigna antes de leerse
+                if (((Nodo.DeclaracionVariable) nodo).asignacion != null) {
+                    sentencia(((Nodo.DeclaracionVariable) nodo).asignacion);
+                }
+            } else if (nodo instanceof Nodo.Romper) {
+                m.salto(0xA7, bucles.peek()[0], 0);
+            } else if (nodo instanceof Nodo.Continuar) {
+                m.salto(0xA7, bucles.peek()[1], 0);
+            } else if (nodo instanceof Nodo.Imprimir) {
+                Nodo valor = ((Nodo.Imprimir) nodo).valor;
+                expresion(valor);
+                Tipo tipo = valor.tipo();
+                m.invocarEstatico(AYUDANTE, "imprimir", "(" + descriptor(tipo) + ")V", -palabras(tipo));
+            } else if (!asignacion(nodo, false)) {
+                expresion(nodo);
+                m.op(palabras(nodo.tipo()) == 2 ? 0x58 : 0x57, -palabras(nodo.tipo())); // pop2 / pop
+            }
+        }
+
+        // Llamada a un ayudante que recibe los límites: CompiladorJit.paso(límites), etc.
+        private void limite(String ayudante) {
+            m.local(0x19, 0, 1); // aload_0
+            m.invocarEstatico(AYUDANTE, ayudante, "(" + LIMITES + ")V", -1);
+        }
+
+        // 's = s + partes', con la cadena anterior debajo del resultado para contar lo agregado
+        private void acumular(int ranura, Nodo[] partes) {
+            m.local(0x19, local(ranura), 1); // aload
+            concatenar(partes);
+            m.local(0x19, 0, 1);
+            m.invocarEstatico(AYUDANTE, "acumulada",
+                "(Ljava/lang/String;Ljava/lang/String;" + LIMITES + ")Ljava/lang/String;", -2);
+            m.local(0x3A, local(ranura), -1); // astore
+        }
+
+        private void cuerpoBucle(Nodo cuerpo, EscritorClase.Etiqueta fin, EscritorClase.Etiqueta siguiente) {
+            bucles.push(new EscritorClase.Etiqueta[] { fin, siguiente });
+            sentencia(cuerpo);
+            bucles.pop();
+        }
+
+        // Asignación a una variable local; 'conValor' deja además el valor en la pila
+        private boolean asignacion(Nodo nodo, boolean conValor) {
+            int ranura;
+            Nodo valor;
+            if (nodo instanceof NodosTipados.AsignarEntero) {
+                ranura = ((NodosTipados.AsignarEntero) nodo).ranura;
+                valor = ((NodosTipados.AsignarEntero) nodo).valor;
+            } else if (nodo instanceof NodosTipados.AsignarLargo) {
+                ranura = ((NodosTipados.AsignarLargo) nodo).ranura;
+                valor = ((NodosTipados.AsignarLargo) nodo).valor;
+            } else if (nodo instanceof NodosTipados.AsignarDecimal) {
+                ranura = ((NodosTipados.AsignarDecimal) nodo).ranura;
+                valor = ((NodosTipados.AsignarDecimal) nodo).valor;
+            } else if (nodo instanceof NodosTipados.AsignarBooleano) {
+                ranura = ((NodosTipados.AsignarBooleano) nodo).ranura;
+                valor = ((NodosTipados.AsignarBooleano) nodo).valor;
+            } else if (nodo instanceof NodosTipados.AsignarCadena) {
+                ranura = ((NodosTipados.AsignarCadena) nodo).ranura;
+                valor = ((NodosTipados.AsignarCadena) nodo).valor;
+            } else {
+                return false;
+            }
+
+            Tipo tipo = nodo.tipo();
+            expresion(valor);
+            if (conValor) {
+                m.op(palabras(tipo) == 2 ? 0x5C : 0x59, palabras(tipo)); // dup2 / dup
+            }
+            m.local(almacenar(tipo), local(ranura), -palabras(tipo));
+            return true;
+        }
+
+        // ===== Expresiones =====
+
+        private void expresion(Nodo nodo) {
+            if (nodo instanceof NodosTipados.AcumularCadena) {
+                nodo = ((NodosTipados.AcumularCadena) nodo).equivalente;
+            }
+
+            Tipo tipo = nodo.tipo();
+            if (tipo == Tipo.DINAMICO) {
+                throw new EscritorClase.NoCompilable("expresión dinámica");
+            }
+
+            if (tipo == Tipo.BOOLEANO && !esValorBooleano(nodo)) {
+                // Comparaciones y lógica: se materializan como 0/1 a partir de saltos
+                EscritorClase.Etiqueta falso = new EscritorClase.Etiqueta();
+                EscritorClase.Etiqueta fin = new EscritorClase.Etiqueta();
+                int altura = m.alturaPila();
+                condicion(nodo, falso, false);
+                m.op(0x04, 1); // iconst_1
+                m.salto(0xA7, fin, 0);
+                m.alturaPila(altura);
+                m.fijar(falso);
+                m.op(0x03, 1); // iconst_0
+                m.fijar(fin);
+                return;
+            }
+
+            if (nodo instanceof NodosTipados.LiteralEntero) {
+                m.constanteEntera(((NodosTipados.LiteralEntero) nodo).valor);
+            } else if (nodo instanceof NodosTipados.LiteralLargo) {
+                long valor = ((NodosTipados.LiteralLargo) nodo).valor;
+                if (valor == 0 || valor == 1) {
+                    m.op(0x09 + (int) valor, 2); // lconst_<n>
+                } else {
+                    m.ldc(clase.largo(valor), 2);
+                }
+            } else if (nodo instanceof NodosTipados.LiteralDecimal) {
+                m.ldc(clase.decimal(((NodosTipados.LiteralDecimal) nodo).valor), 2);
+            } else if (nodo instanceof NodosTipados.LiteralBooleano) {
+                m.constanteEntera(((NodosTipados.LiteralBooleano) nodo).valor ? 1 : 0);
+            } else if (nodo instanceof Nodo.Literal) {
+                m.ldc(clase.cadena((String) ((Nodo.Literal) nodo).valor), 1);
+            } else if (nodo instanceof NodosTipados.LeerEntero) {
+                m.local(cargar(tipo), local(((NodosTipados.LeerEntero) nodo).ranura), 1);
+            } else if (nodo instanceof NodosTipados.LeerLargo) {
+                m.local(cargar(tipo), local(((NodosTipados.LeerLargo) nodo).ranura), 2);
+            } else if (nodo instanceof NodosTipados.LeerDecimal) {
+                m.local(cargar(tipo), local(((NodosTipados.LeerDecimal) nodo).ranura), 2);
+            } else if (nodo instanceof NodosTipados.LeerBooleano) {
+                m.local(cargar(tipo), local(((NodosTipados.LeerBooleano) nodo).ranura), 1);
+            } else if (nodo instanceof NodosTipados.LeerCadena) {
+                m.local(cargar(tipo), local(((NodosTipados.LeerCadena) nodo).ranura), 1);
+            } else if (asignacion(nodo, true)) {
+                return;
+
+            // Conversiones
+            } else if (nodo instanceof NodosTipados.EnteroALargo) {
+                expresion(((NodosTipados.EnteroALargo) nodo).valor);
+                m.op(0x85, 1); // i2l
+            } else if (nodo instanceof NodosTipados.EnteroADecimal) {
+                expresion(((NodosTipados.EnteroADecimal) nodo).valor);
+                m.op(0x87, 1); // i2d
+            } else if (nodo instanceof NodosTipados.LargoADecimal) {
+                expresion(((NodosTipados.LargoADecimal) nodo).valor);
+                m.op(0x8A, 0); // l2d
+            } else if (nodo instanceof NodosTipados.LargoAEntero) {
+                expresion(((NodosTipados.LargoAEntero) nodo).valor);
+                m.invocarEstatico(AYUDANTE, "largoAEntero", "(J)I", -1);
+            } else if (nodo instanceof NodosTipados.DecimalAEntero) {
+                expresion(((NodosTipados.DecimalAEntero) nodo).valor);
+                m.op(0x8E, -1); // d2i
+            } else if (nodo instanceof NodosTipados.DecimalALargo) {
+                expresion(((NodosTipados.DecimalALargo) nodo).valor);
+                m.op(0x8F, 0); // d2l
+
+            // Aritmética entera
+            } else if (nodo instanceof NodosTipados.SumaEntero) {
+                NodosTipados.SumaEntero op = (NodosTipados.SumaEntero) nodo;
+                binario(op.izquierda, op.derecha, 0x60, -1); // iadd
+            } else if (nodo instanceof NodosTipados.RestaEntero) {
+                NodosTipados.RestaEntero op = (NodosTipados.RestaEntero) nodo;
+                binario(op.izquierda, op.derecha, 0x64, -1); // isub
+            } else if (nodo instanceof NodosTipados.MultiplicacionEntero) {
+                NodosTipados.MultiplicacionEntero op = (NodosTipados.MultiplicacionEntero) nodo;
+                binario(op.izquierda, op.derecha, 0x68, -1); // imul
+            } else if (nodo instanceof NodosTipados.DivisionEntero) {
+                NodosTipados.DivisionEntero op = (NodosTipados.DivisionEntero) nodo;
+                ayudante(op.izquierda, op.derecha, "dividirEntero", "(II)I", -1);
+            } else if (nodo instanceof NodosTipados.ModuloEntero) {
+                NodosTipados.ModuloEntero op = (NodosTipados.ModuloEntero) nodo;
+                ayudante(op.izquierda, op.derecha, "moduloEntero", "(II)I", -1);
+            } else if (nodo instanceof NodosTipados.PotenciaEntero) {
+                NodosTipados.PotenciaEntero op = (NodosTipados.PotenciaEntero) nodo;
+                ayudante(op.izquierda, op.derecha, "potenciaEntero", "(II)I", -1);
+            } else if (nodo instanceof NodosTipados.NegativoEntero) {
+                expresion(((NodosTipados.NegativoEntero) nodo).operando);
+                m.op(0x74, 0); // ineg
+
+            // Aritmética larga
+            } else if (nodo instanceof NodosTipados.SumaLargo) {
+                NodosTipados.SumaLargo op = (NodosTipados.SumaLargo) nodo;
+                binario(op.izquierda, op.derecha, 0x61, -2); // ladd
+            } else if (nodo instanceof NodosTipados.RestaLargo) {
+                NodosTipados.RestaLargo op = (NodosTipados.RestaLargo) nodo;
+                binario(op.izquierda, op.derecha, 0x65, -2); // lsub
+            } else if (nodo instanceof NodosTipados.MultiplicacionLargo) {
+                NodosTipados.MultiplicacionLargo op = (NodosTipados.MultiplicacionLargo) nodo;
+                binario(op.izquierda, op.derecha, 0x69, -2); // lmul
+            } else if (nodo instanceof NodosTipados.DivisionLargo) {
+                NodosTipados.DivisionLargo op = (NodosTipados.DivisionLargo) nodo;
+                ayudante(op.izquierda, op.derecha, "dividirLargo", "(JJ)J", -2);
+            } else if (nodo instanceof NodosTipados.ModuloLargo) {
+                NodosTipados.ModuloLargo op = (NodosTipados.ModuloLargo) nodo;
+                ayudante(op.izquierda, op.derecha, "moduloLargo", "(JJ)J", -2);
+            } else if (nodo instanceof NodosTipados.PotenciaLargo) {
+                NodosTipados.PotenciaLargo op = (NodosTipados.PotenciaLargo) nodo;
+                ayudante(op.izquierda, op.derecha, "potenciaLargo", "(JJ)J", -2);
+            } else if (nodo instanceof NodosTipados.NegativoLargo) {
+                expresion(((NodosTipados.NegativoLargo) nodo).operando);
+                m.op(0x75, 0); // lneg
+
+            // Aritmética decimal
+            } else if (nodo instanceof NodosTipados.SumaDecimal) {
+                NodosTipados.SumaDecimal op = (NodosTipados.SumaDecimal) nodo;
+                binario(op.izquierda, op.derecha, 0x63, -2); // dadd
+            } else if (nodo instanceof NodosTipados.RestaDecimal) {
+                NodosTipados.RestaDecimal op = (NodosTipados.RestaDecimal) nodo;
+                binario(op.izquierda, op.derecha, 0x67, -2); // dsub
+            } else if (nodo instanceof NodosTipados.MultiplicacionDecimal) {
+                NodosTipados.MultiplicacionDecimal op = (NodosTipados.MultiplicacionDecimal) nodo;
+                binario(op.izquierda, op.derecha, 0x6B, -2); // dmul
+            } else if (nodo instanceof NodosTipados.DivisionDecimal) {
+                NodosTipados.DivisionDecimal op = (NodosTipados.DivisionDecimal) nodo;
+                ayudante(op.izquierda, op.derecha, "dividirDecimal", "(DD)D", -2);
+            } else if (nodo instanceof NodosTipados.ModuloDecimal) {
+                NodosTipados.ModuloDecimal op = (NodosTipados.ModuloDecimal) nodo;
+                ayudante(op.izquierda, op.derecha, "moduloDecimal", "(DD)D", -2);
+            } else if (nodo instanceof NodosTipados.PotenciaDecimal) {
+                NodosTipados.PotenciaDecimal op = (NodosTipados.PotenciaDecimal) nodo;
+                expresion(op.izquierda);
+                expresion(op.derecha);
+                m.invocarEstatico("java/lang/Math", "pow", "(DD)D", -2);
+            } else if (nodo instanceof NodosTipados.NegativoDecimal) {
+                expresion(((NodosTipados.NegativoDecimal) nodo).operando);
+                m.op(0x77, 0); // dneg
+
+            // Cadenas y llamadas
+            } else if (nodo instanceof NodosTipados.Concatenar) {
+                concatenar(((NodosTipados.Concatenar) nodo).partes);
+                m.local(0x19, 0, 1); // aload_0
+                m.invocarEstatico(AYUDANTE, "cadena", "(Ljava/lang/String;" + LIMITES + ")Ljava/lang/String;", -1);
+            } else if (nodo instanceof Nodo.Leer) {
+                m.invocarEstatico(AYUDANTE, "leerLinea", "()Ljava/lang/Object;", 1);
+            } else if (nodo instanceof Nodo.Llamada) {
+                llamada((Nodo.Llamada) nodo);
+            } else {
+                throw new EscritorClase.NoCompilable("nodo no soportado: " + nodo.getClass().getSimpleName());
+            }
+        }
+
+        // Un StringBuilder para todas las partes, que se agregan sin caja
+        private void concatenar(Nodo[] partes) {
+            m.op2(0xBB, clase.clase("java/lang/StringBuilder"), 1); // new
+            m.op(0x59, 1); // dup
+            m.op2(0xB7, clase.metodoRef("java/lang/StringBuilder", "<init>", "()V"), -1); // invokespecial
+            for (Nodo parte : partes) {
+                Tipo tipoParte = parte.tipo();
+                expresion(parte);
+                m.invocarEstatico(AYUDANTE, "agregar",
+                    "(Ljava/lang/StringBuilder;" + descriptor(tipoParte) + ")Ljava/lang/StringBuilder;", -palabras(tipoParte));
+            }
+            m.invocarVirtual("java/lang/StringBuilder", "toString", "()Ljava/lang/String;", 0);
+        }
+
+        // Booleanos que ya son un valor (no hace falta materializarlos con saltos)
+        private boolean esValorBooleano(Nodo nodo) {
+            return nodo instanceof NodosTipados.LiteralBooleano
+                || nodo instanceof NodosTipados.LeerBooleano
+                || nodo instanceof NodosTipados.AsignarBooleano
+                || nodo instanceof Nodo.Llamada;
+        }
+
+        private void binario(Nodo izquierda, Nodo derecha, int codigoOperacion, int efecto) {
+            expresion(izquierda);
+            expresion(derecha);
+            m.op(codigoOperacion, efecto);
+        }
+
+        private void ayudante(Nodo izquierda, Nodo derecha, String metodo, String descriptor, int efecto) {
+            expresion(izquierda);
+            expresion(derecha);
+            m.invocarEstatico(AYUDANTE, metodo, descriptor, efecto);
+        }
+
+        private void objeto(Nodo nodo) {
+            expresion(nodo);
+            empaquetar(nodo.tipo());
+        }
+
+        // Llamada directa al método estático de la función, que queda en la misma unidad
+        private void llamada(Nodo.Llamada llamada) {
+            EvaluadorSemantico.Funcion destino = unidad.ev.declaradas[llamada.indice];
+            if (destino == null || destino.tipoRetorno != llamada.tipoRetorno
+                    || destino.tipos.length != llamada.argumentos.length) {
+                throw new EscritorClase.NoCompilable("llamada no resoluble");
+            }
+            // Las llamadas a una función memorizada tienen que pasar por su memoria
+            if (unidad.ev.memoria != null && destino.pura) {
+                throw new EscritorClase.NoCompilable("llama a una función memorizada");
+            }
+            unidad.enlazar(funcion, llamada.indice, destino);
+            String nombreClase = unidad.agregar(destino);
+            m.local(0x19, 0, 1); // aload_0: los límites, primer argumento
+            int palabras = 1 + argumentos(llamada, destino);
+            // Como el evaluador, la llamada cuenta después de evaluar los argumentos
+            limite("entrar");
+            m.invocarEstatico(nombreClase, EJECUTAR, descriptor(destino), palabras(destino.tipoRetorno) - palabras);
+            limite("salir");
+        }
+
+        // 'retornar f(...)': la llamada a la misma función vuelve al comienzo con los
+        // nuevos argumentos y no crece la pila de la JVM. Una llamada de cola a otra
+        // función queda para el evaluador, que la hace sin anidar llamadas.
+        private void llamadaDeCola(Nodo.Llamada llamada) {
+            EvaluadorSemantico.Funcion destino = unidad.ev.declaradas[llamada.indice];
+            if (destino != funcion) {
+                throw new EscritorClase.NoCompilable("llamada de cola a otra función");
+            }
+            if (destino.tipoRetorno != llamada.tipoRetorno || destino.tipos.length != llamada.argumentos.length) {
+                throw new EscritorClase.NoCompilable("llamada no resoluble");
+            }
+            if (unidad.ev.memoria != null && destino.pura) {
+                throw new EscritorClase.NoCompilable("llama a una función memorizada");
+            }
+            unidad.enlazar(funcion, llamada.indice, destino);
+            argumentos(llamada, destino);
+            limite("cola");
+            // Los argumentos quedaron en la pila: se guardan en los parámetros del último al primero
+            for (int i = destino.tipos.length - 1; i >= 0; i--) {
+                m.local(almacenar(destino.tipos[i]), localesParametros[i], -palabras(destino.tipos[i]));
+            }
+            m.salto(0xA7, inicio, 0); // goto
+        }
+
+        // Deja en la pila los argumentos convertidos a los tipos de los parámetros; devuelve sus palabras
+        private int argumentos(Nodo.Llamada llamada, EvaluadorSemantico.Funcion destino) {
+            int palabras = 0;
+            for (int i = 0; i < llamada.argumentos.length; i++) {
+                Nodo argumento = llamada.argumentos[i];
+                Tipo origen = argumento.tipo();
+                Tipo parametro = destino.tipos[i];
+                // El evaluador convierte los argumentos después de evaluarlos todos: una
+                // conversión que puede fallar sólo se adelanta si es el último argumento
+                if (origen == Tipo.LARGO && parametro == Tipo.ENTERO && i < llamada.argumentos.length - 1) {
+                    throw new EscritorClase.NoCompilable("conversión de argumento fuera de orden");
+                }
+                Nodo convertido = origen == parametro ? argumento : NodosTipados.convertirNumerico(argumento, parametro);
+                if (convertido == null) {
+                    throw new EscritorClase.NoCompilable("argumento de tipo incompatible");
+                }
+                expresion(convertido);
+                palabras += palabras(parametro);
+            }
+            return palabras;
+        }
+
+        // Salta a 'destino' si la condición vale 'saltarSi'
+        private void condicion(Nodo nodo, EscritorClase.Etiqueta destino, boolean saltarSi) {
+            if (nodo instanceof NodosTipados.MenorEntero) {
+                NodosTipados.MenorEntero op = (NodosTipados.MenorEntero) nodo;
+                comparacionEntera(op.izquierda, op.derecha, saltarSi ? 0xA1 : 0xA2, destino); // if_icmplt / if_icmpge
+            } else if (nodo instanceof NodosTipados.MenorIgualEntero) {
+                NodosTipados.MenorIgualEntero op = (NodosTipados.MenorIgualEntero) nodo;
+                comparacionEntera(op.izquierda, op.derecha, saltarSi ? 0xA4 : 0xA3, destino); // if_icmple / if_icmpgt
+            } else if (nodo instanceof NodosTipados.MayorEntero) {
+                NodosTipados.MayorEntero op = (NodosTipados.MayorEntero) nodo;
+                comparacionEntera(op.izquierda, op.derecha, saltarSi ? 0xA3 : 0xA4, destino);
+            } else if (nodo instanceof NodosTipados.MayorIgualEntero) {
+                NodosTipados.MayorIgualEntero op = (NodosTipados.MayorIgualEntero) nodo;
+                comparacionEntera(op.izquierda, op.derecha, saltarSi ? 0xA2 : 0xA1, destino);
+            } else if (nodo instanceof NodosTipados.IgualEntero) {
+                NodosTipados.IgualEntero op = (NodosTipados.IgualEntero) nodo;
+                comparacionEntera(op.izquierda, op.derecha, saltarSi != op.negada ? 0x9F : 0xA0, destino); // if_icmpeq / if_icmpne
+            } else if (nodo instanceof NodosTipados.IgualBooleano) {
+                NodosTipados.IgualBooleano op = (NodosTipados.IgualBooleano) nodo;
+                comparacionEntera(op.izquierda, op.derecha, saltarSi != op.negada ? 0x9F : 0xA0, destino);
+
+            // Con NaN toda comparación es falsa: dcmpg da 1 y dcmpl da -1
+            } else if (nodo instanceof NodosTipados.MenorDecimal) {
+                NodosTipados.MenorDecimal op = (NodosTipados.MenorDecimal) nodo;
+                comparacionDecimal(op.izquierda, op.derecha, 0x98, saltarSi ? 0x9B : 0x9C, destino); // dcmpg; iflt / ifge
+            } else if (nodo instanceof NodosTipados.MenorIgualDecimal) {
+                NodosTipados.MenorIgualDecimal op = (NodosTipados.MenorIgualDecimal) nodo;
+                comparacionDecimal(op.izquierda, op.derecha, 0x98, saltarSi ? 0x9E : 0x9D, destino); // dcmpg; ifle / ifgt
+            } else if (nodo instanceof NodosTipados.MayorDecimal) {
+                NodosTipados.MayorDecimal op = (NodosTipados.MayorDecimal) nodo;
+                comparacionDecimal(op.izquierda, op.derecha, 0x97, saltarSi ? 0x9D : 0x9E, destino); // dcmpl; ifgt / ifle
+            } else if (nodo instanceof NodosTipados.MayorIgualDecimal) {
+                NodosTipados.MayorIgualDecimal op = (NodosTipados.MayorIgualDecimal) nodo;
+                comparacionDecimal(op.izquierda, op.derecha, 0x97, saltarSi ? 0x9C : 0x9B, destino); // dcmpl; ifge / iflt
+            } else if (nodo instanceof NodosTipados.IgualDecimal) {
+                NodosTipados.IgualDecimal op = (NodosTipados.IgualDecimal) nodo;
+                comparacionDecimal(op.izquierda, op.derecha, 0x97, saltarSi != op.negada ? 0x99 : 0x9A, destino); // dcmpl; ifeq / ifne
+
+            } else if (nodo instanceof NodosTipados.NoBooleano) {
+                condicion(((NodosTipados.NoBooleano) nodo).operando, destino, !saltarSi);
+            } else if (nodo instanceof NodosTipados.OBooleano) {
+                cortocircuito(((NodosTipados.OBooleano) nodo).operandos, true, destino, saltarSi);
+            } else if (nodo instanceof NodosTipados.YBooleano) {
+                cortocircuito(((NodosTipados.YBooleano) nodo).operandos, false, destino, saltarSi);
+            } else {
+                if (nodo.tipo() != Tipo.BOOLEANO) {
+                    throw new EscritorClase.NoCompilable("condición no booleana");
+                }
+                expresion(nodo);
+                m.salto(saltarSi ? 0x9A : 0x99, destino, -1); // ifne / ifeq
+            }
+        }
+
+        // 'o' (decide = true) o 'y' (decide = false): el primer operando que vale 'decide' fija el resultado
+        private void cortocircuito(Nodo[] operandos, boolean decide, EscritorClase.Etiqueta destino, boolean saltarSi) {
+            if (saltarSi == decide) {
+                for (Nodo operando : operandos) {
+                    condicion(operando, destino, decide);
+                }
+                return;
+            }
+            EscritorClase.Etiqueta decidido = new EscritorClase.Etiqueta();
+            for (int i = 0; i < operandos.length - 1; i++) {
+                condicion(operandos[i], decidido, decide);
+            }
+            condicion(operandos[operandos.length - 1], destino, saltarSi);
+            m.fijar(decidido);
+        }
+
+        private void comparacionEntera(Nodo izquierda, Nodo derecha, int salto, EscritorClase.Etiqueta destino) {
+            expresion(izquierda);
+            expresion(derecha);
+            m.salto(salto, destino, -2);
+        }
+
+        private void comparacionDecimal(Nodo izquierda, Nodo derecha, int comparar, int salto, EscritorClase.Etiqueta destino) {
+            expresion(izquierda);
+            expresion(derecha);
+            m.op(comparar, -3);
+            m.salto(salto, destino, -1);
+        }
+
+        // ===== Tipos de la JVM =====
+
+        private int local(int ranura) {
+            if (ranura < localesParametros.length) return localesParametros[ranura];
+            return baseLocales + 2 * (ranura - localesParametros.length);
+        }
+
+        private void empaquetar(Tipo tipo) {
+            switch (tipo) {
+                case ENTERO: m.invocarEstatico("java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", 0); break;
+                case LARGO: m.invocarEstatico("java/lang/Long", "valueOf", "(J)Ljava/lang/Long;", -1); break;
+                case DECIMAL: m.invocarEstatico("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", -1); break;
+                case BOOLEANO: m.invocarEstatico("java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", 0); break;
+                default: break;
+            }
+        }
+
+        private void desempaquetar(Tipo tipo) {
+            switch (tipo) {
+                case ENTERO:
+                    m.op2(0xC0, clase.clase("java/lang/Integer"), 0); // checkcast
+                    m.invocarVirtual("java/lang/Integer", "intValue", "()I", 0);
+                    break;
+                case LARGO:
+                    m.op2(0xC0, clase.clase("java/lang/Long"), 0);
+                    m.invocarVirtual("java/lang/Long", "longValue", "()J", 1);
+                    break;
+                case DECIMAL:
+                    m.op2(0xC0, clase.clase("java/lang/Double"), 0);
+                    m.invocarVirtual("java/lang/Double", "doubleValue", "()D", 1);
+                    break;
+                case BOOLEANO:
+                    m.op2(0xC0, clase.clase("java/lang/Boolean"), 0);
+                    m.invocarVirtual("java/lang/Boolean", "booleanValue", "()Z", 0);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static int palabras(Tipo tipo) {
+        return tipo == Tipo.LARGO || tipo == Tipo.DECIMAL ? 2 : 1;
+    }
+
+    private static String descriptor(Tipo tipo) {
+        switch (tipo) {
+            case ENTERO: return "I";
+            case LARGO: return "J";
+            case DECIMAL: return "D";
+            case BOOLEANO: return "Z";
+            default: return "Ljava/lang/Object;";
+        }
+    }
+
+    private static String descriptor(EvaluadorSemantico.Funcion funcion) {
+        StringBuilder descriptor = new StringBuilder("(").append(LIMITES);
+        for (Tipo tipo : funcion.tipos) {
+            descriptor.append(descriptor(tipo));
+        }
+        return descriptor.append(')').append(descriptor(funcion.tipoRetorno)).toString();
+    }
+
+    private static int cargar(Tipo tipo) {
+        switch (tipo) {
+            case LARGO: return 0x16; // lload
+            case DECIMAL: return 0x18; // dload
+            case CADENA: return 0x19; // aload
+            default: return 0x15; // iload
+        }
+    }
+
+    private static int almacenar(Tipo tipo) {
+        switch (tipo) {
+            case LARGO: return 0x37; // lstore
+            case DECIMAL: return 0x39; // dstore
+            case CADENA: return 0x3A; // astore
+            default: return 0x36; // istore
+        }
+    }
+
+    private static int retorno(Tipo tipo) {
+        switch (tipo) {
+            case LARGO: return 0xAD; // lreturn
+            case DECIMAL: return 0xAF; // dreturn
+            case CADENA: return 0xB0; // areturn
+            default: return 0xAC; // ireturn
+        }
+    }
+
+    // ===== Ayudantes llamados desde el código generado (mismos errores que NodosTipados) =====
+
+    public static int dividirEntero(int a, int b) {
+        if (b == 0) throw new RuntimeException("División por cero");
+        return a / b;
+    }
+
+    public static int moduloEntero(int a, int b) {
+        if (b == 0) throw new RuntimeException("División por cero en módulo");
+        return a % b;
+    }
+
+    public static int potenciaEntero(int a, int b) {
+        return (int) Math.pow(a, b);
+    }
+
+    public static long dividirLargo(long a, long b) {
+        if (b == 0) throw new RuntimeException("División por cero");
+        return a / b;
+    }
+
+    public static long moduloLargo(long a, long b) {
+        if (b == 0) throw new RuntimeException("División por cero en módulo");
+        return a % b;
+    }
+
+    public static long potenciaLargo(long a, long b) {
+        return (long) Math.pow(a, b);
+    }
+
+    public static double dividirDecimal(double a, double b) {
+        if (b == 0) throw new RuntimeException("División por cero");
+        return a / b;
+    }
+
+    public static double moduloDecimal(double a, double b) {
+        if (b == 0) throw new RuntimeException("División por cero en módulo");
+        return a % b;
+    }
+
+    public static int largoAEntero(long valor) {
+        if (valor < Integer.MIN_VALUE || valor > Integer.MAX_VALUE) {
+            throw new RuntimeException("Valor long fuera del rango de entero: " + valor);
+        }
+        return (int) valor;
+    }
+
+    public static StringBuilder agregar(StringBuilder texto, int valor) {
+        return texto.append(valor);
+    }
+
+    public static StringBuilder agregar(StringBuilder texto, long valor) {
+        return texto.append(valor);
+    }
+
+    public static StringBuilder agregar(StringBuilder texto, double valor) {
+        return texto.append(valor);
+    }
+
+    public static StringBuilder agregar(StringBuilder texto, boolean valor) {
+        return texto.append(valor ? "verdadero" : "falso");
+    }
+
+    public static StringBuilder agregar(StringBuilder texto, Object valor) {
+        return texto.append(EvaluadorSemantico.convertirAString(valor));
+    }
+
+    public static Object limites() {
+        return evaluador.get().limites;
+    }
+
+    public static void paso(Object limites) {
+        if (limites != null) ((Limites) limites).paso();
+    }
+
+    public static void entrar(Object limites) {
+        if (limites != null) ((Limites) limites).llamadaJit();
+    }
+
+    public static void salir(Object limites) {
+        if (limites != null) ((Limites) limites).salirJit();
+    }
+
+    public static void cola(Object limites) {
+        if (limites != null) ((Limites) limites).colaJit();
+    }
+
+    public static String cadena(String texto, Object limites) {
+        if (limites != null) ((Limites) limites).cadena(texto.length(), texto.length());
+        return texto;
+    }
+
+    public static String acumulada(String anterior, String texto, Object limites) {
+        if (limites != null) {
+            ((Limites) limites).cadena(texto.length(), texto.length() - (anterior != null ? anterior.length() : 0));
+        }
+        return texto;
+    }
+
+    public static Object leerLinea() {
+        return evaluador.get().leer();
+    }
+
+    public static void imprimir(int valor) {
+        evaluador.get().salida.imprimir(EvaluadorSemantico.convertirAString(valor));
+    }
+
+    public static void imprimir(long valor) {
+        evaluador.get().salida.imprimir(EvaluadorSemantico.convertirAString(valor));
+    }
+
+    public static void imprimir(double valor) {
+        evaluador.get().salida.imprimir(EvaluadorSemantico.convertirAString(valor));
+    }
+
+    public static void imprimir(boolean valor) {
+        evaluador.get().salida.imprimir(EvaluadorSemantico.convertirAString(valor));
+    }
+
+    public static void imprimir(Object valor) {
+        evaluador.get().salida.imprimir(EvaluadorSemantico.convertirAString(valor));
+    }
+}
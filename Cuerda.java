@@ -0,0 +1,60 @@
+// Valor de una variable cadena que se construye agregando al final, como en
+// 's = s + parte' dentro de un bucle (ver NodosTipados.AcumularCadena).
+//
+// Con String cada agregado copia todo el texto acumulado; la cuerda agrega
+// sobre un StringBuilder propio y sólo arma el String cuando alguien lee la
+// variable. Nunca sale de la ranura de su variable: las lecturas (LeerCadena,
+// Marco.cargar) entregan el String, así que el resto del intérprete no la ve.
+final class Cuerda {
+    private final StringBuilder texto;
+    private String valor; // String ya armado, mientras no se agregue nada más
+
+    Cuerda(String inicial, String agregado) {
+        texto = new StringBuilder(Math.max(16, 2 * (inicial.length() + agregado.length())));
+        texto.append(inicial).append(agregado);
+    }
+
+    int largo() {
+        return texto.length();
+    }
+
+    void agregar(String agregado) {
+        texto.append(agregado);
+        valor = null;
+    }
+
+    // Texto que tenía la cuerda cuando medía 'largo'
+    String prefijo(int largo) {
+        return largo == texto.length() ? toString() : texto.substring(0, largo);
+    }
+
+    @Override
+    public String toString() {
+        if (valor == null) valor = texto.toString();
+        return valor;
+    }
+
+    // Valor guardado en una ranura de cadena, tal como lo ve el programa
+    static Object leer(Object valor) {
+        return valor instanceof Cuerda ? valor.toString() : valor;
+    }
+
+    // Largo de una cuerda, o -1 si el valor no lo es
+    static int largo(Object valor) {
+        return valor instanceof Cuerda ? ((Cuerda) valor).largo() : -1;
+    }
+
+    // Nuevo valor de la ranura para 'variable = variable + agregado'. 'anterior' y
+    // 'largo' se tomaron de la ranura antes de evaluar las partes agregadas, que
+    // pudieron cambiar la variable; 'actual' es lo que hay en la ranura ahora.
+    // Si nadie la tocó, se agrega en el lugar.
+    static Object acumular(Object anterior, int largo, Object actual, String agregado) {
+        if (largo >= 0 && actual == anterior && ((Cuerda) anterior).largo() == largo) {
+            ((Cuerda) anterior).agregar(agregado);
+            return anterior;
+        }
+        String texto = largo >= 0 ? ((Cuerda) anterior).prefijo(largo)
+                                  : EvaluadorSemantico.convertirAString(anterior);
+        return new Cuerda(texto, agregado);
+    }
+}
@@ -0,0 +1,48 @@
+import java.io.*;
+
+// Origen de 'leer'. Cada ejecución lee de su Entrada, como escribe en su Salida.
+//
+// - La estándar es una sola para todo el proceso: dos lectores sobre System.in
+//   se repartirían las líneas según lo que cada uno alcanzó a cargar en su buffer.
+// - Una Entrada de texto sirve a quien ejecuta programas desde Java (ver Motor).
+final class Entrada {
+
+    private static Entrada estandar;
+
+    private final BufferedReader lector;
+
+    Entrada(Reader origen) {
+        this.lector = new BufferedReader(origen);
+    }
+
+    static synchronized Entrada estandar() {
+        if (estandar == null) {
+            estandar = new Entrada(new InputStreamReader(System.in));
+        }
+        return estandar;
+    }
+
+    static Entrada deTexto(String texto) {
+        return new Entrada(new StringReader(texto));
+    }
+
+    // Varias ejecuciones pueden compartir la estándar: cada línea va a una sola.
+    // null al terminar la entrada.
+    synchronized String siguienteLinea() throws IOException {
+        return lector.readLine();
+    }
+
+    // 'leer' del programa: sin más líneas es un error de ejecución
+    String leerLinea() {
+        String linea;
+        try {
+            linea = siguienteLinea();
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo leer la entrada: " + e.getMessage());
+        }
+        if (linea == null) {
+            throw new RuntimeException("No hay más líneas en la entrada");
+        }
+        return linea;
+    }
+}
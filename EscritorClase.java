@@ -0,0 +1,287 @@
+import java.io.*;
+import java.util.*;
+
+// Ensamblador mínimo de archivos .class para el CompiladorJit: tabla de
+// constantes, métodos estáticos y saltos con etiquetas. Genera la versión 49
+// del formato (Java 5), que no exige tablas StackMapTable: el verificador de la
+// JVM deduce los tipos por sí mismo, así que basta con emitir las instrucciones.
+final class EscritorClase {
+
+    private static final int VERSION = 49;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    // Error de generación: la función no se puede compilar y sigue interpretándose
+    static final class NoCompilable extends RuntimeException {
+        NoCompilable(String motivo) {
+            super(motivo, null, false, false);
+        }
+    }
+
+    private final String nombre;
+    private final ByteArrayOutputStream constantes = new ByteArrayOutputStream();
+    private final DataOutputStream tabla = new DataOutputStream(constantes);
+    private final Map<String, Integer> indices = new HashMap<>();
+    private int siguienteIndice = 1;
+    private final List<Metodo> metodos = new ArrayList<>();
+
+    EscritorClase(String nombre) {
+        this.nombre = nombre;
+    }
+
+    String nombre() {
+        return nombre;
+    }
+
+    Metodo metodo(String nombreMetodo, String descriptor, int maxLocales) {
+        Metodo metodo = new Metodo(nombreMetodo, descriptor, maxLocales);
+        metodos.add(metodo);
+        return metodo;
+    }
+
+    byte[] generar() {
+        try {
+            int esta = clase(nombre);
+            int superclase = clase("java/lang/Object");
+            int[] nombresMetodos = new int[metodos.size()];
+            int[] descriptores = new int[metodos.size()];
+            for (int i = 0; i < metodos.size(); i++) {
+                nombresMetodos[i] = utf8(metodos.get(i).nombre);
+                descriptores[i] = utf8(metodos.get(i).descriptor);
+            }
+            int atributoCodigo = utf8("Code");
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream salida = new DataOutputStream(bytes);
+            salida.writeInt(0xCAFEBABE);
+            salida.writeShort(0);
+            salida.writeShort(VERSION);
+            salida.writeShort(siguienteIndice);
+            constantes.writeTo(salida);
+            salida.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            salida.writeShort(esta);
+            salida.writeShort(superclase);
+            salida.writeShort(0); // interfaces
+            salida.writeShort(0); // campos
+            salida.writeShort(metodos.size());
+            for (int i = 0; i < metodos.size(); i++) {
+                Metodo metodo = metodos.get(i);
+                byte[] codigo = metodo.codigo();
+                salida.writeShort(ACC_PUBLIC | ACC_STATIC);
+                salida.writeShort(nombresMetodos[i]);
+                salida.writeShort(descriptores[i]);
+                salida.writeShort(1);
+                salida.writeShort(atributoCodigo);
+                salida.writeInt(12 + codigo.length);
+                salida.writeShort(metodo.maxPila);
+                salida.writeShort(metodo.maxLocales);
+                salida.writeInt(codigo.length);
+                salida.write(codigo);
+                salida.writeShort(0); // tabla de excepciones
+                salida.writeShort(0); // atributos
+            }
+            salida.writeShort(0); // atributos de la clase
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ===== Tabla de constantes =====
+
+    private int entrada(String clave, int ocupa, int etiqueta, int a, int b, long largo, String texto) {
+        Integer indice = indices.get(clave);
+        if (indice != null) return indice;
+        try {
+            tabla.writeByte(etiqueta);
+            switch (etiqueta) {
+                case 1: tabla.writeUTF(texto); break;
+                case 3: tabla.writeInt(a); break;
+                case 5: case 6: tabla.writeLong(largo); break;
+                case 7: case 8: tabla.writeShort(a); break;
+                default: tabla.writeShort(a); tabla.writeShort(b); break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        indice = siguienteIndice;
+        siguienteIndice += ocupa;
+        if (siguienteIndice > 0xFFFF) throw new NoCompilable("tabla de constantes demasiado grande");
+        indices.put(clave, indice);
+        return indice;
+    }
+
+    int utf8(String texto) {
+        return entrada("U" + texto, 1, 1, 0, 0, 0, texto);
+    }
+
+    int clase(String interno) {
+        return entrada("C" + interno, 1, 7, utf8(interno), 0, 0, null);
+    }
+
+    int cadena(String texto) {
+        return entrada("S" + texto, 1, 8, utf8(texto), 0, 0, null);
+    }
+
+    int entero(int valor) {
+        return entrada("I" + valor, 1, 3, valor, 0, 0, null);
+    }
+
+    int largo(long valor) {
+        return entrada("J" + valor, 2, 5, 0, 0, valor, null);
+    }
+
+    int decimal(double valor) {
+        long bits = Double.doubleToRawLongBits(valor);
+        return entrada("D" + bits, 2, 6, 0, 0, bits, null);
+    }
+
+    int metodoRef(String clase, String nombreMetodo, String descriptor) {
+        int tipo = entrada("N" + nombreMetodo + ":" + descriptor, 1, 12, utf8(nombreMetodo), utf8(descriptor), 0, null);
+        return entrada("M" + clase + "." + nombreMetodo + ":" + descriptor, 1, 10, clase(clase), tipo, 0, null);
+    }
+
+    // ===== Métodos =====
+
+    // Destino de un salto; se resuelve cuando se fija su posición
+    static final class Etiqueta {
+        int posicion = -1;
+        final List<Integer> pendientes = new ArrayList<>();
+    }
+
+    final class Metodo {
+        final String nombre;
+        final String descriptor;
+        int maxLocales;
+        private byte[] codigo = new byte[256];
+        private int tamano = 0;
+        private int pila = 0;
+        private int maxPila = 0;
+
+        Metodo(String nombre, String descriptor, int maxLocales) {
+            this.nombre = nombre;
+            this.descriptor = descriptor;
+            this.maxLocales = maxLocales;
+        }
+
+        // Variación de la altura de la pila (en palabras; long y double ocupan dos)
+        void pila(int efecto) {
+            pila += efecto;
+            if (pila > maxPila) maxPila = pila;
+        }
+
+        void byte1(int valor) {
+            if (tamano == codigo.length) codigo = Arrays.copyOf(codigo, tamano * 2);
+            codigo[tamano++] = (byte) valor;
+        }
+
+        void byte2(int valor) {
+            byte1(valor >> 8);
+            byte1(valor);
+        }
+
+        void op(int codigoOperacion, int efecto) {
+            byte1(codigoOperacion);
+            pila(efecto);
+        }
+
+        void op2(int codigoOperacion, int operando, int efecto) {
+            byte1(codigoOperacion);
+            byte2(operando);
+            pila(efecto);
+        }
+
+        // iload/lload/dload/aload e istore/lstore/dstore/astore
+        void local(int codigoOperacion, int indice, int efecto) {
+            if (indice > 255) {
+                byte1(0xC4); // wide
+                byte1(codigoOperacion);
+                byte2(indice);
+            } else {
+                byte1(codigoOperacion);
+                byte1(indice);
+            }
+            pila(efecto);
+        }
+
+        void constanteEntera(int valor) {
+            if (valor >= -1 && valor <= 5) {
+                op(0x03 + valor, 1); // iconst_<n>
+            } else if (valor >= Byte.MIN_VALUE && valor <= Byte.MAX_VALUE) {
+                byte1(0x10); // bipush
+                byte1(valor);
+                pila(1);
+            } else if (valor >= Short.MIN_VALUE && valor <= Short.MAX_VALUE) {
+                op2(0x11, valor, 1); // sipush
+            } else {
+                ldc(entero(valor), 1);
+            }
+        }
+
+        void ldc(int indice, int efecto) {
+            if (efecto == 2) {
+                op2(0x14, indice, 2); // ldc2_w
+            } else if (indice <= 255) {
+                byte1(0x12);
+                byte1(indice);
+                pila(1);
+            } else {
+                op2(0x13, indice, 1); // ldc_w
+            }
+        }
+
+        void invocarEstatico(String clase, String nombreMetodo, String descriptor, int efecto) {
+            op2(0xB8, metodoRef(clase, nombreMetodo, descriptor), efecto);
+        }
+
+        void invocarVirtual(String clase, String nombreMetodo, String descriptor, int efecto) {
+            op2(0xB6, metodoRef(clase, nombreMetodo, descriptor), efecto);
+        }
+
+        void salto(int codigoOperacion, Etiqueta destino, int efecto) {
+            int origen = tamano;
+            byte1(codigoOperacion);
+            if (destino.posicion >= 0) {
+                byte2(desplazamiento(destino.posicion - origen));
+            } else {
+                destino.pendientes.add(origen);
+                byte2(0);
+            }
+            pila(efecto);
+        }
+
+        void fijar(Etiqueta etiqueta) {
+            etiqueta.posicion = tamano;
+            for (int origen : etiqueta.pendientes) {
+                int desplazamiento = desplazamiento(tamano - origen);
+                codigo[origen + 1] = (byte) (desplazamiento >> 8);
+                codigo[origen + 2] = (byte) desplazamiento;
+            }
+            etiqueta.pendientes.clear();
+        }
+
+        // Tras un salto incondicional, retorno o athrow la altura sigue la del destino
+        void alturaPila(int altura) {
+            pila = altura;
+        }
+
+        int alturaPila() {
+            return pila;
+        }
+
+        private int desplazamiento(int valor) {
+            if (valor < Short.MIN_VALUE || valor > Short.MAX_VALUE) {
+                throw new NoCompilable("salto demasiado largo");
+            }
+            return valor;
+        }
+
+        byte[] codigo() {
+            if (tamano > 0xFFFF) throw new NoCompilable("método demasiado grande");
+            return Arrays.copyOf(codigo, tamano);
+        }
+    }
+}
@@ -3,672 +3,295 @@ import java.io.*;
 
 public class EvaluadorSemantico extends MilenguajeBaseVisitor<Object> {
     
-    // Tabla de símbolos para variables
-    private Map<String, Variable> tablaSimbolos = new HashMap<>();
+    // Funciones declaradas, por el índice que el Compilador dio a su nombre (ver Nodo.Llamada)
+    Funcion[] declaradas = new Funcion[0];
     
-    // Tabla de símbolos para funciones
-    private Map<String, Funcion> tablaFunciones = new HashMap<>();
+    // Marcos de las llamadas, reutilizados de una llamada a otra: los de las
+    // llamadas activas son los primeros 'tope' (ver abrirMarco)
+    private Marco[] marcos = new Marco[16];
+    int tope = 0;
     
-    // Pila para el manejo de ámbitos (scopes)
-    private Stack<Map<String, Variable>> pilaAmbitos = new Stack<>();
+    // Compilar a bytecode de la JVM las funciones más llamadas (opción -jit)
+    boolean compilacionJit = false;
     
-    // Control de flujo
-    private boolean debeRetornar = false;
-    private Object valorRetorno = null;
-    private boolean debeRomper = false;
-    private boolean debeContinuar = false;
+    // Destino de 'imprimir' y origen de 'leer'
+    Salida salida = Salida.estandar();
+    Entrada entrada = Entrada.estandar();
     
-    // Scanner global para entrada
-    private static Scanner scanner = new Scanner(System.in);
+    // Resultados de las funciones puras (opción -memo); null si no se memorizan
+    MemoriaFunciones memoria = null;
     
-    // Clase para representar variables
-    public static class Variable {
-        String tipo;
-        Object valor;
-        boolean inicializada;
-        
-        public Variable(String tipo, Object valor, boolean inicializada) {
-            this.tipo = tipo;
-            this.valor = valor;
-            this.inicializada = inicializada;
+    // Funciones con código de -jit ya revisado para esta ejecución: si sirve o no
+    private final Map<Funcion, Boolean> jitRevisadas = new IdentityHashMap<>();
+    
+    // Límites de la ejecución (ver Limites); null si no hay. Con límites las
+    // funciones no se compilan con -jit: el código compilado no los revisa.
+    Limites limites = null;
+    
+    // Marco global de una sesión (ver Sesion): sigue de una entrada a la siguiente
+    private Marco global = null;
+    
+    // Pila de Java del hilo que ejecuta el programa (ver ejecutar)
+    static final long PILA_PROGRAMA = 128L * 1024 * 1024;
+    
+    // Hilo con una pila de PILA_PROGRAMA bytes: un programa se ejecuta en él
+    // directamente. Los pools que ejecutan programas los crean con Motor.hilos.
+    static final class HiloPrograma extends Thread {
+        HiloPrograma(Runnable tarea, String nombre) {
+            super(null, tarea, nombre, PILA_PROGRAMA);
         }
     }
     
+    // Códigos de operador resueltos en compilación (ver Compilador)
+    static final int OP_SUMA = 0;
+    static final int OP_RESTA = 1;
+    static final int OP_MULTIPLICAR = 2;
+    static final int OP_DIVIDIR = 3;
+    static final int OP_MODULO = 4;
+    static final int OP_POTENCIA = 5;
+    static final int OP_MENOR = 6;
+    static final int OP_MENOR_IGUAL = 7;
+    static final int OP_MAYOR = 8;
+    static final int OP_MAYOR_IGUAL = 9;
+    
+    static final String[] SIMBOLOS = { "+", "-", "*", "/", "%", "^", "<", "<=", ">", ">=" };
+    
     // Clase para representar funciones
-    public static class Funcion {
+    public static class Funcion implements Serializable {
         String nombre;
-        List<String> tiposParametros;
+        int indice; // posición en 'declaradas' (ver Nodo.Llamada)
         List<String> nombresParametros;
-        MilenguajeParser.BloqueContext cuerpo;
-        
-        public Funcion(String nombre, List<String> tipos, List<String> nombres, MilenguajeParser.BloqueContext cuerpo) {
+        Tipo[] tipos; // tipos de los parámetros, en el orden de sus ranuras
+        Nodo cuerpo;
+        int ranuras; // tamaño del marco: parámetros y variables locales
+        Tipo tipoRetorno; // DINAMICO si no todos los 'retornar' tienen el mismo tipo
+        boolean pura;     // el resultado sólo depende de los argumentos (ver MemoriaFunciones)
+        
+        // Compilación a bytecode de la JVM (ver CompiladorJit); no se guarda con el programa.
+        // La Funcion es parte del programa compilado y la comparten las ejecuciones
+        // de varios hilos: 'invocaciones' es sólo una estimación, la clase se genera
+        // bajo el cerrojo de CompiladorJit y el puente se publica con volatile.
+        transient int invocaciones = 0;
+        transient Class<?> claseJit;
+        transient volatile java.lang.invoke.MethodHandle puenteJit;
+        
+        // El código compilado llama directamente, sin pasar por 'declaradas' ni
+        // por la memoria, a estas funciones (también a las que llaman ellas), que
+        // estaban en estos índices de la ejecución que lo compiló. Otra ejecución
+        // sólo lo usa si en la suya es igual (ver CompiladorJit.vigente).
+        transient int[] indicesJit;
+        transient Funcion[] destinosJit;
+        transient volatile boolean jitDescartado = false;
+        
+        public Funcion(String nombre, Tipo[] tipos, List<String> nombres, Nodo cuerpo, int ranuras, Tipo tipoRetorno) {
             this.nombre = nombre;
-            this.tiposParametros = tipos;
             this.nombresParametros = nombres;
+            this.tipos = tipos;
             this.cuerpo = cuerpo;
+            this.ranuras = ranuras;
+            this.tipoRetorno = tipoRetorno;
         }
     }
     
-    // Inicializar nuevo ámbito
-    private void iniciarAmbito() {
-        pilaAmbitos.push(new HashMap<>());
-    }
-    
-    // Terminar ámbito actual
-    private void terminarAmbito() {
-        if (!pilaAmbitos.isEmpty()) {
-            pilaAmbitos.pop();
+    // Registrar una función al ejecutar su declaración
+    void declararFuncion(Funcion funcion) {
+        if (declaradas[funcion.indice] != null) {
+            throw new RuntimeException("Función '" + funcion.nombre + "' ya está declarada");
         }
+        declaradas[funcion.indice] = funcion;
     }
     
-    // Buscar variable en todos los ámbitos
-    private Variable buscarVariable(String nombre) {
-        // Buscar en ámbitos locales (pila)
-        for (int i = pilaAmbitos.size() - 1; i >= 0; i--) {
-            if (pilaAmbitos.get(i).containsKey(nombre)) {
-                return pilaAmbitos.get(i).get(nombre);
-            }
-        }
-        // Buscar en ámbito global
-        return tablaSimbolos.get(nombre);
-    }
-    
-    // Declarar variable en el ámbito actual
-    private void declararVariable(String nombre, Variable variable) {
-        if (!pilaAmbitos.isEmpty()) {
-            pilaAmbitos.peek().put(nombre, variable);
-        } else {
-            tablaSimbolos.put(nombre, variable);
-        }
+    // 'leer' del programa: lo impreso hasta aquí se muestra antes de esperar la entrada
+    String leer() {
+        salida.antesDeLeer();
+        return entrada.leerLinea();
     }
     
     @Override
     public Object visitPrograma(MilenguajeParser.ProgramaContext ctx) {
-        try {
-            for (MilenguajeParser.DeclaracionContext decl : ctx.declaracion()) {
-                if (debeRetornar || debeRomper || debeContinuar) break;
-                visit(decl);
-            }
-            return null;
-        } catch (RuntimeException e) {
-            throw new RuntimeException("Error en el programa: " + e.getMessage());
-        }
-    }
-    
-    @Override
-    public Object visitDeclaracionVariable(MilenguajeParser.DeclaracionVariableContext ctx) {
-        String tipo = ctx.tipo().getText();
-        String nombre = ctx.IDENTIFICADOR().getText();
-        
-        // Verificar si ya existe en el ámbito actual
-        if ((!pilaAmbitos.isEmpty() && pilaAmbitos.peek().containsKey(nombre)) || 
-            (pilaAmbitos.isEmpty() && tablaSimbolos.containsKey(nombre))) {
-            throw new RuntimeException("Variable '" + nombre + "' ya está declarada");
-        }
-        
-        Object valor = null;
-        boolean inicializada = false;
-        
-        if (ctx.expresion() != null) {
-            valor = visit(ctx.expresion());
-            inicializada = true;
-            
-            // Convertir el valor al tipo correcto si es necesario
-            valor = convertirATipo(tipo, valor);
-            
-            // Verificar compatibilidad de tipos
-            if (!esCompatibleTipo(tipo, valor)) {
-                throw new RuntimeException("Tipo incompatible para variable '" + nombre + "'. Esperado: " + tipo + ", recibido: " + obtenerTipo(valor));
+        // Compilar una sola vez el árbol y ejecutar los nodos resultantes
+        return ejecutar(Compilador.compilarPrograma(ctx));
+    }
+    
+    // Ejecutar un programa ya compilado (por ejemplo, tomado de CacheProgramas).
+    // Cada llamada que no es de cola usa varios niveles de la pila de Java y la
+    // pila de un hilo común no llega a mil llamadas anidadas: el programa corre en
+    // un HiloPrograma. Si el que llama ya es uno, en él mismo; si no, en uno
+    // nuevo, mientras el que llama espera.
+    Object ejecutar(final Nodo.Programa programa) {
+        if (Thread.currentThread() instanceof HiloPrograma) {
+            return evaluarPrograma(programa);
+        }
+        final Object[] resultado = new Object[1];
+        final Throwable[] error = new Throwable[1];
+        Thread hilo = new HiloPrograma(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    resultado[0] = evaluarPrograma(programa);
+                } catch (Throwable e) {
+                    error[0] = e;
+                }
             }
+        }, "programa");
+        hilo.start();
+        try {
+            hilo.join();
+        } catch (InterruptedException e) {
+            hilo.interrupt();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Ejecución interrumpida");
         }
         
-        declararVariable(nombre, new Variable(tipo, valor, inicializada));
-        return null;
+        if (error[0] instanceof RuntimeException) throw (RuntimeException) error[0];
+        if (error[0] instanceof Error) throw (Error) error[0];
+        return resultado[0];
     }
     
-    @Override
-    public Object visitDeclaracionFuncion(MilenguajeParser.DeclaracionFuncionContext ctx) {
-        String nombre = ctx.IDENTIFICADOR().getText();
-        
-        if (tablaFunciones.containsKey(nombre)) {
-            throw new RuntimeException("Función '" + nombre + "' ya está declarada");
-        }
-        
-        List<String> tiposParametros = new ArrayList<>();
-        List<String> nombresParametros = new ArrayList<>();
-        
-        if (ctx.parametros() != null) {
-            for (int i = 0; i < ctx.parametros().tipo().size(); i++) {
-                tiposParametros.add(ctx.parametros().tipo(i).getText());
-                nombresParametros.add(ctx.parametros().IDENTIFICADOR(i).getText());
-            }
-        }
-        
-        tablaFunciones.put(nombre, new Funcion(nombre, tiposParametros, nombresParametros, ctx.bloque()));
-        return null;
+    // En este hilo, con la pila que tenga (ver ejecutar)
+    Object evaluarPrograma(Nodo.Programa programa) {
+        declaradas = new Funcion[programa.funciones];
+        return evaluar(programa, new Marco(this, programa.ranuras));
     }
     
-    @Override
-    public Object visitSentenciaSi(MilenguajeParser.SentenciaSiContext ctx) {
-        Object condicion = visit(ctx.expresion());
-        
-        if (!(condicion instanceof Boolean)) {
-            throw new RuntimeException("La condición del 'si' debe ser booleana");
+    // Ejecuta en este hilo una entrada más de una sesión, con las funciones y el
+    // marco global que dejaron las anteriores. Las ranuras desde 'nuevas' son las
+    // de las globales que declara la entrada (ver Compilador.cantidadGlobales).
+    Object continuar(Nodo.Programa parte, int nuevas) {
+        if (declaradas.length < parte.funciones) {
+            declaradas = Arrays.copyOf(declaradas, parte.funciones);
         }
-        
-        if ((Boolean) condicion) {
-            visit(ctx.sentencia(0));
-        } else if (ctx.sentencia().size() > 1) {
-            visit(ctx.sentencia(1));
+        if (global == null) {
+            global = new Marco(this, parte.ranuras);
+        } else {
+            global.ampliar(parte.ranuras, nuevas);
         }
-        
-        return null;
+        return evaluar(parte, global);
     }
     
-    @Override
-    public Object visitSentenciaPara(MilenguajeParser.SentenciaParaContext ctx) {
-        iniciarAmbito();
-        
+    private Object evaluar(Nodo.Programa programa, Marco marco) {
         try {
-            // Inicialización
-            visit(ctx.declaracionVariable());
-            
-            while (true) {
-                // Condición
-                Object condicion = visit(ctx.expresion(0));
-                if (!(condicion instanceof Boolean) || !(Boolean) condicion) {
-                    break;
-                }
-                
-                // Cuerpo del bucle
-                visit(ctx.sentencia());
-                
-                if (debeRomper) {
-                    debeRomper = false;
-                    break;
-                }
-                
-                if (debeContinuar) {
-                    debeContinuar = false;
-                }
-                
-                if (debeRetornar) {
-                    break;
-                }
-                
-                // Incremento
-                visit(ctx.expresion(1));
-            }
+            tope = 0;
+            jitRevisadas.clear();
+            return programa.evaluar(marco);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Error en el programa: " + e.getMessage());
+        } catch (StackOverflowError e) {
+            throw new RuntimeException("Error en el programa: Demasiadas llamadas anidadas (recursión infinita)");
+        } catch (OutOfMemoryError e) {
+            throw new RuntimeException("Error en el programa: Memoria agotada");
         } finally {
-            terminarAmbito();
+            salida.vaciar();
         }
-        
-        return null;
     }
     
-    @Override
-    public Object visitSentenciaMientras(MilenguajeParser.SentenciaMientrasContext ctx) {
-        while (true) {
-            Object condicion = visit(ctx.expresion());
-            
-            if (!(condicion instanceof Boolean) || !(Boolean) condicion) {
-                break;
-            }
-            
-            visit(ctx.sentencia());
-            
-            if (debeRomper) {
-                debeRomper = false;
-                break;
-            }
-            
-            if (debeContinuar) {
-                debeContinuar = false;
-                continue;
-            }
-            
-            if (debeRetornar) {
-                break;
-            }
-        }
-        
-        return null;
-    }
+    // Métodos auxiliares
     
-    @Override
-    public Object visitSentenciaRetornar(MilenguajeParser.SentenciaRetornarContext ctx) {
-        if (ctx.expresion() != null) {
-            valorRetorno = visit(ctx.expresion());
-        } else {
-            valorRetorno = null;
+    // Marco para una llamada: el siguiente libre, sin datos de la llamada anterior
+    Marco abrirMarco(Marco global, int ranuras) {
+        if (tope == marcos.length) {
+            marcos = Arrays.copyOf(marcos, tope * 2);
         }
-        debeRetornar = true;
-        return null;
-    }
-    
-    @Override
-    public Object visitSentenciaImprimir(MilenguajeParser.SentenciaImprimirContext ctx) {
-        Object valor = visit(ctx.expresion());
-        System.out.println(convertirAString(valor));
-        return null;
-    }
-    
-    @Override
-    public Object visitSentenciaRomper(MilenguajeParser.SentenciaRomperContext ctx) {
-        debeRomper = true;
-        return null;
-    }
-    
-    @Override
-    public Object visitSentenciaContinuar(MilenguajeParser.SentenciaContinuarContext ctx) {
-        debeContinuar = true;
-        return null;
-    }
-    
-    @Override
-    public Object visitAsignacion(MilenguajeParser.AsignacionContext ctx) {
-        if (ctx.IDENTIFICADOR() != null) {
-            // Es una asignación
-            String nombre = ctx.IDENTIFICADOR().getText();
-            Object valor = visit(ctx.asignacion());
-            
-            Variable variable = buscarVariable(nombre);
-            if (variable == null) {
-                throw new RuntimeException("Variable '" + nombre + "' no está declarada");
-            }
-            
-            // Convertir el valor al tipo correcto
-            valor = convertirATipo(variable.tipo, valor);
-            
-            if (!esCompatibleTipo(variable.tipo, valor)) {
-                throw new RuntimeException("Tipo incompatible para asignación a '" + nombre + "'. Esperado: " + variable.tipo + ", recibido: " + obtenerTipo(valor));
-            }
-            
-            variable.valor = valor;
-            variable.inicializada = true;
-            return valor;
+        Marco marco = marcos[tope];
+        if (marco == null || marco.global != global || marco.valores.length < ranuras) {
+            marco = new Marco(global, ranuras);
+            marcos[tope] = marco;
         } else {
-            // No es asignación, continuar con expresionLogicaO
-            return visit(ctx.expresionLogicaO());
-        }
-    }
-    
-    @Override
-    public Object visitExpresionLogicaO(MilenguajeParser.ExpresionLogicaOContext ctx) {
-        Object izquierda = visit(ctx.expresionLogicaY(0));
-        
-        for (int i = 1; i < ctx.expresionLogicaY().size(); i++) {
-            if (!(izquierda instanceof Boolean)) {
-                throw new RuntimeException("Operador 'o' requiere operandos booleanos");
-            }
-            
-            if ((Boolean) izquierda) {
-                return true; // Short-circuit evaluation
-            }
-            
-            Object derecha = visit(ctx.expresionLogicaY(i));
-            if (!(derecha instanceof Boolean)) {
-                throw new RuntimeException("Operador 'o' requiere operandos booleanos");
-            }
-            
-            izquierda = (Boolean) izquierda || (Boolean) derecha;
-        }
-        
-        return izquierda;
-    }
-    
-    @Override
-    public Object visitExpresionLogicaY(MilenguajeParser.ExpresionLogicaYContext ctx) {
-        Object izquierda = visit(ctx.expresionIgualdad(0));
-        
-        for (int i = 1; i < ctx.expresionIgualdad().size(); i++) {
-            if (!(izquierda instanceof Boolean)) {
-                throw new RuntimeException("Operador 'y' requiere operandos booleanos");
-            }
-            
-            if (!(Boolean) izquierda) {
-                return false; // Short-circuit evaluation
-            }
-            
-            Object derecha = visit(ctx.expresionIgualdad(i));
-            if (!(derecha instanceof Boolean)) {
-                throw new RuntimeException("Operador 'y' requiere operandos booleanos");
-            }
-            
-            izquierda = (Boolean) izquierda && (Boolean) derecha;
+            marco.reiniciar(ranuras);
         }
-        
-        return izquierda;
+        tope++;
+        return marco;
     }
     
-    @Override
-    public Object visitExpresionIgualdad(MilenguajeParser.ExpresionIgualdadContext ctx) {
-        Object izquierda = visit(ctx.expresionRelacional(0));
-        
-        for (int i = 0; i < ctx.getChildCount(); i += 2) {
-            if (i + 1 < ctx.getChildCount() && i + 2 < ctx.getChildCount()) {
-                String operador = ctx.getChild(i + 1).getText();
-                Object derecha = visit(ctx.expresionRelacional((i / 2) + 1));
-                
-                switch (operador) {
-                    case "==":
-                        izquierda = esIgual(izquierda, derecha);
-                        break;
-                    case "!=":
-                        izquierda = !esIgual(izquierda, derecha);
-                        break;
+    // Ejecuta la función con los argumentos ya puestos en 'marco', el último
+    // abierto, y devuelve el marco donde quedó el resultado.
+    //
+    // Las llamadas de cola pendientes se hacen una tras otra en este mismo nivel
+    // de la pila de Java. Una función memorizada que termina en una llamada de cola
+    // tiene el mismo resultado que esa llamada: se guarda al final de la cadena.
+    Marco ejecutarFuncion(Funcion funcion, Marco marco) {
+        int nivel = tope - 1;
+        List<Object> pendientes = null; // pares tabla, argumentos
+        while (true) {
+            if (limites != null) limites.llamada(nivel + 1);
+            MemoriaFunciones.Tabla tabla = memoria != null ? memoria.tabla(funcion) : null;
+            if (tabla != null) {
+                List<Object> argumentos = Arrays.asList(marco.argumentos(funcion.tipos));
+                Object resultado = tabla.buscar(argumentos);
+                if (resultado != MemoriaFunciones.SIN_RESULTADO) {
+                    marco.retorno = resultado;
+                    break;
                 }
+                if (pendientes == null) pendientes = new ArrayList<>();
+                pendientes.add(tabla);
+                pendientes.add(argumentos);
+                funcion.cuerpo.completar(marco);
+            } else {
+                llamar(funcion, marco);
             }
-        }
-        
-        return izquierda;
-    }
-    
-    @Override
-    public Object visitExpresionRelacional(MilenguajeParser.ExpresionRelacionalContext ctx) {
-        Object izquierda = visit(ctx.expresionAritmetica(0));
-        
-        for (int i = 0; i < ctx.getChildCount(); i += 2) {
-            if (i + 1 < ctx.getChildCount() && i + 2 < ctx.getChildCount()) {
-                String operador = ctx.getChild(i + 1).getText();
-                Object derecha = visit(ctx.expresionAritmetica((i / 2) + 1));
-                
-                izquierda = aplicarOperadorRelacional(operador, izquierda, derecha);
-            }
-        }
-        
-        return izquierda;
-    }
-    
-    @Override
-    public Object visitExpresionAritmetica(MilenguajeParser.ExpresionAritmeticaContext ctx) {
-        Object izquierda = visit(ctx.expresionPotencia(0));
-        
-        for (int i = 0; i < ctx.getChildCount(); i += 2) {
-            if (i + 1 < ctx.getChildCount() && i + 2 < ctx.getChildCount()) {
-                String operador = ctx.getChild(i + 1).getText();
-                Object derecha = visit(ctx.expresionPotencia((i / 2) + 1));
-                
-                izquierda = aplicarOperadorAritmetico(operador, izquierda, derecha);
-            }
-        }
-        
-        return izquierda;
-    }
-    
-    @Override
-    public Object visitExpresionPotencia(MilenguajeParser.ExpresionPotenciaContext ctx) {
-        Object izquierda = visit(ctx.expresionMultiplicativa(0));
-        
-        if (ctx.expresionMultiplicativa().size() > 1) {
-            Object derecha = visit(ctx.expresionMultiplicativa(1));
-            return aplicarOperadorAritmetico("^", izquierda, derecha);
-        }
-        
-        return izquierda;
-    }
-    
-    @Override
-    public Object visitExpresionMultiplicativa(MilenguajeParser.ExpresionMultiplicativaContext ctx) {
-        Object izquierda = visit(ctx.expresionUnaria(0));
-        
-        for (int i = 0; i < ctx.getChildCount(); i += 2) {
-            if (i + 1 < ctx.getChildCount() && i + 2 < ctx.getChildCount()) {
-                String operador = ctx.getChild(i + 1).getText();
-                Object derecha = visit(ctx.expresionUnaria((i / 2) + 1));
-                
-                izquierda = aplicarOperadorAritmetico(operador, izquierda, derecha);
-            }
-        }
-        
-        return izquierda;
-    }
-    
-    @Override
-    public Object visitExpresionUnaria(MilenguajeParser.ExpresionUnariaContext ctx) {
-        if (ctx.getChildCount() == 2) {
-            String operador = ctx.getChild(0).getText();
-            Object operando = visit(ctx.expresionUnaria());
-            
-            switch (operador) {
-                case "no":
-                    if (!(operando instanceof Boolean)) {
-                        throw new RuntimeException("Operador 'no' requiere operando booleano");
-                    }
-                    return !(Boolean) operando;
-                case "-":
-                    if (operando instanceof Integer) {
-                        return -(Integer) operando;
-                    } else if (operando instanceof Double) {
-                        return -(Double) operando;
-                    } else if (operando instanceof Long) {
-                        return -(Long) operando;
-                    } else {
-                        throw new RuntimeException("Operador '-' requiere operando numérico");
-                    }
-                case "+":
-                    if (operando instanceof Integer || operando instanceof Double || operando instanceof Long) {
-                        return operando;
-                    } else {
-                        throw new RuntimeException("Operador '+' requiere operando numérico");
-                    }
-                default:
-                    throw new RuntimeException("Operador unario desconocido: " + operador);
-            }
-        } else {
-            return visit(ctx.expresionPrimaria());
-        }
-    }
-    
-    @Override
-    public Object visitExpresionPrimaria(MilenguajeParser.ExpresionPrimariaContext ctx) {
-        if (ctx.NUMERO_ENTERO() != null) {
-            String numeroTexto = ctx.NUMERO_ENTERO().getText();
-            try {
-                // Intentar parsear como Integer primero
-                return Integer.parseInt(numeroTexto);
-            } catch (NumberFormatException e) {
-                // Si es muy grande para Integer, usar Long
-                return Long.parseLong(numeroTexto);
-            }
-        } else if (ctx.NUMERO_DECIMAL() != null) {
-            return Double.parseDouble(ctx.NUMERO_DECIMAL().getText());
-        } else if (ctx.CADENA() != null) {
-            String texto = ctx.CADENA().getText();
-            return texto.substring(1, texto.length() - 1); // Remover comillas
-        } else if (ctx.getText().equals("verdadero")) {
-            return true;
-        } else if (ctx.getText().equals("falso")) {
-            return false;
-        } else if (ctx.IDENTIFICADOR() != null) {
-            String nombre = ctx.IDENTIFICADOR().getText();
-            Variable variable = buscarVariable(nombre);
-            
-            if (variable == null) {
-                throw new RuntimeException("Variable '" + nombre + "' no está declarada");
-            }
-            
-            if (!variable.inicializada) {
-                throw new RuntimeException("Variable '" + nombre + "' no está inicializada");
-            }
+            if (marco.retorno != Marco.LLAMADA_EN_COLA) break;
             
-            return variable.valor;
-        } else if (ctx.llamadaFuncion() != null) {
-            return visit(ctx.llamadaFuncion());
-        } else if (ctx.expresionLeer() != null) {
-            return visit(ctx.expresionLeer());
-        } else if (ctx.expresion() != null) {
-            return visit(ctx.expresion());
-        }
-        
-        throw new RuntimeException("Expresión primaria no reconocida");
-    }
-    
-    @Override
-    public Object visitLlamadaFuncion(MilenguajeParser.LlamadaFuncionContext ctx) {
-        String nombre = ctx.IDENTIFICADOR().getText();
-        Funcion funcion = tablaFunciones.get(nombre);
-        
-        if (funcion == null) {
-            throw new RuntimeException("Función '" + nombre + "' no está declarada");
-        }
-        
-        List<Object> argumentos = new ArrayList<>();
-        if (ctx.argumentos() != null) {
-            for (MilenguajeParser.ExpresionContext expr : ctx.argumentos().expresion()) {
-                argumentos.add(visit(expr));
-            }
-        }
-        
-        if (argumentos.size() != funcion.tiposParametros.size()) {
-            throw new RuntimeException("Número incorrecto de argumentos para función '" + nombre + "'");
-        }
-        
-        // Verificar tipos de argumentos
-        for (int i = 0; i < argumentos.size(); i++) {
-            Object argumento = convertirATipo(funcion.tiposParametros.get(i), argumentos.get(i));
-            if (!esCompatibleTipo(funcion.tiposParametros.get(i), argumento)) {
-                throw new RuntimeException("Argumento " + (i + 1) + " de función '" + nombre + "' tiene tipo incorrecto");
+            // La llamada pendiente tiene sus argumentos en el marco siguiente, que
+            // pasa a ocupar el lugar de éste
+            funcion = marco.enCola;
+            Marco siguiente = marcos[nivel + 1];
+            marcos[nivel + 1] = marco;
+            marcos[nivel] = siguiente;
+            marco = siguiente;
+            tope = nivel + 1;
+        }
+        if (pendientes != null) {
+            Object resultado = marco.retornado();
+            for (int i = 0; i < pendientes.size(); i += 2) {
+                ((MemoriaFunciones.Tabla) pendientes.get(i)).guardar((List<?>) pendientes.get(i + 1), resultado);
             }
-            argumentos.set(i, argumento);
         }
-        
-        // Ejecutar función
-        return ejecutarFuncion(funcion, argumentos);
-    }
-    
-    @Override
-    public Object visitExpresionLeer(MilenguajeParser.ExpresionLeerContext ctx) {
-        return scanner.nextLine();
+        return marco;
     }
     
-    @Override
-    public Object visitBloque(MilenguajeParser.BloqueContext ctx) {
-        iniciarAmbito();
-        
-        try {
-            for (MilenguajeParser.DeclaracionContext decl : ctx.declaracion()) {
-                if (debeRetornar || debeRomper || debeContinuar) break;
-                visit(decl);
+    // Deja en el marco el resultado de la función, o la llamada de cola con la que
+    // terminó. Una función memorizada siempre se interpreta (ver ejecutarFuncion):
+    // su código compilado llamaría a sí mismo sin pasar por la memoria.
+    private void llamar(Funcion funcion, Marco marco) {
+        if (compilacionJit) {
+            if (funcion.puenteJit == null && !funcion.jitDescartado
+                    && ++funcion.invocaciones >= CompiladorJit.UMBRAL) {
+                CompiladorJit.compilar(funcion, this);
             }
-        } finally {
-            terminarAmbito();
-        }
-        
-        return null;
-    }
-    
-    // Métodos auxiliares
-    
-    private Object ejecutarFuncion(Funcion funcion, List<Object> argumentos) {
-        // Guardar estado actual
-        boolean retornoAnterior = debeRetornar;
-        Object valorRetornoAnterior = valorRetorno;
-        
-        debeRetornar = false;
-        valorRetorno = null;
-        
-        iniciarAmbito();
-        
-        try {
-            // Declarar parámetros en nuevo ámbito
-            for (int i = 0; i < funcion.nombresParametros.size(); i++) {
-                String nombreParam = funcion.nombresParametros.get(i);
-                String tipoParam = funcion.tiposParametros.get(i);
-                Object valorParam = argumentos.get(i);
-                
-                declararVariable(nombreParam, new Variable(tipoParam, valorParam, true));
+            if (funcion.puenteJit != null && jitVigente(funcion)) {
+                marco.retorno = CompiladorJit.invocar(this, funcion, marco.argumentos(funcion.tipos));
+                return;
             }
-            
-            // Ejecutar cuerpo de la función
-            visit(funcion.cuerpo);
-            
-            Object resultado = valorRetorno;
-            
-            // Restaurar estado
-            debeRetornar = retornoAnterior;
-            valorRetorno = valorRetornoAnterior;
-            
-            return resultado;
-            
-        } finally {
-            terminarAmbito();
         }
+        // 'retornar' deja el valor en el marco
+        funcion.cuerpo.completar(marco);
     }
     
-    private Object convertirATipo(String tipoEsperado, Object valor) {
-        if (valor == null) return null;
-        
-        switch (tipoEsperado) {
-            case "entero":
-                if (valor instanceof Integer) return valor;
-                if (valor instanceof Long) {
-                    Long longVal = (Long) valor;
-                    if (longVal >= Integer.MIN_VALUE && longVal <= Integer.MAX_VALUE) {
-                        return longVal.intValue();
-                    } else {
-                        throw new RuntimeException("Valor long fuera del rango de entero: " + longVal);
-                    }
-                }
-                if (valor instanceof Double) {
-                    return ((Double) valor).intValue();
-                }
-                break;
-                
-            case "largo":
-                if (valor instanceof Long) return valor;
-                if (valor instanceof Integer) return ((Integer) valor).longValue();
-                if (valor instanceof Double) return ((Double) valor).longValue();
-                break;
-                
-            case "decimal":
-                if (valor instanceof Double) return valor;
-                if (valor instanceof Integer) return ((Integer) valor).doubleValue();
-                if (valor instanceof Long) return ((Long) valor).doubleValue();
-                break;
-                
-            case "booleano":
-                if (valor instanceof Boolean) return valor;
-                break;
-                
-            case "cadena":
-                if (valor instanceof String) return valor;
-                break;
-        }
-        
-        return valor;
-    }
-    
-    private boolean esCompatibleTipo(String tipoEsperado, Object valor) {
-        if (valor == null) return true;
-        
-        switch (tipoEsperado) {
-            case "entero":
-                return valor instanceof Integer;
-            case "decimal":
-                return valor instanceof Double;
-            case "booleano":
-                return valor instanceof Boolean;
-            case "cadena":
-                return valor instanceof String;
-            case "largo":
-                return valor instanceof Long;
-            default:
-                return false;
+    // Lo que se decide para una función sigue valiendo en toda la ejecución: una
+    // función ya declarada no se vuelve a declarar
+    private boolean jitVigente(Funcion funcion) {
+        Boolean vigente = jitRevisadas.get(funcion);
+        if (vigente == null) {
+            vigente = CompiladorJit.vigente(funcion, this);
+            jitRevisadas.put(funcion, vigente);
         }
+        return vigente;
     }
     
-    private String obtenerTipo(Object valor) {
+    static String obtenerTipo(Object valor) {
         if (valor == null) return "null";
         if (valor instanceof Integer) return "entero";
         if (valor instanceof Long) return "largo";
         if (valor instanceof Double) return "decimal";
         if (valor instanceof Boolean) return "booleano";
         if (valor instanceof String) return "cadena";
+        if (valor instanceof int[]) return "entero[]";
+        if (valor instanceof long[]) return "largo[]";
+        if (valor instanceof double[]) return "decimal[]";
         return valor.getClass().getSimpleName();
     }
     
-    private boolean esIgual(Object a, Object b) {
+    static boolean esIgual(Object a, Object b) {
         if (a == null && b == null) return true;
         if (a == null || b == null) return false;
         
@@ -682,29 +305,36 @@ public class EvaluadorSemantico extends MilenguajeBaseVisitor<Object> {
         return a.equals(b);
     }
     
-    private boolean esNumerico(Object valor) {
+    static boolean esNumerico(Object valor) {
         return valor instanceof Integer || valor instanceof Long || valor instanceof Double;
     }
     
-    private Object aplicarOperadorRelacional(String operador, Object izquierda, Object derecha) {
+    static int codigoOperador(String simbolo) {
+        for (int i = 0; i < SIMBOLOS.length; i++) {
+            if (SIMBOLOS[i].equals(simbolo)) return i;
+        }
+        throw new RuntimeException("Operador desconocido: " + simbolo);
+    }
+    
+    static Object aplicarOperadorRelacional(int operador, Object izquierda, Object derecha) {
         if (esNumerico(izquierda) && esNumerico(derecha)) {
             double a = convertirADouble(izquierda);
             double b = convertirADouble(derecha);
             
             switch (operador) {
-                case "<": return a < b;
-                case "<=": return a <= b;
-                case ">": return a > b;
-                case ">=": return a >= b;
+                case OP_MENOR: return a < b;
+                case OP_MENOR_IGUAL: return a <= b;
+                case OP_MAYOR: return a > b;
+                case OP_MAYOR_IGUAL: return a >= b;
             }
         }
         
-        throw new RuntimeException("Operador '" + operador + "' no aplicable a estos tipos");
+        throw new RuntimeException("Operador '" + SIMBOLOS[operador] + "' no aplicable a estos tipos");
     }
     
-    private Object aplicarOperadorAritmetico(String operador, Object izquierda, Object derecha) {
+    static Object aplicarOperadorAritmetico(int operador, Object izquierda, Object derecha) {
         // Concatenación de cadenas
-        if (operador.equals("+") && (izquierda instanceof String || derecha instanceof String)) {
+        if (operador == OP_SUMA && (izquierda instanceof String || derecha instanceof String)) {
             return convertirAString(izquierda) + convertirAString(derecha);
         }
         
@@ -720,16 +350,16 @@ public class EvaluadorSemantico extends MilenguajeBaseVisitor<Object> {
                 double b = convertirADouble(derecha);
                 
                 switch (operador) {
-                    case "+": return a + b;
-                    case "-": return a - b;
-                    case "*": return a * b;
-                    case "/": 
+                    case OP_SUMA: return a + b;
+                    case OP_RESTA: return a - b;
+                    case OP_MULTIPLICAR: return a * b;
+                    case OP_DIVIDIR: 
                         if (b == 0) throw new RuntimeException("División por cero");
                         return a / b;
-                    case "%": 
+                    case OP_MODULO: 
                         if (b == 0) throw new RuntimeException("División por cero en módulo");
                         return a % b;
-                    case "^": return Math.pow(a, b);
+                    case OP_POTENCIA: return Math.pow(a, b);
                 }
             } else if (hayLong) {
                 // Si hay algún long, el resultado es long
@@ -737,16 +367,16 @@ public class EvaluadorSemantico extends MilenguajeBaseVisitor<Object> {
                 long b = convertirALong(derecha);
                 
                 switch (operador) {
-                    case "+": return a + b;
-                    case "-": return a - b;
-                    case "*": return a * b;
-                    case "/": 
+                    case OP_SUMA: return a + b;
+                    case OP_RESTA: return a - b;
+                    case OP_MULTIPLICAR: return a * b;
+                    case OP_DIVIDIR: 
                         if (b == 0) throw new RuntimeException("División por cero");
                         return a / b;
-                    case "%": 
+                    case OP_MODULO: 
                         if (b == 0) throw new RuntimeException("División por cero en módulo");
                         return a % b;
-                    case "^": return (long) Math.pow(a, b);
+                    case OP_POTENCIA: return (long) Math.pow(a, b);
                 }
             } else {
                 // Solo integers, el resultado es integer
@@ -754,24 +384,24 @@ public class EvaluadorSemantico extends MilenguajeBaseVisitor<Object> {
                 int b = (Integer) derecha;
                 
                 switch (operador) {
-                    case "+": return a + b;
-                    case "-": return a - b;
-                    case "*": return a * b;
-                    case "/": 
+                    case OP_SUMA: return a + b;
+                    case OP_RESTA: return a - b;
+                    case OP_MULTIPLICAR: return a * b;
+                    case OP_DIVIDIR: 
                         if (b == 0) throw new RuntimeException("División por cero");
                         return a / b;
-                    case "%": 
+                    case OP_MODULO: 
                         if (b == 0) throw new RuntimeException("División por cero en módulo");
                         return a % b;
-                    case "^": return (int) Math.pow(a, b);
+                    case OP_POTENCIA: return (int) Math.pow(a, b);
                 }
             }
         }
         
-        throw new RuntimeException("Operador '" + operador + "' no aplicable a estos tipos");
+        throw new RuntimeException("Operador '" + SIMBOLOS[operador] + "' no aplicable a estos tipos");
     }
     
-    private double convertirADouble(Object valor) {
+    static double convertirADouble(Object valor) {
         if (valor instanceof Integer) {
             return ((Integer) valor).doubleValue();
         } else if (valor instanceof Double) {
@@ -782,7 +412,7 @@ public class EvaluadorSemantico extends MilenguajeBaseVisitor<Object> {
         throw new RuntimeException("No se puede convertir a double: " + valor.getClass().getSimpleName());
     }
     
-    private long convertirALong(Object valor) {
+    static long convertirALong(Object valor) {
         if (valor instanceof Integer) {
             return ((Integer) valor).longValue();
         } else if (valor instanceof Long) {
@@ -793,16 +423,12 @@ public class EvaluadorSemantico extends MilenguajeBaseVisitor<Object> {
         throw new RuntimeException("No se puede convertir a long: " + valor.getClass().getSimpleName());
     }
     
-    private String convertirAString(Object valor) {
+    static String convertirAString(Object valor) {
         if (valor == null) return "null";
         if (valor instanceof Boolean) return (Boolean) valor ? "verdadero" : "falso";
+        if (valor instanceof int[]) return Arrays.toString((int[]) valor);
+        if (valor instanceof long[]) return Arrays.toString((long[]) valor);
+        if (valor instanceof double[]) return Arrays.toString((double[]) valor);
         return valor.toString();
     }
-    
-    // Método para cerrar el scanner al finalizar
-    public static void cerrarScanner() {
-        if (scanner != null) {
-            scanner.close();
-        }
-    }
 }
@@ -1,34 +1,250 @@
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.ATNConfig;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.*;
 
 import java.io.*;
+import java.nio.file.*;
+import java.util.*;
 
 public class InterpretePrincipal {
     
-    // Listener personalizado para manejo de errores
+    // Listener personalizado para manejo de errores: los mensajes quedan en 'errores'
     public static class MiErrorListener extends BaseErrorListener {
+        private final List<String> errores;
+        
+        public MiErrorListener(List<String> errores) {
+            this.errores = errores;
+        }
+        
         @Override
         public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
                                int line, int charPositionInLine,
                                String msg, RecognitionException e) {
-            System.err.println("Error de sintaxis en línea " + line + ", columna " + charPositionInLine + ": " + msg);
+            errores.add("Error de sintaxis en línea " + line + ", columna " + charPositionInLine + ": " + msg);
+        }
+    }
+    
+    // Estrategia de errores de la segunda etapa de parsear. Una declaración y un
+    // arreglo nuevo empiezan los dos con el tipo, así que en 'decimal y = 1;' ANTLR
+    // no sabe qué regla seguir y diría "no viable alternative at input 'decimaly'",
+    // con el texto desde el comienzo de la sentencia. Se informa en cambio el token
+    // que no corresponde y los que se esperaban en su lugar, como cuando sólo una
+    // regla era posible: "mismatched input 'y' expecting {'[', IDENTIFICADOR}".
+    static class ErroresDeSintaxis extends DefaultErrorStrategy {
+        @Override
+        protected void reportNoViableAlternative(Parser recognizer, NoViableAltException e) {
+            Token token = e.getOffendingToken();
+            IntervalSet esperados = new IntervalSet();
+            if (e.getStartToken() != token && e.getDeadEndConfigs() != null) {
+                // Los estados donde se detuvo cada alternativa, justo antes del token
+                for (ATNConfig config : e.getDeadEndConfigs()) {
+                    ATNState estado = config.state;
+                    for (int i = 0; i < estado.getNumberOfTransitions(); i++) {
+                        if (!estado.transition(i).isEpsilon() && estado.transition(i).label() != null) {
+                            esperados.addAll(estado.transition(i).label());
+                        }
+                    }
+                }
+            }
+            if (esperados.isNil()) {
+                super.reportNoViableAlternative(recognizer, e);
+                return;
+            }
+            recognizer.notifyErrorListeners(token, "mismatched input " + getTokenErrorDisplay(token)
+                + " expecting " + esperados.toString(recognizer.getVocabulary()), e);
+        }
+    }
+    
+    // Opciones de ejecución de la línea de comandos
+    public static class Opciones {
+        boolean maquinaVirtual = false; // -vm: máquina virtual de bytecode en lugar del evaluador de nodos
+        boolean jit = false;            // -jit: compilar a bytecode de la JVM las funciones más llamadas
+        Path cache = null;              // -cache[=directorio]: guardar en disco los programas compilados
+        int buffer = Salida.TAMANO_POR_DEFECTO; // -buffer=N: caracteres de salida acumulados antes de escribir (0: cada línea)
+        boolean optimizar = true;       // -sin-optimizar: sin plegado de constantes ni poda de ramas
+        int memo = 0;                   // -memo[=N]: memorizar hasta N resultados de cada función pura
+        long limitePasos = 0;           // -limite-pasos=N: vueltas de bucle y llamadas (ver Limites)
+        long limiteTiempo = 0;          // -limite-tiempo=ms
+        int limiteProfundidad = 0;      // -limite-profundidad=N: llamadas anidadas
+        int limiteCadena = 0;           // -limite-cadena=N: caracteres de cada cadena
+        long limiteMemoria = 0;         // -limite-memoria=N: bytes de arreglos y cadenas
+        
+        Salida salida() {
+            return new Salida.Buffer(System.out, buffer, true);
+        }
+        
+        // Tablas nuevas para una ejecución, o null sin -memo
+        MemoriaFunciones memoria() {
+            return memo > 0 ? new MemoriaFunciones(memo) : null;
+        }
+        
+        // Límites nuevos para una ejecución, o null si no hay ninguno. El tiempo
+        // empieza a correr al crearlos.
+        Limites limites() {
+            return limites(limiteTiempo);
+        }
+        
+        // Con otro límite de tiempo (el de cada petición, ver Servidor)
+        Limites limites(long tiempo) {
+            if (limitePasos == 0 && tiempo == 0 && limiteProfundidad == 0 && limiteCadena == 0 && limiteMemoria == 0) {
+                return null;
+            }
+            return new Limites(limitePasos, tiempo, limiteProfundidad, limiteCadena, limiteMemoria);
+        }
+        
+        // Opciones desde args[desde]. 'propias' son los prefijos de las opciones del
+        // modo (-hilos=, -tiempo=), que lee el modo; cualquier otra opción desconocida
+        // o un valor que no es un número es un error (IllegalArgumentException): una
+        // opción mal escrita, como '-limite-paso=1000', no puede quedar sin efecto.
+        static Opciones leer(String[] args, int desde, String... propias) {
+            Opciones opciones = new Opciones();
+            for (int i = desde; i < args.length; i++) {
+                String opcion = args[i];
+                switch (opcion) {
+                    case "-vm": opciones.maquinaVirtual = true; break;
+                    case "-jit": opciones.jit = true; break;
+                    case "-cache": opciones.cache = CacheProgramas.directorioPorDefecto(); break;
+                    case "-sin-optimizar": opciones.optimizar = false; break;
+                    case "-memo": opciones.memo = MemoriaFunciones.CAPACIDAD_POR_DEFECTO; break;
+                    default:
+                        if (opcion.startsWith("-cache=")) {
+                            opciones.cache = Paths.get(opcion.substring("-cache=".length()));
+                        } else if (opcion.startsWith("-buffer=")) {
+                            opciones.buffer = (int) numero(opcion, "-buffer=", Integer.MAX_VALUE);
+                        } else if (opcion.startsWith("-memo=")) {
+                            opciones.memo = (int) numero(opcion, "-memo=", Integer.MAX_VALUE);
+                        } else if (opcion.startsWith("-limite-pasos=")) {
+                            opciones.limitePasos = numero(opcion, "-limite-pasos=", Long.MAX_VALUE);
+                        } else if (opcion.startsWith("-limite-tiempo=")) {
+                            opciones.limiteTiempo = numero(opcion, "-limite-tiempo=", Long.MAX_VALUE / 1000000);
+                        } else if (opcion.startsWith("-limite-profundidad=")) {
+                            opciones.limiteProfundidad = (int) numero(opcion, "-limite-profundidad=", Integer.MAX_VALUE);
+                        } else if (opcion.startsWith("-limite-cadena=")) {
+                            opciones.limiteCadena = (int) numero(opcion, "-limite-cadena=", Integer.MAX_VALUE);
+                        } else if (opcion.startsWith("-limite-memoria=")) {
+                            opciones.limiteMemoria = numero(opcion, "-limite-memoria=", Long.MAX_VALUE);
+                        } else if (!propia(opcion, propias)) {
+                            throw new IllegalArgumentException("Opción desconocida: " + opcion);
+                        }
+                        break;
+                }
+            }
+            return opciones;
+        }
+        
+        private static boolean propia(String opcion, String[] propias) {
+            for (String prefijo : propias) {
+                if (opcion.startsWith(prefijo)) return true;
+            }
+            return false;
+        }
+        
+        // Valor numérico de 'opcion', que empieza con 'prefijo': entre 0 y 'maximo'
+        static long numero(String opcion, String prefijo, long maximo) {
+            String valor = opcion.substring(prefijo.length());
+            try {
+                long numero = Long.parseLong(valor);
+                if (numero >= 0 && numero <= maximo) return numero;
+            } catch (NumberFormatException e) {
+                // se informa abajo
+            }
+            throw new IllegalArgumentException("Valor no válido en " + opcion
+                + ": se espera un número entre 0 y " + maximo);
+        }
+    }
+    
+    // Errores léxicos: se revisa cada token en el momento en que el lexer lo
+    // produce para el parser, así el programa se tokeniza una sola vez
+    public static class ErroresLexicos {
+        private final List<String> errores;
+        private int cantidad = 0;
+        
+        ErroresLexicos(List<String> errores) {
+            this.errores = errores;
+        }
+        
+        void revisar(Token token) {
+            if (token.getType() == MilenguajeLexer.ERROR_CHAR) {
+                informar(token, "carácter no reconocido '" + token.getText() + "'");
+            } else if (token.getType() == MilenguajeLexer.IDENTIFICADOR
+                    && token.getText().length() > MilenguajeLexer.MAX_IDENTIFICADOR) {
+                informar(token, "el identificador '" + token.getText() + "' excede el máximo de " +
+                         MilenguajeLexer.MAX_IDENTIFICADOR + " caracteres");
+            }
+        }
+        
+        private void informar(Token token, String mensaje) {
+            errores.add("Error léxico en línea " + token.getLine() + 
+                        ", columna " + token.getCharPositionInLine() + ": " + mensaje);
+            cantidad++;
+        }
+        
+        boolean hayErrores() {
+            return cantidad > 0;
+        }
+        
+        // Para volver a usar el mismo lexer con otro texto (ver Sesion)
+        void reiniciar() {
+            cantidad = 0;
+        }
+        
+        // Lexer que pasa por aquí cada token que emite
+        MilenguajeLexer lexer(CharStream entrada) {
+            return new MilenguajeLexer(entrada) {
+                @Override
+                public Token emit() {
+                    Token token = super.emit();
+                    revisar(token);
+                    return token;
+                }
+            };
         }
     }
     
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.err.println("Uso: java InterpretePrincipal <archivo.es>");
-            System.exit(1);
+        if (args.length < 1 || (args[0].equals("-batch") && args.length < 2)) {
+            uso();
+        }
+        
+        try {
+            if (args[0].equals("-interactivo")) {
+                modoInteractivo(Opciones.leer(args, 1));
+                return;
+            }
+            
+            if (args[0].equals("-servidor") || args[0].startsWith("-servidor=")) {
+                ejecutarServidor(args);
+                return;
+            }
+            
+            if (args[0].equals("-batch")) {
+                ejecutarLote(args);
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            uso();
         }
         
         String nombreArchivo = args[0];
+        Opciones opciones = null;
+        try {
+            opciones = Opciones.leer(args, 1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            uso();
+        }
         
         try {
             // Leer el archivo de entrada
             String contenido = leerArchivo(nombreArchivo);
             
             // Ejecutar el programa
-            ejecutarPrograma(contenido, nombreArchivo);
+            ejecutarPrograma(contenido, nombreArchivo, opciones);
             
         } catch (IOException e) {
             System.err.println("Error al leer el archivo: " + e.getMessage());
@@ -39,55 +255,88 @@ public class InterpretePrincipal {
         }
     }
     
+    private static void uso() {
+        System.err.println("Uso: java InterpretePrincipal <archivo.es> [-vm] [-jit] [-cache[=directorio]] [-buffer=N] [-sin-optimizar] [-memo[=N]]");
+        System.err.println("                                           [-limite-pasos=N] [-limite-tiempo=ms] [-limite-profundidad=N] [-limite-cadena=N] [-limite-memoria=N]");
+        System.err.println("     java InterpretePrincipal -batch <directorio|lista> [-hilos=N] [opciones]");
+        System.err.println("     java InterpretePrincipal -servidor[=puerto|ruta] [-tiempo=ms] [opciones]");
+        System.err.println("     java InterpretePrincipal -interactivo [opciones]");
+        System.exit(1);
+    }
+    
+    // Opción -batch: todos los programas de un directorio o de una lista (ver Lote)
+    private static void ejecutarLote(String[] args) {
+        Opciones opciones = Opciones.leer(args, 2, "-hilos=");
+        int hilos = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("-hilos=")) {
+                hilos = Math.max(1, (int) Opciones.numero(args[i], "-hilos=", Integer.MAX_VALUE));
+            }
+        }
+        
+        int fallidos;
+        try {
+            fallidos = new Lote(opciones).ejecutar(Lote.archivos(Paths.get(args[1])), hilos);
+        } catch (IOException e) {
+            System.err.println("Error al leer el lote: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (fallidos > 0) {
+            System.exit(1);
+        }
+    }
+    
+    // Opción -servidor: queda escuchando peticiones hasta que se detiene el proceso (ver Servidor)
+    private static void ejecutarServidor(String[] args) {
+        String direccion = args[0].startsWith("-servidor=") ? args[0].substring("-servidor=".length()) : "";
+        Opciones opciones = Opciones.leer(args, 1, "-tiempo=");
+        long tiempo = Servidor.TIEMPO_POR_DEFECTO;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("-tiempo=")) {
+                tiempo = Opciones.numero(args[i], "-tiempo=", Long.MAX_VALUE / 1000000);
+            }
+        }
+        
+        try {
+            new Servidor(opciones, tiempo).escuchar(direccion);
+        } catch (IOException e) {
+            System.err.println("Error del servidor: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
     public static void ejecutarPrograma(String contenido, String nombreArchivo) {
+        ejecutarPrograma(contenido, nombreArchivo, new Opciones());
+    }
+    
+    public static void ejecutarPrograma(String contenido, String nombreArchivo, Opciones opciones) {
         try {
-            // Crear input stream
-            ANTLRInputStream input = new ANTLRInputStream(contenido);
-            
-            // Crear lexer
-            MilenguajeLexer lexer = new MilenguajeLexer(input);
-            lexer.removeErrorListeners();
-            lexer.addErrorListener(new MiErrorListener());
-            
-            // Crear token stream
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-            
-            // Crear parser
-            MilenguajeParser parser = new MilenguajeParser(tokens);
-            parser.removeErrorListeners();
-            parser.addErrorListener(new MiErrorListener());
-            
-            // Verificar si hay errores léxicos
-            boolean hayErroresLexicos = false;
-            for (Token token : tokens.getTokens()) {
-                if (token.getType() == MilenguajeLexer.ERROR_CHAR) {
-                    System.err.println("Error léxico en línea " + token.getLine() + 
-                                     ", columna " + token.getCharPositionInLine() + 
-                                     ": carácter no reconocido '" + token.getText() + "'");
-                    hayErroresLexicos = true;
+            Motor motor = new Motor(opciones);
+            Nodo.Programa programa;
+            try {
+                programa = motor.compilar(contenido);
+            } catch (Motor.ErroresDeCompilacion e) {
+                for (String error : e.errores) {
+                    System.err.println(error);
                 }
-            }
-            
-            if (hayErroresLexicos) {
-                System.err.println("El programa contiene errores léxicos y no puede ser interpretado.");
                 return;
-            }
-            
-            // Parsear el programa
-            ParseTree tree = parser.programa();
-            
-            // Verificar si hay errores de sintaxis
-            if (parser.getNumberOfSyntaxErrors() > 0) {
-                System.err.println("El programa contiene errores de sintaxis y no puede ser interpretado.");
+            } catch (RuntimeException e) {
+                System.err.println("Error de compilación: " + e.getMessage());
                 return;
             }
             
-            // Crear y ejecutar el evaluador semántico
-            EvaluadorSemantico evaluador = new EvaluadorSemantico();
-            
             System.out.println("=== Ejecutando programa: " + nombreArchivo + " ===\n");
             
-            evaluador.visit(tree);
+            MemoriaFunciones memoria = opciones.memoria();
+            try {
+                motor.ejecutar(programa, Entrada.estandar(), opciones.salida(), memoria);
+            } finally {
+                // Aciertos y fallos de cada función memorizada, aparte de la salida del programa
+                if (memoria != null) {
+                    System.err.print(memoria.resumen());
+                }
+            }
             
             System.out.println("\n=== Fin de la ejecución ===");
             
@@ -99,7 +348,75 @@ public class InterpretePrincipal {
         }
     }
     
-    private static String leerArchivo(String nombreArchivo) throws IOException {
+    // Análisis léxico y sintáctico; null si hubo errores (quedan en 'errores', con
+    // la línea que los resume al final)
+    static MilenguajeParser.ProgramaContext analizar(String contenido, List<String> errores) {
+        // Crear lexer; los errores léxicos se detectan mientras el parser consume los tokens
+        ErroresLexicos erroresLexicos = new ErroresLexicos(errores);
+        MilenguajeLexer lexer = erroresLexicos.lexer(CharStreams.fromString(contenido));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new MiErrorListener(errores));
+        
+        // Crear token stream
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        
+        // Crear parser (los errores se informan en la segunda etapa de parsear)
+        MilenguajeParser parser = new MilenguajeParser(tokens);
+        
+        return analizar(parser, erroresLexicos, errores);
+    }
+    
+    // Parsear con un parser ya preparado, cuyo lexer informa a 'erroresLexicos'
+    static MilenguajeParser.ProgramaContext analizar(MilenguajeParser parser, ErroresLexicos erroresLexicos,
+                                                     List<String> errores) {
+        MilenguajeParser.ProgramaContext tree = parsear(parser, new MiErrorListener(errores), erroresLexicos);
+        
+        if (erroresLexicos.hayErrores()) {
+            errores.add("El programa contiene errores léxicos y no puede ser interpretado.");
+            return null;
+        }
+        
+        // Verificar si hay errores de sintaxis
+        if (parser.getNumberOfSyntaxErrors() > 0) {
+            errores.add("El programa contiene errores de sintaxis y no puede ser interpretado.");
+            return null;
+        }
+        
+        return tree;
+    }
+    
+    // Análisis sintáctico en dos etapas. Primero con predicción SLL, que no
+    // necesita el contexto completo y es mucho más rápida, abandonando al primer
+    // error; sólo si falla se repite con LL completo, que informa los errores de
+    // sintaxis con precisión. Un programa correcto casi nunca necesita la segunda etapa.
+    public static MilenguajeParser.ProgramaContext parsear(MilenguajeParser parser, ANTLRErrorListener errores) {
+        return parsear(parser, errores, null);
+    }
+    
+    // Con 'lexicos', un programa con errores léxicos no pasa a la segunda etapa:
+    // sus errores de sintaxis serían consecuencia de los caracteres no reconocidos
+    static MilenguajeParser.ProgramaContext parsear(MilenguajeParser parser, ANTLRErrorListener errores,
+                                                    ErroresLexicos lexicos) {
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        try {
+            return parser.programa();
+        } catch (ParseCancellationException e) {
+            if (lexicos != null) {
+                // Terminar la única pasada del lexer para informar todos los errores léxicos
+                ((BufferedTokenStream) parser.getInputStream()).fill();
+                if (lexicos.hayErrores()) return null;
+            }
+            parser.reset(); // vuelve al primer token sin volver a ejecutar el lexer
+            parser.addErrorListener(errores);
+            parser.setErrorHandler(new ErroresDeSintaxis());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            return parser.programa();
+        }
+    }
+    
+    static String leerArchivo(String nombreArchivo) throws IOException {
         StringBuilder contenido = new StringBuilder();
         
         try (BufferedReader reader = new BufferedReader(new FileReader(nombreArchivo))) {
@@ -117,34 +434,32 @@ public class InterpretePrincipal {
         ejecutarPrograma(codigo, "programa_en_memoria");
     }
     
-    // Método para modo interactivo
+    // Método para modo interactivo: una sesión que conserva variables y funciones entre entradas (ver Sesion)
     public static void modoInteractivo() {
+        modoInteractivo(new Opciones());
+    }
+    
+    public static void modoInteractivo(final Opciones opciones) {
         System.out.println("=== Intérprete EspañolScript - Modo Interactivo ===");
         System.out.println("Escribe 'salir' para terminar\n");
         
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        
-        while (true) {
-            try {
-                System.out.print(">>> ");
-                String linea = reader.readLine();
-                
-                if (linea == null || linea.trim().equals("salir")) {
-                    System.out.println("¡Hasta luego!");
-                    break;
-                }
-                
-                if (linea.trim().isEmpty()) {
-                    continue;
+        // Las entradas se ejecutan en el hilo de la sesión, con la pila de un programa
+        // (ver EvaluadorSemantico.ejecutar); lee de la misma entrada que 'leer'
+        Thread hilo = new Thread(null, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    new Sesion(opciones).interactuar(Entrada.estandar());
+                } catch (IOException e) {
+                    System.err.println("Error de entrada/salida: " + e.getMessage());
                 }
-                
-                // Ejecutar la línea como un programa completo
-                ejecutarCodigo(linea);
-                
-            } catch (IOException e) {
-                System.err.println("Error de entrada/salida: " + e.getMessage());
-                break;
             }
+        }, "sesion", EvaluadorSemantico.PILA_PROGRAMA);
+        hilo.start();
+        try {
+            hilo.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 }
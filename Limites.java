@@ -0,0 +1,131 @@
+// Límites de una ejecución (opciones -limite-*), para programas en los que no
+// se puede confiar: un 'mientras (verdadero)' o una recursión sin fin terminan
+// con un error en lugar de ocupar el hilo para siempre.
+//
+// - pasos: vueltas de bucle y llamadas a funciones, entre las dos
+// - tiempo: milisegundos desde que se crearon los límites
+// - profundidad: llamadas anidadas (las de cola no cuentan: reemplazan a la actual)
+// - cadena: caracteres de cada cadena que arma el programa
+// - memoria: bytes de los arreglos y de las cadenas que arma, sumados en toda la ejecución
+//
+// Cero es sin límite. Cada ejecución tiene los suyos (ver Opciones.limites); el
+// evaluador y la máquina virtual los revisan en los saltos hacia atrás de los
+// bucles y en las llamadas, y también el código compilado por -jit. Sin ningún
+// límite no hay objeto y la revisión es una sola comparación con null.
+//
+// El reloj y la interrupción del hilo (Future.cancel, ver Servidor) se miran
+// cada INTERVALO pasos, no en cada uno.
+final class Limites {
+
+    static final int INTERVALO = 1024;
+
+    final long pasos;
+    final long tiempo;
+    final int profundidad;
+    final int cadena;
+    final long memoria;
+
+    private final long fin; // System.nanoTime() al agotarse el tiempo
+
+    private long dados = 0;
+    private long revision;  // valor de 'dados' en la próxima revisión
+    private long reservados = 0;
+
+    // Nombre del límite que detuvo la ejecución, o null
+    private volatile String excedido = null;
+
+    // Nivel de la función que ejecuta el código de -jit, que no abre marcos
+    // (ver CompiladorJit): empieza en el de la llamada del evaluador que entró
+    private int nivelJit = 0;
+
+    Limites(long pasos, long tiempo, int profundidad, int cadena, long memoria) {
+        this.pasos = pasos;
+        this.tiempo = tiempo;
+        this.profundidad = profundidad;
+        this.cadena = cadena;
+        this.memoria = memoria;
+        this.fin = tiempo > 0 ? System.nanoTime() + tiempo * 1000000 : 0;
+        this.revision = siguienteRevision();
+    }
+
+    String excedido() {
+        return excedido;
+    }
+
+    // Una vuelta de bucle
+    void paso() {
+        if (++dados >= revision) revisar();
+    }
+
+    // Una llamada que deja 'nivel' llamadas activas
+    void llamada(int nivel) {
+        if (++dados >= revision) revisar();
+        if (nivel > profundidad && profundidad > 0) {
+            exceder("profundidad", "más de " + profundidad + " llamadas anidadas");
+        }
+    }
+
+    // Entrada del evaluador al código compilado, en la llamada de nivel 'nivel'
+    void entrarJit(int nivel) {
+        nivelJit = nivel;
+    }
+
+    // Llamadas dentro del código compilado: una anidada, su salida y una de cola
+    void llamadaJit() {
+        llamada(++nivelJit);
+    }
+
+    void salirJit() {
+        nivelJit--;
+    }
+
+    void colaJit() {
+        llamada(nivelJit);
+    }
+
+    // Una cadena de 'largo' caracteres, de los que 'nuevos' se acaban de agregar
+    void cadena(int largo, int nuevos) {
+        if (largo > cadena && cadena > 0) {
+            exceder("cadena", "una cadena de " + largo + " caracteres pasa del máximo de " + cadena);
+        }
+        reservar(2L * nuevos);
+    }
+
+    // Antes de crear un arreglo: si no alcanza la memoria no se crea
+    void arreglo(Tipo tipo, int tamano) {
+        if (tamano > 0) {
+            reservar((long) tamano * (tipo == Tipo.ARREGLO_ENTERO ? 4 : 8));
+        }
+    }
+
+    private void reservar(long bytes) {
+        reservados += bytes;
+        if (reservados > memoria && memoria > 0) {
+            exceder("memoria", "el programa reservó más de " + memoria + " bytes");
+        }
+    }
+
+    private void revisar() {
+        if (dados > pasos && pasos > 0) {
+            exceder("pasos", "más de " + pasos + " vueltas de bucle y llamadas");
+        }
+        if (fin != 0 && System.nanoTime() - fin > 0) {
+            exceder("tiempo", "la ejecución pasó de " + tiempo + " ms");
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            excedido = "cancelada";
+            throw new RuntimeException("Ejecución cancelada");
+        }
+        revision = siguienteRevision();
+    }
+
+    private long siguienteRevision() {
+        long siguiente = dados + INTERVALO;
+        return pasos > 0 ? Math.min(siguiente, pasos + 1) : siguiente;
+    }
+
+    private void exceder(String limite, String detalle) {
+        excedido = limite;
+        throw new RuntimeException("Límite de " + limite + " superado: " + detalle);
+    }
+}
@@ -0,0 +1,190 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+// Ejecución en lote (opción -batch): muchos programas en un solo proceso.
+//
+//   java InterpretePrincipal -batch <directorio|lista> [-hilos=N] [-vm] [-jit] [-cache[=directorio]] ...
+//
+// Un directorio aporta todos sus archivos .es, también los de subdirectorios;
+// una lista, un archivo por línea (se ignoran las líneas vacías y las que
+// empiezan con '#'). Cada programa se analiza, compila y ejecuta como una tarea
+// de un pool de N hilos (Motor.hilos), todos con el mismo Motor: la JVM y ANTLR se
+// calientan una sola vez y un mismo código se compila una sola vez
+// (CacheProgramas; con -cache, también de un lote al siguiente).
+//
+// Cada programa escribe en su propia Salida.Captura y sus 'leer' toman las
+// líneas de 'nombre.entrada', junto a 'nombre.es', si existe. Las salidas se
+// muestran completas y en el orden de la lista aunque los programas terminen en
+// otro orden; al final se informa el tiempo de cada archivo y el del lote.
+final class Lote {
+
+    // Archivo con la entrada de un programa: el mismo nombre con esta extensión
+    static final String EXTENSION_ENTRADA = ".entrada";
+
+    private final Motor motor;
+    private final InterpretePrincipal.Opciones opciones;
+
+    Lote(InterpretePrincipal.Opciones opciones) {
+        this.motor = new Motor(opciones);
+        this.opciones = opciones;
+    }
+
+    // Lo que dejó un programa del lote
+    private static final class Resultado {
+        final Path archivo;
+        final StringBuilder texto = new StringBuilder(); // salida, errores y resumen de -memo
+        String estado = "correcto";
+        boolean fallo = false;
+        long compilacion = 0; // nanosegundos
+        long ejecucion = 0;
+
+        Resultado(Path archivo) {
+            this.archivo = archivo;
+        }
+
+        void fallar(String estado, String mensaje) {
+            this.estado = estado;
+            this.fallo = true;
+            texto.append(mensaje).append(System.lineSeparator());
+        }
+    }
+
+    // Archivos del lote, en orden: los .es de un directorio o los de una lista
+    static List<Path> archivos(Path origen) throws IOException {
+        List<Path> archivos = new ArrayList<>();
+        if (Files.isDirectory(origen)) {
+            try (Stream<Path> todos = Files.walk(origen)) {
+                Iterator<Path> recorrido = todos.iterator();
+                while (recorrido.hasNext()) {
+                    Path archivo = recorrido.next();
+                    if (Files.isRegularFile(archivo) && archivo.getFileName().toString().endsWith(".es")) {
+                        archivos.add(archivo);
+                    }
+                }
+            }
+            Collections.sort(archivos);
+        } else {
+            for (String linea : Files.readAllLines(origen)) {
+                linea = linea.trim();
+                if (!linea.isEmpty() && !linea.startsWith("#")) {
+                    archivos.add(Paths.get(linea));
+                }
+            }
+        }
+        return archivos;
+    }
+
+    // Ejecuta el lote con 'hilos' tareas a la vez y devuelve cuántos programas fallaron
+    int ejecutar(List<Path> archivos, int hilos) {
+        long inicio = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(hilos, Motor.hilos("lote"));
+        List<Future<Resultado>> tareas = new ArrayList<>();
+        try {
+            for (final Path archivo : archivos) {
+                tareas.add(pool.submit(new Callable<Resultado>() {
+                    @Override
+                    public Resultado call() {
+                        return ejecutar(archivo);
+                    }
+                }));
+            }
+
+            // Cada salida se muestra entera en cuanto terminan el programa y los anteriores
+            List<Resultado> resultados = new ArrayList<>();
+            for (Future<Resultado> tarea : tareas) {
+                Resultado resultado = esperar(tarea);
+                resultados.add(resultado);
+                System.out.println("=== " + resultado.archivo + " ===");
+                System.out.print(resultado.texto);
+                System.out.println();
+            }
+            return informar(resultados, System.nanoTime() - inicio, hilos);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Los fallos de cada programa ya quedan en su Resultado: aquí sólo llegan
+    // los del propio intérprete
+    private static Resultado esperar(Future<Resultado> tarea) {
+        try {
+            return tarea.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Lote interrumpido");
+        }
+    }
+
+    private Resultado ejecutar(Path archivo) {
+        Resultado resultado = new Resultado(archivo);
+        long inicio = System.nanoTime();
+        Nodo.Programa programa;
+        Entrada entrada;
+        try {
+            programa = motor.compilar(InterpretePrincipal.leerArchivo(archivo.toString()));
+            entrada = entrada(archivo);
+        } catch (IOException e) {
+            resultado.fallar("error de lectura", "Error al leer el archivo: " + e.getMessage());
+            return resultado;
+        } catch (Motor.ErroresDeCompilacion e) {
+            resultado.fallar("errores de compilación", String.join(System.lineSeparator(), e.errores));
+            return resultado;
+        } catch (RuntimeException e) {
+            resultado.fallar("error de compilación", "Error de compilación: " + e.getMessage());
+            return resultado;
+        } finally {
+            resultado.compilacion = System.nanoTime() - inicio;
+        }
+
+        Salida.Captura salida = new Salida.Captura();
+        MemoriaFunciones memoria = opciones.memoria();
+        inicio = System.nanoTime();
+        try {
+            motor.ejecutar(programa, entrada, salida, memoria);
+        } catch (RuntimeException e) {
+            resultado.fallar("error de ejecución", "Error de ejecución: " + e.getMessage());
+        } finally {
+            resultado.ejecucion = System.nanoTime() - inicio;
+            // Lo impreso antes de un error también se muestra
+            resultado.texto.insert(0, salida.texto());
+            if (memoria != null) {
+                resultado.texto.append(memoria.resumen());
+            }
+        }
+        return resultado;
+    }
+
+    // Líneas de 'nombre.entrada', o ninguna
+    private static Entrada entrada(Path archivo) throws IOException {
+        String nombre = archivo.getFileName().toString();
+        if (nombre.endsWith(".es")) {
+            nombre = nombre.substring(0, nombre.length() - ".es".length());
+        }
+        Path datos = archivo.resolveSibling(nombre + EXTENSION_ENTRADA);
+        if (!Files.isRegularFile(datos)) {
+            return Entrada.deTexto("");
+        }
+        return Entrada.deTexto(new String(Files.readAllBytes(datos), "UTF-8"));
+    }
+
+    // Tiempo de cada archivo y del lote completo; devuelve cuántos fallaron
+    private static int informar(List<Resultado> resultados, long total, int hilos) {
+        int fallidos = 0;
+        System.out.println("=== Resumen del lote ===");
+        for (Resultado resultado : resultados) {
+            if (resultado.fallo) fallidos++;
+            System.out.printf("%-40s %-24s compilación %9.2f ms, ejecución %9.2f ms%n",
+                resultado.archivo, resultado.estado, resultado.compilacion / 1e6, resultado.ejecucion / 1e6);
+        }
+        double segundos = total / 1e9;
+        System.out.printf("%d programas (%d con errores) en %.2f s con %d hilos: %.1f programas/s%n",
+            resultados.size(), fallidos, segundos, hilos, resultados.size() / segundos);
+        return fallidos;
+    }
+}
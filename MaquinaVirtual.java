@@ -0,0 +1,857 @@
+import java.util.*;
+
+// Motor de ejecución alternativo (opción -vm): ejecuta el código plano que
+// produce CompiladorBytecode en un único bucle de despacho. Mantiene la misma
+// semántica y los mismos mensajes de error que el evaluador de nodos, que sigue
+// siendo el motor de referencia.
+//
+// La pila de valores tiene dos carriles (long[] para los primitivos, Object[]
+// para el resto; ver Bytecode). Las llamadas no usan la pila de Java: cada
+// llamada apila en 'llamadas' el punto de retorno y el tramo de pila anterior.
+final class MaquinaVirtual {
+
+    // Límite de llamadas anidadas, en lugar de agotar la memoria con una recursión infinita
+    private static final int MAX_LLAMADAS = 1000000;
+
+    // Datos de cada llamada activa en 'llamadas'
+    private static final int REGISTRO = 4;
+
+    private static final Tipo[] TIPOS = Tipo.values();
+
+    private final Bytecode.Programa programa;
+    private final Salida salida;
+    private final Entrada entrada;
+    private final MemoriaFunciones memoria; // null si no se memorizan las funciones puras
+    private final Limites limites;          // null si no hay (ver Limites)
+
+    MaquinaVirtual(Bytecode.Programa programa, Salida salida) {
+        this(programa, salida, Entrada.estandar(), null);
+    }
+
+    MaquinaVirtual(Bytecode.Programa programa, Salida salida, Entrada entrada, MemoriaFunciones memoria) {
+        this(programa, salida, entrada, memoria, null);
+    }
+
+    MaquinaVirtual(Bytecode.Programa programa, Salida salida, Entrada entrada, MemoriaFunciones memoria,
+                   Limites limites) {
+        this.programa = programa;
+        this.salida = salida;
+        this.entrada = entrada;
+        this.memoria = memoria;
+        this.limites = limites;
+    }
+
+    // Compila y ejecuta un programa ya parseado, como EvaluadorSemantico.visitPrograma
+    static void ejecutar(MilenguajeParser.ProgramaContext ctx) {
+        ejecutar(Compilador.compilarPrograma(ctx));
+    }
+
+    static void ejecutar(Nodo.Programa arbol) {
+        ejecutar(arbol, Salida.estandar());
+    }
+
+    static void ejecutar(Nodo.Programa arbol, Salida salida) {
+        ejecutar(arbol, salida, null);
+    }
+
+    static void ejecutar(Nodo.Programa arbol, Salida salida, MemoriaFunciones memoria) {
+        ejecutar(arbol, salida, Entrada.estandar(), memoria);
+    }
+
+    static void ejecutar(Nodo.Programa arbol, Salida salida, Entrada entrada, MemoriaFunciones memoria) {
+        ejecutar(arbol, salida, entrada, memoria, null);
+    }
+
+    static void ejecutar(Nodo.Programa arbol, Salida salida, Entrada entrada, MemoriaFunciones memoria,
+                         Limites limites) {
+        try {
+            new MaquinaVirtual(arbol.bytecode(), salida, entrada, memoria, limites).ejecutar();
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Error en el programa: " + e.getMessage());
+        } catch (OutOfMemoryError e) {
+            throw new RuntimeException("Error en el programa: Memoria agotada");
+        } finally {
+            salida.vaciar();
+        }
+    }
+
+    void ejecutar() {
+        final int[] codigo = programa.codigo;
+        final long[] constantesP = programa.primitivas;
+        final Object[] constantesO = programa.objetos;
+        final Bytecode.Funcion[] funciones = programa.funciones;
+
+        // Función declarada en este momento para cada nombre
+        Bytecode.Funcion[] declaradas = new Bytecode.Funcion[programa.nombres.length];
+
+        long[] p = new long[Math.max(256, programa.ranuras + programa.maxPila)];
+        Object[] o = new Object[p.length];
+        Arrays.fill(o, 0, programa.ranuras, Marco.SIN_DECLARAR);
+
+        int[] llamadas = new int[REGISTRO * 64];
+        int profundidad = 0;
+
+        // Con -memo, por cada llamada activa, los pares tabla y argumentos donde hay
+        // que guardar su resultado: más de uno si llegó por llamadas de cola
+        List<List<Object>> memorizar = memoria != null ? new ArrayList<List<Object>>() : null;
+
+        int pc = 0;
+        int base = 0;
+        int sp = programa.ranuras;
+
+        while (true) {
+            switch (codigo[pc++]) {
+
+                // ===== Constantes y variables =====
+
+                case Bytecode.CONST_P:
+                    p[sp++] = constantesP[codigo[pc++]];
+                    break;
+                case Bytecode.CONST_O:
+                    o[sp++] = constantesO[codigo[pc++]];
+                    break;
+                case Bytecode.CARGAR_P:
+                    p[sp++] = p[base + codigo[pc++]];
+                    break;
+                case Bytecode.CARGAR_O:
+                    o[sp++] = Cuerda.leer(o[base + codigo[pc++]]);
+                    break;
+                case Bytecode.GUARDAR_P:
+                    p[base + codigo[pc++]] = p[sp - 1];
+                    break;
+                case Bytecode.GUARDAR_O:
+                    o[base + codigo[pc++]] = o[sp - 1];
+                    break;
+                case Bytecode.CARGAR_VERIF: {
+                    int ranura = (codigo[pc + 3] != 0 ? 0 : base) + codigo[pc];
+                    Tipo tipo = TIPOS[codigo[pc + 1]];
+                    String nombre = (String) constantesO[codigo[pc + 2]];
+                    pc += 4;
+                    Object estado = o[ranura];
+                    if (estado == Marco.SIN_DECLARAR) {
+                        throw new RuntimeException("Variable '" + nombre + "' no está declarada");
+                    }
+                    if (estado == Marco.SIN_INICIALIZAR) {
+                        throw new RuntimeException("Variable '" + nombre + "' no está inicializada");
+                    }
+                    if (tipo.esPrimitivo()) {
+                        p[sp++] = p[ranura];
+                    } else {
+                        o[sp++] = Cuerda.leer(estado);
+                    }
+                    break;
+                }
+                case Bytecode.GUARDAR_VERIF: {
+                    int ranura = (codigo[pc + 3] != 0 ? 0 : base) + codigo[pc];
+                    Tipo tipo = TIPOS[codigo[pc + 1]];
+                    String nombre = (String) constantesO[codigo[pc + 2]];
+                    pc += 4;
+                    if (o[ranura] == Marco.SIN_DECLARAR) {
+                        throw new RuntimeException("Variable '" + nombre + "' no está declarada");
+                    }
+                    if (tipo.esPrimitivo()) {
+                        p[ranura] = p[sp - 1];
+                        o[ranura] = null;
+                    } else {
+                        o[ranura] = o[sp - 1];
+                    }
+                    break;
+                }
+                case Bytecode.SIN_INICIALIZAR:
+                    o[base + codigo[pc++]] = Marco.SIN_INICIALIZAR;
+                    break;
+                case Bytecode.INICIALIZADA:
+                    o[base + codigo[pc++]] = null;
+                    break;
+                case Bytecode.DESCARTAR:
+                    o[--sp] = null;
+                    break;
+
+                // ===== Aritmética entera =====
+
+                case Bytecode.SUMA_E:
+                    sp--;
+                    p[sp - 1] = (int) p[sp - 1] + (int) p[sp];
+                    break;
+                case Bytecode.RESTA_E:
+                    sp--;
+                    p[sp - 1] = (int) p[sp - 1] - (int) p[sp];
+                    break;
+                case Bytecode.MUL_E:
+                    sp--;
+                    p[sp - 1] = (int) p[sp - 1] * (int) p[sp];
+                    break;
+                case Bytecode.DIV_E:
+                    sp--;
+                    if ((int) p[sp] == 0) throw new RuntimeException("División por cero");
+                    p[sp - 1] = (int) p[sp - 1] / (int) p[sp];
+                    break;
+                case Bytecode.MOD_E:
+                    sp--;
+                    if ((int) p[sp] == 0) throw new RuntimeException("División por cero en módulo");
+                    p[sp - 1] = (int) p[sp - 1] % (int) p[sp];
+                    break;
+                case Bytecode.POT_E:
+                    sp--;
+                    p[sp - 1] = (int) Math.pow((int) p[sp - 1], (int) p[sp]);
+                    break;
+                case Bytecode.NEG_E:
+                    p[sp - 1] = -(int) p[sp - 1];
+                    break;
+
+                // ===== Aritmética larga =====
+
+                case Bytecode.SUMA_L:
+                    sp--;
+                    p[sp - 1] = p[sp - 1] + p[sp];
+                    break;
+                case Bytecode.RESTA_L:
+                    sp--;
+                    p[sp - 1] = p[sp - 1] - p[sp];
+                    break;
+                case Bytecode.MUL_L:
+                    sp--;
+                    p[sp - 1] = p[sp - 1] * p[sp];
+                    break;
+                case Bytecode.DIV_L:
+                    sp--;
+                    if (p[sp] == 0) throw new RuntimeException("División por cero");
+                    p[sp - 1] = p[sp - 1] / p[sp];
+                    break;
+                case Bytecode.MOD_L:
+                    sp--;
+                    if (p[sp] == 0) throw new RuntimeException("División por cero en módulo");
+                    p[sp - 1] = p[sp - 1] % p[sp];
+                    break;
+                case Bytecode.POT_L:
+                    sp--;
+                    p[sp - 1] = (long) Math.pow(p[sp - 1], p[sp]);
+                    break;
+                case Bytecode.NEG_L:
+                    p[sp - 1] = -p[sp - 1];
+                    break;
+
+                // ===== Aritmética decimal =====
+
+                case Bytecode.SUMA_D:
+                    sp--;
+                    p[sp - 1] = bits(decimal(p[sp - 1]) + decimal(p[sp]));
+                    break;
+                case Bytecode.RESTA_D:
+                    sp--;
+                    p[sp - 1] = bits(decimal(p[sp - 1]) - decimal(p[sp]));
+                    break;
+                case Bytecode.MUL_D:
+                    sp--;
+                    p[sp - 1] = bits(decimal(p[sp - 1]) * decimal(p[sp]));
+                    break;
+                case Bytecode.DIV_D:
+                    sp--;
+                    if (decimal(p[sp]) == 0) throw new RuntimeException("División por cero");
+                    p[sp - 1] = bits(decimal(p[sp - 1]) / decimal(p[sp]));
+                    break;
+                case Bytecode.MOD_D:
+                    sp--;
+                    if (decimal(p[sp]) == 0) throw new RuntimeException("División por cero en módulo");
+                    p[sp - 1] = bits(decimal(p[sp - 1]) % decimal(p[sp]));
+                    break;
+                case Bytecode.POT_D:
+                    sp--;
+                    p[sp - 1] = bits(Math.pow(decimal(p[sp - 1]), decimal(p[sp])));
+                    break;
+                case Bytecode.NEG_D:
+                    p[sp - 1] = bits(-decimal(p[sp - 1]));
+                    break;
+
+                // ===== Comparaciones y lógica =====
+
+                case Bytecode.MENOR_E:
+                    sp--;
+                    p[sp - 1] = (int) p[sp - 1] < (int) p[sp] ? 1 : 0;
+                    break;
+                case Bytecode.MENOR_IGUAL_E:
+                    sp--;
+                    p[sp - 1] = (int) p[sp - 1] <= (int) p[sp] ? 1 : 0;
+                    break;
+                case Bytecode.MAYOR_E:
+                    sp--;
+                    p[sp - 1] = (int) p[sp - 1] > (int) p[sp] ? 1 : 0;
+                    break;
+                case Bytecode.MAYOR_IGUAL_E:
+                    sp--;
+                    p[sp - 1] = (int) p[sp - 1] >= (int) p[sp] ? 1 : 0;
+                    break;
+                case Bytecode.MENOR_D:
+                    sp--;
+                    p[sp - 1] = decimal(p[sp - 1]) < decimal(p[sp]) ? 1 : 0;
+                    break;
+                case Bytecode.MENOR_IGUAL_D:
+                    sp--;
+                    p[sp - 1] = decimal(p[sp - 1]) <= decimal(p[sp]) ? 1 : 0;
+                    break;
+                case Bytecode.MAYOR_D:
+                    sp--;
+                    p[sp - 1] = decimal(p[sp - 1]) > decimal(p[sp]) ? 1 : 0;
+                    break;
+                case Bytecode.MAYOR_IGUAL_D:
+                    sp--;
+                    p[sp - 1] = decimal(p[sp - 1]) >= decimal(p[sp]) ? 1 : 0;
+                    break;
+                case Bytecode.IGUAL_E:
+                case Bytecode.IGUAL_B:
+                    // Los booleanos se guardan como 0/1 y los enteros extendidos: basta comparar los long
+                    sp--;
+                    p[sp - 1] = (p[sp - 1] == p[sp]) != (codigo[pc++] != 0) ? 1 : 0;
+                    break;
+                case Bytecode.IGUAL_D:
+                    sp--;
+                    p[sp - 1] = (decimal(p[sp - 1]) == decimal(p[sp])) != (codigo[pc++] != 0) ? 1 : 0;
+                    break;
+                case Bytecode.NO_B:
+                    p[sp - 1] = p[sp - 1] != 0 ? 0 : 1;
+                    break;
+
+                // ===== Conversiones =====
+
+                case Bytecode.E_A_L:
+                    break; // el entero ya está extendido a long
+                case Bytecode.E_A_D:
+                case Bytecode.L_A_D:
+                    p[sp - 1] = bits((double) p[sp - 1]);
+                    break;
+                case Bytecode.L_A_E: {
+                    long valor = p[sp - 1];
+                    if (valor < Integer.MIN_VALUE || valor > Integer.MAX_VALUE) {
+                        throw new RuntimeException("Valor long fuera del rango de entero: " + valor);
+                    }
+                    break;
+                }
+                case Bytecode.D_A_E:
+                    p[sp - 1] = (int) decimal(p[sp - 1]);
+                    break;
+                case Bytecode.D_A_L:
+                    p[sp - 1] = (long) decimal(p[sp - 1]);
+                    break;
+
+                // ===== Operaciones genéricas =====
+
+                case Bytecode.EMPAQUETAR:
+                    o[sp - 1] = empaquetar(TIPOS[codigo[pc++]], p[sp - 1]);
+                    break;
+                case Bytecode.ARITMETICA:
+                    sp--;
+                    o[sp - 1] = EvaluadorSemantico.aplicarOperadorAritmetico(codigo[pc++], o[sp - 1], o[sp]);
+                    if (limites != null && o[sp - 1] instanceof String) {
+                        limites.cadena(((String) o[sp - 1]).length(), ((String) o[sp - 1]).length());
+                    }
+                    o[sp] = null;
+                    break;
+                case Bytecode.RELACIONAL:
+                    sp--;
+                    o[sp - 1] = EvaluadorSemantico.aplicarOperadorRelacional(codigo[pc++], o[sp - 1], o[sp]);
+                    o[sp] = null;
+                    break;
+                case Bytecode.IGUALDAD:
+                    sp--;
+                    o[sp - 1] = EvaluadorSemantico.esIgual(o[sp - 1], o[sp]) != (codigo[pc++] != 0);
+                    o[sp] = null;
+                    break;
+                case Bytecode.NO: {
+                    Object valor = o[sp - 1];
+                    if (!(valor instanceof Boolean)) {
+                        throw new RuntimeException("Operador 'no' requiere operando booleano");
+                    }
+                    o[sp - 1] = !(Boolean) valor;
+                    break;
+                }
+                case Bytecode.NEGATIVO: {
+                    Object valor = o[sp - 1];
+                    if (valor instanceof Integer) {
+                        o[sp - 1] = -(Integer) valor;
+                    } else if (valor instanceof Double) {
+                        o[sp - 1] = -(Double) valor;
+                    } else if (valor instanceof Long) {
+                        o[sp - 1] = -(Long) valor;
+                    } else {
+                        throw new RuntimeException("Operador '-' requiere operando numérico");
+                    }
+                    break;
+                }
+                case Bytecode.POSITIVO:
+                    if (!EvaluadorSemantico.esNumerico(o[sp - 1])) {
+                        throw new RuntimeException("Operador '+' requiere operando numérico");
+                    }
+                    break;
+                case Bytecode.O_PRUEBA: {
+                    Object valor = o[sp - 1];
+                    if (!(valor instanceof Boolean)) {
+                        throw new RuntimeException("Operador 'o' requiere operandos booleanos");
+                    }
+                    if ((Boolean) valor) {
+                        pc = codigo[pc]; // Short-circuit evaluation
+                    } else {
+                        o[--sp] = null;
+                        pc++;
+                    }
+                    break;
+                }
+                case Bytecode.Y_PRUEBA: {
+                    Object valor = o[sp - 1];
+                    if (!(valor instanceof Boolean)) {
+                        throw new RuntimeException("Operador 'y' requiere operandos booleanos");
+                    }
+                    if (!(Boolean) valor) {
+                        pc = codigo[pc]; // Short-circuit evaluation
+                    } else {
+                        o[--sp] = null;
+                        pc++;
+                    }
+                    break;
+                }
+                case Bytecode.O_VERIFICAR:
+                    if (!(o[sp - 1] instanceof Boolean)) {
+                        throw new RuntimeException("Operador 'o' requiere operandos booleanos");
+                    }
+                    break;
+                case Bytecode.Y_VERIFICAR:
+                    if (!(o[sp - 1] instanceof Boolean)) {
+                        throw new RuntimeException("Operador 'y' requiere operandos booleanos");
+                    }
+                    break;
+                case Bytecode.CONDICION: {
+                    Object valor = o[sp - 1];
+                    o[sp - 1] = null;
+                    if (valor instanceof Boolean) {
+                        p[sp - 1] = (Boolean) valor ? 1 : 0;
+                    } else if (codigo[pc] != 0) {
+                        throw new RuntimeException("La condición del 'si' debe ser booleana");
+                    } else {
+                        p[sp - 1] = 0;
+                    }
+                    pc++;
+                    break;
+                }
+                case Bytecode.CONVERTIR: {
+                    Tipo destino = TIPOS[codigo[pc++]];
+                    String error = (String) constantesO[codigo[pc++]];
+                    Object resultado = destino.convertir(o[sp - 1]);
+
+                    // Un valor nulo sólo puede guardarse en una cadena
+                    if ((resultado == null && destino.esPrimitivo())
+                            || !destino.admite(resultado)) {
+                        throw new RuntimeException(String.format(error, EvaluadorSemantico.obtenerTipo(resultado)));
+                    }
+                    if (destino.esPrimitivo()) {
+                        p[sp - 1] = desempaquetar(destino, resultado);
+                        o[sp - 1] = null;
+                    } else {
+                        o[sp - 1] = resultado;
+                    }
+                    break;
+                }
+                case Bytecode.CONCATENAR: {
+                    int partes = codigo[pc++];
+                    sp -= partes;
+                    StringBuilder texto = new StringBuilder();
+                    for (int i = sp; i < sp + partes; i++) {
+                        texto.append(EvaluadorSemantico.convertirAString(o[i]));
+                        o[i] = null;
+                    }
+                    if (limites != null) limites.cadena(texto.length(), texto.length());
+                    o[sp++] = texto.toString();
+                    break;
+                }
+                case Bytecode.IMPRIMIR:
+                    salida.imprimir(EvaluadorSemantico.convertirAString(o[--sp]));
+                    o[sp] = null;
+                    break;
+                case Bytecode.LEER:
+                    salida.antesDeLeer();
+                    o[sp++] = entrada.leerLinea();
+                    break;
+
+                // ===== Control de flujo =====
+
+                case Bytecode.SALTAR:
+                    // Hacia atrás, la vuelta de un bucle
+                    if (limites != null && codigo[pc] < pc) limites.paso();
+                    pc = codigo[pc];
+                    break;
+                case Bytecode.SALTAR_SI_FALSO:
+                    pc = p[--sp] == 0 ? codigo[pc] : pc + 1;
+                    break;
+                case Bytecode.SALTAR_SI_VERDADERO_O_DESCARTAR:
+                    if (p[sp - 1] != 0) {
+                        pc = codigo[pc];
+                    } else {
+                        sp--;
+                        pc++;
+                    }
+                    break;
+                case Bytecode.SALTAR_SI_FALSO_O_DESCARTAR:
+                    if (p[sp - 1] == 0) {
+                        pc = codigo[pc];
+                    } else {
+                        sp--;
+                        pc++;
+                    }
+                    break;
+                case Bytecode.DECLARAR_FUNCION: {
+                    Bytecode.Funcion funcion = funciones[codigo[pc++]];
+                    if (declaradas[funcion.nombre] != null) {
+                        throw new RuntimeException("Función '" + funcion.funcion.nombre + "' ya está declarada");
+                    }
+                    declaradas[funcion.nombre] = funcion;
+                    break;
+                }
+                case Bytecode.BUSCAR_FUNCION: {
+                    int nombre = codigo[pc++];
+                    if (declaradas[nombre] == null) {
+                        throw new RuntimeException("Función '" + programa.nombres[nombre] + "' no está declarada");
+                    }
+                    break;
+                }
+                case Bytecode.LLAMAR:
+                case Bytecode.LLAMAR_COLA: {
+                    boolean cola = codigo[pc - 1] == Bytecode.LLAMAR_COLA;
+                    Bytecode.Funcion funcion = declaradas[codigo[pc]];
+                    EvaluadorSemantico.Funcion definicion = funcion.funcion;
+                    int argumentos = codigo[pc + 1];
+                    int esperado = codigo[pc + 2];
+                    pc += 3;
+
+                    if (argumentos != definicion.tipos.length) {
+                        throw new RuntimeException("Número incorrecto de argumentos para función '" + definicion.nombre + "'");
+                    }
+                    if (limites != null) limites.llamada(cola ? profundidad : profundidad + 1);
+
+                    MemoriaFunciones.Tabla tabla = memoria != null ? memoria.tabla(definicion) : null;
+                    List<Object> clave = tabla != null ? new ArrayList<>(argumentos) : null;
+
+                    // Los argumentos ya están en su sitio: son las primeras ranuras del nuevo marco
+                    int nuevaBase = sp - argumentos;
+                    for (int i = 0; i < argumentos; i++) {
+                        Tipo tipo = definicion.tipos[i];
+                        Object argumento = tipo.convertir(o[nuevaBase + i]);
+                        if ((argumento == null && tipo.esPrimitivo())
+                                || !tipo.admite(argumento)) {
+                            throw new RuntimeException("Argumento " + (i + 1) + " de función '" + definicion.nombre + "' tiene tipo incorrecto");
+                        }
+                        if (tipo.esPrimitivo()) {
+                            p[nuevaBase + i] = desempaquetar(tipo, argumento);
+                            o[nuevaBase + i] = null;
+                        } else {
+                            o[nuevaBase + i] = argumento;
+                        }
+                        if (clave != null) clave.add(argumento);
+                    }
+
+                    // Resultado ya memorizado: ocupa el lugar del primer argumento, como al retornar
+                    if (tabla != null) {
+                        Object resultado = tabla.buscar(clave);
+                        if (resultado != MemoriaFunciones.SIN_RESULTADO) {
+                            Tipo tipoEsperado = TIPOS[esperado];
+                            if (tipoEsperado.esPrimitivo()) {
+                                p[nuevaBase] = desempaquetar(tipoEsperado, resultado);
+                            } else {
+                                o[nuevaBase] = resultado;
+                            }
+                            for (int i = nuevaBase + 1; i < sp; i++) o[i] = null;
+                            sp = nuevaBase + 1;
+                            break;
+                        }
+                    }
+
+                    // Llamada de cola: los argumentos pasan al lugar de los de la función
+                    // actual, que ya no se necesita, y se retornará a quien llamó a ésta.
+                    // El resultado de la función memorizada es el de la llamada actual.
+                    if (cola) {
+                        if (tabla != null) {
+                            List<Object> pares = memorizar.get(profundidad - 1);
+                            if (pares == null) {
+                                pares = new ArrayList<>();
+                                memorizar.set(profundidad - 1, pares);
+                            }
+                            pares.add(tabla);
+                            pares.add(clave);
+                        }
+                        int registro = (profundidad - 1) * REGISTRO;
+                        llamadas[registro + 3] = definicion.tipoRetorno.ordinal();
+
+                        int necesario = base + definicion.ranuras + funcion.maxPila;
+                        if (necesario > p.length) {
+                            int capacidad = Math.max(necesario, p.length * 2);
+                            p = Arrays.copyOf(p, capacidad);
+                            o = Arrays.copyOf(o, capacidad);
+                        }
+                        System.arraycopy(p, nuevaBase, p, base, argumentos);
+                        System.arraycopy(o, nuevaBase, o, base, argumentos);
+                        for (int i = base + argumentos; i < sp; i++) o[i] = null;
+
+                        sp = base + definicion.ranuras;
+                        pc = funcion.entrada;
+                        break;
+                    }
+
+                    if (profundidad == MAX_LLAMADAS) {
+                        throw new RuntimeException("Demasiadas llamadas anidadas (recursión infinita)");
+                    }
+                    if ((profundidad + 1) * REGISTRO > llamadas.length) {
+                        llamadas = Arrays.copyOf(llamadas, llamadas.length * 2);
+                    }
+                    if (memorizar != null) {
+                        List<Object> pares = null;
+                        if (tabla != null) {
+                            pares = new ArrayList<>();
+                            pares.add(tabla);
+                            pares.add(clave);
+                        }
+                        if (profundidad == memorizar.size()) {
+                            memorizar.add(pares);
+                        } else {
+                            memorizar.set(profundidad, pares);
+                        }
+                    }
+                    int registro = profundidad * REGISTRO;
+                    llamadas[registro] = pc;
+                    llamadas[registro + 1] = base;
+                    llamadas[registro + 2] = esperado;
+                    llamadas[registro + 3] = definicion.tipoRetorno.ordinal();
+                    profundidad++;
+
+                    int necesario = nuevaBase + definicion.ranuras + funcion.maxPila;
+                    if (necesario > p.length) {
+                        int capacidad = Math.max(necesario, p.length * 2);
+                        p = Arrays.copyOf(p, capacidad);
+                        o = Arrays.copyOf(o, capacidad);
+                    }
+
+                    base = nuevaBase;
+                    sp = base + definicion.ranuras;
+                    pc = funcion.entrada;
+                    break;
+                }
+                case Bytecode.RETORNAR_P:
+                case Bytecode.RETORNAR_O:
+                case Bytecode.RETORNAR_NULO: {
+                    int operacion = codigo[pc - 1];
+                    profundidad--;
+                    int registro = profundidad * REGISTRO;
+                    Tipo esperado = TIPOS[llamadas[registro + 2]];
+                    Tipo retorno = TIPOS[llamadas[registro + 3]];
+
+                    if (memorizar != null && memorizar.get(profundidad) != null) {
+                        Object resultado = operacion == Bytecode.RETORNAR_P ? empaquetar(retorno, p[sp - 1])
+                                         : operacion == Bytecode.RETORNAR_O ? o[sp - 1] : null;
+                        List<Object> pares = memorizar.get(profundidad);
+                        for (int i = 0; i < pares.size(); i += 2) {
+                            ((MemoriaFunciones.Tabla) pares.get(i)).guardar((List<?>) pares.get(i + 1), resultado);
+                        }
+                        memorizar.set(profundidad, null);
+                    }
+
+                    // El resultado ocupa el lugar del primer argumento, en el carril que espera quien llamó
+                    if (operacion == Bytecode.RETORNAR_P) {
+                        long valor = p[sp - 1];
+                        if (esperado.esPrimitivo()) {
+                            p[base] = valor;
+                        } else {
+                            o[base] = empaquetar(retorno, valor);
+                        }
+                    } else {
+                        Object valor = operacion == Bytecode.RETORNAR_O ? o[sp - 1] : null;
+                        if (esperado.esPrimitivo()) {
+                            p[base] = desempaquetar(esperado, valor);
+                        } else {
+                            o[base] = valor;
+                        }
+                    }
+
+                    // Soltar las referencias del marco que termina
+                    for (int i = base + 1; i < sp; i++) o[i] = null;
+                    sp = base + 1;
+                    pc = llamadas[registro];
+                    base = llamadas[registro + 1];
+                    break;
+                }
+                case Bytecode.TERMINAR:
+                    return;
+
+                // ===== Instrucciones combinadas =====
+
+                case Bytecode.ASIGNAR_P:
+                    p[base + codigo[pc++]] = p[--sp];
+                    break;
+                case Bytecode.ASIGNAR_O:
+                    o[base + codigo[pc++]] = o[--sp];
+                    o[sp] = null;
+                    break;
+                case Bytecode.DESCARTAR_P:
+                    sp--;
+                    break;
+                case Bytecode.SALTAR_SI_NO_MENOR_E:
+                    sp -= 2;
+                    pc = (int) p[sp] < (int) p[sp + 1] ? pc + 1 : codigo[pc];
+                    break;
+                case Bytecode.SALTAR_SI_NO_MENOR_IGUAL_E:
+                    sp -= 2;
+                    pc = (int) p[sp] <= (int) p[sp + 1] ? pc + 1 : codigo[pc];
+                    break;
+                case Bytecode.SALTAR_SI_NO_MAYOR_E:
+                    sp -= 2;
+                    pc = (int) p[sp] > (int) p[sp + 1] ? pc + 1 : codigo[pc];
+                    break;
+                case Bytecode.SALTAR_SI_NO_MAYOR_IGUAL_E:
+                    sp -= 2;
+                    pc = (int) p[sp] >= (int) p[sp + 1] ? pc + 1 : codigo[pc];
+                    break;
+                case Bytecode.INCREMENTAR_E: {
+                    int ranura = base + codigo[pc];
+                    p[ranura] = (int) p[ranura] + codigo[pc + 1];
+                    pc += 2;
+                    break;
+                }
+
+                // ===== Texto acumulado en una variable =====
+
+                case Bytecode.CARGAR_CUERDA: {
+                    Object valor = o[base + codigo[pc++]];
+                    o[sp] = valor;
+                    p[sp + 1] = Cuerda.largo(valor);
+                    sp += 2;
+                    break;
+                }
+                case Bytecode.ACUMULAR: {
+                    int ranura = base + codigo[pc];
+                    int partes = codigo[pc + 1];
+                    pc += 2;
+                    sp -= partes;
+                    StringBuilder texto = new StringBuilder();
+                    for (int i = sp; i < sp + partes; i++) {
+                        texto.append(EvaluadorSemantico.convertirAString(o[i]));
+                        o[i] = null;
+                    }
+                    sp -= 2;
+                    String agregado = texto.toString();
+                    o[ranura] = Cuerda.acumular(o[sp], (int) p[sp + 1], o[ranura], agregado);
+                    if (limites != null) limites.cadena(Cuerda.largo(o[ranura]), agregado.length());
+                    o[sp] = null;
+                    break;
+                }
+
+                // ===== Arreglos =====
+
+                case Bytecode.NUEVO_ARREGLO: {
+                    Tipo tipo = TIPOS[codigo[pc++]];
+                    if (limites != null) limites.arreglo(tipo, (int) p[sp - 1]);
+                    o[sp - 1] = NodosArreglos.crear(tipo, (int) p[sp - 1]);
+                    break;
+                }
+                case Bytecode.CARGAR_ELEMENTO_E: {
+                    sp--;
+                    int[] a = (int[]) o[sp - 1];
+                    o[sp - 1] = null;
+                    p[sp - 1] = a[NodosArreglos.verificar((int) p[sp], a.length)];
+                    break;
+                }
+                case Bytecode.CARGAR_ELEMENTO_L: {
+                    sp--;
+                    long[] a = (long[]) o[sp - 1];
+                    o[sp - 1] = null;
+                    p[sp - 1] = a[NodosArreglos.verificar((int) p[sp], a.length)];
+                    break;
+                }
+                case Bytecode.CARGAR_ELEMENTO_D: {
+                    sp--;
+                    double[] a = (double[]) o[sp - 1];
+                    o[sp - 1] = null;
+                    p[sp - 1] = bits(a[NodosArreglos.verificar((int) p[sp], a.length)]);
+                    break;
+                }
+                case Bytecode.GUARDAR_ELEMENTO_E: {
+                    sp -= 2;
+                    int[] a = (int[]) o[sp - 1];
+                    o[sp - 1] = null;
+                    a[NodosArreglos.verificar((int) p[sp], a.length)] = (int) p[sp + 1];
+                    p[sp - 1] = p[sp + 1];
+                    break;
+                }
+                case Bytecode.GUARDAR_ELEMENTO_L: {
+                    sp -= 2;
+                    long[] a = (long[]) o[sp - 1];
+                    o[sp - 1] = null;
+                    a[NodosArreglos.verificar((int) p[sp], a.length)] = p[sp + 1];
+                    p[sp - 1] = p[sp + 1];
+                    break;
+                }
+                case Bytecode.GUARDAR_ELEMENTO_D: {
+                    sp -= 2;
+                    double[] a = (double[]) o[sp - 1];
+                    o[sp - 1] = null;
+                    a[NodosArreglos.verificar((int) p[sp], a.length)] = decimal(p[sp + 1]);
+                    p[sp - 1] = p[sp + 1];
+                    break;
+                }
+                case Bytecode.TAMANO:
+                    p[sp - 1] = NodosArreglos.tamano(o[sp - 1]);
+                    o[sp - 1] = null;
+                    break;
+                case Bytecode.LLENAR: {
+                    sp--;
+                    Object a = o[sp - 1];
+                    switch (TIPOS[codigo[pc++]]) {
+                        case ARREGLO_ENTERO: Arrays.fill((int[]) a, (int) p[sp]); break;
+                        case ARREGLO_LARGO: Arrays.fill((long[]) a, p[sp]); break;
+                        default: Arrays.fill((double[]) a, decimal(p[sp])); break;
+                    }
+                    break;
+                }
+                case Bytecode.COPIAR:
+                    sp--;
+                    o[sp - 1] = NodosArreglos.copiar(o[sp - 1], o[sp]);
+                    o[sp] = null;
+                    break;
+                case Bytecode.SUMAR: {
+                    Object a = o[sp - 1];
+                    o[sp - 1] = null;
+                    switch (TIPOS[codigo[pc++]]) {
+                        case ARREGLO_ENTERO: p[sp - 1] = NodosArreglos.sumar((int[]) a); break;
+                        case ARREGLO_LARGO: p[sp - 1] = NodosArreglos.sumar((long[]) a); break;
+                        default: p[sp - 1] = bits(NodosArreglos.sumar((double[]) a)); break;
+                    }
+                    break;
+                }
+
+                default:
+                    throw new IllegalStateException("Código de operación desconocido: " + codigo[pc - 1]);
+            }
+        }
+    }
+
+    private static double decimal(long bits) {
+        return Double.longBitsToDouble(bits);
+    }
+
+    private static long bits(double valor) {
+        return Double.doubleToRawLongBits(valor);
+    }
+
+    private static Object empaquetar(Tipo tipo, long valor) {
+        switch (tipo) {
+            case ENTERO: return (int) valor;
+            case LARGO: return valor;
+            case DECIMAL: return decimal(valor);
+            default: return valor != 0;
+        }
+    }
+
+    // El valor ya debe estar convertido al tipo
+    private static long desempaquetar(Tipo tipo, Object valor) {
+        switch (tipo) {
+            case ENTERO: return (Integer) valor;
+            case LARGO: return (Long) valor;
+            case DECIMAL: return bits((Double) valor);
+            default: return (Boolean) valor ? 1 : 0;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+// Marco de activación: almacenamiento plano de las variables de una función
+// (o del programa principal), indexado por la ranura que el Compilador asignó a
+// cada declaración. Leer o escribir una variable es un acceso directo al arreglo.
+//
+// Las variables entero, largo, decimal y booleano se guardan sin caja en
+// 'primitivos' (el decimal como sus bits); las cadenas y los arreglos del
+// lenguaje se guardan en 'valores'. Para las ranuras primitivas, 'valores' sólo
+// guarda el estado de la variable: null si tiene valor, o uno de los centinelas
+// si todavía no lo tiene.
+//
+// Los marcos de las llamadas se reutilizan (ver EvaluadorSemantico.abrirMarco):
+// los arreglos pueden tener más ranuras que la función que los usa.
+final class Marco {
+
+    // Valores centinela para ranuras que todavía no tienen un valor válido
+    static final Object SIN_DECLARAR = new Object();
+    static final Object SIN_INICIALIZAR = new Object();
+
+    // Valores de 'retorno' que no son el resultado: está sin caja en 'retornoPrimitivo',
+    // o la función terminó con una llamada de cola (ver Nodo.RetornarLlamada)
+    static final Object RETORNO_PRIMITIVO = new Object();
+    static final Object LLAMADA_EN_COLA = new Object();
+
+    final EvaluadorSemantico ev;
+    final Marco global;
+    Object[] valores;   // sólo cambian en el marco global de una sesión (ver ampliar)
+    long[] primitivos;
+
+    // Valor de la última sentencia 'retornar' ejecutada en este marco
+    Object retorno;
+    long retornoPrimitivo;
+    Tipo tipoRetornado;               // tipo de 'retornoPrimitivo'
+    EvaluadorSemantico.Funcion enCola; // función de la llamada de cola pendiente
+
+    // Ranuras usadas por la última llamada que ocupó el marco
+    private int usadas;
+
+    // Marco del programa principal: sus ranuras de variables globales empiezan sin declarar
+    Marco(EvaluadorSemantico ev, int ranuras) {
+        this.ev = ev;
+        this.global = this;
+        this.valores = new Object[ranuras];
+        this.primitivos = new long[ranuras];
+        java.util.Arrays.fill(valores, SIN_DECLARAR);
+    }
+
+    // Marco de una llamada a función
+    Marco(Marco global, int ranuras) {
+        this.ev = global.ev;
+        this.global = global;
+        this.valores = new Object[ranuras];
+        this.primitivos = new long[ranuras];
+        this.usadas = ranuras;
+    }
+
+    // Marco global de una sesión, antes de ejecutar una entrada más: tiene al
+    // menos 'ranuras' ranuras, y las que empiezan en 'desde' (variables que
+    // declara la entrada, o temporales) quedan sin declarar
+    void ampliar(int ranuras, int desde) {
+        if (valores.length < ranuras) {
+            valores = java.util.Arrays.copyOf(valores, ranuras);
+            primitivos = java.util.Arrays.copyOf(primitivos, ranuras);
+        }
+        java.util.Arrays.fill(valores, desde, valores.length, SIN_DECLARAR);
+    }
+
+    // Deja el marco como nuevo para una llamada con 'ranuras' ranuras. Las
+    // primitivas no se limpian: el Compilador asigna cada variable antes de leerla.
+    void reiniciar(int ranuras) {
+        java.util.Arrays.fill(valores, 0, usadas, null);
+        usadas = ranuras;
+        retorno = null;
+        enCola = null;
+    }
+
+    // Resultado de la función que usó el marco, con caja
+    Object retornado() {
+        if (retorno != RETORNO_PRIMITIVO) return retorno;
+        switch (tipoRetornado) {
+            case ENTERO: return (int) retornoPrimitivo;
+            case LARGO: return retornoPrimitivo;
+            case DECIMAL: return Double.longBitsToDouble(retornoPrimitivo);
+            default: return retornoPrimitivo != 0;
+        }
+    }
+
+    // Argumentos de la llamada (las primeras ranuras), con caja
+    Object[] argumentos(Tipo[] tipos) {
+        Object[] argumentos = new Object[tipos.length];
+        for (int i = 0; i < tipos.length; i++) {
+            argumentos[i] = cargar(i, tipos[i]);
+        }
+        return argumentos;
+    }
+
+    // Acceso genérico (con caja) a una ranura de tipo conocido
+    Object cargar(int ranura, Tipo tipo) {
+        switch (tipo) {
+            case ENTERO: return (int) primitivos[ranura];
+            case LARGO: return primitivos[ranura];
+            case DECIMAL: return Double.longBitsToDouble(primitivos[ranura]);
+            case BOOLEANO: return primitivos[ranura] != 0;
+            default: return Cuerda.leer(valores[ranura]);
+        }
+    }
+
+    // El valor ya debe estar convertido al tipo de la ranura
+    void guardar(int ranura, Tipo tipo, Object valor) {
+        if (!tipo.esPrimitivo()) {
+            valores[ranura] = valor;
+            return;
+        }
+        switch (tipo) {
+            case ENTERO: primitivos[ranura] = (Integer) valor; break;
+            case LARGO: primitivos[ranura] = (Long) valor; break;
+            case DECIMAL: primitivos[ranura] = Double.doubleToRawLongBits((Double) valor); break;
+            default: primitivos[ranura] = (Boolean) valor ? 1 : 0; break;
+        }
+        valores[ranura] = null;
+    }
+}
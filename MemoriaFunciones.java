@@ -0,0 +1,85 @@
+import java.util.*;
+
+// Resultados ya calculados de las funciones puras (opción -memo).
+//
+// El Compilador marca como pura una función que no lee ni asigna variables
+// globales, no usa 'imprimir' ni 'leer', no declara funciones y sólo llama a
+// funciones puras: su resultado depende únicamente de sus argumentos. Con -memo
+// cada función pura tiene una tabla de resultados indexada por sus argumentos
+// ya convertidos a los tipos de los parámetros (un entero 2 y un largo 2 son
+// argumentos distintos). La tabla guarda a lo sumo 'capacidad' resultados y
+// descarta el usado hace más tiempo. Una llamada que termina con error no deja
+// resultado.
+//
+// Las tablas son de una ejecución: cada evaluador (o máquina virtual) recibe la suya.
+final class MemoriaFunciones {
+
+    // Resultados por función cuando se indica -memo sin capacidad
+    static final int CAPACIDAD_POR_DEFECTO = 10000;
+
+    // Resultado de buscar cuando la tabla no tiene esos argumentos ('null' es un resultado válido)
+    static final Object SIN_RESULTADO = new Object();
+
+    private final int capacidad;
+    private final Map<EvaluadorSemantico.Funcion, Tabla> tablas = new LinkedHashMap<>();
+
+    MemoriaFunciones(int capacidad) {
+        this.capacidad = capacidad;
+    }
+
+    // Tabla de la función, o null si no es pura
+    Tabla tabla(EvaluadorSemantico.Funcion funcion) {
+        if (!funcion.pura) return null;
+        Tabla tabla = tablas.get(funcion);
+        if (tabla == null) {
+            tabla = new Tabla(capacidad);
+            tablas.put(funcion, tabla);
+        }
+        return tabla;
+    }
+
+    // Aciertos y fallos de cada función usada, una por línea
+    String resumen() {
+        StringBuilder texto = new StringBuilder();
+        for (Map.Entry<EvaluadorSemantico.Funcion, Tabla> entrada : tablas.entrySet()) {
+            Tabla tabla = entrada.getValue();
+            texto.append("Memoria de '").append(entrada.getKey().nombre).append("': ")
+                 .append(tabla.aciertos).append(" aciertos, ")
+                 .append(tabla.fallos).append(" fallos, ")
+                 .append(tabla.resultados.size()).append(" resultados guardados")
+                 .append(System.lineSeparator());
+        }
+        return texto.toString();
+    }
+
+    static final class Tabla {
+        private final Map<List<?>, Object> resultados;
+        long aciertos = 0;
+        long fallos = 0;
+
+        Tabla(final int capacidad) {
+            resultados = new LinkedHashMap<List<?>, Object>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<?>, Object> mayor) {
+                    return size() > capacidad;
+                }
+            };
+        }
+
+        // 'argumentos' ya convertidos a los tipos de los parámetros
+        Object buscar(List<?> argumentos) {
+            Object resultado = resultados.get(argumentos);
+            if (resultado == null && !resultados.containsKey(argumentos)) {
+                fallos++;
+                return SIN_RESULTADO;
+            }
+            aciertos++;
+            return resultado;
+        }
+
+        // Se guarda una copia: quien llama puede volver a usar su lista
+        void guardar(List<?> argumentos, Object resultado) {
+            resultados.put(new ArrayList<Object>(argumentos), resultado);
+        }
+    }
+}
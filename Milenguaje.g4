@@ -1,5 +1,10 @@
 grammar Milenguaje;
 
+@lexer::members {
+    // Longitud máxima de un identificador (ver InterpretePrincipal.ErroresLexicos)
+    public static final int MAX_IDENTIFICADOR = 10;
+}
+
 // REGLAS SINTÁCTICAS (Parser Rules)
 programa: declaracion* EOF ;
 
@@ -10,7 +15,9 @@ declaracion: declaracionVariable
 
 declaracionVariable: tipo IDENTIFICADOR ('=' expresion)? ';' ;
 
-tipo: 'entero' | 'decimal' | 'booleano' | 'cadena' | 'largo' ;
+tipo: tipoElemento ('[' ']')? ;
+
+tipoElemento: 'entero' | 'decimal' | 'booleano' | 'cadena' | 'largo' ;
 
 declaracionFuncion: 'funcion' IDENTIFICADOR '(' parametros? ')' bloque ;
 
@@ -50,6 +57,7 @@ sentenciaContinuar: 'continuar' ';' ;
 expresion: asignacion ;
 
 asignacion: IDENTIFICADOR '=' asignacion
+          | accesoArreglo '=' asignacion
           | expresionLogicaO
           ;
 
@@ -76,12 +84,18 @@ expresionPrimaria: NUMERO_ENTERO
                  | CADENA
                  | 'verdadero'
                  | 'falso'
+                 | accesoArreglo
+                 | nuevoArreglo
                  | IDENTIFICADOR
                  | llamadaFuncion
                  | expresionLeer
                  | '(' expresion ')'
                  ;
 
+accesoArreglo: IDENTIFICADOR '[' expresion ']' ;
+
+nuevoArreglo: tipoElemento '[' expresion ']' ;
+
 llamadaFuncion: IDENTIFICADOR '(' argumentos? ')' ;
 
 argumentos: expresion (',' expresion)* ;
@@ -115,6 +129,8 @@ PARENTESIS_IZQ: '(' ;
 PARENTESIS_DER: ')' ;
 LLAVE_IZQ: '{' ;
 LLAVE_DER: '}' ;
+CORCHETE_IZQ: '[' ;
+CORCHETE_DER: ']' ;
 PUNTO_COMA: ';' ;
 COMA: ',' ;
 
@@ -125,8 +141,9 @@ NUMERO_DECIMAL: [0-9]+ '.' [0-9]+ ;
 
 CADENA: '"' (~["\r\n] | '\\' .)* '"' ;
 
-// Identificadores (máximo 10 caracteres)
-IDENTIFICADOR: [a-zA-Z_][a-zA-Z0-9_]* {getText().length() <= 10}? ;
+// Identificadores (máximo MAX_IDENTIFICADOR caracteres). La longitud se verifica
+// después del análisis léxico: un predicado aquí impediría usar la caché DFA del lexer
+IDENTIFICADOR: [a-zA-Z_][a-zA-Z0-9_]* ;
 
 // Caracteres no reconocidos
 ERROR_CHAR: . ;
@@ -0,0 +1,122 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Ejecución de programas desde Java, muchos a la vez en un mismo proceso.
+//
+// Lo compilado se separa de lo que cambia al ejecutar:
+// - compilar() produce un Nodo.Programa que no cambia al ejecutarse (tampoco el
+//   bytecode que se genera para -vm); se guarda en CacheProgramas y lo comparten
+//   todos los hilos.
+// - Cada ejecutar() arma su propio contexto: el evaluador (o la máquina virtual)
+//   con sus marcos, sus funciones declaradas y sus variables, las tablas de
+//   -memo, y la Entrada y la Salida del programa.
+//
+// Un Motor puede usarse desde cualquier número de hilos, por ejemplo desde las
+// tareas de un Executors.newFixedThreadPool. Lo único compartido que cambia al
+// ejecutar es el estado de -jit de cada función (ver EvaluadorSemantico.Funcion).
+//
+// El evaluador necesita una pila grande: en un hilo común, cada ejecutar() abre
+// un hilo más y espera a que termine. Un pool creado con hilos() ya tiene esa
+// pila y ejecuta cada programa en el mismo hilo de la tarea.
+final class Motor {
+
+    private final InterpretePrincipal.Opciones opciones;
+
+    Motor() {
+        this(new InterpretePrincipal.Opciones());
+    }
+
+    Motor(InterpretePrincipal.Opciones opciones) {
+        this.opciones = opciones;
+    }
+
+    // Para los pools que ejecutan programas, p. ej. Executors.newFixedThreadPool(n, Motor.hilos("nombre"))
+    static ThreadFactory hilos(final String nombre) {
+        return new ThreadFactory() {
+            private final AtomicInteger creados = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable tarea) {
+                return new EvaluadorSemantico.HiloPrograma(tarea, nombre + "-" + creados.incrementAndGet());
+            }
+        };
+    }
+
+    // Errores léxicos, de sintaxis o de tipo, terminados por la línea que los
+    // resume: el programa no se puede ejecutar
+    static final class ErroresDeCompilacion extends RuntimeException {
+        final List<String> errores;
+
+        ErroresDeCompilacion(List<String> errores) {
+            super(String.join(System.lineSeparator(), errores));
+            this.errores = errores;
+        }
+    }
+
+    // Identifica al programa compilado en CacheProgramas
+    String clave(String contenido) {
+        return CacheProgramas.clave(contenido, opciones.optimizar);
+    }
+
+    // Programa ya compilado con esa clave, o null si no está (o ya salió) en la caché
+    Nodo.Programa buscar(String clave) {
+        return CacheProgramas.buscar(clave, opciones.cache);
+    }
+
+    // Un programa ya compilado (en este proceso o, con -cache, en uno anterior) no se vuelve a analizar
+    Nodo.Programa compilar(String contenido) {
+        String clave = clave(contenido);
+        Nodo.Programa programa = buscar(clave);
+        if (programa != null) return programa;
+
+        List<String> errores = new ArrayList<>();
+        MilenguajeParser.ProgramaContext arbol = InterpretePrincipal.analizar(contenido, errores);
+        if (arbol == null) {
+            throw new ErroresDeCompilacion(errores);
+        }
+        try {
+            programa = Compilador.compilarPrograma(arbol, opciones.optimizar);
+        } catch (Compilador.ErroresDeTipo e) {
+            // Como los errores léxicos y de sintaxis: se informan todos y no se ejecuta nada
+            errores.addAll(e.errores);
+            errores.add("El programa contiene errores de tipo y no puede ser interpretado.");
+            throw new ErroresDeCompilacion(errores);
+        } catch (Compilador.ErrorDeCompilacion e) {
+            errores.add(e.getMessage());
+            errores.add("El programa contiene errores de compilación y no puede ser interpretado.");
+            throw new ErroresDeCompilacion(errores);
+        }
+        CacheProgramas.guardar(clave, programa, opciones.cache);
+        return programa;
+    }
+
+    // Ejecutar en un contexto nuevo, con los límites de las opciones. 'memoria'
+    // puede ser null (sin -memo); los errores del programa llegan como RuntimeException.
+    void ejecutar(Nodo.Programa programa, Entrada entrada, Salida salida, MemoriaFunciones memoria) {
+        ejecutar(programa, entrada, salida, memoria, opciones.limites());
+    }
+
+    // 'limites' puede ser null (sin límites)
+    void ejecutar(Nodo.Programa programa, Entrada entrada, Salida salida, MemoriaFunciones memoria,
+                  Limites limites) {
+        if (opciones.maquinaVirtual) {
+            MaquinaVirtual.ejecutar(programa, salida, entrada, memoria, limites);
+        } else {
+            EvaluadorSemantico evaluador = new EvaluadorSemantico();
+            evaluador.compilacionJit = opciones.jit;
+            evaluador.entrada = entrada;
+            evaluador.salida = salida;
+            evaluador.memoria = memoria;
+            evaluador.limites = limites;
+            evaluador.ejecutar(programa);
+        }
+    }
+
+    // Lo que imprime el programa; cada 'leer' toma una línea de 'entrada'
+    String ejecutar(Nodo.Programa programa, String entrada) {
+        Salida.Captura salida = new Salida.Captura();
+        ejecutar(programa, Entrada.deTexto(entrada), salida, opciones.memoria());
+        return salida.texto();
+    }
+}
@@ -0,0 +1,830 @@
+import java.io.*;
+import java.util.*;
+
+// Nodo ejecutable producido por el Compilador a partir del árbol de ANTLR.
+// Cada nodo ya tiene resueltos sus hijos, literales y operadores, de modo que
+// la ejecución no vuelve a navegar el árbol sintáctico ni a comparar textos.
+// Los nodos son serializables para guardar programas compilados (CacheProgramas).
+abstract class Nodo implements Serializable {
+
+    abstract Object evaluar(Marco m);
+
+    // Tipo estático del valor del nodo (DINAMICO si sólo se conoce al ejecutar)
+    Tipo tipo() {
+        return Tipo.DINAMICO;
+    }
+
+    // Ejecutar descartando el valor (sentencias y expresiones usadas como sentencia)
+    void ejecutar(Marco m) {
+        evaluar(m);
+    }
+
+    // Formas de terminar una sentencia. 'retornar' deja su valor en Marco.retorno;
+    // los bucles y las llamadas consumen la terminación que les corresponde.
+    static final int NORMAL = 0;
+    static final int ROMPER = 1;
+    static final int CONTINUAR = 2;
+    static final int RETORNAR = 3;
+
+    // Ejecutar como sentencia e indicar cómo terminó. Sólo las sentencias que
+    // pueden contener romper/continuar/retornar lo sobrescriben (ver Sentencia).
+    int completar(Marco m) {
+        evaluar(m);
+        return NORMAL;
+    }
+
+    // Evaluación sin caja. Los nodos especializados (NodosTipados) las implementan
+    // directamente; el resto desempaqueta el resultado de evaluar().
+    int evaluarEntero(Marco m) {
+        return (Integer) evaluar(m);
+    }
+
+    long evaluarLargo(Marco m) {
+        return (Long) evaluar(m);
+    }
+
+    double evaluarDecimal(Marco m) {
+        return (Double) evaluar(m);
+    }
+
+    boolean evaluarBooleano(Marco m) {
+        return (Boolean) evaluar(m);
+    }
+
+    // ===== Bases de los nodos con tipo primitivo conocido =====
+
+    abstract static class NodoEntero extends Nodo {
+        @Override Tipo tipo() { return Tipo.ENTERO; }
+        @Override Object evaluar(Marco m) { return evaluarEntero(m); }
+        @Override void ejecutar(Marco m) { evaluarEntero(m); }
+        @Override int completar(Marco m) { evaluarEntero(m); return NORMAL; }
+        @Override abstract int evaluarEntero(Marco m);
+    }
+
+    abstract static class NodoLargo extends Nodo {
+        @Override Tipo tipo() { return Tipo.LARGO; }
+        @Override Object evaluar(Marco m) { return evaluarLargo(m); }
+        @Override void ejecutar(Marco m) { evaluarLargo(m); }
+        @Override int completar(Marco m) { evaluarLargo(m); return NORMAL; }
+        @Override abstract long evaluarLargo(Marco m);
+    }
+
+    abstract static class NodoDecimal extends Nodo {
+        @Override Tipo tipo() { return Tipo.DECIMAL; }
+        @Override Object evaluar(Marco m) { return evaluarDecimal(m); }
+        @Override void ejecutar(Marco m) { evaluarDecimal(m); }
+        @Override int completar(Marco m) { evaluarDecimal(m); return NORMAL; }
+        @Override abstract double evaluarDecimal(Marco m);
+    }
+
+    abstract static class NodoBooleano extends Nodo {
+        @Override Tipo tipo() { return Tipo.BOOLEANO; }
+        @Override Object evaluar(Marco m) { return evaluarBooleano(m); }
+        @Override void ejecutar(Marco m) { evaluarBooleano(m); }
+        @Override int completar(Marco m) { evaluarBooleano(m); return NORMAL; }
+        @Override abstract boolean evaluarBooleano(Marco m);
+    }
+
+    abstract static class NodoCadena extends Nodo {
+        @Override Tipo tipo() { return Tipo.CADENA; }
+    }
+
+    // Sentencia que puede alterar el flujo: su resultado es la terminación, no un valor
+    abstract static class Sentencia extends Nodo {
+        @Override Object evaluar(Marco m) { completar(m); return null; }
+        @Override void ejecutar(Marco m) { completar(m); }
+        @Override abstract int completar(Marco m);
+    }
+
+    // ===== Programa y bloques =====
+
+    static final class Programa extends Sentencia {
+        final Nodo[] declaraciones;
+        final int ranuras;
+        final int funciones; // nombres de función distintos (ver Llamada.indice)
+
+        // Código de la máquina virtual (opción -vm), generado en la primera
+        // ejecución que lo necesita y compartido por las siguientes
+        private transient volatile Bytecode.Programa bytecode;
+
+        Programa(Nodo[] declaraciones, int ranuras, int funciones) {
+            this.declaraciones = declaraciones;
+            this.ranuras = ranuras;
+            this.funciones = funciones;
+        }
+
+        // Dos hilos pueden generarlo a la vez: los dos resultados son equivalentes
+        Bytecode.Programa bytecode() {
+            Bytecode.Programa codigo = bytecode;
+            if (codigo == null) {
+                codigo = new CompiladorBytecode().compilar(this);
+                bytecode = codigo;
+            }
+            return codigo;
+        }
+
+        @Override
+        int completar(Marco m) {
+            for (Nodo decl : declaraciones) {
+                if (decl.completar(m) == RETORNAR) break;
+            }
+            return NORMAL;
+        }
+    }
+
+    static final class Bloque extends Sentencia {
+        final Nodo[] declaraciones;
+
+        Bloque(Nodo[] declaraciones) {
+            this.declaraciones = declaraciones;
+        }
+
+        // Las variables del bloque ya tienen ranura en el marco: entrar al bloque no reserva nada
+        @Override
+        int completar(Marco m) {
+            for (Nodo decl : declaraciones) {
+                int terminacion = decl.completar(m);
+                if (terminacion != NORMAL) return terminacion;
+            }
+            return NORMAL;
+        }
+    }
+
+    // ===== Declaraciones =====
+
+    // Declaración que necesita marcar el estado de su ranura: sin valor inicial,
+    // o global con valor primitivo (las funciones consultan ese estado).
+    // Una declaración local con valor inicial se compila directamente como asignación.
+    static final class DeclaracionVariable extends Nodo {
+        final int ranura;
+        final Nodo asignacion;
+        final boolean primitiva;
+
+        DeclaracionVariable(int ranura, Nodo asignacion, boolean primitiva) {
+            this.ranura = ranura;
+            this.asignacion = asignacion;
+            this.primitiva = primitiva;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            if (asignacion == null) {
+                m.valores[ranura] = Marco.SIN_INICIALIZAR;
+            } else {
+                asignacion.ejecutar(m);
+                if (primitiva) m.valores[ranura] = null;
+            }
+            return null;
+        }
+    }
+
+    static final class DeclaracionFuncion extends Nodo {
+        final EvaluadorSemantico.Funcion funcion;
+
+        DeclaracionFuncion(EvaluadorSemantico.Funcion funcion) {
+            this.funcion = funcion;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            m.ev.declararFuncion(funcion);
+            return null;
+        }
+    }
+
+    // ===== Sentencias =====
+
+    static final class Si extends Sentencia {
+        final Nodo condicion;
+        final Nodo entonces;
+        final Nodo sino;
+
+        Si(Nodo condicion, Nodo entonces, Nodo sino) {
+            this.condicion = condicion;
+            this.entonces = entonces;
+            this.sino = sino;
+        }
+
+        @Override
+        int completar(Marco m) {
+            if (condicion.evaluarBooleano(m)) {
+                return entonces.completar(m);
+            } else if (sino != null) {
+                return sino.completar(m);
+            }
+
+            return NORMAL;
+        }
+    }
+
+    static final class Para extends Sentencia {
+        final Nodo inicializacion;
+        final Nodo condicion;
+        final Nodo incremento;
+        final Nodo cuerpo;
+
+        Para(Nodo inicializacion, Nodo condicion, Nodo incremento, Nodo cuerpo) {
+            this.inicializacion = inicializacion;
+            this.condicion = condicion;
+            this.incremento = incremento;
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        int completar(Marco m) {
+            inicializacion.ejecutar(m);
+
+            Limites limites = m.ev.limites;
+            while (condicion.evaluarBooleano(m)) {
+                if (limites != null) limites.paso();
+                int terminacion = cuerpo.completar(m);
+
+                if (terminacion == ROMPER) break;
+                if (terminacion == RETORNAR) return RETORNAR;
+
+                incremento.ejecutar(m);
+            }
+
+            return NORMAL;
+        }
+    }
+
+    static final class Mientras extends Sentencia {
+        final Nodo condicion;
+        final Nodo cuerpo;
+
+        Mientras(Nodo condicion, Nodo cuerpo) {
+            this.condicion = condicion;
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        int completar(Marco m) {
+            Limites limites = m.ev.limites;
+            while (condicion.evaluarBooleano(m)) {
+                if (limites != null) limites.paso();
+                int terminacion = cuerpo.completar(m);
+
+                if (terminacion == ROMPER) break;
+                if (terminacion == RETORNAR) return RETORNAR;
+            }
+
+            return NORMAL;
+        }
+    }
+
+    // Un valor primitivo se retorna sin caja (ver Marco.retornoPrimitivo)
+    static final class Retornar extends Sentencia {
+        final Nodo valor;
+        final Tipo tipo;
+
+        Retornar(Nodo valor) {
+            this.valor = valor;
+            this.tipo = valor != null ? valor.tipo() : Tipo.DINAMICO;
+        }
+
+        @Override
+        int completar(Marco m) {
+            switch (tipo) {
+                case ENTERO: m.retornoPrimitivo = valor.evaluarEntero(m); break;
+                case LARGO: m.retornoPrimitivo = valor.evaluarLargo(m); break;
+                case DECIMAL: m.retornoPrimitivo = Double.doubleToRawLongBits(valor.evaluarDecimal(m)); break;
+                case BOOLEANO: m.retornoPrimitivo = valor.evaluarBooleano(m) ? 1 : 0; break;
+                default:
+                    m.retorno = valor != null ? valor.evaluar(m) : null;
+                    return RETORNAR;
+            }
+            m.tipoRetornado = tipo;
+            m.retorno = Marco.RETORNO_PRIMITIVO;
+            return RETORNAR;
+        }
+    }
+
+    // 'retornar f(...)' dentro de una función: la llamada no se hace aquí sino que
+    // sus argumentos quedan en el marco siguiente al actual, y
+    // EvaluadorSemantico.ejecutarFuncion la hace después de soltar el marco actual.
+    // Así una recursión de cola no acumula niveles de la pila de Java.
+    static final class RetornarLlamada extends Sentencia {
+        final Llamada llamada;
+
+        RetornarLlamada(Llamada llamada) {
+            this.llamada = llamada;
+        }
+
+        @Override
+        int completar(Marco m) {
+            EvaluadorSemantico.Funcion funcion = llamada.buscar(m);
+            llamada.pasar(funcion, m);
+            m.enCola = funcion;
+            m.retorno = Marco.LLAMADA_EN_COLA;
+            return RETORNAR;
+        }
+    }
+
+    static final class Imprimir extends Nodo {
+        final Nodo valor;
+
+        Imprimir(Nodo valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            m.ev.salida.imprimir(EvaluadorSemantico.convertirAString(valor.evaluar(m)));
+            return null;
+        }
+    }
+
+    static final class Romper extends Sentencia {
+        @Override
+        int completar(Marco m) {
+            return ROMPER;
+        }
+    }
+
+    static final class Continuar extends Sentencia {
+        @Override
+        int completar(Marco m) {
+            return CONTINUAR;
+        }
+    }
+
+    // ===== Expresiones =====
+
+    // Literal de cadena, o de cualquier tipo cuando no hace falta evaluarlo sin caja
+    static final class Literal extends Nodo {
+        final Object valor;
+
+        Literal(Object valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        Tipo tipo() {
+            return valor instanceof String ? Tipo.CADENA : Tipo.DINAMICO;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            return valor;
+        }
+    }
+
+    // Lectura de una variable que puede no tener valor todavía: declarada sin
+    // valor inicial, o global leída desde una función. Las demás lecturas usan
+    // los nodos especializados de NodosTipados, sin comprobaciones.
+    static final class LeerVerificado extends Nodo {
+        final String nombre;
+        final Tipo tipoVariable;
+        final int ranura;
+        final boolean global;
+
+        LeerVerificado(String nombre, Tipo tipoVariable, int ranura, boolean global) {
+            this.nombre = nombre;
+            this.tipoVariable = tipoVariable;
+            this.ranura = ranura;
+            this.global = global;
+        }
+
+        @Override
+        Tipo tipo() {
+            return tipoVariable;
+        }
+
+        private Marco marco(Marco m) {
+            Marco marco = global ? m.global : m;
+            Object estado = marco.valores[ranura];
+            if (estado == Marco.SIN_DECLARAR) {
+                throw new RuntimeException("Variable '" + nombre + "' no está declarada");
+            }
+            if (estado == Marco.SIN_INICIALIZAR) {
+                throw new RuntimeException("Variable '" + nombre + "' no está inicializada");
+            }
+            return marco;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            return marco(m).cargar(ranura, tipoVariable);
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            return (int) marco(m).primitivos[ranura];
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            return marco(m).primitivos[ranura];
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            return Double.longBitsToDouble(marco(m).primitivos[ranura]);
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return marco(m).primitivos[ranura] != 0;
+        }
+    }
+
+    // Asignación a una variable cuyo estado hay que consultar o actualizar
+    // (mismos casos que LeerVerificado). El valor llega ya convertido al tipo.
+    static final class AsignarVerificado extends Nodo {
+        final String nombre;
+        final Tipo tipoVariable;
+        final int ranura;
+        final boolean global;
+        final Nodo valor;
+
+        AsignarVerificado(String nombre, Tipo tipoVariable, int ranura, boolean global, Nodo valor) {
+            this.nombre = nombre;
+            this.tipoVariable = tipoVariable;
+            this.ranura = ranura;
+            this.global = global;
+            this.valor = valor;
+        }
+
+        @Override
+        Tipo tipo() {
+            return tipoVariable;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object resultado = valor.evaluar(m);
+
+            Marco marco = global ? m.global : m;
+            if (marco.valores[ranura] == Marco.SIN_DECLARAR) {
+                throw new RuntimeException("Variable '" + nombre + "' no está declarada");
+            }
+
+            marco.guardar(ranura, tipoVariable, resultado);
+            return resultado;
+        }
+    }
+
+    // Conversión de un valor cuyo tipo no se conoce en compilación (o no coincide)
+    // al tipo declarado de una variable o parámetro, con la verificación de tipos.
+    static final class ConvertirDinamico extends Nodo {
+        final Nodo valor;
+        final Tipo destino;
+        final String error; // mensaje; %s recibe el tipo encontrado
+
+        ConvertirDinamico(Nodo valor, Tipo destino, String error) {
+            this.valor = valor;
+            this.destino = destino;
+            this.error = error;
+        }
+
+        @Override
+        Tipo tipo() {
+            return destino;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object resultado = destino.convertir(valor.evaluar(m));
+
+            // Un valor nulo sólo puede guardarse en una cadena
+            if ((resultado == null && destino.esPrimitivo())
+                    || !destino.admite(resultado)) {
+                throw new RuntimeException(String.format(error, EvaluadorSemantico.obtenerTipo(resultado)));
+            }
+            return resultado;
+        }
+    }
+
+    // Condición de 'si', 'para' o 'mientras' cuyo tipo no es booleano en compilación
+    static final class Condicion extends NodoBooleano {
+        final Nodo valor;
+        final boolean estricta; // el 'si' exige un booleano; los bucles terminan
+
+        Condicion(Nodo valor, boolean estricta) {
+            this.valor = valor;
+            this.estricta = estricta;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            Object resultado = valor.evaluar(m);
+            if (resultado instanceof Boolean) {
+                return (Boolean) resultado;
+            }
+            if (estricta) {
+                throw new RuntimeException("La condición del 'si' debe ser booleana");
+            }
+            return false;
+        }
+    }
+
+    static final class O extends Nodo {
+        final Nodo[] operandos;
+
+        O(Nodo[] operandos) {
+            this.operandos = operandos;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object izquierda = operandos[0].evaluar(m);
+
+            for (int i = 1; i < operandos.length; i++) {
+                if (!(izquierda instanceof Boolean)) {
+                    throw new RuntimeException("Operador 'o' requiere operandos booleanos");
+                }
+
+                if ((Boolean) izquierda) {
+                    return true; // Short-circuit evaluation
+                }
+
+                Object derecha = operandos[i].evaluar(m);
+                if (!(derecha instanceof Boolean)) {
+                    throw new RuntimeException("Operador 'o' requiere operandos booleanos");
+                }
+
+                izquierda = derecha;
+            }
+
+            return izquierda;
+        }
+    }
+
+    static final class Y extends Nodo {
+        final Nodo[] operandos;
+
+        Y(Nodo[] operandos) {
+            this.operandos = operandos;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object izquierda = operandos[0].evaluar(m);
+
+            for (int i = 1; i < operandos.length; i++) {
+                if (!(izquierda instanceof Boolean)) {
+                    throw new RuntimeException("Operador 'y' requiere operandos booleanos");
+                }
+
+                if (!(Boolean) izquierda) {
+                    return false; // Short-circuit evaluation
+                }
+
+                Object derecha = operandos[i].evaluar(m);
+                if (!(derecha instanceof Boolean)) {
+                    throw new RuntimeException("Operador 'y' requiere operandos booleanos");
+                }
+
+                izquierda = derecha;
+            }
+
+            return izquierda;
+        }
+    }
+
+    static final class Igualdad extends Nodo {
+        final boolean negada;
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        Igualdad(boolean negada, Nodo izquierda, Nodo derecha) {
+            this.negada = negada;
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object a = izquierda.evaluar(m);
+            Object b = derecha.evaluar(m);
+            return EvaluadorSemantico.esIgual(a, b) != negada;
+        }
+    }
+
+    static final class Relacional extends Nodo {
+        final int operador;
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        Relacional(int operador, Nodo izquierda, Nodo derecha) {
+            this.operador = operador;
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object a = izquierda.evaluar(m);
+            Object b = derecha.evaluar(m);
+            return EvaluadorSemantico.aplicarOperadorRelacional(operador, a, b);
+        }
+    }
+
+    static final class Aritmetica extends Nodo {
+        final int operador;
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        Aritmetica(int operador, Nodo izquierda, Nodo derecha) {
+            this.operador = operador;
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object a = izquierda.evaluar(m);
+            Object b = derecha.evaluar(m);
+            Object resultado = EvaluadorSemantico.aplicarOperadorAritmetico(operador, a, b);
+            // Sin marco al plegar constantes (ver Optimizador): no hay ejecución que limitar
+            Limites limites = m != null ? m.ev.limites : null;
+            if (limites != null && resultado instanceof String) {
+                limites.cadena(((String) resultado).length(), ((String) resultado).length());
+            }
+            return resultado;
+        }
+    }
+
+    static final class No extends Nodo {
+        final Nodo operando;
+
+        No(Nodo operando) {
+            this.operando = operando;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object valor = operando.evaluar(m);
+            if (!(valor instanceof Boolean)) {
+                throw new RuntimeException("Operador 'no' requiere operando booleano");
+            }
+            return !(Boolean) valor;
+        }
+    }
+
+    static final class Negativo extends Nodo {
+        final Nodo operando;
+
+        Negativo(Nodo operando) {
+            this.operando = operando;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object valor = operando.evaluar(m);
+            if (valor instanceof Integer) {
+                return -(Integer) valor;
+            } else if (valor instanceof Double) {
+                return -(Double) valor;
+            } else if (valor instanceof Long) {
+                return -(Long) valor;
+            } else {
+                throw new RuntimeException("Operador '-' requiere operando numérico");
+            }
+        }
+    }
+
+    static final class Positivo extends Nodo {
+        final Nodo operando;
+
+        Positivo(Nodo operando) {
+            this.operando = operando;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object valor = operando.evaluar(m);
+            if (EvaluadorSemantico.esNumerico(valor)) {
+                return valor;
+            }
+            throw new RuntimeException("Operador '+' requiere operando numérico");
+        }
+    }
+
+    // La función se busca por su índice en EvaluadorSemantico.declaradas, y los
+    // argumentos se evalúan directamente en las ranuras de los parámetros de un
+    // marco reutilizado: un argumento que ya tiene el tipo del parámetro no pasa
+    // por una caja ni por Tipo.convertir.
+    static final class Llamada extends Nodo {
+        final String nombre;
+        final int indice;
+        final Nodo[] argumentos;
+        final Tipo tipoRetorno;
+
+        Llamada(String nombre, int indice, Nodo[] argumentos, Tipo tipoRetorno) {
+            this.nombre = nombre;
+            this.indice = indice;
+            this.argumentos = argumentos;
+            this.tipoRetorno = tipoRetorno;
+        }
+
+        @Override
+        Tipo tipo() {
+            return tipoRetorno;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            return llamar(m).retornado();
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            Marco marco = llamar(m);
+            return sinCaja(marco, Tipo.ENTERO) ? (int) marco.retornoPrimitivo : (Integer) marco.retornado();
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            Marco marco = llamar(m);
+            return sinCaja(marco, Tipo.LARGO) ? marco.retornoPrimitivo : (Long) marco.retornado();
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            Marco marco = llamar(m);
+            return sinCaja(marco, Tipo.DECIMAL) ? Double.longBitsToDouble(marco.retornoPrimitivo) : (Double) marco.retornado();
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            Marco marco = llamar(m);
+            return sinCaja(marco, Tipo.BOOLEANO) ? marco.retornoPrimitivo != 0 : (Boolean) marco.retornado();
+        }
+
+        private static boolean sinCaja(Marco marco, Tipo tipo) {
+            return marco.retorno == Marco.RETORNO_PRIMITIVO && marco.tipoRetornado == tipo;
+        }
+
+        // Marco donde quedó el resultado; se lee antes de la próxima llamada
+        private Marco llamar(Marco m) {
+            EvaluadorSemantico ev = m.ev;
+            EvaluadorSemantico.Funcion funcion = buscar(m);
+            int tope = ev.tope;
+            try {
+                return ev.ejecutarFuncion(funcion, pasar(funcion, m));
+            } finally {
+                ev.tope = tope;
+            }
+        }
+
+        EvaluadorSemantico.Funcion buscar(Marco m) {
+            EvaluadorSemantico.Funcion funcion = m.ev.declaradas[indice];
+
+            if (funcion == null) {
+                throw new RuntimeException("Función '" + nombre + "' no está declarada");
+            }
+            return funcion;
+        }
+
+        // Abre el marco de la llamada con los argumentos en las ranuras de los parámetros
+        Marco pasar(EvaluadorSemantico.Funcion funcion, Marco m) {
+            Tipo[] tipos = funcion.tipos;
+            if (argumentos.length != tipos.length) {
+                for (Nodo argumento : argumentos) {
+                    argumento.evaluar(m);
+                }
+                throw new RuntimeException("Número incorrecto de argumentos para función '" + nombre + "'");
+            }
+
+            Marco marco = m.ev.abrirMarco(m.global, funcion.ranuras);
+            boolean convertir = false;
+            for (int i = 0; i < argumentos.length; i++) {
+                Nodo argumento = argumentos[i];
+                if (argumento.tipo() != tipos[i]) {
+                    // Se convierte cuando estén todos evaluados, como en la máquina virtual
+                    marco.valores[i] = argumento.evaluar(m);
+                    convertir = true;
+                    continue;
+                }
+                switch (tipos[i]) {
+                    case ENTERO: marco.primitivos[i] = argumento.evaluarEntero(m); break;
+                    case LARGO: marco.primitivos[i] = argumento.evaluarLargo(m); break;
+                    case DECIMAL: marco.primitivos[i] = Double.doubleToRawLongBits(argumento.evaluarDecimal(m)); break;
+                    case BOOLEANO: marco.primitivos[i] = argumento.evaluarBooleano(m) ? 1 : 0; break;
+                    default: marco.valores[i] = argumento.evaluar(m); break;
+                }
+            }
+
+            if (convertir) {
+                for (int i = 0; i < argumentos.length; i++) {
+                    if (argumentos[i].tipo() == tipos[i]) continue;
+                    Object argumento = tipos[i].convertir(marco.valores[i]);
+                    if ((argumento == null && tipos[i].esPrimitivo()) || !tipos[i].admite(argumento)) {
+                        throw new RuntimeException("Argumento " + (i + 1) + " de función '" + nombre + "' tiene tipo incorrecto");
+                    }
+                    marco.guardar(i, tipos[i], argumento);
+                }
+            }
+            return marco;
+        }
+    }
+
+    static final class Leer extends NodoCadena {
+        @Override
+        Object evaluar(Marco m) {
+            return m.ev.leer();
+        }
+    }
+}
@@ -0,0 +1,406 @@
+import java.util.*;
+
+// Nodos de los arreglos (entero[], largo[], decimal[]). Un arreglo es un int[],
+// long[] o double[] de Java guardado en Marco.valores, como una cadena: los
+// elementos no pasan por cajas ni por listas de Object. Cada acceso por índice
+// se verifica contra el tamaño del arreglo, y las funciones del lenguaje sobre
+// arreglos completos (tamano, llenar, copiar, suma) son bucles sobre el arreglo
+// primitivo.
+//
+// Los ayudantes estáticos los usa también la máquina virtual, para que los
+// errores sean los mismos.
+final class NodosArreglos {
+
+    // Funciones sobre arreglos; una función del programa con el mismo nombre las oculta
+    static final Set<String> FUNCIONES = new HashSet<>(Arrays.asList("tamano", "llenar", "copiar", "suma"));
+
+    private NodosArreglos() {
+    }
+
+    // ===== Variables =====
+
+    static final class LeerArreglo extends Nodo {
+        final Tipo tipoArreglo;
+        final int ranura;
+
+        LeerArreglo(Tipo tipoArreglo, int ranura) {
+            this.tipoArreglo = tipoArreglo;
+            this.ranura = ranura;
+        }
+
+        @Override
+        Tipo tipo() {
+            return tipoArreglo;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            return m.valores[ranura];
+        }
+    }
+
+    static final class AsignarArreglo extends Nodo {
+        final Tipo tipoArreglo;
+        final int ranura;
+        final Nodo valor;
+
+        AsignarArreglo(Tipo tipoArreglo, int ranura, Nodo valor) {
+            this.tipoArreglo = tipoArreglo;
+            this.ranura = ranura;
+            this.valor = valor;
+        }
+
+        @Override
+        Tipo tipo() {
+            return tipoArreglo;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object resultado = valor.evaluar(m);
+            m.valores[ranura] = resultado;
+            return resultado;
+        }
+    }
+
+    // 'entero[n]': arreglo nuevo con sus elementos en cero
+    static final class Crear extends Nodo {
+        final Tipo tipoArreglo;
+        final Nodo tamano;
+
+        Crear(Tipo tipoArreglo, Nodo tamano) {
+            this.tipoArreglo = tipoArreglo;
+            this.tamano = tamano;
+        }
+
+        @Override
+        Tipo tipo() {
+            return tipoArreglo;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            int cantidad = tamano.evaluarEntero(m);
+            Limites limites = m.ev.limites;
+            if (limites != null) limites.arreglo(tipoArreglo, cantidad);
+            return crear(tipoArreglo, cantidad);
+        }
+    }
+
+    // ===== Lectura de elementos =====
+
+    static final class ElementoEntero extends Nodo.NodoEntero {
+        final Nodo arreglo;
+        final Nodo indice;
+
+        ElementoEntero(Nodo arreglo, Nodo indice) {
+            this.arreglo = arreglo;
+            this.indice = indice;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            int[] a = (int[]) arreglo.evaluar(m);
+            int i = indice.evaluarEntero(m);
+            return a[verificar(i, a.length)];
+        }
+    }
+
+    static final class ElementoLargo extends Nodo.NodoLargo {
+        final Nodo arreglo;
+        final Nodo indice;
+
+        ElementoLargo(Nodo arreglo, Nodo indice) {
+            this.arreglo = arreglo;
+            this.indice = indice;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            long[] a = (long[]) arreglo.evaluar(m);
+            int i = indice.evaluarEntero(m);
+            return a[verificar(i, a.length)];
+        }
+    }
+
+    static final class ElementoDecimal extends Nodo.NodoDecimal {
+        final Nodo arreglo;
+        final Nodo indice;
+
+        ElementoDecimal(Nodo arreglo, Nodo indice) {
+            this.arreglo = arreglo;
+            this.indice = indice;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            double[] a = (double[]) arreglo.evaluar(m);
+            int i = indice.evaluarEntero(m);
+            return a[verificar(i, a.length)];
+        }
+    }
+
+    // ===== Asignación de elementos (el valor ya viene convertido) =====
+
+    static final class AsignarElementoEntero extends Nodo.NodoEntero {
+        final Nodo arreglo;
+        final Nodo indice;
+        final Nodo valor;
+
+        AsignarElementoEntero(Nodo arreglo, Nodo indice, Nodo valor) {
+            this.arreglo = arreglo;
+            this.indice = indice;
+            this.valor = valor;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            int[] a = (int[]) arreglo.evaluar(m);
+            int i = indice.evaluarEntero(m);
+            int resultado = valor.evaluarEntero(m);
+            a[verificar(i, a.length)] = resultado;
+            return resultado;
+        }
+    }
+
+    static final class AsignarElementoLargo extends Nodo.NodoLargo {
+        final Nodo arreglo;
+        final Nodo indice;
+        final Nodo valor;
+
+        AsignarElementoLargo(Nodo arreglo, Nodo indice, Nodo valor) {
+            this.arreglo = arreglo;
+            this.indice = indice;
+            this.valor = valor;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            long[] a = (long[]) arreglo.evaluar(m);
+            int i = indice.evaluarEntero(m);
+            long resultado = valor.evaluarLargo(m);
+            a[verificar(i, a.length)] = resultado;
+            return resultado;
+        }
+    }
+
+    static final class AsignarElementoDecimal extends Nodo.NodoDecimal {
+        final Nodo arreglo;
+        final Nodo indice;
+        final Nodo valor;
+
+        AsignarElementoDecimal(Nodo arreglo, Nodo indice, Nodo valor) {
+            this.arreglo = arreglo;
+            this.indice = indice;
+            this.valor = valor;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            double[] a = (double[]) arreglo.evaluar(m);
+            int i = indice.evaluarEntero(m);
+            double resultado = valor.evaluarDecimal(m);
+            a[verificar(i, a.length)] = resultado;
+            return resultado;
+        }
+    }
+
+    // ===== Funciones sobre arreglos completos =====
+
+    static final class Tamano extends Nodo.NodoEntero {
+        final Nodo arreglo;
+
+        Tamano(Nodo arreglo) {
+            this.arreglo = arreglo;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            return tamano(arreglo.evaluar(m));
+        }
+    }
+
+    // 'llenar(a, x)': todos los elementos pasan a valer x; el resultado es el arreglo
+    static final class Llenar extends Nodo {
+        final Nodo arreglo;
+        final Nodo valor;
+
+        Llenar(Nodo arreglo, Nodo valor) {
+            this.arreglo = arreglo;
+            this.valor = valor;
+        }
+
+        @Override
+        Tipo tipo() {
+            return arreglo.tipo();
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object a = arreglo.evaluar(m);
+            switch (arreglo.tipo()) {
+                case ARREGLO_ENTERO: Arrays.fill((int[]) a, valor.evaluarEntero(m)); break;
+                case ARREGLO_LARGO: Arrays.fill((long[]) a, valor.evaluarLargo(m)); break;
+                default: Arrays.fill((double[]) a, valor.evaluarDecimal(m)); break;
+            }
+            return a;
+        }
+    }
+
+    // 'copiar(origen, destino)': los elementos de origen pasan al comienzo de
+    // destino, del mismo tipo; el resultado es destino
+    static final class Copiar extends Nodo {
+        final Nodo origen;
+        final Nodo destino;
+
+        Copiar(Nodo origen, Nodo destino) {
+            this.origen = origen;
+            this.destino = destino;
+        }
+
+        @Override
+        Tipo tipo() {
+            return destino.tipo();
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object a = origen.evaluar(m);
+            return copiar(a, destino.evaluar(m));
+        }
+    }
+
+    static final class SumaEntero extends Nodo.NodoEntero {
+        final Nodo arreglo;
+
+        SumaEntero(Nodo arreglo) {
+            this.arreglo = arreglo;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            return sumar((int[]) arreglo.evaluar(m));
+        }
+    }
+
+    static final class SumaLargo extends Nodo.NodoLargo {
+        final Nodo arreglo;
+
+        SumaLargo(Nodo arreglo) {
+            this.arreglo = arreglo;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            return sumar((long[]) arreglo.evaluar(m));
+        }
+    }
+
+    static final class SumaDecimal extends Nodo.NodoDecimal {
+        final Nodo arreglo;
+
+        SumaDecimal(Nodo arreglo) {
+            this.arreglo = arreglo;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            return sumar((double[]) arreglo.evaluar(m));
+        }
+    }
+
+    // ===== Ayudantes (también de la máquina virtual) =====
+
+    static Object crear(Tipo tipoArreglo, int tamano) {
+        if (tamano < 0) {
+            throw new RuntimeException("Tamaño de arreglo negativo: " + tamano);
+        }
+        // Sin -limite-memoria nada acota el tamaño: si la JVM no tiene lugar es un
+        // error del programa, no del intérprete
+        try {
+            switch (tipoArreglo) {
+                case ARREGLO_ENTERO: return new int[tamano];
+                case ARREGLO_LARGO: return new long[tamano];
+                default: return new double[tamano];
+            }
+        } catch (OutOfMemoryError e) {
+            throw new RuntimeException("Arreglo demasiado grande: " + tamano + " elementos de tipo " + tipoArreglo.nombre);
+        }
+    }
+
+    // El índice, si está dentro del arreglo
+    static int verificar(int indice, int tamano) {
+        if (indice < 0 || indice >= tamano) {
+            throw new RuntimeException("Índice " + indice + " fuera del arreglo de tamaño " + tamano);
+        }
+        return indice;
+    }
+
+    static int tamano(Object arreglo) {
+        if (arreglo instanceof int[]) return ((int[]) arreglo).length;
+        if (arreglo instanceof long[]) return ((long[]) arreglo).length;
+        return ((double[]) arreglo).length;
+    }
+
+    // Los dos arreglos son del mismo tipo
+    static Object copiar(Object origen, Object destino) {
+        int cantidad = tamano(origen);
+        if (cantidad > tamano(destino)) {
+            throw new RuntimeException("No se pueden copiar " + cantidad
+                + " elementos en un arreglo de tamaño " + tamano(destino));
+        }
+        System.arraycopy(origen, 0, destino, 0, cantidad);
+        return destino;
+    }
+
+    // La suma tiene el tipo de los elementos, como la de '+'
+    static int sumar(int[] a) {
+        int suma = 0;
+        for (int i = 0; i < a.length; i++) {
+            suma += a[i];
+        }
+        return suma;
+    }
+
+    static long sumar(long[] a) {
+        long suma = 0;
+        for (int i = 0; i < a.length; i++) {
+            suma += a[i];
+        }
+        return suma;
+    }
+
+    static double sumar(double[] a) {
+        double suma = 0;
+        for (int i = 0; i < a.length; i++) {
+            suma += a[i];
+        }
+        return suma;
+    }
+
+    // ===== Selección de variantes (usada por el Compilador) =====
+
+    static Nodo elemento(Nodo arreglo, Nodo indice) {
+        switch (arreglo.tipo()) {
+            case ARREGLO_ENTERO: return new ElementoEntero(arreglo, indice);
+            case ARREGLO_LARGO: return new ElementoLargo(arreglo, indice);
+            default: return new ElementoDecimal(arreglo, indice);
+        }
+    }
+
+    static Nodo asignarElemento(Nodo arreglo, Nodo indice, Nodo valor) {
+        switch (arreglo.tipo()) {
+            case ARREGLO_ENTERO: return new AsignarElementoEntero(arreglo, indice, valor);
+            case ARREGLO_LARGO: return new AsignarElementoLargo(arreglo, indice, valor);
+            default: return new AsignarElementoDecimal(arreglo, indice, valor);
+        }
+    }
+
+    static Nodo suma(Nodo arreglo) {
+        switch (arreglo.tipo()) {
+            case ARREGLO_ENTERO: return new SumaEntero(arreglo);
+            case ARREGLO_LARGO: return new SumaLargo(arreglo);
+            default: return new SumaDecimal(arreglo);
+        }
+    }
+}
@@ -0,0 +1,1181 @@
+import java.util.*;
+
+// Variantes de los nodos especializadas por tipo estático. El Compilador las
+// elige cuando los tipos declarados (entero, largo, decimal, booleano) de los
+// operandos se conocen en compilación: cada una trabaja con primitivos a través
+// de evaluarEntero/evaluarLargo/evaluarDecimal/evaluarBooleano, sin cajas ni
+// despacho por instanceof, de modo que los bucles numéricos no reservan memoria.
+final class NodosTipados {
+
+    private NodosTipados() {
+    }
+
+    // ===== Literales =====
+
+    static final class LiteralEntero extends Nodo.NodoEntero {
+        final int valor;
+
+        LiteralEntero(int valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            return valor;
+        }
+    }
+
+    static final class LiteralLargo extends Nodo.NodoLargo {
+        final long valor;
+
+        LiteralLargo(long valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            return valor;
+        }
+    }
+
+    static final class LiteralDecimal extends Nodo.NodoDecimal {
+        final double valor;
+
+        LiteralDecimal(double valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            return valor;
+        }
+    }
+
+    static final class LiteralBooleano extends Nodo.NodoBooleano {
+        final boolean valor;
+
+        LiteralBooleano(boolean valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return valor;
+        }
+    }
+
+    // ===== Lectura de variables locales (siempre inicializadas) =====
+
+    static final class LeerEntero extends Nodo.NodoEntero {
+        final int ranura;
+
+        LeerEntero(int ranura) {
+            this.ranura = ranura;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            return (int) m.primitivos[ranura];
+        }
+    }
+
+    static final class LeerLargo extends Nodo.NodoLargo {
+        final int ranura;
+
+        LeerLargo(int ranura) {
+            this.ranura = ranura;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            return m.primitivos[ranura];
+        }
+    }
+
+    static final class LeerDecimal extends Nodo.NodoDecimal {
+        final int ranura;
+
+        LeerDecimal(int ranura) {
+            this.ranura = ranura;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            return Double.longBitsToDouble(m.primitivos[ranura]);
+        }
+    }
+
+    static final class LeerBooleano extends Nodo.NodoBooleano {
+        final int ranura;
+
+        LeerBooleano(int ranura) {
+            this.ranura = ranura;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return m.primitivos[ranura] != 0;
+        }
+    }
+
+    static final class LeerCadena extends Nodo.NodoCadena {
+        final int ranura;
+
+        LeerCadena(int ranura) {
+            this.ranura = ranura;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            return Cuerda.leer(m.valores[ranura]);
+        }
+    }
+
+    // ===== Asignación a variables locales (el valor ya viene convertido) =====
+
+    static final class AsignarEntero extends Nodo.NodoEntero {
+        final int ranura;
+        final Nodo valor;
+
+        AsignarEntero(int ranura, Nodo valor) {
+            this.ranura = ranura;
+            this.valor = valor;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            int resultado = valor.evaluarEntero(m);
+            m.primitivos[ranura] = resultado;
+            return resultado;
+        }
+    }
+
+    static final class AsignarLargo extends Nodo.NodoLargo {
+        final int ranura;
+        final Nodo valor;
+
+        AsignarLargo(int ranura, Nodo valor) {
+            this.ranura = ranura;
+            this.valor = valor;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            long resultado = valor.evaluarLargo(m);
+            m.primitivos[ranura] = resultado;
+            return resultado;
+        }
+    }
+
+    static final class AsignarDecimal extends Nodo.NodoDecimal {
+        final int ranura;
+        final Nodo valor;
+
+        AsignarDecimal(int ranura, Nodo valor) {
+            this.ranura = ranura;
+            this.valor = valor;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            double resultado = valor.evaluarDecimal(m);
+            m.primitivos[ranura] = Double.doubleToRawLongBits(resultado);
+            return resultado;
+        }
+    }
+
+    static final class AsignarBooleano extends Nodo.NodoBooleano {
+        final int ranura;
+        final Nodo valor;
+
+        AsignarBooleano(int ranura, Nodo valor) {
+            this.ranura = ranura;
+            this.valor = valor;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            boolean resultado = valor.evaluarBooleano(m);
+            m.primitivos[ranura] = resultado ? 1 : 0;
+            return resultado;
+        }
+    }
+
+    static final class AsignarCadena extends Nodo.NodoCadena {
+        final int ranura;
+        final Nodo valor;
+
+        AsignarCadena(int ranura, Nodo valor) {
+            this.ranura = ranura;
+            this.valor = valor;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            Object resultado = valor.evaluar(m);
+            m.valores[ranura] = resultado;
+            return resultado;
+        }
+    }
+
+    // ===== Conversiones numéricas (mismas reglas que Tipo.convertir) =====
+
+    static final class EnteroALargo extends Nodo.NodoLargo {
+        final Nodo valor;
+
+        EnteroALargo(Nodo valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            return valor.evaluarEntero(m);
+        }
+    }
+
+    static final class EnteroADecimal extends Nodo.NodoDecimal {
+        final Nodo valor;
+
+        EnteroADecimal(Nodo valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            return valor.evaluarEntero(m);
+        }
+    }
+
+    static final class LargoADecimal extends Nodo.NodoDecimal {
+        final Nodo valor;
+
+        LargoADecimal(Nodo valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            return valor.evaluarLargo(m);
+        }
+    }
+
+    static final class LargoAEntero extends Nodo.NodoEntero {
+        final Nodo valor;
+
+        LargoAEntero(Nodo valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            long resultado = valor.evaluarLargo(m);
+            if (resultado < Integer.MIN_VALUE || resultado > Integer.MAX_VALUE) {
+                throw new RuntimeException("Valor long fuera del rango de entero: " + resultado);
+            }
+            return (int) resultado;
+        }
+    }
+
+    static final class DecimalAEntero extends Nodo.NodoEntero {
+        final Nodo valor;
+
+        DecimalAEntero(Nodo valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            return (int) valor.evaluarDecimal(m);
+        }
+    }
+
+    static final class DecimalALargo extends Nodo.NodoLargo {
+        final Nodo valor;
+
+        DecimalALargo(Nodo valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            return (long) valor.evaluarDecimal(m);
+        }
+    }
+
+    // ===== Aritmética entera =====
+
+    static final class SumaEntero extends Nodo.NodoEntero {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        SumaEntero(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            int a = izquierda.evaluarEntero(m);
+            int b = derecha.evaluarEntero(m);
+            return a + b;
+        }
+    }
+
+    static final class RestaEntero extends Nodo.NodoEntero {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        RestaEntero(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            int a = izquierda.evaluarEntero(m);
+            int b = derecha.evaluarEntero(m);
+            return a - b;
+        }
+    }
+
+    static final class MultiplicacionEntero extends Nodo.NodoEntero {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        MultiplicacionEntero(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            int a = izquierda.evaluarEntero(m);
+            int b = derecha.evaluarEntero(m);
+            return a * b;
+        }
+    }
+
+    static final class DivisionEntero extends Nodo.NodoEntero {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        DivisionEntero(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            int a = izquierda.evaluarEntero(m);
+            int b = derecha.evaluarEntero(m);
+            if (b == 0) throw new RuntimeException("División por cero");
+            return a / b;
+        }
+    }
+
+    static final class ModuloEntero extends Nodo.NodoEntero {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        ModuloEntero(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            int a = izquierda.evaluarEntero(m);
+            int b = derecha.evaluarEntero(m);
+            if (b == 0) throw new RuntimeException("División por cero en módulo");
+            return a % b;
+        }
+    }
+
+    static final class PotenciaEntero extends Nodo.NodoEntero {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        PotenciaEntero(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            int a = izquierda.evaluarEntero(m);
+            int b = derecha.evaluarEntero(m);
+            return (int) Math.pow(a, b);
+        }
+    }
+
+    static final class NegativoEntero extends Nodo.NodoEntero {
+        final Nodo operando;
+
+        NegativoEntero(Nodo operando) {
+            this.operando = operando;
+        }
+
+        @Override
+        int evaluarEntero(Marco m) {
+            return -operando.evaluarEntero(m);
+        }
+    }
+
+    // ===== Aritmética larga =====
+
+    static final class SumaLargo extends Nodo.NodoLargo {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        SumaLargo(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            long a = izquierda.evaluarLargo(m);
+            long b = derecha.evaluarLargo(m);
+            return a + b;
+        }
+    }
+
+    static final class RestaLargo extends Nodo.NodoLargo {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        RestaLargo(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            long a = izquierda.evaluarLargo(m);
+            long b = derecha.evaluarLargo(m);
+            return a - b;
+        }
+    }
+
+    static final class MultiplicacionLargo extends Nodo.NodoLargo {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        MultiplicacionLargo(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            long a = izquierda.evaluarLargo(m);
+            long b = derecha.evaluarLargo(m);
+            return a * b;
+        }
+    }
+
+    static final class DivisionLargo extends Nodo.NodoLargo {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        DivisionLargo(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            long a = izquierda.evaluarLargo(m);
+            long b = derecha.evaluarLargo(m);
+            if (b == 0) throw new RuntimeException("División por cero");
+            return a / b;
+        }
+    }
+
+    static final class ModuloLargo extends Nodo.NodoLargo {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        ModuloLargo(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            long a = izquierda.evaluarLargo(m);
+            long b = derecha.evaluarLargo(m);
+            if (b == 0) throw new RuntimeException("División por cero en módulo");
+            return a % b;
+        }
+    }
+
+    static final class PotenciaLargo extends Nodo.NodoLargo {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        PotenciaLargo(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            long a = izquierda.evaluarLargo(m);
+            long b = derecha.evaluarLargo(m);
+            return (long) Math.pow(a, b);
+        }
+    }
+
+    static final class NegativoLargo extends Nodo.NodoLargo {
+        final Nodo operando;
+
+        NegativoLargo(Nodo operando) {
+            this.operando = operando;
+        }
+
+        @Override
+        long evaluarLargo(Marco m) {
+            return -operando.evaluarLargo(m);
+        }
+    }
+
+    // ===== Aritmética decimal =====
+
+    static final class SumaDecimal extends Nodo.NodoDecimal {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        SumaDecimal(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            double a = izquierda.evaluarDecimal(m);
+            double b = derecha.evaluarDecimal(m);
+            return a + b;
+        }
+    }
+
+    static final class RestaDecimal extends Nodo.NodoDecimal {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        RestaDecimal(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            double a = izquierda.evaluarDecimal(m);
+            double b = derecha.evaluarDecimal(m);
+            return a - b;
+        }
+    }
+
+    static final class MultiplicacionDecimal extends Nodo.NodoDecimal {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        MultiplicacionDecimal(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            double a = izquierda.evaluarDecimal(m);
+            double b = derecha.evaluarDecimal(m);
+            return a * b;
+        }
+    }
+
+    static final class DivisionDecimal extends Nodo.NodoDecimal {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        DivisionDecimal(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            double a = izquierda.evaluarDecimal(m);
+            double b = derecha.evaluarDecimal(m);
+            if (b == 0) throw new RuntimeException("División por cero");
+            return a / b;
+        }
+    }
+
+    static final class ModuloDecimal extends Nodo.NodoDecimal {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        ModuloDecimal(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            double a = izquierda.evaluarDecimal(m);
+            double b = derecha.evaluarDecimal(m);
+            if (b == 0) throw new RuntimeException("División por cero en módulo");
+            return a % b;
+        }
+    }
+
+    static final class PotenciaDecimal extends Nodo.NodoDecimal {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        PotenciaDecimal(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            double a = izquierda.evaluarDecimal(m);
+            double b = derecha.evaluarDecimal(m);
+            return Math.pow(a, b);
+        }
+    }
+
+    static final class NegativoDecimal extends Nodo.NodoDecimal {
+        final Nodo operando;
+
+        NegativoDecimal(Nodo operando) {
+            this.operando = operando;
+        }
+
+        @Override
+        double evaluarDecimal(Marco m) {
+            return -operando.evaluarDecimal(m);
+        }
+    }
+
+    // ===== Comparaciones (los largos se comparan como decimales, igual que esIgual y aplicarOperadorRelacional) =====
+
+    static final class MenorEntero extends Nodo.NodoBooleano {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        MenorEntero(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return izquierda.evaluarEntero(m) < derecha.evaluarEntero(m);
+        }
+    }
+
+    static final class MenorIgualEntero extends Nodo.NodoBooleano {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        MenorIgualEntero(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return izquierda.evaluarEntero(m) <= derecha.evaluarEntero(m);
+        }
+    }
+
+    static final class MayorEntero extends Nodo.NodoBooleano {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        MayorEntero(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return izquierda.evaluarEntero(m) > derecha.evaluarEntero(m);
+        }
+    }
+
+    static final class MayorIgualEntero extends Nodo.NodoBooleano {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        MayorIgualEntero(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return izquierda.evaluarEntero(m) >= derecha.evaluarEntero(m);
+        }
+    }
+
+    static final class MenorDecimal extends Nodo.NodoBooleano {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        MenorDecimal(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return izquierda.evaluarDecimal(m) < derecha.evaluarDecimal(m);
+        }
+    }
+
+    static final class MenorIgualDecimal extends Nodo.NodoBooleano {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        MenorIgualDecimal(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return izquierda.evaluarDecimal(m) <= derecha.evaluarDecimal(m);
+        }
+    }
+
+    static final class MayorDecimal extends Nodo.NodoBooleano {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        MayorDecimal(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return izquierda.evaluarDecimal(m) > derecha.evaluarDecimal(m);
+        }
+    }
+
+    static final class MayorIgualDecimal extends Nodo.NodoBooleano {
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        MayorIgualDecimal(Nodo izquierda, Nodo derecha) {
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return izquierda.evaluarDecimal(m) >= derecha.evaluarDecimal(m);
+        }
+    }
+
+    static final class IgualEntero extends Nodo.NodoBooleano {
+        final boolean negada;
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        IgualEntero(boolean negada, Nodo izquierda, Nodo derecha) {
+            this.negada = negada;
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            int a = izquierda.evaluarEntero(m);
+            int b = derecha.evaluarEntero(m);
+            return (a == b) != negada;
+        }
+    }
+
+    static final class IgualDecimal extends Nodo.NodoBooleano {
+        final boolean negada;
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        IgualDecimal(boolean negada, Nodo izquierda, Nodo derecha) {
+            this.negada = negada;
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            double a = izquierda.evaluarDecimal(m);
+            double b = derecha.evaluarDecimal(m);
+            return (a == b) != negada;
+        }
+    }
+
+    static final class IgualBooleano extends Nodo.NodoBooleano {
+        final boolean negada;
+        final Nodo izquierda;
+        final Nodo derecha;
+
+        IgualBooleano(boolean negada, Nodo izquierda, Nodo derecha) {
+            this.negada = negada;
+            this.izquierda = izquierda;
+            this.derecha = derecha;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            boolean a = izquierda.evaluarBooleano(m);
+            boolean b = derecha.evaluarBooleano(m);
+            return (a == b) != negada;
+        }
+    }
+
+    // ===== Lógica booleana =====
+
+    static final class OBooleano extends Nodo.NodoBooleano {
+        final Nodo[] operandos;
+
+        OBooleano(Nodo[] operandos) {
+            this.operandos = operandos;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            for (Nodo operando : operandos) {
+                if (operando.evaluarBooleano(m)) return true; // Short-circuit evaluation
+            }
+            return false;
+        }
+    }
+
+    static final class YBooleano extends Nodo.NodoBooleano {
+        final Nodo[] operandos;
+
+        YBooleano(Nodo[] operandos) {
+            this.operandos = operandos;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            for (Nodo operando : operandos) {
+                if (!operando.evaluarBooleano(m)) return false; // Short-circuit evaluation
+            }
+            return true;
+        }
+    }
+
+    static final class NoBooleano extends Nodo.NodoBooleano {
+        final Nodo operando;
+
+        NoBooleano(Nodo operando) {
+            this.operando = operando;
+        }
+
+        @Override
+        boolean evaluarBooleano(Marco m) {
+            return !operando.evaluarBooleano(m);
+        }
+    }
+
+    // ===== Bucles =====
+
+    // 'para' con la forma 'i < N; i = i + k' (o <=, >, >=, y resta) sobre una
+    // variable entera local: la comparación y el incremento se hacen directamente
+    // sobre la ranura, sin pasar por los nodos de la condición y del incremento.
+    // Si el límite es invariante en el bucle se evalúa una sola vez.
+    //
+    // 'equivalente' es el Nodo.Para original, que ejecutan la máquina virtual y el JIT.
+    static final class ParaContado extends Nodo.Sentencia {
+        final Nodo inicializacion;
+        final int ranura;
+        final int operador; // OP_MENOR, OP_MENOR_IGUAL, OP_MAYOR u OP_MAYOR_IGUAL
+        final Nodo limite;
+        final boolean limiteFijo;
+        final int paso;
+        final Nodo cuerpo;
+        final Nodo.Para equivalente;
+
+        ParaContado(Nodo inicializacion, int ranura, int operador, Nodo limite, boolean limiteFijo,
+                    int paso, Nodo cuerpo, Nodo.Para equivalente) {
+            this.inicializacion = inicializacion;
+            this.ranura = ranura;
+            this.operador = operador;
+            this.limite = limite;
+            this.limiteFijo = limiteFijo;
+            this.paso = paso;
+            this.cuerpo = cuerpo;
+            this.equivalente = equivalente;
+        }
+
+        @Override
+        int completar(Marco m) {
+            inicializacion.ejecutar(m);
+            long[] p = m.primitivos;
+            Limites limites = m.ev.limites;
+
+            // La variable se lee de la ranura en cada vuelta: el cuerpo puede cambiarla
+            int fin = 0;
+            boolean primera = true;
+            while (true) {
+                int i = (int) p[ranura];
+                if (primera || !limiteFijo) {
+                    fin = limite.evaluarEntero(m);
+                    primera = false;
+                }
+                if (!continua(i, fin)) break;
+                if (limites != null) limites.paso();
+
+                int terminacion = cuerpo.completar(m);
+                if (terminacion == ROMPER) break;
+                if (terminacion == RETORNAR) return RETORNAR;
+
+                p[ranura] = (int) p[ranura] + paso;
+            }
+            return NORMAL;
+        }
+
+        private boolean continua(int i, int fin) {
+            switch (operador) {
+                case EvaluadorSemantico.OP_MENOR: return i < fin;
+                case EvaluadorSemantico.OP_MENOR_IGUAL: return i <= fin;
+                case EvaluadorSemantico.OP_MAYOR: return i > fin;
+                default: return i >= fin;
+            }
+        }
+    }
+
+    // ===== Cadenas =====
+
+    // Cadena de '+' con al menos un operando cadena: 'a + b + c' es un único nodo
+    // con tres partes que se agregan a un solo StringBuilder (ver concatenar)
+    static final class Concatenar extends Nodo.NodoCadena {
+        final Nodo[] partes;
+
+        Concatenar(Nodo[] partes) {
+            this.partes = partes;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            StringBuilder texto = new StringBuilder();
+            for (Nodo parte : partes) {
+                agregar(texto, parte, m);
+            }
+            // Sin marco al plegar constantes (ver Optimizador): no hay ejecución que limitar
+            Limites limites = m != null ? m.ev.limites : null;
+            if (limites != null) limites.cadena(texto.length(), texto.length());
+            return texto.toString();
+        }
+
+        // Los valores de tipo conocido se agregan sin caja; el texto es el mismo que da convertirAString
+        static void agregar(StringBuilder texto, Nodo parte, Marco m) {
+            switch (parte.tipo()) {
+                case ENTERO: texto.append(parte.evaluarEntero(m)); break;
+                case LARGO: texto.append(parte.evaluarLargo(m)); break;
+                case DECIMAL: texto.append(parte.evaluarDecimal(m)); break;
+                case BOOLEANO: texto.append(parte.evaluarBooleano(m) ? "verdadero" : "falso"); break;
+                default: texto.append(EvaluadorSemantico.convertirAString(parte.evaluar(m))); break;
+            }
+        }
+    }
+
+    // 's = s + a + b' sobre una variable cadena: agrega al final del valor de la
+    // variable, que pasa a guardarse como Cuerda. Un bucle que acumula texto en
+    // una variable deja de copiar todo lo acumulado en cada vuelta.
+    //
+    // El resultado es el mismo que el de 'equivalente' (la asignación con
+    // Concatenar), que es lo que ejecutan la máquina virtual y el JIT.
+    static final class AcumularCadena extends Nodo.NodoCadena {
+        final String nombre;
+        final int ranura;
+        final boolean global;
+        final boolean verificar; // mismas comprobaciones que LeerVerificado/AsignarVerificado
+        final Nodo[] agregados;  // las partes que siguen a la variable
+        final Nodo equivalente;
+
+        AcumularCadena(String nombre, int ranura, boolean global, boolean verificar, Nodo[] agregados, Nodo equivalente) {
+            this.nombre = nombre;
+            this.ranura = ranura;
+            this.global = global;
+            this.verificar = verificar;
+            this.agregados = agregados;
+            this.equivalente = equivalente;
+        }
+
+        @Override
+        Object evaluar(Marco m) {
+            return acumular(m).toString();
+        }
+
+        // Como sentencia no hace falta armar el String
+        @Override
+        void ejecutar(Marco m) {
+            acumular(m);
+        }
+
+        @Override
+        int completar(Marco m) {
+            acumular(m);
+            return NORMAL;
+        }
+
+        private Object acumular(Marco m) {
+            Marco marco = global ? m.global : m;
+            Object actual = marco.valores[ranura];
+            if (verificar) {
+                if (actual == Marco.SIN_DECLARAR) {
+                    throw new RuntimeException("Variable '" + nombre + "' no está declarada");
+                }
+                if (actual == Marco.SIN_INICIALIZAR) {
+                    throw new RuntimeException("Variable '" + nombre + "' no está inicializada");
+                }
+            }
+            int largo = Cuerda.largo(actual);
+
+            // Las partes se evalúan antes de tocar la variable: pueden leerla o asignarla
+            String agregado;
+            if (agregados.length == 1) {
+                agregado = EvaluadorSemantico.convertirAString(agregados[0].evaluar(m));
+            } else {
+                StringBuilder texto = new StringBuilder();
+                for (Nodo parte : agregados) {
+                    Concatenar.agregar(texto, parte, m);
+                }
+                agregado = texto.toString();
+            }
+
+            if (verificar && marco.valores[ranura] == Marco.SIN_DECLARAR) {
+                throw new RuntimeException("Variable '" + nombre + "' no está declarada");
+            }
+
+            Object nuevo = Cuerda.acumular(actual, largo, marco.valores[ranura], agregado);
+            Limites limites = m.ev.limites;
+            if (limites != null) limites.cadena(Cuerda.largo(nuevo), agregado.length());
+            marco.valores[ranura] = nuevo;
+            return nuevo;
+        }
+    }
+
+    // ===== Selección de variantes (usada por el Compilador) =====
+
+    // Las concatenaciones que ya son operandos se aplanan: el texto no cambia
+    // porque convertirAString de una cadena es la misma cadena
+    static Nodo concatenar(Nodo izquierda, Nodo derecha) {
+        List<Nodo> partes = new ArrayList<>();
+        for (Nodo operando : new Nodo[] { izquierda, derecha }) {
+            if (operando instanceof Concatenar) {
+                partes.addAll(Arrays.asList(((Concatenar) operando).partes));
+            } else {
+                partes.add(operando);
+            }
+        }
+        return new Concatenar(partes.toArray(new Nodo[0]));
+    }
+
+    static Nodo aritmetica(int operador, Tipo tipo, Nodo izquierda, Nodo derecha) {
+        switch (tipo) {
+            case ENTERO:
+                switch (operador) {
+                    case EvaluadorSemantico.OP_SUMA: return new SumaEntero(izquierda, derecha);
+                    case EvaluadorSemantico.OP_RESTA: return new RestaEntero(izquierda, derecha);
+                    case EvaluadorSemantico.OP_MULTIPLICAR: return new MultiplicacionEntero(izquierda, derecha);
+                    case EvaluadorSemantico.OP_DIVIDIR: return new DivisionEntero(izquierda, derecha);
+                    case EvaluadorSemantico.OP_MODULO: return new ModuloEntero(izquierda, derecha);
+                    default: return new PotenciaEntero(izquierda, derecha);
+                }
+            case LARGO:
+                switch (operador) {
+                    case EvaluadorSemantico.OP_SUMA: return new SumaLargo(izquierda, derecha);
+                    case EvaluadorSemantico.OP_RESTA: return new RestaLargo(izquierda, derecha);
+                    case EvaluadorSemantico.OP_MULTIPLICAR: return new MultiplicacionLargo(izquierda, derecha);
+                    case EvaluadorSemantico.OP_DIVIDIR: return new DivisionLargo(izquierda, derecha);
+                    case EvaluadorSemantico.OP_MODULO: return new ModuloLargo(izquierda, derecha);
+                    default: return new PotenciaLargo(izquierda, derecha);
+                }
+            default:
+                switch (operador) {
+                    case EvaluadorSemantico.OP_SUMA: return new SumaDecimal(izquierda, derecha);
+                    case EvaluadorSemantico.OP_RESTA: return new RestaDecimal(izquierda, derecha);
+                    case EvaluadorSemantico.OP_MULTIPLICAR: return new MultiplicacionDecimal(izquierda, derecha);
+                    case EvaluadorSemantico.OP_DIVIDIR: return new DivisionDecimal(izquierda, derecha);
+                    case EvaluadorSemantico.OP_MODULO: return new ModuloDecimal(izquierda, derecha);
+                    default: return new PotenciaDecimal(izquierda, derecha);
+                }
+        }
+    }
+
+    static Nodo relacional(int operador, Tipo tipo, Nodo izquierda, Nodo derecha) {
+        if (tipo == Tipo.ENTERO) {
+            switch (operador) {
+                case EvaluadorSemantico.OP_MENOR: return new MenorEntero(izquierda, derecha);
+                case EvaluadorSemantico.OP_MENOR_IGUAL: return new MenorIgualEntero(izquierda, derecha);
+                case EvaluadorSemantico.OP_MAYOR: return new MayorEntero(izquierda, derecha);
+                default: return new MayorIgualEntero(izquierda, derecha);
+            }
+        }
+        switch (operador) {
+            case EvaluadorSemantico.OP_MENOR: return new MenorDecimal(izquierda, derecha);
+            case EvaluadorSemantico.OP_MENOR_IGUAL: return new MenorIgualDecimal(izquierda, derecha);
+            case EvaluadorSemantico.OP_MAYOR: return new MayorDecimal(izquierda, derecha);
+            default: return new MayorIgualDecimal(izquierda, derecha);
+        }
+    }
+
+    static Nodo leer(Tipo tipo, int ranura) {
+        switch (tipo) {
+            case ENTERO: return new LeerEntero(ranura);
+            case LARGO: return new LeerLargo(ranura);
+            case DECIMAL: return new LeerDecimal(ranura);
+            case BOOLEANO: return new LeerBooleano(ranura);
+            case ARREGLO_ENTERO:
+            case ARREGLO_LARGO:
+            case ARREGLO_DECIMAL: return new NodosArreglos.LeerArreglo(tipo, ranura);
+            default: return new LeerCadena(ranura);
+        }
+    }
+
+    static Nodo asignar(Tipo tipo, int ranura, Nodo valor) {
+        switch (tipo) {
+            case ENTERO: return new AsignarEntero(ranura, valor);
+            case LARGO: return new AsignarLargo(ranura, valor);
+            case DECIMAL: return new AsignarDecimal(ranura, valor);
+            case BOOLEANO: return new AsignarBooleano(ranura, valor);
+            case ARREGLO_ENTERO:
+            case ARREGLO_LARGO:
+            case ARREGLO_DECIMAL: return new NodosArreglos.AsignarArreglo(tipo, ranura, valor);
+            default: return new AsignarCadena(ranura, valor);
+        }
+    }
+
+    // Conversión entre tipos numéricos conocidos; null si no aplica
+    static Nodo convertirNumerico(Nodo valor, Tipo destino) {
+        Tipo origen = valor.tipo();
+        if (origen == destino) return valor;
+
+        switch (origen) {
+            case ENTERO:
+                if (destino == Tipo.LARGO) return new EnteroALargo(valor);
+                if (destino == Tipo.DECIMAL) return new EnteroADecimal(valor);
+                break;
+            case LARGO:
+                if (destino == Tipo.ENTERO) return new LargoAEntero(valor);
+                if (destino == Tipo.DECIMAL) return new LargoADecimal(valor);
+                break;
+            case DECIMAL:
+                if (destino == Tipo.ENTERO) return new DecimalAEntero(valor);
+                if (destino == Tipo.LARGO) return new DecimalALargo(valor);
+                break;
+            default:
+                break;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,273 @@
+import java.util.*;
+
+// Optimizaciones que el Compilador aplica a los nodos a medida que los construye.
+// Con la opción -sin-optimizar no se aplican, para comparar la ejecución con y sin ellas.
+//
+// - Plegado de constantes: una operación cuyos operandos son todos literales se
+//   evalúa una vez al compilar, con el mismo nodo que la evaluaría al ejecutar,
+//   así que el valor y su tipo son los mismos. Si la evaluación falla (división
+//   por cero, valor fuera de rango, tipos incompatibles) el nodo queda como está
+//   y el error ocurre al ejecutar, igual que sin optimizar. En una concatenación
+//   se unen las partes literales seguidas ('"x = " + 1 + s' tiene dos partes).
+// - Poda de ramas: 'si' con condición constante, bucles cuya condición es falsa
+//   desde el principio, y sentencias que siguen a retornar/romper/continuar.
+// - Código invariante en bucles: dentro de un 'para' o 'mientras', una expresión
+//   que sólo lee variables que el bucle no cambia se calcula una vez antes del
+//   bucle en una ranura temporal (el Compilador decide qué se puede elevar). Sólo
+//   se elevan operaciones que no pueden fallar ni tienen efectos (ver sinEfectos):
+//   calcularlas antes, aunque el bucle no llegue a usarlas, no cambia nada.
+// - Bucles contados: 'para (entero i = ...; i < n; i = i + k)' se ejecuta como
+//   NodosTipados.ParaContado.
+//
+// El código podado se compila igual: sus errores de compilación se siguen informando.
+final class Optimizador {
+
+    private Optimizador() {
+    }
+
+    static boolean esConstante(Nodo nodo) {
+        return nodo instanceof NodosTipados.LiteralEntero
+            || nodo instanceof NodosTipados.LiteralLargo
+            || nodo instanceof NodosTipados.LiteralDecimal
+            || nodo instanceof NodosTipados.LiteralBooleano
+            || nodo instanceof Nodo.Literal;
+    }
+
+    // 'nodo' es una operación sin efectos sobre 'operandos'
+    static Nodo plegar(Nodo nodo, Nodo... operandos) {
+        if (esConstante(nodo)) return nodo;
+        for (Nodo operando : operandos) {
+            if (operando == null || !esConstante(operando)) return nodo;
+        }
+
+        Object valor;
+        try {
+            valor = nodo.evaluar(null); // con operandos literales no se usa el marco
+        } catch (RuntimeException e) {
+            return nodo;
+        }
+        return literal(nodo.tipo(), valor);
+    }
+
+    private static Nodo literal(Tipo tipo, Object valor) {
+        switch (tipo) {
+            case ENTERO: return new NodosTipados.LiteralEntero((Integer) valor);
+            case LARGO: return new NodosTipados.LiteralLargo((Long) valor);
+            case DECIMAL: return new NodosTipados.LiteralDecimal((Double) valor);
+            case BOOLEANO: return new NodosTipados.LiteralBooleano((Boolean) valor);
+            default: return new Nodo.Literal(valor);
+        }
+    }
+
+    // Una concatenación ya aplanada con sus partes literales seguidas unidas en una
+    // cadena; todo el texto si todas son literales
+    static Nodo concatenacion(NodosTipados.Concatenar nodo) {
+        List<Nodo> partes = new ArrayList<>();
+        List<Nodo> seguidas = new ArrayList<>();
+        for (Nodo parte : nodo.partes) {
+            if (esConstante(parte)) {
+                seguidas.add(parte);
+            } else {
+                unir(seguidas, partes);
+                partes.add(parte);
+            }
+        }
+        unir(seguidas, partes);
+
+        if (partes.size() == nodo.partes.length) return nodo;
+        return partes.size() == 1 ? partes.get(0) : new NodosTipados.Concatenar(partes.toArray(new Nodo[0]));
+    }
+
+    private static void unir(List<Nodo> seguidas, List<Nodo> partes) {
+        if (seguidas.size() == 1) {
+            partes.add(seguidas.get(0));
+        } else if (seguidas.size() > 1) {
+            partes.add(new Nodo.Literal(new NodosTipados.Concatenar(seguidas.toArray(new Nodo[0])).evaluar(null)));
+        }
+        seguidas.clear();
+    }
+
+    // ===== Poda de ramas =====
+
+    private static Nodo vacio() {
+        return new Nodo.Bloque(new Nodo[0]);
+    }
+
+    private static Boolean valorConstante(Nodo condicion) {
+        return condicion instanceof NodosTipados.LiteralBooleano ? ((NodosTipados.LiteralBooleano) condicion).valor : null;
+    }
+
+    static Nodo si(Nodo condicion, Nodo entonces, Nodo sino) {
+        Boolean valor = valorConstante(condicion);
+        if (valor == null) return new Nodo.Si(condicion, entonces, sino);
+        if (valor) return entonces;
+        return sino != null ? sino : vacio();
+    }
+
+    static Nodo mientras(Nodo condicion, Nodo cuerpo) {
+        return Boolean.FALSE.equals(valorConstante(condicion)) ? vacio() : new Nodo.Mientras(condicion, cuerpo);
+    }
+
+    // Si la condición es falsa de entrada sólo queda la inicialización
+    static Nodo para(Nodo inicializacion, Nodo condicion, Nodo incremento, Nodo cuerpo) {
+        return Boolean.FALSE.equals(valorConstante(condicion))
+            ? inicializacion
+            : new Nodo.Para(inicializacion, condicion, incremento, cuerpo);
+    }
+
+    // 'para' sobre una variable entera local con incremento constante. 'invariantes'
+    // son las expresiones que no cambian dentro del bucle: si el límite es una, se
+    // evalúa una sola vez
+    static Nodo contado(Nodo.Para para, Set<Nodo> invariantes) {
+        int operador;
+        if (para.condicion instanceof NodosTipados.MenorEntero) {
+            operador = EvaluadorSemantico.OP_MENOR;
+        } else if (para.condicion instanceof NodosTipados.MenorIgualEntero) {
+            operador = EvaluadorSemantico.OP_MENOR_IGUAL;
+        } else if (para.condicion instanceof NodosTipados.MayorEntero) {
+            operador = EvaluadorSemantico.OP_MAYOR;
+        } else if (para.condicion instanceof NodosTipados.MayorIgualEntero) {
+            operador = EvaluadorSemantico.OP_MAYOR_IGUAL;
+        } else {
+            return para;
+        }
+
+        Nodo variable = izquierda(para.condicion);
+        if (!(variable instanceof NodosTipados.LeerEntero)) return para;
+        int ranura = ((NodosTipados.LeerEntero) variable).ranura;
+
+        Integer paso = paso(para.incremento, ranura);
+        if (paso == null) return para;
+
+        Nodo limite = derecha(para.condicion);
+        boolean limiteFijo = esConstante(limite) || invariantes.contains(limite);
+        return new NodosTipados.ParaContado(para.inicializacion, ranura, operador, limite,
+            limiteFijo, paso, para.cuerpo, para);
+    }
+
+    private static Nodo izquierda(Nodo comparacion) {
+        if (comparacion instanceof NodosTipados.MenorEntero) return ((NodosTipados.MenorEntero) comparacion).izquierda;
+        if (comparacion instanceof NodosTipados.MenorIgualEntero) return ((NodosTipados.MenorIgualEntero) comparacion).izquierda;
+        if (comparacion instanceof NodosTipados.MayorEntero) return ((NodosTipados.MayorEntero) comparacion).izquierda;
+        return ((NodosTipados.MayorIgualEntero) comparacion).izquierda;
+    }
+
+    private static Nodo derecha(Nodo comparacion) {
+        if (comparacion instanceof NodosTipados.MenorEntero) return ((NodosTipados.MenorEntero) comparacion).derecha;
+        if (comparacion instanceof NodosTipados.MenorIgualEntero) return ((NodosTipados.MenorIgualEntero) comparacion).derecha;
+        if (comparacion instanceof NodosTipados.MayorEntero) return ((NodosTipados.MayorEntero) comparacion).derecha;
+        return ((NodosTipados.MayorIgualEntero) comparacion).derecha;
+    }
+
+    // k para 'i = i + k' o -k para 'i = i - k' sobre la ranura; null para cualquier otro incremento
+    private static Integer paso(Nodo incremento, int ranura) {
+        if (!(incremento instanceof NodosTipados.AsignarEntero)) return null;
+        NodosTipados.AsignarEntero asignar = (NodosTipados.AsignarEntero) incremento;
+        if (asignar.ranura != ranura) return null;
+
+        Nodo izquierda;
+        Nodo derecha;
+        boolean resta;
+        if (asignar.valor instanceof NodosTipados.SumaEntero) {
+            izquierda = ((NodosTipados.SumaEntero) asignar.valor).izquierda;
+            derecha = ((NodosTipados.SumaEntero) asignar.valor).derecha;
+            resta = false;
+        } else if (asignar.valor instanceof NodosTipados.RestaEntero) {
+            izquierda = ((NodosTipados.RestaEntero) asignar.valor).izquierda;
+            derecha = ((NodosTipados.RestaEntero) asignar.valor).derecha;
+            resta = true;
+        } else {
+            return null;
+        }
+
+        if (!(izquierda instanceof NodosTipados.LeerEntero) || ((NodosTipados.LeerEntero) izquierda).ranura != ranura
+                || !(derecha instanceof NodosTipados.LiteralEntero)) {
+            return null;
+        }
+        int k = ((NodosTipados.LiteralEntero) derecha).valor;
+        return resta ? -k : k;
+    }
+
+    // ===== Código invariante =====
+
+    // Operaciones que no fallan ni tienen efectos con cualquier valor de sus operandos.
+    // Quedan fuera la división y el módulo (división por cero), largo a entero (fuera
+    // de rango), las conversiones y condiciones dinámicas, las llamadas y 'leer'. La
+    // concatenación también: con -limite-cadena o -limite-memoria puede fallar, y el
+    // mismo árbol compilado se ejecuta con límites o sin ellos (ver CacheProgramas).
+    static boolean sinEfectos(Nodo nodo) {
+        return nodo instanceof NodosTipados.SumaEntero
+            || nodo instanceof NodosTipados.RestaEntero
+            || nodo instanceof NodosTipados.MultiplicacionEntero
+            || nodo instanceof NodosTipados.PotenciaEntero
+            || nodo instanceof NodosTipados.NegativoEntero
+            || nodo instanceof NodosTipados.SumaLargo
+            || nodo instanceof NodosTipados.RestaLargo
+            || nodo instanceof NodosTipados.MultiplicacionLargo
+            || nodo instanceof NodosTipados.PotenciaLargo
+            || nodo instanceof NodosTipados.NegativoLargo
+            || nodo instanceof NodosTipados.SumaDecimal
+            || nodo instanceof NodosTipados.RestaDecimal
+            || nodo instanceof NodosTipados.MultiplicacionDecimal
+            || nodo instanceof NodosTipados.PotenciaDecimal
+            || nodo instanceof NodosTipados.NegativoDecimal
+            || nodo instanceof NodosTipados.EnteroALargo
+            || nodo instanceof NodosTipados.EnteroADecimal
+            || nodo instanceof NodosTipados.LargoADecimal
+            || nodo instanceof NodosTipados.DecimalAEntero
+            || nodo instanceof NodosTipados.DecimalALargo
+            || nodo instanceof NodosTipados.MenorEntero
+            || nodo instanceof NodosTipados.MenorIgualEntero
+            || nodo instanceof NodosTipados.MayorEntero
+            || nodo instanceof NodosTipados.MayorIgualEntero
+            || nodo instanceof NodosTipados.MenorDecimal
+            || nodo instanceof NodosTipados.MenorIgualDecimal
+            || nodo instanceof NodosTipados.MayorDecimal
+            || nodo instanceof NodosTipados.MayorIgualDecimal
+            || nodo instanceof NodosTipados.IgualEntero
+            || nodo instanceof NodosTipados.IgualDecimal
+            || nodo instanceof NodosTipados.IgualBooleano
+            || nodo instanceof NodosTipados.NoBooleano
+            || nodo instanceof NodosTipados.OBooleano
+            || nodo instanceof NodosTipados.YBooleano;
+    }
+
+    // Lecturas y literales: elevarlas no ahorra nada
+    static boolean esSimple(Nodo nodo) {
+        return esConstante(nodo)
+            || nodo instanceof NodosTipados.LeerEntero
+            || nodo instanceof NodosTipados.LeerLargo
+            || nodo instanceof NodosTipados.LeerDecimal
+            || nodo instanceof NodosTipados.LeerBooleano
+            || nodo instanceof NodosTipados.LeerCadena
+            || nodo instanceof NodosArreglos.LeerArreglo;
+    }
+
+    // Las declaraciones de un bloque hasta la primera que siempre sale de él
+    static Nodo[] alcanzables(Nodo[] declaraciones) {
+        for (int i = 0; i < declaraciones.length - 1; i++) {
+            if (siempreSale(declaraciones[i])) {
+                return Arrays.copyOf(declaraciones, i + 1);
+            }
+        }
+        return declaraciones;
+    }
+
+    private static boolean siempreSale(Nodo sentencia) {
+        if (sentencia instanceof Nodo.Retornar || sentencia instanceof Nodo.RetornarLlamada
+                || sentencia instanceof Nodo.Romper || sentencia instanceof Nodo.Continuar) {
+            return true;
+        }
+        if (sentencia instanceof Nodo.Bloque) {
+            for (Nodo decl : ((Nodo.Bloque) sentencia).declaraciones) {
+                if (siempreSale(decl)) return true;
+            }
+            return false;
+        }
+        if (sentencia instanceof Nodo.Si) {
+            Nodo.Si si = (Nodo.Si) sentencia;
+            return si.sino != null && siempreSale(si.entonces) && siempreSale(si.sino);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+import org.antlr.v4.runtime.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+// Medición del tiempo de ejecución de un programa (sin contar el análisis sintáctico).
+//
+//   java Rendimiento <archivo.es> [repeticiones] [-vm] [-jit] [-sin-optimizar] [-memo[=N]]
+//
+// Ejecuta el programa varias veces descartando su salida: las primeras rondas
+// sirven de calentamiento para el compilador de la JVM y se informa la mediana
+// y el mínimo del resto. Los programas de benchmarks/ están pensados para esto.
+public class Rendimiento {
+
+    private static final int CALENTAMIENTO = 5;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: java Rendimiento <archivo.es> [repeticiones] [-vm] [-jit] [-sin-optimizar] [-memo[=N]]");
+            System.exit(1);
+        }
+
+        String contenido = new String(Files.readAllBytes(Paths.get(args[0])), "UTF-8");
+        int repeticiones = 10;
+        int desde = 1;
+        if (args.length > 1 && !args[1].startsWith("-")) {
+            repeticiones = Integer.parseInt(args[1]);
+            desde = 2;
+        }
+        InterpretePrincipal.Opciones opciones = InterpretePrincipal.Opciones.leer(args, desde);
+
+        MilenguajeParser parser = new MilenguajeParser(new CommonTokenStream(
+            new MilenguajeLexer(CharStreams.fromString(contenido))));
+        MilenguajeParser.ProgramaContext arbol = parser.programa();
+        if (parser.getNumberOfSyntaxErrors() > 0) {
+            System.err.println("El programa contiene errores de sintaxis.");
+            System.exit(1);
+        }
+
+        PrintStream salida = System.out;
+        long[] tiempos = new long[repeticiones];
+        try {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            for (int i = -CALENTAMIENTO; i < repeticiones; i++) {
+                long inicio = System.nanoTime();
+                ejecutar(arbol, opciones);
+                long tiempo = System.nanoTime() - inicio;
+                if (i >= 0) tiempos[i] = tiempo;
+            }
+        } finally {
+            System.setOut(salida);
+        }
+
+        Arrays.sort(tiempos);
+        System.out.printf("%s: mediana %.2f ms, mínimo %.2f ms (%d repeticiones)%n",
+            args[0], tiempos[repeticiones / 2] / 1e6, tiempos[0] / 1e6, repeticiones);
+    }
+
+    private static void ejecutar(MilenguajeParser.ProgramaContext arbol, InterpretePrincipal.Opciones opciones) {
+        Nodo.Programa programa = Compilador.compilarPrograma(arbol, opciones.optimizar);
+        // Cada ronda empieza con la memoria de funciones vacía
+        if (opciones.maquinaVirtual) {
+            MaquinaVirtual.ejecutar(programa, Salida.estandar(), opciones.memoria());
+        } else {
+            EvaluadorSemantico evaluador = new EvaluadorSemantico();
+            evaluador.compilacionJit = opciones.jit;
+            evaluador.memoria = opciones.memoria();
+            evaluador.ejecutar(programa);
+        }
+    }
+}
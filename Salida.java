@@ -0,0 +1,78 @@
+import java.io.*;
+
+// Destino de 'imprimir'. Cada evaluador (y la máquina virtual) escribe en su
+// Salida en lugar de llamar a System.out.println por cada línea, que sincroniza
+// y vacía el flujo en cada llamada.
+//
+// - Buffer: acumula las líneas y las escribe en bloques; se vacía al llenarse,
+//   antes de cada 'leer' (para que se vean los mensajes que piden un dato) y al
+//   terminar el programa.
+// - Captura: guarda todo en memoria, para quien ejecuta programas desde Java.
+abstract class Salida {
+
+    // Caracteres acumulados antes de escribir en el destino
+    static final int TAMANO_POR_DEFECTO = 1 << 16;
+
+    abstract void imprimir(String linea);
+
+    // Escribir lo pendiente en el destino
+    void vaciar() {
+    }
+
+    // Llamado antes de leer de la entrada estándar
+    void antesDeLeer() {
+    }
+
+    static Salida estandar() {
+        return new Buffer(System.out, TAMANO_POR_DEFECTO, true);
+    }
+
+    static final class Buffer extends Salida {
+        private final PrintStream destino;
+        private final int tamano;
+        private final boolean vaciarAlLeer;
+        private final StringBuilder pendiente;
+
+        // tamano 0: cada línea se escribe en el momento.
+        // tamano Integer.MAX_VALUE: sólo se escribe al terminar (o al leer, si vaciarAlLeer).
+        Buffer(PrintStream destino, int tamano, boolean vaciarAlLeer) {
+            this.destino = destino;
+            this.tamano = tamano;
+            this.vaciarAlLeer = vaciarAlLeer;
+            this.pendiente = new StringBuilder(Math.min(tamano, TAMANO_POR_DEFECTO) + 256);
+        }
+
+        @Override
+        void imprimir(String linea) {
+            pendiente.append(linea).append(System.lineSeparator());
+            if (pendiente.length() >= tamano) vaciar();
+        }
+
+        @Override
+        void vaciar() {
+            if (pendiente.length() > 0) {
+                destino.append(pendiente);
+                pendiente.setLength(0);
+            }
+            destino.flush();
+        }
+
+        @Override
+        void antesDeLeer() {
+            if (vaciarAlLeer) vaciar();
+        }
+    }
+
+    static final class Captura extends Salida {
+        private final StringBuilder texto = new StringBuilder();
+
+        @Override
+        void imprimir(String linea) {
+            texto.append(linea).append(System.lineSeparator());
+        }
+
+        String texto() {
+            return texto.toString();
+        }
+    }
+}
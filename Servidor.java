@@ -0,0 +1,323 @@
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Servidor de programas (opción -servidor): un proceso que queda escuchando en
+// un socket local y ejecuta los programas que le envían, sin una JVM nueva por
+// programa. ANTLR, la JVM y los programas compilados (CacheProgramas) siguen
+// calientes de una petición a la siguiente.
+//
+//   java InterpretePrincipal -servidor[=puerto|ruta] [-tiempo=ms] [-vm] [-jit] ...
+//
+// Con un número (o sin valor, PUERTO_POR_DEFECTO) escucha por TCP sólo en la
+// dirección local; con una ruta, en un socket Unix. Cada conexión tiene su hilo
+// y cada ejecución el suyo (con la pila del evaluador, ver Motor.hilos), con su
+// propia Entrada y Salida.
+//
+// Protocolo: líneas de texto UTF-8. Una conexión puede enviar varias peticiones,
+// una tras otra, hasta cerrarse o enviar 'salir'.
+//
+//   programa <n>       seguida de n líneas con el código
+//   id <clave>         en lugar de 'programa': uno ya compilado, con la clave que dio el servidor
+//   entrada <n>        (opcional) seguida de n líneas, las que toman los 'leer'
+//   tiempo <ms>        (opcional) límite de la ejecución, en lugar del de -tiempo
+//   ejecutar           termina la petición
+//
+// La respuesta empieza con 'id <clave>' (si hubo programa) y sigue con una línea
+// 'salida <texto>' por cada línea impresa, a medida que el programa imprime
+// (en bloques de -buffer caracteres; -buffer=0, línea por línea). Los errores
+// llegan como líneas 'error <texto>' y la respuesta termina con
+// 'fin <estado> <ms>', donde estado es correcto, errores (de compilación),
+// error (de ejecución), tiempo, limite (otro de los de -limite-*), desconocido
+// (id que no está en la caché) o invalida.
+//
+// El tiempo de cada petición es un límite más de la ejecución (ver Limites): el
+// programa que lo agota se detiene y el hilo queda libre para otra petición.
+final class Servidor {
+
+    static final int PUERTO_POR_DEFECTO = 7171;
+
+    // Límite de cada ejecución cuando la petición no indica otro
+    static final long TIEMPO_POR_DEFECTO = 30000;
+
+    // Espera de más tras el límite antes de cancelar la ejecución desde afuera:
+    // normalmente ya se detuvo sola
+    private static final long GRACIA = 1000;
+
+    // Bits de tipo de archivo en el modo Unix (S_IFMT) y el de un socket (S_IFSOCK)
+    private static final int TIPO_DE_ARCHIVO = 0170000;
+    private static final int TIPO_SOCKET = 0140000;
+
+    private static final String CLAVE_VALIDA = "[0-9a-f]{64}(-sin-optimizar)?";
+
+    private final Motor motor;
+    private final InterpretePrincipal.Opciones opciones;
+    private final long tiempo;
+    private final ExecutorService conexiones = Executors.newCachedThreadPool();
+    private final ExecutorService ejecuciones = Executors.newCachedThreadPool(Motor.hilos("ejecucion"));
+
+    Servidor(InterpretePrincipal.Opciones opciones, long tiempo) {
+        this.motor = new Motor(opciones);
+        this.opciones = opciones;
+        this.tiempo = tiempo;
+    }
+
+    // 'direccion': vacía para el puerto por defecto, un número de puerto o la ruta de un socket Unix
+    void escuchar(String direccion) throws IOException {
+        ServerSocketChannel canal;
+        if (direccion.isEmpty() || direccion.matches("[0-9]+")) {
+            int puerto = direccion.isEmpty() ? PUERTO_POR_DEFECTO : puerto(direccion);
+            canal = ServerSocketChannel.open(StandardProtocolFamily.INET);
+            canal.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto));
+        } else {
+            Path ruta = Paths.get(direccion);
+            UnixDomainSocketAddress dirSocket = UnixDomainSocketAddress.of(ruta);
+            canal = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                canal.bind(dirSocket);
+            } catch (BindException e) {
+                // Sólo se reemplaza un socket que quedó de un servidor que ya no
+                // escucha: un archivo con otro contenido no se toca nunca
+                if (!esSocket(ruta)) {
+                    canal.close();
+                    throw new BindException("La ruta " + ruta + " ya existe y no es un socket");
+                }
+                if (escuchado(dirSocket)) {
+                    canal.close();
+                    throw new BindException("La dirección " + ruta + " está en uso");
+                }
+                Files.delete(ruta);
+                canal.bind(dirSocket);
+            }
+            ruta.toFile().deleteOnExit();
+        }
+        System.out.println("=== Servidor EspañolScript escuchando en " + canal.getLocalAddress() + " ===");
+
+        while (true) {
+            final SocketChannel cliente = canal.accept();
+            conexiones.execute(new Runnable() {
+                @Override
+                public void run() {
+                    atender(cliente);
+                }
+            });
+        }
+    }
+
+    private static int puerto(String direccion) throws IOException {
+        if (direccion.length() > 5 || Integer.parseInt(direccion) > 65535) {
+            throw new IOException("Puerto no válido: " + direccion + " (debe estar entre 0 y 65535)");
+        }
+        return Integer.parseInt(direccion);
+    }
+
+    // Si es un socket Unix (no un archivo regular, un directorio ni otra cosa).
+    // Si el sistema no informa el tipo de archivo, no se arriesga.
+    private static boolean esSocket(Path ruta) throws IOException {
+        try {
+            int modo = (Integer) Files.getAttribute(ruta, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            return (modo & TIPO_DE_ARCHIVO) == TIPO_SOCKET;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Si otro servidor sigue escuchando en el socket
+    private static boolean escuchado(UnixDomainSocketAddress dirSocket) {
+        try (SocketChannel prueba = SocketChannel.open(dirSocket)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void atender(SocketChannel cliente) {
+        try (SocketChannel conexion = cliente) {
+            BufferedReader lector = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(conexion), StandardCharsets.UTF_8));
+            Writer escritor = new BufferedWriter(
+                new OutputStreamWriter(Channels.newOutputStream(conexion), StandardCharsets.UTF_8));
+            while (atenderPeticion(lector, escritor)) {
+                // siguiente petición de la misma conexión
+            }
+        } catch (IOException e) {
+            // El cliente cerró la conexión a mitad de una petición: no hay a quién responder
+        }
+    }
+
+    // false cuando el cliente terminó
+    private boolean atenderPeticion(BufferedReader lector, Writer escritor) throws IOException {
+        String contenido = null;
+        String clave = null;
+        String entrada = "";
+        long limite = tiempo;
+        String linea = null;
+        try {
+            while (true) {
+                linea = lector.readLine();
+                if (linea == null || (contenido == null && clave == null && linea.equals("salir"))) return false;
+                if (linea.equals("ejecutar")) break;
+                int espacio = linea.indexOf(' ');
+                String orden = espacio < 0 ? linea : linea.substring(0, espacio);
+                String valor = espacio < 0 ? "" : linea.substring(espacio + 1).trim();
+                switch (orden) {
+                    case "programa": contenido = leerLineas(lector, Integer.parseInt(valor)); break;
+                    case "id": clave = valor; break;
+                    case "entrada": entrada = leerLineas(lector, Integer.parseInt(valor)); break;
+                    case "tiempo": limite = Long.parseLong(valor); break;
+                    default: throw new IllegalArgumentException("orden desconocida '" + orden + "'");
+                }
+            }
+            if (contenido == null && clave == null) {
+                throw new IllegalArgumentException("falta 'programa' o 'id'");
+            }
+            if (contenido == null && !clave.matches(CLAVE_VALIDA)) {
+                throw new IllegalArgumentException("id no válido '" + clave + "'");
+            }
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException también es IllegalArgumentException. El resto
+            // de la petición se descarta, para que la siguiente empiece en su lugar.
+            while (linea != null && !linea.equals("ejecutar")) {
+                linea = lector.readLine();
+            }
+            escritor.write("error Petición inválida: " + e.getMessage() + "\n");
+            escritor.write("fin invalida 0\n");
+            escritor.flush();
+            return true;
+        }
+
+        ejecutar(contenido, clave, entrada, limite, escritor);
+        return true;
+    }
+
+    // El código termina en salto de línea, como al leerlo de un archivo: la clave es la misma
+    private static String leerLineas(BufferedReader lector, int cantidad) throws IOException {
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < cantidad; i++) {
+            String linea = lector.readLine();
+            if (linea == null) throw new EOFException();
+            texto.append(linea).append('\n');
+        }
+        return texto.toString();
+    }
+
+    private void ejecutar(String contenido, String clave, String entrada, long limite, Writer escritor)
+            throws IOException {
+        long inicio = System.nanoTime();
+        final Nodo.Programa programa;
+        try {
+            if (contenido != null) {
+                clave = motor.clave(contenido);
+                programa = motor.compilar(contenido);
+            } else {
+                programa = motor.buscar(clave);
+                if (programa == null) {
+                    terminar(escritor, Collections.singletonList("Programa desconocido: " + clave), "desconocido", inicio);
+                    return;
+                }
+            }
+        } catch (Motor.ErroresDeCompilacion e) {
+            terminar(escritor, e.errores, "errores", inicio);
+            return;
+        } catch (RuntimeException e) {
+            terminar(escritor, Collections.singletonList("Error de compilación: " + e.getMessage()), "errores", inicio);
+            return;
+        }
+        escritor.write("id " + clave + "\n");
+        escritor.flush();
+
+        final Transmision salida = new Transmision(escritor, opciones.buffer);
+        final Entrada datos = Entrada.deTexto(entrada);
+        final Limites limites = opciones.limites(limite);
+        Future<?> ejecucion = ejecuciones.submit(new Runnable() {
+            @Override
+            public void run() {
+                motor.ejecutar(programa, datos, salida, opciones.memoria(), limites);
+            }
+        });
+
+        List<String> errores = Collections.emptyList();
+        String estado = "correcto";
+        try {
+            if (limite > 0) {
+                ejecucion.get(limite + GRACIA, TimeUnit.MILLISECONDS);
+            } else {
+                ejecucion.get();
+            }
+        } catch (TimeoutException e) {
+            ejecucion.cancel(true);
+            errores = Collections.singletonList("Tiempo agotado: la ejecución superó " + limite + " ms");
+            estado = "tiempo";
+        } catch (ExecutionException e) {
+            errores = Collections.singletonList("Error de ejecución: " + e.getCause().getMessage());
+            String excedido = limites != null ? limites.excedido() : null;
+            estado = excedido == null ? "error" : excedido.equals("tiempo") ? "tiempo" : "limite";
+        } catch (InterruptedException e) {
+            ejecucion.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Servidor detenido");
+        } finally {
+            // Desde aquí se descarta lo que imprima la ejecución
+            salida.cerrar();
+        }
+        terminar(escritor, errores, estado, inicio);
+    }
+
+    private static void terminar(Writer escritor, List<String> errores, String estado, long inicio)
+            throws IOException {
+        for (String error : errores) {
+            for (String parte : error.split("\r?\n")) {
+                escritor.write("error " + parte + "\n");
+            }
+        }
+        escritor.write("fin " + estado + " " + (System.nanoTime() - inicio) / 1000000 + "\n");
+        escritor.flush();
+    }
+
+    // Salida que envía al cliente cada línea impresa, como 'salida <texto>', en
+    // bloques de 'tamano' caracteres como Salida.Buffer
+    private static final class Transmision extends Salida {
+        private final Writer destino;
+        private final int tamano;
+        private final StringBuilder pendiente = new StringBuilder();
+        private boolean cerrada = false;
+
+        Transmision(Writer destino, int tamano) {
+            this.destino = destino;
+            this.tamano = tamano;
+        }
+
+        @Override
+        synchronized void imprimir(String linea) {
+            if (cerrada) return;
+            for (String parte : linea.split("\r?\n", -1)) {
+                pendiente.append("salida ").append(parte).append('\n');
+            }
+            if (pendiente.length() >= tamano) vaciar();
+        }
+
+        @Override
+        synchronized void vaciar() {
+            if (cerrada || pendiente.length() == 0) return;
+            try {
+                destino.append(pendiente);
+                destino.flush();
+            } catch (IOException e) {
+                // El cliente se fue: el resto de la salida se descarta
+                cerrada = true;
+            }
+            pendiente.setLength(0);
+        }
+
+        // Lo pendiente se envía; lo que se imprima después (una ejecución que
+        // siguió corriendo tras agotar su tiempo) ya no
+        synchronized void cerrar() {
+            vaciar();
+            cerrada = true;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+import org.antlr.v4.runtime.*;
+
+import java.io.*;
+import java.util.*;
+
+// Modo interactivo: una sesión que conserva las variables globales y las
+// funciones declaradas de una entrada a la siguiente.
+//
+// Cada entrada se analiza como declaraciones que se agregan al programa: el
+// mismo Compilador, con sus tablas de globales, funciones y tipos, compila la
+// parte nueva, y el mismo evaluador la ejecuta sobre el marco global de las
+// anteriores (ver EvaluadorSemantico.continuar). El lexer, el flujo de tokens y
+// el parser también son siempre los mismos: para cada entrada sólo cambia el texto.
+//
+// Una entrada con llaves o paréntesis sin cerrar sigue en las líneas
+// siguientes; una línea vacía la termina aunque falte cerrarlos.
+//
+// Una entrada que falla, al compilar o al ejecutarse, no deja declaraciones: el
+// Compilador vuelve a las tablas que tenía antes de la entrada (ver
+// Compilador.Estado), y se olvidan las funciones que la entrada llegó a declarar.
+// Sí quedan los valores que llegó a asignar a variables ya declaradas.
+//
+// Las entradas se ejecutan siempre con el evaluador de nodos (-jit y -memo se
+// aplican; -vm no). Los límites de -limite-* valen para cada entrada por separado.
+final class Sesion {
+
+    private final InterpretePrincipal.Opciones opciones;
+
+    // Errores de la entrada que se está analizando
+    private final List<String> errores = new ArrayList<>();
+
+    private final InterpretePrincipal.ErroresLexicos erroresLexicos = new InterpretePrincipal.ErroresLexicos(errores);
+    private final MilenguajeLexer lexer = erroresLexicos.lexer(CharStreams.fromString(""));
+    private final CommonTokenStream tokens = new CommonTokenStream(lexer);
+    private final MilenguajeParser parser = new MilenguajeParser(tokens);
+
+    private final EvaluadorSemantico evaluador = new EvaluadorSemantico();
+    private final Compilador compilador;
+
+    Sesion(InterpretePrincipal.Opciones opciones) {
+        this.opciones = opciones;
+        this.compilador = new Compilador(opciones.optimizar);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new InterpretePrincipal.MiErrorListener(errores));
+        evaluador.compilacionJit = opciones.jit;
+        evaluador.salida = opciones.salida();
+        evaluador.memoria = opciones.memoria();
+    }
+
+    // Lee y ejecuta entradas de 'entrada' hasta 'salir' o hasta que se termina.
+    // Los 'leer' de los programas toman sus líneas de la misma entrada.
+    void interactuar(Entrada entrada) throws IOException {
+        evaluador.entrada = entrada;
+        StringBuilder texto = new StringBuilder();
+        while (true) {
+            System.out.print(texto.length() == 0 ? ">>> " : "... ");
+            System.out.flush();
+            String linea = entrada.siguienteLinea();
+
+            if (linea == null || (texto.length() == 0 && linea.trim().equals("salir"))) {
+                System.out.println("¡Hasta luego!");
+                return;
+            }
+            if (texto.length() == 0 && linea.trim().isEmpty()) {
+                continue;
+            }
+
+            texto.append(linea).append('\n');
+            MilenguajeParser.ProgramaContext arbol = analizar(texto.toString());
+            if (arbol == null && !linea.trim().isEmpty() && abiertos() > 0) {
+                continue; // faltan líneas
+            }
+            texto.setLength(0);
+
+            if (arbol == null) {
+                for (String error : errores) {
+                    System.err.println(error);
+                }
+            } else {
+                ejecutar(arbol);
+            }
+        }
+    }
+
+    // Análisis de una entrada con el lexer y el parser de la sesión; null si
+    // tiene errores (quedan en 'errores')
+    MilenguajeParser.ProgramaContext analizar(String texto) {
+        errores.clear();
+        erroresLexicos.reiniciar();
+        lexer.setInputStream(CharStreams.fromString(texto));
+        tokens.setTokenSource(lexer);
+        parser.setTokenStream(tokens);
+        return InterpretePrincipal.analizar(parser, erroresLexicos, errores);
+    }
+
+    // Llaves y paréntesis sin cerrar en la entrada analizada
+    private int abiertos() {
+        tokens.fill();
+        int abiertos = 0;
+        for (Token token : tokens.getTokens()) {
+            switch (token.getType()) {
+                case MilenguajeLexer.LLAVE_IZQ:
+                case MilenguajeLexer.PARENTESIS_IZQ:
+                    abiertos++;
+                    break;
+                case MilenguajeLexer.LLAVE_DER:
+                case MilenguajeLexer.PARENTESIS_DER:
+                    abiertos--;
+                    break;
+            }
+        }
+        return abiertos;
+    }
+
+    // Compila la entrada como una parte más del programa y la ejecuta en este hilo
+    void ejecutar(MilenguajeParser.ProgramaContext arbol) {
+        int nuevas = compilador.cantidadGlobales();
+        Compilador.Estado estado = compilador.estado();
+        EvaluadorSemantico.Funcion[] declaradas = evaluador.declaradas.clone();
+        Nodo.Programa parte;
+        try {
+            parte = compilador.compilar(arbol);
+        } catch (Compilador.ErroresDeTipo e) {
+            for (String error : e.errores) {
+                System.err.println(error);
+            }
+            System.err.println("La entrada contiene errores de tipo y no se ejecutó.");
+            deshacer(estado, declaradas);
+            return;
+        } catch (Compilador.ErrorDeCompilacion e) {
+            System.err.println(e.getMessage());
+            System.err.println("La entrada contiene errores de compilación y no se ejecutó.");
+            deshacer(estado, declaradas);
+            return;
+        } catch (RuntimeException e) {
+            System.err.println("Error de compilación: Error en el programa: " + e.getMessage());
+            deshacer(estado, declaradas);
+            return;
+        }
+
+        try {
+            // Cada entrada tiene sus propios límites: el tiempo cuenta desde aquí
+            evaluador.limites = opciones.limites();
+            evaluador.continuar(parte, nuevas);
+        } catch (RuntimeException e) {
+            System.err.println("Error de ejecución: " + e.getMessage());
+            deshacer(estado, declaradas);
+        }
+    }
+
+    // Vuelve al estado anterior a la entrada que falló
+    private void deshacer(Compilador.Estado estado, EvaluadorSemantico.Funcion[] declaradas) {
+        evaluador.declaradas = declaradas;
+        compilador.restaurar(estado);
+    }
+}
@@ -0,0 +1,131 @@
+// Tipos estáticos del lenguaje, tal como se declaran en la regla 'tipo'.
+// Los arreglos (entero[], largo[], decimal[]) se guardan como int[], long[] y
+// double[] de Java (ver NodosArreglos). DINAMICO marca las expresiones cuyo
+// tipo sólo se conoce al ejecutar (por ejemplo, una función que retorna
+// valores de distintos tipos).
+enum Tipo {
+    ENTERO("entero"),
+    LARGO("largo"),
+    DECIMAL("decimal"),
+    BOOLEANO("booleano"),
+    CADENA("cadena"),
+    ARREGLO_ENTERO("entero[]"),
+    ARREGLO_LARGO("largo[]"),
+    ARREGLO_DECIMAL("decimal[]"),
+    DINAMICO("dinamico");
+
+    final String nombre;
+
+    Tipo(String nombre) {
+        this.nombre = nombre;
+    }
+
+    static Tipo deNombre(String nombre) {
+        switch (nombre) {
+            case "entero": return ENTERO;
+            case "largo": return LARGO;
+            case "decimal": return DECIMAL;
+            case "booleano": return BOOLEANO;
+            case "cadena": return CADENA;
+            case "entero[]": return ARREGLO_ENTERO;
+            case "largo[]": return ARREGLO_LARGO;
+            case "decimal[]": return ARREGLO_DECIMAL;
+            default:
+                if (nombre.endsWith("[]")) {
+                    throw new RuntimeException("No hay arreglos de tipo " + nombre.substring(0, nombre.length() - 2));
+                }
+                throw new RuntimeException("Tipo desconocido: " + nombre);
+        }
+    }
+
+    // Tipo de los arreglos de elementos de este tipo
+    Tipo arreglo() {
+        switch (this) {
+            case ENTERO: return ARREGLO_ENTERO;
+            case LARGO: return ARREGLO_LARGO;
+            case DECIMAL: return ARREGLO_DECIMAL;
+            default: throw new RuntimeException("No hay arreglos de tipo " + nombre);
+        }
+    }
+
+    boolean esArreglo() {
+        return this == ARREGLO_ENTERO || this == ARREGLO_LARGO || this == ARREGLO_DECIMAL;
+    }
+
+    // Tipo de los elementos de un arreglo
+    Tipo elemento() {
+        switch (this) {
+            case ARREGLO_ENTERO: return ENTERO;
+            case ARREGLO_LARGO: return LARGO;
+            case ARREGLO_DECIMAL: return DECIMAL;
+            default: throw new IllegalStateException("No es un arreglo: " + nombre);
+        }
+    }
+
+    boolean esNumerico() {
+        return this == ENTERO || this == LARGO || this == DECIMAL;
+    }
+
+    // Los valores de estos tipos se guardan sin caja en Marco.primitivos
+    boolean esPrimitivo() {
+        return this == ENTERO || this == LARGO || this == DECIMAL || this == BOOLEANO;
+    }
+
+    // Valor convertido a este tipo cuando hay conversión (entre numéricos); si no,
+    // el mismo valor, que admite() rechaza
+    Object convertir(Object valor) {
+        if (valor == null) return null;
+
+        switch (this) {
+            case ENTERO:
+                if (valor instanceof Integer) return valor;
+                if (valor instanceof Long) {
+                    long largo = (Long) valor;
+                    if (largo >= Integer.MIN_VALUE && largo <= Integer.MAX_VALUE) {
+                        return (int) largo;
+                    }
+                    throw new RuntimeException("Valor long fuera del rango de entero: " + largo);
+                }
+                if (valor instanceof Double) return ((Double) valor).intValue();
+                break;
+            case LARGO:
+                if (valor instanceof Long) return valor;
+                if (valor instanceof Integer) return ((Integer) valor).longValue();
+                if (valor instanceof Double) return ((Double) valor).longValue();
+                break;
+            case DECIMAL:
+                if (valor instanceof Double) return valor;
+                if (valor instanceof Integer) return ((Integer) valor).doubleValue();
+                if (valor instanceof Long) return ((Long) valor).doubleValue();
+                break;
+            default:
+                break;
+        }
+        return valor;
+    }
+
+    // Indica si el valor ya convertido puede guardarse en una variable de este tipo
+    // (un arreglo nunca es nulo)
+    boolean admite(Object valor) {
+        if (valor == null) return !esArreglo();
+
+        switch (this) {
+            case ENTERO: return valor instanceof Integer;
+            case LARGO: return valor instanceof Long;
+            case DECIMAL: return valor instanceof Double;
+            case BOOLEANO: return valor instanceof Boolean;
+            case CADENA: return valor instanceof String;
+            case ARREGLO_ENTERO: return valor instanceof int[];
+            case ARREGLO_LARGO: return valor instanceof long[];
+            case ARREGLO_DECIMAL: return valor instanceof double[];
+            default: return false;
+        }
+    }
+
+    // Tipo del resultado de una operación aritmética entre dos numéricos
+    static Tipo numericoComun(Tipo a, Tipo b) {
+        if (a == DECIMAL || b == DECIMAL) return DECIMAL;
+        if (a == LARGO || b == LARGO) return LARGO;
+        return ENTERO;
+    }
+}
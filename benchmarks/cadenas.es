@@ -0,0 +1,15 @@
+// Texto acumulado en una variable dentro de bucles y cadenas largas de '+'
+funcion tabla(entero n) {
+    cadena texto = "";
+    para (entero i = 0; i < n; i = i + 1) {
+        texto = texto + "fila " + i + ": " + (i * 1.5) + " " + (i % 2 == 0) + "\n";
+    }
+    retornar texto;
+}
+
+cadena salida = "";
+para (entero k = 0; k < 20000; k = k + 1) {
+    salida = salida + k + ",";
+}
+imprimir(salida);
+imprimir(tabla(20000));
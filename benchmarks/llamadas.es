@@ -0,0 +1,24 @@
+// Recursión profunda y bucles dentro de funciones: mide el costo de entrar y salir de llamadas
+funcion fib(entero n) {
+    si (n <= 1) { retornar n; }
+    retornar fib(n - 1) + fib(n - 2);
+}
+
+funcion contar(entero n) {
+    entero total = 0;
+    entero i = 0;
+    mientras (verdadero) {
+        i = i + 1;
+        si (i > n) { romper; }
+        si (i % 2 == 0) { continuar; }
+        total = total + i;
+    }
+    retornar total;
+}
+
+imprimir(fib(25));
+entero suma = 0;
+para (entero k = 0; k < 2000; k = k + 1) {
+    suma = suma + contar(500);
+}
+imprimir(suma);
@@ -0,0 +1,17 @@
+// Bucle con muchas sentencias que no alteran el flujo: mide el costo por sentencia
+entero a = 0;
+entero b = 1;
+entero c = 2;
+para (entero i = 0; i < 2000000; i = i + 1) {
+    a = a + 1;
+    b = b + a;
+    c = c - 1;
+    a = a - 1;
+    b = b - a;
+    c = c + 1;
+    si (i % 1000 == 0) {
+        a = a + 1;
+        a = a - 1;
+    }
+}
+imprimir(a + b + c);
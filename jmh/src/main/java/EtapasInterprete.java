@@ -0,0 +1,38 @@
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
+
+import java.util.*;
+
+// Implementación de espanolscript.jmh.Etapas sobre las clases del intérprete
+public class EtapasInterprete implements espanolscript.jmh.Etapas {
+
+    @Override
+    public List<Token> lexear(String fuente) {
+        MilenguajeLexer lexer = new MilenguajeLexer(CharStreams.fromString(fuente));
+        lexer.removeErrorListeners();
+        List<Token> tokens = new ArrayList<>(lexer.getAllTokens());
+        tokens.add(lexer.nextToken()); // EOF
+        return tokens;
+    }
+
+    @Override
+    public ParseTree parsear(List<Token> tokens) {
+        MilenguajeParser parser = new MilenguajeParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        MilenguajeParser.ProgramaContext arbol = InterpretePrincipal.parsear(parser, new BaseErrorListener());
+        if (parser.getNumberOfSyntaxErrors() > 0) {
+            throw new IllegalStateException("El programa contiene errores de sintaxis");
+        }
+        return arbol;
+    }
+
+    @Override
+    public Object compilar(ParseTree arbol) {
+        return Compilador.compilarPrograma((MilenguajeParser.ProgramaContext) arbol);
+    }
+
+    // En el hilo del benchmark: EvaluadorSemantico.ejecutar abriría uno nuevo para cada ejecución
+    @Override
+    public void ejecutar(Object programa) {
+        new EvaluadorSemantico().evaluarPrograma((Nodo.Programa) programa);
+    }
+}
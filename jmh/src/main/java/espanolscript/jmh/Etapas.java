@@ -0,0 +1,33 @@
+package espanolscript.jmh;
+
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.List;
+
+// Etapas del intérprete que se miden por separado. El intérprete está en el
+// paquete por defecto, que no se puede importar desde un paquete con nombre
+// (y JMH exige uno): la implementación es EtapasInterprete, en el paquete por
+// defecto, y los benchmarks la usan a través de esta interfaz.
+public interface Etapas {
+
+    // Análisis léxico completo del programa
+    List<Token> lexear(String fuente);
+
+    // Análisis sintáctico a partir de los tokens ya producidos
+    ParseTree parsear(List<Token> tokens);
+
+    // Compilación del árbol a nodos (un Nodo.Programa)
+    Object compilar(ParseTree arbol);
+
+    // Ejecución con el evaluador de un programa ya compilado, en el hilo que llama
+    void ejecutar(Object programa);
+
+    static Etapas crear() {
+        try {
+            return (Etapas) Class.forName("EtapasInterprete").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se encontró EtapasInterprete", e);
+        }
+    }
+}
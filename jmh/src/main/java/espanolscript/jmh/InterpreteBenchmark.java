@@ -0,0 +1,72 @@
+package espanolscript.jmh;
+
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Tiempo de cada etapa del intérprete por separado: el lexer, el parser sobre
+// tokens ya producidos, el Compilador sobre un árbol ya construido y el
+// evaluador sobre un programa ya compilado.
+//
+//   mvn -B package && java -jar jmh/target/benchmarks.jar
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+public class InterpreteBenchmark {
+
+    @Param({ "fibonacci", "circulo", "grande", "anidado", "cadenas" })
+    public String programa;
+
+    private Etapas etapas;
+    private String fuente;
+    private List<Token> tokens;
+    private ParseTree arbol;
+    private Object compilado;
+    private PrintStream salida;
+
+    @Setup
+    public void preparar() {
+        etapas = Etapas.crear();
+        fuente = Programas.fuente(programa);
+        tokens = etapas.lexear(fuente);
+        arbol = etapas.parsear(tokens);
+        compilado = etapas.compilar(arbol);
+
+        // La salida del programa no forma parte de la medición
+        salida = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void terminar() {
+        System.setOut(salida);
+    }
+
+    @Benchmark
+    public List<Token> lexer() {
+        return etapas.lexear(fuente);
+    }
+
+    @Benchmark
+    public ParseTree parser() {
+        return etapas.parsear(tokens);
+    }
+
+    @Benchmark
+    public Object compilacion() {
+        return etapas.compilar(arbol);
+    }
+
+    @Benchmark
+    public void ejecucion() {
+        etapas.ejecutar(compilado);
+    }
+}
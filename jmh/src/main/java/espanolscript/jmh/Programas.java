@@ -0,0 +1,77 @@
+package espanolscript.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+// Programas de EspañolScript usados por los benchmarks: los ejemplos del
+// proyecto, dos programas generados que estresan el front end y
+// benchmarks/cadenas.es (texto acumulado en bucles).
+final class Programas {
+
+    private Programas() {
+    }
+
+    static String fuente(String nombre) {
+        switch (nombre) {
+            case "grande": return grande(400);
+            case "anidado": return anidado(150);
+            default: return recurso(nombre + ".es");
+        }
+    }
+
+    private static String recurso(String archivo) {
+        try (InputStream entrada = Programas.class.getResourceAsStream("/" + archivo)) {
+            if (entrada == null) throw new IllegalArgumentException("Programa desconocido: " + archivo);
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Muchas funciones pequeñas y un programa principal que las llama a todas
+    static String grande(int funciones) {
+        StringBuilder fuente = new StringBuilder();
+        for (int i = 0; i < funciones; i++) {
+            fuente.append("funcion f").append(i).append("(entero x, decimal d) {\n")
+                  .append("    entero z = x * ").append(i % 7 + 1).append(" + ").append(i).append(";\n")
+                  .append("    decimal w = d / 2.0 + z;\n")
+                  .append("    si (z % 2 == 0 y w > 1.5) {\n")
+                  .append("        z = z - 1;\n")
+                  .append("    } sino {\n")
+                  .append("        z = z + 1;\n")
+                  .append("    }\n")
+                  .append("    cadena s = \"f").append(i).append(": \" + z;\n")
+                  .append("    retornar z;\n")
+                  .append("}\n\n");
+        }
+        fuente.append("largo total = 0;\n");
+        for (int i = 0; i < funciones; i++) {
+            fuente.append("total = total + f").append(i).append("(").append(i).append(", 3.5);\n");
+        }
+        fuente.append("imprimir(\"total: \" + total);\n");
+        return fuente.toString();
+    }
+
+    // Bloques y expresiones anidados a gran profundidad
+    static String anidado(int profundidad) {
+        StringBuilder fuente = new StringBuilder("entero x = 0;\n");
+        for (int i = 0; i < profundidad; i++) {
+            fuente.append("si (x >= 0) {\n");
+        }
+        fuente.append("x = ");
+        for (int i = 0; i < profundidad; i++) {
+            fuente.append("(");
+        }
+        fuente.append("1");
+        for (int i = 0; i < profundidad; i++) {
+            fuente.append(i % 2 == 0 ? " + 1)" : " * 1)");
+        }
+        fuente.append(";\n");
+        for (int i = 0; i < profundidad; i++) {
+            fuente.append("}\n");
+        }
+        fuente.append("imprimir(x);\n");
+        return fuente.toString();
+    }
+}
@@ -0,0 +1,165 @@
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Pruebas de extremo a extremo del intérprete.
+//
+// Cada programa de pruebas/programas se ejecuta con el evaluador de nodos, con
+// -vm y con -jit, en una JVM aparte y desde la línea de comandos, igual que lo
+// haría un usuario. Lo que escribe se compara con su archivo .esperado, que
+// tiene la salida; después de una línea "--- errores", la salida de errores si
+// la hubo; y al final "--- código N" con el código de salida del proceso.
+//
+// La primera línea de un programa puede indicar opciones para el intérprete:
+// "// opciones: -limite-pasos=100". Con -interactivo el programa no se pasa
+// como archivo sino por la entrada, como lo escribiría alguien en una sesión.
+// Si hay un archivo .entrada, es lo que lee el programa con leer(). Un motor
+// que debe dar otro resultado tiene su propio archivo, nombre.vm.esperado o
+// nombre.jit.esperado.
+//
+// Con -Dactualizar=true se reescriben los .esperado con lo que escribe ahora
+// el evaluador de nodos, para revisar el cambio con git diff.
+public class PruebasProgramas {
+
+    private static final String[] MOTORES = { "", "-vm", "-jit" };
+
+    private static final String OPCIONES = "// opciones:";
+
+    // Lo bastante alto para el programa más lento, con la JVM arrancando
+    private static final long ESPERA_SEGUNDOS = 60;
+
+    private static final Path PROGRAMAS = Paths.get(System.getProperty("programas", "pruebas/programas"));
+
+    @TestFactory
+    public List<DynamicTest> programas() throws IOException {
+        List<Path> archivos = new ArrayList<>();
+        try (DirectoryStream<Path> directorio = Files.newDirectoryStream(PROGRAMAS, "*.es")) {
+            for (Path archivo : directorio) {
+                archivos.add(archivo);
+            }
+        }
+        Collections.sort(archivos);
+        if (archivos.isEmpty()) {
+            fail("No hay programas en " + PROGRAMAS.toAbsolutePath());
+        }
+
+        List<DynamicTest> pruebas = new ArrayList<>();
+        for (final Path archivo : archivos) {
+            for (final String motor : MOTORES) {
+                String nombre = archivo.getFileName() + (motor.isEmpty() ? "" : " " + motor);
+                pruebas.add(DynamicTest.dynamicTest(nombre, new Executable() {
+                    @Override
+                    public void execute() throws Exception {
+                        probar(archivo, motor);
+                    }
+                }));
+            }
+        }
+        return pruebas;
+    }
+
+    private static void probar(Path archivo, String motor) throws IOException, InterruptedException {
+        String nombre = archivo.getFileName().toString();
+        String base = nombre.substring(0, nombre.length() - ".es".length());
+        String obtenido = ejecutar(archivo, motor);
+
+        Path esperado = PROGRAMAS.resolve(base + (motor.isEmpty() ? "" : "." + motor.substring(1)) + ".esperado");
+        if (!Files.exists(esperado)) {
+            esperado = PROGRAMAS.resolve(base + ".esperado");
+        }
+        if (motor.isEmpty() && Boolean.getBoolean("actualizar")) {
+            Files.write(esperado, obtenido.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (!Files.exists(esperado)) {
+            fail("Falta " + esperado.getFileName() + "; lo que escribió el programa:\n" + obtenido);
+        }
+        assertEquals(leer(esperado), obtenido, nombre + (motor.isEmpty() ? "" : " con " + motor));
+    }
+
+    // Salida, errores y código de salida del intérprete con el programa
+    private static String ejecutar(Path archivo, String motor) throws IOException, InterruptedException {
+        String nombre = archivo.getFileName().toString();
+        List<String> opciones = opciones(archivo);
+        boolean interactivo = opciones.remove("-interactivo");
+
+        List<String> comando = new ArrayList<>();
+        comando.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        // Un tope de memoria fijo, para que un arreglo demasiado grande falle igual en cualquier máquina
+        comando.add("-Xmx256m");
+        comando.add("-Dfile.encoding=UTF-8");
+        comando.add("-Dsun.stdout.encoding=UTF-8");
+        comando.add("-Dsun.stderr.encoding=UTF-8");
+        comando.add("-cp");
+        comando.add(System.getProperty("java.class.path"));
+        comando.add("InterpretePrincipal");
+        comando.add(interactivo ? "-interactivo" : nombre);
+        if (!motor.isEmpty()) comando.add(motor);
+        comando.addAll(opciones);
+
+        String base = nombre.substring(0, nombre.length() - ".es".length());
+        Path entrada = interactivo ? archivo : PROGRAMAS.resolve(base + ".entrada");
+        Path salida = Files.createTempFile("salida", ".txt");
+        Path errores = Files.createTempFile("errores", ".txt");
+        try {
+            ProcessBuilder constructor = new ProcessBuilder(comando)
+                .directory(PROGRAMAS.toFile())
+                .redirectOutput(salida.toFile())
+                .redirectError(errores.toFile());
+            if (Files.exists(entrada)) {
+                constructor.redirectInput(entrada.toFile());
+            }
+            Process proceso = constructor.start();
+            if (!Files.exists(entrada)) {
+                proceso.getOutputStream().close();
+            }
+            if (!proceso.waitFor(ESPERA_SEGUNDOS, TimeUnit.SECONDS)) {
+                proceso.destroyForcibly();
+                fail(nombre + " no terminó en " + ESPERA_SEGUNDOS + " segundos");
+            }
+
+            StringBuilder texto = new StringBuilder(leer(salida));
+            String textoErrores = leer(errores);
+            if (!textoErrores.isEmpty()) {
+                texto.append("--- errores\n").append(textoErrores);
+            }
+            texto.append("--- código ").append(proceso.exitValue()).append('\n');
+            return texto.toString();
+        } finally {
+            Files.deleteIfExists(salida);
+            Files.deleteIfExists(errores);
+        }
+    }
+
+    // Opciones de la primera línea del programa, si las tiene
+    private static List<String> opciones(Path archivo) throws IOException {
+        List<String> opciones = new ArrayList<>();
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String primera = lector.readLine();
+            if (primera != null && primera.startsWith(OPCIONES)) {
+                for (String opcion : primera.substring(OPCIONES.length()).trim().split("\\s+")) {
+                    if (!opcion.isEmpty()) opciones.add(opcion);
+                }
+            }
+        }
+        return opciones;
+    }
+
+    // Sin retornos de carro, para que los .esperado sirvan en cualquier sistema
+    private static String leer(Path archivo) throws IOException {
+        String texto = new String(Files.readAllBytes(archivo), StandardCharsets.UTF_8).replace("\r", "");
+        if (!texto.isEmpty() && !texto.endsWith("\n")) {
+            texto += "\n";
+        }
+        return texto;
+    }
+}
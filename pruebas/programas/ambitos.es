@@ -0,0 +1,16 @@
+// ámbitos: globales usadas desde funciones, bloques anidados y sombras
+funcion usaG() { retornar g * 2; }
+entero g = 21;
+imprimir(usaG());
+funcion asigna(entero v) { g = v; }
+asigna(5);
+imprimir(g);
+entero x = 1;
+{ entero x = 2; imprimir(x); { entero x = 3; imprimir(x); } imprimir(x); }
+imprimir(x);
+funcion sombra(entero g) { retornar g + 1; }
+imprimir(sombra(100));
+para (entero k = 0; k < 3; k = k + 1) {
+    entero t;
+    si (k == 0) { t = 7; imprimir(t); }
+}
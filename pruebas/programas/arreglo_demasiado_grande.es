@@ -0,0 +1,3 @@
+// un arreglo que no cabe en la memoria es un error de ejecución
+entero[] v = entero[1000000000];
+imprimir(1);
@@ -0,0 +1,6 @@
+// un índice fuera del arreglo detiene el programa con un error de ejecución
+entero[] v = entero[3];
+v[2] = 1;
+imprimir("antes");
+imprimir(v[3]);
+imprimir("nunca");
@@ -0,0 +1,3 @@
+// lo mismo dentro de una función
+funcion f(entero n) { decimal[] v = decimal[n]; retornar 1; }
+imprimir(f(2000000000));
@@ -0,0 +1,4 @@
+// un tamaño negativo es un error de ejecución
+entero n = -1;
+entero[] v = entero[n];
+imprimir("nunca");
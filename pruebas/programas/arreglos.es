@@ -0,0 +1,18 @@
+// arreglos: creación, valores iniciales, lectura, escritura y paso a funciones
+entero[] v = entero[5];
+para (entero i = 0; i < 5; i = i + 1) { v[i] = i * i; }
+imprimir(v[4]);
+decimal[] d = decimal[2];
+imprimir(d[1]);
+largo[] l = largo[2];
+l[1] = 9223372036854775807;
+imprimir(l[0] + " " + l[1]);
+funcion suma(entero[] a, entero n) {
+    largo total = 0;
+    para (entero i = 0; i < n; i = i + 1) { total = total + a[i]; }
+    retornar total;
+}
+imprimir(suma(v, 5));
+funcion llena(entero[] a) { a[0] = 42; }
+llena(v);
+imprimir(v[0]);
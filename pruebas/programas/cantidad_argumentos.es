@@ -0,0 +1,3 @@
+// más argumentos que parámetros
+funcion f(entero n) { retornar n; }
+imprimir(f(1, 2));
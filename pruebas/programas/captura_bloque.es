@@ -0,0 +1,18 @@
+// una función declarada en un bloque usa las variables del bloque
+{ entero q = 4; funcion fq() { retornar q; } imprimir(fq()); }
+{
+  entero n = 0;
+  cadena s = "a";
+  funcion sube() { n = n + 1; s = s + "b"; }
+  mientras (n < 3) { sube(); }
+  imprimir(n);
+  imprimir(s);
+}
+entero g = 10;
+{
+  entero a = 1;
+  funcion f() { retornar a + g; }
+  { entero b = 7; imprimir(f() + b); }
+}
+{ entero z = 99; imprimir(z); }
+imprimir(f());
@@ -0,0 +1,8 @@
+// una función de un bloque llamada muchas veces (llega al JIT)
+{
+  entero k = 3;
+  funcion m(entero x) { retornar x * k; }
+  largo t = 0;
+  para (entero i = 0; i < 200000; i = i + 1) { t = t + m(i); }
+  imprimir(t);
+}
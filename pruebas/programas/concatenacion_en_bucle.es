@@ -0,0 +1,6 @@
+// opciones: -limite-cadena=30
+// una concatenación dentro de un bucle que no se ejecuta no se saca del bucle:
+// con el límite de cadenas fallaría aunque el programa nunca la evalúe
+cadena s = "abcdefghij"; entero n = 0; cadena t = "";
+para (entero i = 0; i < n; i = i + 1) { t = s + s + s + s; }
+imprimir("listo");
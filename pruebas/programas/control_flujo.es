@@ -0,0 +1,78 @@
+// control de flujo
+entero x = 10;
+decimal pi = 3.1416;
+cadena nombre = "Juan";
+booleano activo = verdadero;
+si (x > 5) { imprimir("x mayor"); } sino { imprimir("x menor"); }
+para (entero i = 0; i < 10; i = i + 1) {
+    si (i == 3) { continuar; }
+    si (i == 7) { romper; }
+    imprimir(i);
+}
+entero contador = 0;
+mientras (contador < 5) {
+    contador = contador + 1;
+    si (contador == 2) { continuar; }
+    imprimir("c=" + contador);
+}
+mientras (verdadero) { contador = contador + 1; si (contador > 8) { romper; } }
+imprimir(contador);
+funcion factorial(entero n) {
+    si (n <= 1) {
+        retornar 1;
+    }
+    retornar n * factorial(n - 1);
+}
+entero resultado = factorial(5);
+imprimir(resultado);
+imprimir(factorial(12));
+imprimir(factorial(13));
+funcion fib(entero n) {
+    si (n <= 1) { retornar n; }
+    retornar fib(n - 1) + fib(n - 2);
+}
+para (entero i = 0; i < 15; i = i + 1) { imprimir("fib(" + i + ") = " + fib(i)); }
+imprimir(nombre + " " + activo + " " + pi + " " + x);
+imprimir(7 / 2); imprimir(7 % 3); imprimir(7.0 / 2); imprimir(2 ^ 10); imprimir(2.0 ^ 0.5);
+imprimir(-x); imprimir(+pi); imprimir(no activo);
+imprimir(1 == 1.0); imprimir("a" == "a"); imprimir("a" != "b"); imprimir(verdadero == falso);
+imprimir(x > 3 y x < 20); imprimir(x < 3 o x > 9); imprimir(no (x == 10));
+largo grande = 3000000000;
+imprimir(grande * 2); imprimir(grande + x); imprimir(grande / 7);
+entero trunc = 7.9; imprimir(trunc);
+decimal d = 5; imprimir(d);
+largo l = 5; imprimir(l + 0.5);
+imprimir(2147483647 + 1);
+imprimir(x = 42); imprimir(x);
+entero a; entero b;
+a = b = 3; imprimir(a + b);
+funcion saluda(cadena s, entero veces) {
+    para (entero k = 0; k < veces; k = k + 1) { imprimir("hola " + s); }
+}
+saluda("ana", 2);
+imprimir(saluda("x", 0));
+funcion sinret() { imprimir("dentro"); }
+sinret();
+{ entero local = 1; imprimir(local); }
+{ entero local = 2; imprimir(local); }
+funcion esPar(entero n) { retornar n % 2 == 0; }
+imprimir(esPar(4)); imprimir(esPar(5));
+funcion busca(entero lim) {
+    entero i = 0;
+    mientras (verdadero) { si (i * i > lim) { retornar i; } i = i + 1; }
+}
+imprimir(busca(50));
+imprimir("tabla");
+para (entero i = 1; i <= 3; i = i + 1) { para (entero j = 1; j <= 3; j = j + 1) { si (j == 2) { continuar; } imprimir(i * j); } }
+imprimir(10 - 2 - 3); imprimir(2 * 3 + 4 * 5); imprimir(100 / 10 / 5); imprimir((1 + 2) * 3);
+imprimir(1 < 2 == verdadero);
+decimal acc = 0.0;
+para (entero i = 0; i < 10; i = i + 1) { acc = acc + 0.1; }
+imprimir(acc);
+cadena s = "";
+para (entero i = 0; i < 5; i = i + 1) { s = s + i + ","; }
+imprimir(s);
+imprimir(1 + 2 + "x" + 1 + 2);
+imprimir(5.0 % 3); imprimir(grande % 7); imprimir(grande ^ 2);
+retornar;
+imprimir("no llega");
@@ -0,0 +1,5 @@
+// un largo que no cabe en un entero
+entero v = 2147483647;
+largo w = 9223372036854775807;
+imprimir(w);
+entero m = w;
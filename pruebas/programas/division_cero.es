@@ -0,0 +1,2 @@
+// dividir por cero es un error de ejecución
+imprimir(1 / 0);
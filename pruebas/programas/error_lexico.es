@@ -0,0 +1,2 @@
+// un carácter que no pertenece al lenguaje
+imprimir(@);
@@ -0,0 +1,2 @@
+// falta el segundo operando
+imprimir(1 +);
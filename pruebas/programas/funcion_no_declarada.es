@@ -0,0 +1,2 @@
+// llamar a una función que no existe
+imprimir(g(1));
@@ -0,0 +1,4 @@
+// declarar dos veces la misma función es un error de compilación
+funcion f() { retornar 1; }
+imprimir(f());
+funcion f() { retornar 2; }
@@ -0,0 +1,4 @@
+// una función que usa una global antes de que se declare
+funcion usaH() { retornar h; }
+imprimir(usaH());
+entero h = 1;
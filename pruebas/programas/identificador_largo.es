@@ -0,0 +1,2 @@
+// los identificadores tienen a lo sumo 10 caracteres
+entero identificadorlargo = 1;
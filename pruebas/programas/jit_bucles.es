@@ -0,0 +1,12 @@
+// funciones con bucles llamadas lo bastante para compilarse con el JIT
+funcion f(entero n) {
+  entero i = 0;
+  mientras (i < n) { i = i + 1; }
+  retornar i;
+}
+largo total = 0;
+para (entero k = 0; k < 3000; k = k + 1) {
+  total = total + f(k);
+  si (k % 500 == 0) { imprimir(total); }
+}
+imprimir(total);
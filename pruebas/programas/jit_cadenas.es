@@ -0,0 +1,9 @@
+// concatenación de cadenas en una función compilada por el JIT
+funcion g(entero n) {
+  cadena s = "";
+  para (entero i = 0; i < n; i = i + 1) { s = s + "ab"; }
+  retornar s;
+}
+para (entero k = 0; k < 2000; k = k + 1) { g(5); }
+imprimir(g(100));
+imprimir(g(40));
@@ -0,0 +1,12 @@
+// recursión común y de cola, antes y después del JIT
+funcion prof(entero n) {
+  si (n == 0) { retornar 0; }
+  retornar 1 + prof(n - 1);
+}
+funcion cola(entero n, entero a) {
+  si (n == 0) { retornar a; }
+  retornar cola(n - 1, a + 1);
+}
+para (entero k = 0; k < 2000; k = k + 1) { prof(10); cola(10, 0); }
+imprimir(cola(100000, 0));
+imprimir(prof(5000));
@@ -0,0 +1,5 @@
+// leer() devuelve cada línea de la entrada
+cadena c = leer();
+imprimir("Escribiste: " + c);
+cadena d = leer();
+imprimir(d + "!");
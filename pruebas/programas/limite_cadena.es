@@ -0,0 +1,9 @@
+// opciones: -limite-cadena=1000
+funcion g(entero n) {
+    cadena s = "";
+    para (entero i = 0; i < n; i = i + 1) { s = s + "ab"; }
+    retornar s;
+}
+para (entero k = 0; k < 2000; k = k + 1) { g(5); }
+imprimir(g(100));
+imprimir(g(5000));
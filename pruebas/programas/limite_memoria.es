@@ -0,0 +1,5 @@
+// opciones: -limite-memoria=100000
+entero[] chico = entero[100];
+imprimir("chico");
+largo[] grande = largo[1000000];
+imprimir("nunca");
@@ -0,0 +1,4 @@
+// opciones: -limite-pasos=1000
+// un bucle infinito se detiene al agotar los pasos
+entero i = 0;
+mientras (verdadero) { i = i + 1; }
@@ -0,0 +1,6 @@
+// opciones: -limite-pasos=100000
+// el límite también se revisa dentro de una función compilada por el JIT
+funcion f(entero n) { entero i = 0; mientras (n > 0) { i = i + 1; } retornar i; }
+para (entero k = 0; k < 2000; k = k + 1) { f(0); }
+imprimir("llamadas listas");
+imprimir(f(1));
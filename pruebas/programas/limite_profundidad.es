@@ -0,0 +1,4 @@
+// opciones: -limite-profundidad=100
+funcion prof(entero n) { si (n == 0) { retornar 0; } retornar 1 + prof(n - 1); }
+imprimir(prof(50));
+imprimir(prof(500));
@@ -0,0 +1,3 @@
+// una variable no declarada es un error de compilación
+imprimir("a");
+imprimir(otra);
@@ -0,0 +1,3 @@
+// una función sin valor no puede inicializar una variable entera
+funcion nada() { }
+entero x = nada();
@@ -0,0 +1,33 @@
+// enteros, largos y decimales: conversiones, comparaciones y desbordamiento
+funcion nada() { }
+cadena c = nada();
+imprimir(c);
+funcion pot(decimal b, entero e) { decimal r = 1; para (entero i = 0; i < e; i = i + 1) { r = r * b; } retornar r; }
+imprimir(pot(1.5, 3));
+imprimir(pot(2, 10) == 1024);
+largo big = 9007199254740993;
+largo big2 = 9007199254740992;
+imprimir(big == big2); imprimir(big > big2);
+imprimir(3 == 3.0); imprimir(3 != 4); imprimir(verdadero != falso);
+entero ov = 100000 * 100000; imprimir(ov);
+largo lv = 100000 * 100000; imprimir(lv);
+largo lw = 100000; imprimir(lw * 100000);
+decimal q = 10 / 4; imprimir(q);
+imprimir(10 / 4.0);
+imprimir(-(-5)); imprimir(-2.5); imprimir(-big);
+funcion mixto(entero n) { si (n > 0) { retornar n; } retornar "neg"; }
+imprimir(mixto(3) + mixto(-1));
+funcion tipoB(entero n) { retornar n > 2; }
+si (tipoB(5)) { imprimir("si"); }
+booleano bb = tipoB(1) o tipoB(7); imprimir(bb);
+entero g2;
+funcion leeG() { retornar g2; }
+g2 = 4;
+imprimir(leeG());
+funcion fact(largo n) { si (n <= 1) { retornar 1; } retornar n * fact(n - 1); }
+imprimir(fact(20));
+funcion cuenta(entero n) { entero k = 0; mientras (k < n) { k = k + 1; si (k == 5) { romper; } } retornar k; }
+imprimir(cuenta(100)); imprimir(cuenta(3));
+decimal dd = 7; entero ee = dd * 2.6; imprimir(ee);
+imprimir(2 ^ 3);
+imprimir(10 % 3 * 2);
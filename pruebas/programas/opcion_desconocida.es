@@ -0,0 +1,2 @@
+// opciones: -rapido
+imprimir("nunca");
@@ -0,0 +1,2 @@
+// opciones: -limite-pasos=mucho
+imprimir("nunca");
@@ -0,0 +1,3 @@
+// un nombre no declarado es un error aunque la rama nunca se ejecute
+si (falso) { imprimir(noexiste); }
+imprimir("nunca");
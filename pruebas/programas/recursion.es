@@ -0,0 +1,3 @@
+// recursión de mil niveles
+funcion prof(entero n) { si (n == 0) { retornar 0; } retornar 1 + prof(n - 1); }
+imprimir(prof(1000));
@@ -0,0 +1,3 @@
+// 'romper' fuera de un bucle es un error de compilación
+imprimir("a");
+funcion f() { romper; retornar 1; }
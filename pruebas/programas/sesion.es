@@ -0,0 +1,14 @@
+// opciones: -interactivo
+entero x = 1;
+imprimir(x);
+funcion doble(entero n) { retornar n * 2; }
+imprimir(doble(x));
+entero w = doble(x) / 0;
+imprimir(w);
+entero w = 5;
+imprimir(w + x);
+funcion doble(entero n) { retornar n * 3; }
+imprimir(doble(4));
+entero z = "texto";
+entero z = 7;
+imprimir(z);
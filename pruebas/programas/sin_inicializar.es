@@ -0,0 +1,3 @@
+// una variable sin valor inicial
+entero z;
+imprimir(z);
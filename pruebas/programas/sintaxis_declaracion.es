@@ -0,0 +1,2 @@
+// 'y' es una palabra reservada: se informa el token inesperado y lo que se esperaba
+decimal y = 1;
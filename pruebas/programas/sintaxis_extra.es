@@ -0,0 +1,3 @@
+// un operador de más
+entero x = 1;
+x = x + * 2;
@@ -0,0 +1,3 @@
+// varios errores de sintaxis se informan juntos
+entero x = ;
+imprimir(1) imprimir(2);
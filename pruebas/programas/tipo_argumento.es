@@ -0,0 +1,3 @@
+// un argumento de otro tipo que el parámetro
+funcion f(entero n) { retornar n; }
+imprimir(f("a"));
@@ -0,0 +1,4 @@
+// una cadena en una variable entera es un error de tipo antes de ejecutar
+entero x = 1;
+imprimir("antes");
+x = "hola";
@@ -0,0 +1,2 @@
+// la condición de 'si' debe ser booleana
+si (1) { imprimir("x"); }
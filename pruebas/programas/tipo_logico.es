@@ -0,0 +1,3 @@
+// 'y', 'o' y 'no' sólo aceptan booleanos
+booleano a = verdadero y 1;
+booleano b = no "x";
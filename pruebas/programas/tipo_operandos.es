@@ -0,0 +1,4 @@
+// sumar un booleano es un error de tipo
+entero i = 0;
+para (entero i = 0; i < 2; i = i + 1) { imprimir(i); }
+entero q = 1 + verdadero;
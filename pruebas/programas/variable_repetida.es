@@ -0,0 +1,3 @@
+// declarar dos veces la misma variable en un ámbito
+entero x = 1;
+entero x = 2;